@@ -6,6 +6,8 @@ import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.logging.Level;
 
 import com.wificraft.sentinel.modules.InspectionModule;
@@ -20,7 +22,16 @@ import com.wificraft.sentinel.alerts.AlertManager;
 import com.wificraft.sentinel.modules.anticheat.AntiCheatIntegration;
 import com.wificraft.sentinel.modules.anticheat.grim.GrimIntegration;
 // JavaAssistRemover temporarily disabled
+import com.wificraft.sentinel.modules.ip.AccountLinkService;
+import com.wificraft.sentinel.modules.data.WriteBehindService;
+import com.wificraft.sentinel.modules.storage.FileStorage;
+import com.wificraft.sentinel.modules.storage.JdbcStorage;
+import com.wificraft.sentinel.modules.storage.SentinelStorage;
+import com.wificraft.sentinel.modules.ip.BotWaveGate;
+import com.wificraft.sentinel.modules.ip.GeoIpService;
 import com.wificraft.sentinel.modules.ip.IpAnalyzer;
+import com.wificraft.sentinel.modules.ip.IpIntelligenceService;
+import com.wificraft.sentinel.modules.ip.ProviderFeedService;
 import com.wificraft.sentinel.modules.logging.HistoryLogger;
 import com.wificraft.sentinel.modules.config.NotificationConfig;
 import com.wificraft.sentinel.modules.PerformanceModule;
@@ -28,6 +39,16 @@ import com.wificraft.sentinel.modules.LiveMonitor;
 import com.wificraft.sentinel.modules.security.SecurityModule;
 import com.wificraft.sentinel.modules.security.HardwareFingerprinter;
 import com.wificraft.sentinel.modules.security.ClientSecurity;
+import com.wificraft.sentinel.modules.security.ClientFingerprintManager;
+import com.wificraft.sentinel.modules.security.BehaviorAnalyzer;
+import com.wificraft.sentinel.modules.chat.ChatPatternMatcher;
+import com.wificraft.sentinel.modules.chat.ChatVerdictEngine;
+import com.wificraft.sentinel.modules.chat.NearDuplicateDetector;
+import com.wificraft.sentinel.modules.pipeline.AnalysisPipeline;
+import com.wificraft.sentinel.modules.pipeline.MoveIngestionStage;
+import com.wificraft.sentinel.modules.reports.ChatMonitor;
+import com.wificraft.sentinel.modules.reports.PlayerTracker;
+import com.wificraft.sentinel.modules.reports.WorldBorderProtection;
 
 public class WiFiCraftSentinel extends JavaPlugin {
     private SecurityModule securityModule;
@@ -42,6 +63,19 @@ public class WiFiCraftSentinel extends JavaPlugin {
     private NotificationConfig notificationConfig;
     private AntiCheatIntegration antiCheat;
     private IpAnalyzer ipAnalyzer;
+    private AnalysisPipeline analysisPipeline;
+    private MoveIngestionStage moveIngestion;
+    private ChatPatternMatcher chatPatternMatcher;
+    private NearDuplicateDetector chatDuplicateDetector;
+    private ChatMonitor chatMonitor;
+    private GeoIpService geoIpService;
+    private ProviderFeedService providerFeeds;
+    private IpIntelligenceService ipIntelligence;
+    private AccountLinkService accountLinks;
+    private ClientFingerprintManager clientFingerprints;
+    private BotWaveGate botWaveGate;
+    private WriteBehindService writeBehind;
+    private SentinelStorage storage;
     // JavaAssistRemover temporarily disabled
 
     @Override
@@ -52,6 +86,13 @@ public class WiFiCraftSentinel extends JavaPlugin {
             getConfig().options().copyDefaults(true);
             saveConfig();
             
+            // YAML stores save through one I/O thread from here on
+            this.writeBehind = new WriteBehindService(getLogger());
+            writeBehind.start(this, getConfig().getLong("persistence.flush-interval-ticks", 20));
+            
+            // Reports and other shared data, in the plugin folder or a database
+            this.storage = openStorage();
+            
             // Initialize core components
             initializeSecurity();
             
@@ -59,7 +100,7 @@ public class WiFiCraftSentinel extends JavaPlugin {
             this.alertManager = new AlertManager();
             this.inspectionModule = new InspectionModule(this);
             this.moderatorRanking = new ModeratorRanking(this);
-            this.reportManager = new ReportManager(this);
+            this.reportManager = new ReportManager(this, storage);
             this.reportGUI = new ReportGUI(this);
             this.historyLogger = new HistoryLogger(this);
             this.notificationConfig = new NotificationConfig(this);
@@ -105,9 +146,12 @@ public class WiFiCraftSentinel extends JavaPlugin {
         // Initialize notification config
         this.notificationConfig = new NotificationConfig(getDataFolder());
         
+        // Compile the chat word lists shared by every chat scanner
+        this.chatPatternMatcher = new ChatPatternMatcher(this, this.notificationConfig);
+        
         // Initialize HistoryLogger with log retention days from config.yml
         int logRetentionDays = getConfig().getInt("logging.retention-days", 7); // Default to 7 days if not set
-        this.historyLogger = new HistoryLogger(getDataFolder(), this.notificationConfig, logRetentionDays);
+        this.historyLogger = new HistoryLogger(getDataFolder(), this.notificationConfig, this.chatPatternMatcher, logRetentionDays);
         
         // Initialize anti-cheat integration
         this.antiCheat = new AntiCheatIntegration(this);
@@ -120,13 +164,95 @@ public class WiFiCraftSentinel extends JavaPlugin {
             getLogger().warning("GrimAC not found, some anti-cheat features will be disabled");
         }
 
+        // Offline GeoIP database shared by the IP detectors
+        this.geoIpService = new GeoIpService(this);
+        geoIpService.start();
+        
+        // Cloud and data center range feeds, recompiled off the main thread when they change
+        this.providerFeeds = new ProviderFeedService(this);
+        providerFeeds.start();
+        
+        // One single-flight IP lookup per address, prefetched while players log in
+        this.ipIntelligence = new IpIntelligenceService(this, geoIpService);
+        if (storage instanceof JdbcStorage) {
+            ipIntelligence.setSharedStorage(storage, getConfig().getLong("ip-intelligence.persist-hours", 48) * 3_600_000L);
+        }
+        getServer().getPluginManager().registerEvents(ipIntelligence, this);
+        
+        // Connection floods turned away per address, network and ASN before players join
+        if (getConfig().getBoolean("bot-wave.enabled", true)) {
+            this.botWaveGate = new BotWaveGate(this, ipIntelligence);
+            getServer().getPluginManager().registerEvents(botWaveGate, this);
+        }
+        
+        // Accounts linked by shared addresses and fingerprints, kept across restarts
+        if (getConfig().getBoolean("alt-links.enabled", true)) {
+            this.accountLinks = new AccountLinkService(this);
+            accountLinks.start();
+            getServer().getPluginManager().registerEvents(accountLinks, this);
+        }
+        
+        // Client fingerprints of past players, kept across restarts
+        if (getConfig().getBoolean("client-fingerprints.enabled", true)) {
+            this.clientFingerprints = new ClientFingerprintManager(this, reportManager,
+                new File(getDataFolder(), getConfig().getString("client-fingerprints.file", "fingerprints.bin")));
+            clientFingerprints.setAccountLinks(accountLinks);
+            clientFingerprints.start();
+            getServer().getPluginManager().registerEvents(clientFingerprints, this);
+        }
+
         // Initialize IP analyzer
         this.ipAnalyzer = new IpAnalyzer(this);
         ipAnalyzer.start();
 
+        initializeAnalysis();
+
         getLogger().info("WiFiCraft Sentinel włączony!");
     }
 
+    /**
+     * Starts the off-thread analysis pipeline and registers the behavior listeners on it.
+     */
+    private void initializeAnalysis() {
+        try {
+            if (getConfig().getBoolean("analysis-pipeline.enabled", true)) {
+                this.analysisPipeline = new AnalysisPipeline(this);
+                analysisPipeline.start();
+            }
+            
+            // One shared move listener filters and merges moves, then fans them out to every consumer
+            this.moveIngestion = new MoveIngestionStage(this, analysisPipeline);
+            
+            BehaviorAnalyzer securityAnalyzer = new BehaviorAnalyzer(this);
+            com.wificraft.sentinel.modules.behavior.BehaviorAnalyzer behaviorAnalyzer =
+                new com.wificraft.sentinel.modules.behavior.BehaviorAnalyzer(analysisPipeline, new NearDuplicateDetector(getConfig()));
+            this.chatDuplicateDetector = behaviorAnalyzer.getDuplicateDetector();
+            PlayerTracker playerTracker = new PlayerTracker(reportManager, analysisPipeline);
+            getServer().getPluginManager().registerEvents(securityAnalyzer, this);
+            getServer().getPluginManager().registerEvents(behaviorAnalyzer, this);
+            getServer().getPluginManager().registerEvents(playerTracker, this);
+            
+            // Chat verdicts are computed on the chat threads and reported from the main thread
+            this.chatMonitor = new ChatMonitor(this, reportManager,
+                new ChatVerdictEngine(getConfig(), chatPatternMatcher, new NearDuplicateDetector(getConfig())));
+            getServer().getPluginManager().registerEvents(chatMonitor, this);
+            chatMonitor.start();
+            moveIngestion.subscribe(securityAnalyzer);
+            moveIngestion.subscribe(behaviorAnalyzer);
+            moveIngestion.subscribe(playerTracker);
+            if (getConfig().isConfigurationSection("world-borders")) {
+                WorldBorderProtection borderProtection = new WorldBorderProtection(reportManager, getConfig(), analysisPipeline);
+                getServer().getPluginManager().registerEvents(borderProtection, this);
+                moveIngestion.subscribe(borderProtection);
+            }
+            
+            getServer().getPluginManager().registerEvents(moveIngestion, this);
+            moveIngestion.start();
+        } catch (Exception e) {
+            getLogger().log(Level.SEVERE, "Błąd podczas inicjalizacji analizy zachowań", e);
+        }
+    }
+
     /* public AlertManager getAlertManager() {
         return alertManager;
     } */
@@ -151,8 +277,10 @@ public class WiFiCraftSentinel extends JavaPlugin {
                 getLogger().info("ModeratorRanking initialized");
             }
             
-            // Initialize report system
-            this.reportManager = new ReportManager(this);
+            // Initialize report system; the journal allows one manager per data folder
+            if (this.reportManager == null) {
+                this.reportManager = new ReportManager(this, storage);
+            }
             this.reportGUI = new ReportGUI(this, reportManager);
             getServer().getPluginManager().registerEvents(reportGUI, this);
             
@@ -179,6 +307,17 @@ public class WiFiCraftSentinel extends JavaPlugin {
         }
     }
 
+    /**
+     * Also recompiles the chat pattern matcher so pattern list changes apply without a restart.
+     */
+    @Override
+    public void reloadConfig() {
+        super.reloadConfig();
+        if (chatPatternMatcher != null) {
+            chatPatternMatcher.reload();
+        }
+    }
+
     @Override
     public void onDisable() {
         try {
@@ -192,10 +331,66 @@ public class WiFiCraftSentinel extends JavaPlugin {
                 alertManager = null;
             }
             
+            if (ipIntelligence != null) {
+                ipIntelligence.shutdown();
+                ipIntelligence = null;
+            }
+            
+            if (accountLinks != null) {
+                accountLinks.shutdown();
+                accountLinks = null;
+            }
+            
+            if (clientFingerprints != null) {
+                clientFingerprints.shutdown();
+                clientFingerprints = null;
+            }
+            
+            if (geoIpService != null) {
+                geoIpService.shutdown();
+                geoIpService = null;
+            }
+            
+            if (providerFeeds != null) {
+                providerFeeds.shutdown();
+                providerFeeds = null;
+            }
+            
+            // Report the chat verdicts still queued while ReportManager is available
+            if (chatMonitor != null) {
+                try {
+                    chatMonitor.shutdown();
+                } catch (Exception e) {
+                    getLogger().log(Level.WARNING, "Błąd podczas zatrzymywania monitora czatu", e);
+                }
+                chatMonitor = null;
+            }
+            
+            // Hand the last merged moves to the pipeline before it drains
+            if (moveIngestion != null) {
+                try {
+                    moveIngestion.shutdown();
+                } catch (Exception e) {
+                    getLogger().log(Level.WARNING, "Błąd podczas zatrzymywania etapu zdarzeń ruchu", e);
+                }
+                moveIngestion = null;
+            }
+            
+            // Drain pending analysis before saving so queued reports are persisted
+            if (analysisPipeline != null) {
+                try {
+                    analysisPipeline.shutdown();
+                } catch (Exception e) {
+                    getLogger().log(Level.WARNING, "Błąd podczas zatrzymywania potoku analizy", e);
+                }
+                analysisPipeline = null;
+            }
+            
             // Save data first
             if (reportManager != null) {
                 try {
                     reportManager.saveReports();
+                    reportManager.shutdown();
                 } catch (Exception e) {
                     getLogger().log(Level.WARNING, "Błąd podczas zapisywania raportów", e);
                 }
@@ -239,6 +434,25 @@ public class WiFiCraftSentinel extends JavaPlugin {
             antiCheat = null;
             ipAnalyzer = null;
             
+            if (storage != null) {
+                try {
+                    storage.close();
+                } catch (Exception e) {
+                    getLogger().log(Level.WARNING, "Błąd podczas zamykania magazynu danych", e);
+                }
+                storage = null;
+            }
+            
+            // Flush barrier: every save requested above is on disk before the plugin goes away
+            if (writeBehind != null) {
+                try {
+                    writeBehind.shutdown();
+                } catch (Exception e) {
+                    getLogger().log(Level.WARNING, "Błąd podczas zapisywania plików danych", e);
+                }
+                writeBehind = null;
+            }
+            
             getLogger().info("WiFiCraft Sentinel has been disabled!");
             
         } catch (Exception e) {
@@ -363,4 +577,89 @@ public class WiFiCraftSentinel extends JavaPlugin {
     public NotificationConfig getNotificationConfig() {
         return this.notificationConfig;
     }
+
+    public AnalysisPipeline getAnalysisPipeline() {
+        return analysisPipeline;
+    }
+
+    public MoveIngestionStage getMoveIngestion() {
+        return moveIngestion;
+    }
+
+    public ChatPatternMatcher getChatPatternMatcher() {
+        return chatPatternMatcher;
+    }
+
+    public NearDuplicateDetector getChatDuplicateDetector() {
+        return chatDuplicateDetector;
+    }
+
+    public ChatMonitor getChatMonitor() {
+        return chatMonitor;
+    }
+
+    public GeoIpService getGeoIpService() {
+        return geoIpService;
+    }
+
+    public ProviderFeedService getProviderFeeds() {
+        return providerFeeds;
+    }
+
+    public IpIntelligenceService getIpIntelligence() {
+        return ipIntelligence;
+    }
+
+    public AccountLinkService getAccountLinks() {
+        return accountLinks;
+    }
+
+    public ClientFingerprintManager getClientFingerprints() {
+        return clientFingerprints;
+    }
+
+    public BotWaveGate getBotWaveGate() {
+        return botWaveGate;
+    }
+
+    public WriteBehindService getWriteBehind() {
+        return writeBehind;
+    }
+
+    public SentinelStorage getStorage() {
+        return storage;
+    }
+
+    /**
+     * Opens the storage chosen by {@code storage.type}; a database that cannot be reached
+     * falls back to the plugin folder, so the server still starts.
+     */
+    private SentinelStorage openStorage() {
+        String type = getConfig().getString("storage.type", "file");
+        if ("mysql".equalsIgnoreCase(type) || "jdbc".equalsIgnoreCase(type)) {
+            JdbcStorage jdbc = new JdbcStorage(
+                JdbcStorage.createPool(getConfig().getString("storage.jdbc.url", "jdbc:mysql://localhost:3306/sentinel"),
+                    getConfig().getString("storage.jdbc.user", "sentinel"),
+                    getConfig().getString("storage.jdbc.password", ""),
+                    getConfig().getInt("storage.jdbc.pool-size", 4)),
+                getLogger(),
+                getConfig().getLong("storage.jdbc.commit-interval-ms", 50),
+                getConfig().getInt("storage.jdbc.batch-size", 500));
+            try {
+                jdbc.open();
+                getLogger().info("Dane są zapisywane w bazie danych");
+                return jdbc;
+            } catch (IOException e) {
+                getLogger().log(Level.SEVERE, "Nie udało się połączyć z bazą danych, dane będą zapisywane w plikach", e);
+                jdbc.close();
+            }
+        }
+        SentinelStorage files = new FileStorage(getDataFolder(), getConfig(), getLogger(), null);
+        try {
+            files.open();
+        } catch (IOException e) {
+            getLogger().log(Level.SEVERE, "Nie udało się otworzyć plików danych", e);
+        }
+        return files;
+    }
 }
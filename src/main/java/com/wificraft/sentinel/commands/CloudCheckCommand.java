@@ -17,7 +17,7 @@ public class CloudCheckCommand implements CommandExecutor {
 
     public CloudCheckCommand(WiFiCraftSentinel plugin) {
         this.plugin = plugin;
-        this.cloudDetector = new CloudProviderDetector(60); // Cache duration 60 minutes
+        this.cloudDetector = new CloudProviderDetector(plugin.getIpIntelligence());
     }
 
     @Override
@@ -17,7 +17,7 @@ public class DataCenterCheckCommand implements CommandExecutor {
 
     public DataCenterCheckCommand(WiFiCraftSentinel plugin) {
         this.plugin = plugin;
-        this.dcDetector = new DataCenterDetector(60); // Cache duration 60 minutes
+        this.dcDetector = new DataCenterDetector(plugin.getIpIntelligence());
     }
 
     @Override
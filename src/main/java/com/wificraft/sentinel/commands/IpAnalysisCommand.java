@@ -6,9 +6,12 @@ import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import com.wificraft.sentinel.modules.ip.IpAnalysis;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import com.wificraft.sentinel.WiFiCraftSentinel;
+import com.wificraft.sentinel.modules.ip.AccountLinkIndex;
+import com.wificraft.sentinel.modules.ip.AccountLinkService;
 import com.wificraft.sentinel.modules.ip.IpAnalyzer;
 import com.wificraft.sentinel.modules.ip.IpAnalysis;
 
@@ -64,6 +67,18 @@ public class IpAnalysisCommand implements CommandExecutor {
         message.append("\n§7Proxy wykryty: §a").append(analysis.getProxyDetected() ? "Tak" : "Nie");
         message.append("\n§7Podejrzany: §a").append(analysis.isSuspicious() ? "Tak" : "Nie");
 
+        AccountLinkService accountLinks = plugin.getAccountLinks();
+        if (accountLinks != null) {
+            List<AccountLinkIndex.AccountLink> links = accountLinks.getLinkedAccounts(target.getUniqueId());
+            message.append("\n§7Powiązane konta: §a").append(links.size())
+                .append(" §7(klaster: §a").append(accountLinks.getClusterSize(target.getUniqueId())).append("§7)");
+            for (AccountLinkIndex.AccountLink link : links.subList(0, Math.min(5, links.size()))) {
+                String name = Bukkit.getOfflinePlayer(link.getAccount()).getName();
+                message.append("\n§8- §e").append(name != null ? name : link.getAccount())
+                    .append(" §7").append(Math.round(link.getStrength() * 100)).append("%");
+            }
+        }
+
         player.sendMessage(message.toString());
         return true;
     }
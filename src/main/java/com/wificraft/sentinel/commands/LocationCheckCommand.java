@@ -18,7 +18,7 @@ public class LocationCheckCommand implements CommandExecutor {
 
     public LocationCheckCommand(WiFiCraftSentinel plugin) {
         this.plugin = plugin;
-        this.geolocationService = new GeolocationService(60); // Cache duration 60 minutes
+        this.geolocationService = new GeolocationService(plugin.getIpIntelligence());
     }
 
     @Override
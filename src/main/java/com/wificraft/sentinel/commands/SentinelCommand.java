@@ -99,6 +99,21 @@ public class SentinelCommand implements CommandExecutor {
         if (liveMonitor != null) sender.sendMessage(String.format("§8• §eAktywnych monitorów: §7%d", liveMonitor.getActiveMonitorCount()));
         if (inspectionModule != null) sender.sendMessage(String.format("§8• §eAktywnych inspekcji: §7%d", inspectionModule.getActiveInspectionCount()));
         if (moderatorRanking != null) sender.sendMessage(String.format("§8• §eModeratorów w rankingu: §7%d", moderatorRanking.getRankedModeratorCount()));
+        if (plugin.getAnalysisPipeline() != null) sender.sendMessage(String.format("§8• §ePotok analizy: §7%s", plugin.getAnalysisPipeline().getStatusLine()));
+        if (plugin.getMoveIngestion() != null) sender.sendMessage(String.format("§8• §eZdarzenia ruchu: §7%s", plugin.getMoveIngestion().getStatusLine()));
+        if (plugin.getChatPatternMatcher() != null) sender.sendMessage(String.format("§8• §eWzorce czatu: §7%s", plugin.getChatPatternMatcher().getStatusLine()));
+        if (plugin.getChatDuplicateDetector() != null) sender.sendMessage(String.format("§8• §ePowtórzenia czatu: §7%s", plugin.getChatDuplicateDetector().getStatusLine()));
+        if (plugin.getChatMonitor() != null) sender.sendMessage(String.format("§8• §eWerdykty czatu: §7%s", plugin.getChatMonitor().getVerdictEngine().getStatusLine()));
+        if (plugin.getGeoIpService() != null) sender.sendMessage(String.format("§8• §eBaza GeoIP: §7%s", plugin.getGeoIpService().getStatusLine()));
+        if (plugin.getProviderFeeds() != null) sender.sendMessage(String.format("§8• §eZakresy dostawców: §7%s", plugin.getProviderFeeds().getStatusLine()));
+        if (plugin.getIpIntelligence() != null) sender.sendMessage(String.format("§8• §eWywiad IP: §7%s", plugin.getIpIntelligence().getStatusLine()));
+        if (plugin.getAccountLinks() != null) sender.sendMessage(String.format("§8• §ePowiązania kont: §7%s", plugin.getAccountLinks().getStatusLine()));
+        if (plugin.getClientFingerprints() != null) sender.sendMessage(String.format("§8• §eOdciski klientów: §7%s", plugin.getClientFingerprints().getStatusLine()));
+        if (plugin.getReportManager() != null) sender.sendMessage(String.format("§8• §eZgłoszenia: §7%s", plugin.getReportManager().getStatusLine()));
+        if (plugin.getReportManager() != null) sender.sendMessage(String.format("§8• §eZgłoszenia automatyczne: §7%s", plugin.getReportManager().getCoalescer().getStatusLine()));
+        if (plugin.getBotWaveGate() != null) sender.sendMessage(String.format("§8• §eFala botów: §7%s", plugin.getBotWaveGate().getStatusLine()));
+        if (plugin.getWriteBehind() != null) sender.sendMessage(String.format("§8• §eZapis plików: §7%s", plugin.getWriteBehind().getStatusLine()));
+        if (plugin.getStorage() != null) sender.sendMessage(String.format("§8• §eMagazyn danych: §7%s (%s)", plugin.getStorage().getName(), plugin.getStorage().getStatusLine()));
         
         return true;
     }
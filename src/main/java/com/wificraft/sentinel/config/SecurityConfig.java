@@ -20,6 +20,7 @@ public class SecurityConfig {
     public static final String BEHAVIOR_TRACKING_CHAT_FREQUENCY_THRESHOLD = "behavior-tracking.chat-frequency-threshold";
     public static final String BEHAVIOR_TRACKING_TELEPORT_FREQUENCY_THRESHOLD = "behavior-tracking.teleport-frequency-threshold";
     public static final String BEHAVIOR_TRACKING_MOVEMENT_FREQUENCY_THRESHOLD = "behavior-tracking.movement-frequency-threshold";
+    public static final String BEHAVIOR_TRACKING_BUFFER_CAPACITY = "behavior-tracking.buffer-capacity";
     
     // Alert system settings
     public static final String ALERTS_ENABLED = "alerts.enabled";
@@ -68,6 +69,7 @@ public class SecurityConfig {
         defaults.put(BEHAVIOR_TRACKING_CHAT_FREQUENCY_THRESHOLD, 5);
         defaults.put(BEHAVIOR_TRACKING_TELEPORT_FREQUENCY_THRESHOLD, 3);
         defaults.put(BEHAVIOR_TRACKING_MOVEMENT_FREQUENCY_THRESHOLD, 20);
+        defaults.put(BEHAVIOR_TRACKING_BUFFER_CAPACITY, 1024);
         
         // Alert system defaults
         defaults.put(ALERTS_ENABLED, true);
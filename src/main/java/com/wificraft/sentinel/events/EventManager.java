@@ -4,67 +4,134 @@ import org.bukkit.event.Event;
 import org.bukkit.event.Listener;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
+/**
+ * Dispatches events to listeners registered for their exact class.
+ *
+ * Each event class maps to an immutable array of listeners already ordered by priority
+ * (registration order within the same priority). Registration and removal build a new
+ * array and publish it, so {@link #fireEvent(Event)} only reads the current array: it
+ * never sorts, locks or allocates, and it is safe to call from any thread.
+ */
 public class EventManager implements Listener {
-    private final Map<String, List<EventListener>> eventListeners;
-    private final Map<String, EventPriority> eventPriorities;
-    private final Map<String, EventFilter> eventFilters;
+    private static final RegisteredListener[] NO_LISTENERS = new RegisteredListener[0];
+
+    private final Map<Class<? extends Event>, RegisteredListener[]> dispatch;
+    private final Object registrationLock;
+    private final Logger logger;
 
     public EventManager() {
-        this.eventListeners = new ConcurrentHashMap<>();
-        this.eventPriorities = new ConcurrentHashMap<>();
-        this.eventFilters = new ConcurrentHashMap<>();
+        this(Logger.getLogger(EventManager.class.getName()));
     }
 
-    public void registerEvent(String eventName, EventListener listener, EventPriority priority, EventFilter filter) {
-        eventListeners.computeIfAbsent(eventName, k -> new ArrayList<>()).add(listener);
-        eventPriorities.put(eventName, priority);
-        eventFilters.put(eventName, filter);
+    public EventManager(Logger logger) {
+        this.dispatch = new ConcurrentHashMap<>();
+        this.registrationLock = new Object();
+        this.logger = logger;
     }
 
-    public void unregisterEvent(String eventName) {
-        eventListeners.remove(eventName);
-        eventPriorities.remove(eventName);
-        eventFilters.remove(eventName);
+    /**
+     * Registers a listener for one event class. Subclasses of {@code eventType} are not delivered.
+     * @param priority Dispatch priority, or null to use {@link EventListener#getPriority()}
+     * @param filter Filter applied to this registration only, or null
+     * @return The registration, which also carries the listener's timing and failure counters
+     */
+    public RegisteredListener registerEvent(Class<? extends Event> eventType, EventListener listener,
+                                            EventPriority priority, EventFilter filter) {
+        EventPriority effective = priority != null ? priority : listener.getPriority();
+        RegisteredListener registration = new RegisteredListener(eventType, listener,
+            effective != null ? effective : EventPriority.NORMAL, filter);
+
+        synchronized (registrationLock) {
+            RegisteredListener[] current = dispatch.getOrDefault(eventType, NO_LISTENERS);
+
+            // Insert after every listener of the same or a lower priority
+            int position = 0;
+            while (position < current.length
+                    && current[position].getPriority().ordinal() <= registration.getPriority().ordinal()) {
+                position++;
+            }
+
+            RegisteredListener[] updated = new RegisteredListener[current.length + 1];
+            System.arraycopy(current, 0, updated, 0, position);
+            updated[position] = registration;
+            System.arraycopy(current, position, updated, position + 1, current.length - position);
+            dispatch.put(eventType, updated);
+        }
+        return registration;
     }
 
-    public void fireEvent(Event event) {
-        String eventName = event.getEventName();
-        List<EventListener> listeners = eventListeners.get(eventName);
-        
-        if (listeners != null) {
-            EventFilter filter = eventFilters.get(eventName);
-            if (filter == null || filter.shouldProcess(event)) {
-                EventPriority priority = eventPriorities.get(eventName);
-                
-                // Sort listeners by priority if needed
-                if (priority != null) {
-                    listeners.sort((l1, l2) -> {
-                        int p1 = l1.getPriority().ordinal();
-                        int p2 = l2.getPriority().ordinal();
-                        return Integer.compare(p1, p2);
-                    });
+    public void unregisterEvent(Class<? extends Event> eventType) {
+        synchronized (registrationLock) {
+            dispatch.remove(eventType);
+        }
+    }
+
+    /**
+     * Removes a listener from every event class it was registered for.
+     * @return true if at least one registration was removed
+     */
+    public boolean unregisterListener(EventListener listener) {
+        boolean removed = false;
+        synchronized (registrationLock) {
+            for (Map.Entry<Class<? extends Event>, RegisteredListener[]> entry : dispatch.entrySet()) {
+                RegisteredListener[] current = entry.getValue();
+                RegisteredListener[] updated = Arrays.stream(current)
+                    .filter(registration -> registration.getListener() != listener)
+                    .toArray(RegisteredListener[]::new);
+                if (updated.length == current.length) {
+                    continue;
                 }
-                
-                // Execute listeners
-                for (EventListener listener : listeners) {
-                    try {
-                        listener.onEvent(event);
-                    } catch (Exception e) {
-                        // Log error but continue execution
-                        System.err.println("Error in event listener: " + e.getMessage());
-                    }
+                removed = true;
+                if (updated.length == 0) {
+                    dispatch.remove(entry.getKey());
+                } else {
+                    dispatch.put(entry.getKey(), updated);
                 }
             }
         }
+        return removed;
     }
 
-    public void registerCustomEvent(String eventName, EventListener listener, EventPriority priority) {
-        registerEvent(eventName, listener, priority, null);
+    public void fireEvent(Event event) {
+        RegisteredListener[] listeners = dispatch.get(event.getClass());
+        if (listeners == null) {
+            return;
+        }
+
+        for (RegisteredListener registration : listeners) {
+            registration.invoke(event, logger);
+        }
+    }
+
+    public RegisteredListener registerCustomEvent(Class<? extends Event> eventType, EventListener listener, EventPriority priority) {
+        return registerEvent(eventType, listener, priority, null);
+    }
+
+    public RegisteredListener registerFilteredEvent(Class<? extends Event> eventType, EventListener listener,
+                                                    EventPriority priority, EventFilter filter) {
+        return registerEvent(eventType, listener, priority, filter);
+    }
+
+    /**
+     * @return Listeners for the event class in dispatch order
+     */
+    public List<RegisteredListener> getRegisteredListeners(Class<? extends Event> eventType) {
+        return Collections.unmodifiableList(Arrays.asList(dispatch.getOrDefault(eventType, NO_LISTENERS)));
     }
 
-    public void registerFilteredEvent(String eventName, EventListener listener, EventPriority priority, EventFilter filter) {
-        registerEvent(eventName, listener, priority, filter);
+    /**
+     * @return Every registration, grouped by event class
+     */
+    public Map<Class<? extends Event>, List<RegisteredListener>> getAllRegisteredListeners() {
+        Map<Class<? extends Event>, List<RegisteredListener>> result = new HashMap<>();
+        for (Map.Entry<Class<? extends Event>, RegisteredListener[]> entry : dispatch.entrySet()) {
+            result.put(entry.getKey(), Collections.unmodifiableList(Arrays.asList(entry.getValue())));
+        }
+        return result;
     }
 
     public enum EventPriority {
@@ -83,4 +150,96 @@ public class EventManager implements Listener {
     public interface EventFilter {
         boolean shouldProcess(Event event);
     }
+
+    /**
+     * One listener registered for one event class, with its dispatch counters.
+     */
+    public static final class RegisteredListener {
+        private final Class<? extends Event> eventType;
+        private final EventListener listener;
+        private final EventPriority priority;
+        private final EventFilter filter;
+
+        private final AtomicLong invocations;
+        private final AtomicLong filtered;
+        private final AtomicLong failures;
+        private final AtomicLong totalNanos;
+        private final AtomicLong maxNanos;
+
+        RegisteredListener(Class<? extends Event> eventType, EventListener listener, EventPriority priority, EventFilter filter) {
+            this.eventType = eventType;
+            this.listener = listener;
+            this.priority = priority;
+            this.filter = filter;
+            this.invocations = new AtomicLong();
+            this.filtered = new AtomicLong();
+            this.failures = new AtomicLong();
+            this.totalNanos = new AtomicLong();
+            this.maxNanos = new AtomicLong();
+        }
+
+        void invoke(Event event, Logger logger) {
+            long start = System.nanoTime();
+            try {
+                if (filter != null && !filter.shouldProcess(event)) {
+                    filtered.incrementAndGet();
+                    return;
+                }
+                listener.onEvent(event);
+            } catch (Exception e) {
+                // Log error but continue with the remaining listeners
+                failures.incrementAndGet();
+                logger.log(Level.WARNING, "Error in event listener " + listener.getClass().getName()
+                    + " for " + eventType.getSimpleName(), e);
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                invocations.incrementAndGet();
+                totalNanos.addAndGet(elapsed);
+                long max;
+                while (elapsed > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, elapsed)) {
+                    // Retry until the larger value is stored
+                }
+            }
+        }
+
+        public Class<? extends Event> getEventType() {
+            return eventType;
+        }
+
+        public EventListener getListener() {
+            return listener;
+        }
+
+        public EventPriority getPriority() {
+            return priority;
+        }
+
+        /**
+         * @return Times the listener was reached, including filtered and failed calls
+         */
+        public long getInvocationCount() {
+            return invocations.get();
+        }
+
+        public long getFilteredCount() {
+            return filtered.get();
+        }
+
+        public long getFailureCount() {
+            return failures.get();
+        }
+
+        public long getTotalNanos() {
+            return totalNanos.get();
+        }
+
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+        public double getAverageNanos() {
+            long count = invocations.get();
+            return count > 0 ? (double) totalNanos.get() / count : 0.0;
+        }
+    }
 }
@@ -16,6 +16,7 @@ import org.bukkit.command.CommandSender;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.plugin.java.JavaPlugin;
 import java.io.File;
+import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
 import com.wificraft.sentinel.modules.data.Inspection;
@@ -23,21 +24,25 @@ import com.wificraft.sentinel.modules.data.PlayerStats;
 import com.wificraft.sentinel.modules.data.PlayerStatsManager;
 import com.wificraft.sentinel.modules.data.SuspiciousActivityDetector;
 import com.wificraft.sentinel.modules.data.NotesManager;
+import com.wificraft.sentinel.modules.data.WriteBehindService;
 import com.wificraft.sentinel.modules.config.InspectionConfig;
 import com.wificraft.sentinel.modules.discord.DiscordIntegration;
+import com.wificraft.sentinel.modules.storage.InspectionRecord;
+import com.wificraft.sentinel.modules.storage.SentinelStorage;
 import com.wificraft.sentinel.WiFiCraftSentinel;
 import org.bukkit.ChatColor;
 
 public class ClientInspectorGUI {
     private final JavaPlugin plugin;
-    private final File inspectionsFile;
+    private final SentinelStorage storage;
+    private final ModeratorRanking moderatorRanking;
     private final File banHistoryFile;
     private final File discordLinksFile;
-    private final File notesFile;
-    private final YamlConfiguration inspections;
     private final YamlConfiguration banHistory;
     private final YamlConfiguration discordLinks;
     private static final Map<UUID, Inspection> activeInspections = new HashMap<>();
+    // Stored record of each player's running inspection, completed in place when it ends
+    private final Map<UUID, InspectionRecord> startedRecords = new HashMap<>();
     
     /**
      * Gets a map of all active inspections
@@ -52,17 +57,20 @@ public class ClientInspectorGUI {
     private final InspectionConfig config;
     private final NotesManager notesManager;
     
-    public ClientInspectorGUI(JavaPlugin plugin) {
+    /**
+     * @param storage Where inspections, notes and player stats are kept
+     * @param moderatorRanking Ranking that counts the moderators' inspections and bans, or null
+     */
+    public ClientInspectorGUI(JavaPlugin plugin, SentinelStorage storage, ModeratorRanking moderatorRanking) {
         this.plugin = plugin;
+        this.storage = storage;
+        this.moderatorRanking = moderatorRanking;
         
         // Initialize config files
-        inspectionsFile = new File(plugin.getDataFolder(), "inspections.yml");
         banHistoryFile = new File(plugin.getDataFolder(), "ban_history.yml");
         discordLinksFile = new File(plugin.getDataFolder(), "player_discord.cfg");
-        notesFile = new File(plugin.getDataFolder(), "inspection_notes.yml");
         
         // Load configurations
-        inspections = YamlConfiguration.loadConfiguration(inspectionsFile);
         banHistory = YamlConfiguration.loadConfiguration(banHistoryFile);
         discordLinks = YamlConfiguration.loadConfiguration(discordLinksFile);
         
@@ -70,7 +78,7 @@ public class ClientInspectorGUI {
         discordIntegration = new DiscordIntegration(plugin);
         
         // Initialize player stats
-        statsManager = new PlayerStatsManager(plugin);
+        statsManager = new PlayerStatsManager(plugin, storage);
         
         // Initialize configuration
         config = new InspectionConfig(plugin.getDataFolder());
@@ -79,7 +87,7 @@ public class ClientInspectorGUI {
         suspiciousActivityDetector = new SuspiciousActivityDetector(config);
         
         // Initialize notes manager
-        notesManager = new NotesManager(plugin);
+        notesManager = new NotesManager(plugin, storage);
         
         // Register event listener
         plugin.getServer().getPluginManager().registerEvents(new GUIListener(), plugin);
@@ -184,8 +192,7 @@ public class ClientInspectorGUI {
     }
     
     private int getInspectionCount(Player player) {
-        List<?> inspections = this.inspections.getList("inspections." + player.getUniqueId().toString());
-        return inspections != null ? inspections.size() : 0;
+        return statsManager.getPlayerStats(player).getInspectionCount();
     }
     
     private int getBanCount(Player player) {
@@ -205,7 +212,7 @@ public class ClientInspectorGUI {
         }
         
         // Update stats
-        statsManager.getPlayerStats(player).incrementInspectionCount();
+        statsManager.incrementInspectionCount(player);
         
         // Create and store inspection
         Inspection inspection = new Inspection(player, moderator);
@@ -221,22 +228,12 @@ public class ClientInspectorGUI {
             discordIntegration.logInspectionStart(player, moderator, result);
         }
         
-        // Save inspection to config
-        String inspectionId = "inspection_" + System.currentTimeMillis();
-        String path = "inspections." + inspectionId;
-        
-        inspections.set(path + ".targetUuid", player.getUniqueId().toString());
-        inspections.set(path + ".moderatorUuid", moderator.getUniqueId().toString());
-        inspections.set(path + ".startTime", System.currentTimeMillis());
-        inspections.set(path + ".result", result);
-        inspections.set(path + ".status", "started");
-        
-        try {
-            inspections.save(inspectionsFile);
-        } catch (Exception e) {
-            plugin.getLogger().severe("Failed to save inspection: " + e.getMessage());
-            e.printStackTrace();
-        }
+        // Save inspection to storage
+        long startTime = System.currentTimeMillis();
+        InspectionRecord record = new InspectionRecord("inspection_" + startTime, player.getUniqueId(),
+            moderator.getUniqueId(), startTime, 0, result, null, "started", 0);
+        startedRecords.put(player.getUniqueId(), record);
+        storage.saveInspection(record);
     }
     
     public void completeInspection(Player player, String result, String notes) {
@@ -259,7 +256,7 @@ public class ClientInspectorGUI {
         long duration = inspection.getDuration();
         
         // Update stats
-        statsManager.getPlayerStats(player).incrementInspectionCount();
+        statsManager.incrementInspectionCount(player);
         
         // Add completion note
         Player moderator = Bukkit.getPlayer(inspection.getModeratorUUID());
@@ -267,30 +264,14 @@ public class ClientInspectorGUI {
         notesManager.addNote(player, result, "Inspection completed by " + moderatorName, 
             inspection.getModeratorUUID(), duration);
         
-        // Update inspection in config
-        if (inspections.contains("inspections")) {
-            for (String key : inspections.getConfigurationSection("inspections").getKeys(false)) {
-                String path = "inspections." + key;
-                String targetUuid = inspections.getString(path + ".targetUuid");
-                
-                if (targetUuid != null && targetUuid.equals(player.getUniqueId().toString()) && 
-                    !inspections.getBoolean(path + ".completed", false)) {
-                    
-                    inspections.set(path + ".endTime", System.currentTimeMillis());
-                    inspections.set(path + ".result", result);
-                    inspections.set(path + ".notes", notes);
-                    inspections.set(path + ".status", "completed");
-                    inspections.set(path + ".duration", duration);
-                    
-                    try {
-                        inspections.save(inspectionsFile);
-                    } catch (Exception e) {
-                        plugin.getLogger().severe("Failed to update inspection: " + e.getMessage());
-                        e.printStackTrace();
-                    }
-                    break;
-                }
-            }
+        // Update inspection in storage
+        InspectionRecord started = startedRecord(player.getUniqueId());
+        if (started != null) {
+            storage.saveInspection(new InspectionRecord(started.getId(), started.getTargetId(), started.getModeratorId(),
+                started.getStartTime(), System.currentTimeMillis(), result, notes, "completed", duration));
+        }
+        if (moderatorRanking != null) {
+            moderatorRanking.recordInspection(inspection.getModeratorUUID());
         }
         
         // Log to Discord if available
@@ -299,52 +280,29 @@ public class ClientInspectorGUI {
         }
     }
     
-    private List<Inspection> loadInspections() {
-        List<Inspection> loadedInspections = new ArrayList<>();
-        
-        if (inspections.contains("inspections")) {
-            for (String key : inspections.getConfigurationSection("inspections").getKeys(false)) {
-                String path = "inspections." + key;
-                try {
-                    // Get player UUIDs from config
-                    String targetUuidStr = inspections.getString(path + ".targetUuid");
-                    String moderatorUuidStr = inspections.getString(path + ".moderatorUuid");
-                    
-                    if (targetUuidStr != null && moderatorUuidStr != null) {
-                        UUID targetUuid = UUID.fromString(targetUuidStr);
-                        UUID moderatorUuid = UUID.fromString(moderatorUuidStr);
-                        
-                        // Create offline players for the inspection
-                        Player target = Bukkit.getPlayer(targetUuid);
-                        Player moderator = Bukkit.getPlayer(moderatorUuid);
-                        
-                        if (target != null && moderator != null) {
-                            Inspection inspection = new Inspection(target, moderator);
-                            inspection.setResult(inspections.getString(path + ".result", ""));
-                            inspection.setNotes(inspections.getString(path + ".notes", ""));
-                            
-                            // Set end time if inspection is completed
-                            if (inspections.contains(path + ".endTime")) {
-                                long endTime = inspections.getLong(path + ".endTime");
-                                inspection.setEndTime(new Date(endTime));
-                            }
-                            
-                            loadedInspections.add(inspection);
-                        }
-                    }
-                } catch (Exception e) {
-                    plugin.getLogger().warning("Failed to load inspection: " + key + ": " + e.getMessage());
-                    e.printStackTrace();
-                }
+    // The record kept since the start, or the newest stored one if it is still running
+    private InspectionRecord startedRecord(UUID targetId) {
+        InspectionRecord record = startedRecords.remove(targetId);
+        if (record != null) {
+            return record;
+        }
+        try {
+            List<InspectionRecord> newest = storage.findInspections(targetId, 0, 1);
+            if (!newest.isEmpty() && "started".equals(newest.get(0).getStatus())) {
+                return newest.get(0);
             }
+        } catch (IOException e) {
+            plugin.getLogger().warning("Failed to load inspection: " + e.getMessage());
         }
-        
-        return loadedInspections;
+        return null;
     }
     
     public void addBan(Player player, Player moderator, String reason, long duration) {
         // Update stats
         statsManager.incrementBanCount(player);
+        if (moderatorRanking != null) {
+            moderatorRanking.recordBan(moderator.getUniqueId());
+        }
         
         // Load ban history
         List<?> rawBans = this.banHistory.getList("bans", new ArrayList<>());
@@ -374,7 +332,7 @@ public class ClientInspectorGUI {
     
     private void saveConfig(File file, YamlConfiguration config) {
         try {
-            config.save(file);
+            WriteBehindService.save(file, config::saveToString);
         } catch (Exception e) {
             plugin.getLogger().severe("Error saving config: " + e.getMessage());
         }
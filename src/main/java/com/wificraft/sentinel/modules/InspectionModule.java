@@ -1,6 +1,7 @@
 package com.wificraft.sentinel.modules;
 
 import com.wificraft.sentinel.WiFiCraftSentinel;
+import com.wificraft.sentinel.modules.data.WriteBehindService;
 import org.bukkit.Bukkit;
 import org.bukkit.OfflinePlayer;
 import org.bukkit.Material;
@@ -42,16 +43,13 @@ public class InspectionModule implements Listener {
     
     private final WiFiCraftSentinel plugin;
     private final Object moderatorRanking;
-    private final Map<UUID, PlayerStats> playerStats = new ConcurrentHashMap<>();
     private final Map<UUID, List<InspectionReport>> reports = new HashMap<>();
     private final Map<UUID, List<Evidence>> evidenceMap = new HashMap<>();
     private final File dataFolder;
     private final File reportsFile;
     private final File evidenceFolder;
-    private final File playerStatsFile;
     private final File reportsFolder;
     private final Map<String, Map<String, Object>> reportTemplates = new HashMap<>();
-    private final Map<UUID, PlayerStats> moderatorStats = new HashMap<>();
 
     public InspectionModule(WiFiCraftSentinel plugin, Object moderatorRanking) {
         this.plugin = plugin;
@@ -59,7 +57,6 @@ public class InspectionModule implements Listener {
         this.dataFolder = plugin.getDataFolder();
         this.reportsFile = new File(dataFolder, "reports.yml");
         this.evidenceFolder = new File(dataFolder, "evidence");
-        this.playerStatsFile = new File(dataFolder, "player_stats.yml");
         this.reportsFolder = new File(dataFolder, "reports");
         
         // Ensure data folders exist
@@ -74,7 +71,6 @@ public class InspectionModule implements Listener {
         }
         
         // Load existing data
-        loadPlayerStats();
         loadReports();
     }
 
@@ -394,39 +390,6 @@ public class InspectionModule implements Listener {
         reportTemplates.put("default", defaultTemplate);
     }
     
-    private void loadPlayerStats() {
-        if (playerStatsFile == null || !playerStatsFile.exists()) {
-            return;
-        }
-        
-        try {
-            YamlConfiguration config = YamlConfiguration.loadConfiguration(playerStatsFile);
-            ConfigurationSection playersSection = config.getConfigurationSection("players");
-            if (playersSection == null) return;
-            
-            for (String playerIdStr : playersSection.getKeys(false)) {
-                try {
-                    UUID playerId = UUID.fromString(playerIdStr);
-                    ConfigurationSection playerSection = playersSection.getConfigurationSection(playerIdStr);
-                    if (playerSection != null) {
-                        PlayerStats stats = new PlayerStats(playerId);
-                        stats.setInspectionCount(playerSection.getInt("inspectionCount", 0));
-                        stats.setBanCount(playerSection.getInt("banCount", 0));
-                        stats.setLastInspectionTime(playerSection.getLong("lastInspectionTime", 0));
-                        stats.setLastBanTime(playerSection.getLong("lastBanTime", 0));
-                        
-                        playerStats.put(playerId, stats);
-                    }
-                } catch (IllegalArgumentException e) {
-                    plugin.getLogger().warning("Invalid UUID in player stats: " + playerIdStr);
-                }
-            }
-        } catch (Exception e) {
-            plugin.getLogger().severe("Failed to load player stats: " + e.getMessage());
-            e.printStackTrace();
-        }
-    }
-
     private void saveReport(InspectionReport report, String templateName) {
         File reportFile = new File(reportsFolder, report.getReportId() + ".yml");
         YamlConfiguration reportConfig = new YamlConfiguration();
@@ -451,7 +414,7 @@ public class InspectionModule implements Listener {
         }
 
         try {
-            reportConfig.save(reportFile);
+            WriteBehindService.save(reportFile, reportConfig::saveToString);
         } catch (IOException e) {
             this.plugin.getLogger().severe("Failed to save report: " + e.getMessage());
         }
@@ -484,45 +447,13 @@ public class InspectionModule implements Listener {
         }
     }
 
+    // Moderator counts are kept by the ranking, in the storage
     private void updateModeratorStats(UUID moderatorId, boolean isBan) {
-        if (moderatorId == null) return;
-        
-        PlayerStats stats = moderatorStats.computeIfAbsent(moderatorId, PlayerStats::new);
-        stats.incrementInspections();
+        if (moderatorId == null || !(moderatorRanking instanceof ModeratorRanking ranking)) return;
         
+        ranking.recordInspection(moderatorId);
         if (isBan) {
-            stats.incrementBans();
-        }
-        
-        savePlayerStats();
-    }
-    
-    private void updatePlayerStats(UUID playerId) {
-        if (playerId == null) return;
-        
-        PlayerStats stats = playerStats.computeIfAbsent(playerId, PlayerStats::new);
-        stats.incrementInspections();
-        savePlayerStats();
-    }
-
-    private void savePlayerStats() {
-        try {
-            File dataFile = new File(plugin.getDataFolder(), "inspections.yml");
-            YamlConfiguration data = new YamlConfiguration();
-
-            for (PlayerStats stats : playerStats.values()) {
-                data.set("players." + stats.getUuid() + ".inspections", stats.getInspections());
-                data.set("players." + stats.getUuid() + ".bans", stats.getBans());
-            }
-
-            for (PlayerStats stats : moderatorStats.values()) {
-                data.set("moderators." + stats.getUuid() + ".inspections", stats.getInspections());
-                data.set("moderators." + stats.getUuid() + ".bans", stats.getBans());
-            }
-
-            data.save(dataFile);
-        } catch (IOException e) {
-            plugin.getLogger().severe("Failed to save inspection data: " + e.getMessage());
+            ranking.recordBan(moderatorId);
         }
     }
 }
\ No newline at end of file
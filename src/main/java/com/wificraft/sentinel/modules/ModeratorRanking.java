@@ -1,6 +1,7 @@
 package com.wificraft.sentinel.modules;
 
 import com.wificraft.sentinel.WiFiCraftSentinel;
+import com.wificraft.sentinel.modules.storage.SentinelStorage;
 import org.bukkit.Bukkit;
 import org.bukkit.Material;
 import org.bukkit.OfflinePlayer;
@@ -22,6 +23,8 @@ public class ModeratorRanking {
     private final WiFiCraftSentinel plugin;
     private final Map<UUID, ModeratorStats> moderatorStats;
     private final Map<YearMonth, Map<UUID, MonthlyStats>> monthlyStats;
+    // Inspection and ban counts per moderator, read from the storage on first use
+    private final Map<UUID, com.wificraft.sentinel.modules.ModeratorStats> inspectionStats;
     private static final DateTimeFormatter MONTH_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM");
     private static final String REWARDS_PERMISSION = "sentinel.ranking.rewards";
 
@@ -170,6 +173,7 @@ public class ModeratorRanking {
         this.plugin = plugin;
         this.moderatorStats = new HashMap<>();
         this.monthlyStats = new HashMap<>();
+        this.inspectionStats = new HashMap<>();
         
         // Load data on initialization
         loadModeratorStats();
@@ -182,6 +186,53 @@ public class ModeratorRanking {
         }
     }
 
+    /**
+     * Counts an inspection finished by the moderator, in the storage.
+     */
+    public void recordInspection(UUID moderatorId) {
+        com.wificraft.sentinel.modules.ModeratorStats stats = getInspectionStats(moderatorId);
+        stats.incrementInspections();
+        saveInspectionStats(stats);
+    }
+
+    /**
+     * Counts a ban given by the moderator, in the storage.
+     */
+    public void recordBan(UUID moderatorId) {
+        com.wificraft.sentinel.modules.ModeratorStats stats = getInspectionStats(moderatorId);
+        stats.incrementBans();
+        saveInspectionStats(stats);
+    }
+
+    private void saveInspectionStats(com.wificraft.sentinel.modules.ModeratorStats stats) {
+        SentinelStorage storage = plugin.getStorage();
+        if (storage != null) {
+            storage.saveModeratorStats(stats);
+        }
+    }
+
+    /**
+     * @return The moderator's inspection and ban counts, zero for a moderator without any
+     */
+    public com.wificraft.sentinel.modules.ModeratorStats getInspectionStats(UUID moderatorId) {
+        return inspectionStats.computeIfAbsent(moderatorId, this::loadInspectionStats);
+    }
+
+    private com.wificraft.sentinel.modules.ModeratorStats loadInspectionStats(UUID moderatorId) {
+        SentinelStorage storage = plugin.getStorage();
+        if (storage != null) {
+            try {
+                com.wificraft.sentinel.modules.ModeratorStats stored = storage.loadModeratorStats(moderatorId);
+                if (stored != null) {
+                    return stored;
+                }
+            } catch (IOException e) {
+                plugin.getLogger().warning("Failed to load moderator stats: " + e.getMessage());
+            }
+        }
+        return new com.wificraft.sentinel.modules.ModeratorStats(moderatorId);
+    }
+
     private void loadModeratorStats() {
         // Implementation for loading moderator stats
     }
@@ -15,6 +15,16 @@ public class ModeratorStats {
         this.lastInspection = 0;
     }
 
+    /**
+     * Stats read back from storage.
+     */
+    public ModeratorStats(UUID uuid, int inspections, int bans, long lastInspection) {
+        this.uuid = uuid;
+        this.inspections = inspections;
+        this.bans = bans;
+        this.lastInspection = lastInspection;
+    }
+
     public UUID getUuid() {
         return uuid;
     }
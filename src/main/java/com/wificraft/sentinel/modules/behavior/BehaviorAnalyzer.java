@@ -1,11 +1,15 @@
 package com.wificraft.sentinel.modules.behavior;
 
+import com.wificraft.sentinel.modules.chat.NearDuplicateDetector;
+import com.wificraft.sentinel.modules.pipeline.AnalysisPipeline;
+import com.wificraft.sentinel.modules.pipeline.CaptureEvent;
+import com.wificraft.sentinel.modules.pipeline.CaptureHandler;
+import com.wificraft.sentinel.modules.stats.SlidingWindowStats;
 import org.bukkit.entity.Player;
-import org.bukkit.Location;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
-import org.bukkit.event.player.PlayerMoveEvent;
 import org.bukkit.event.player.PlayerChatEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.event.block.BlockBreakEvent;
 import org.bukkit.event.block.BlockPlaceEvent;
 
@@ -13,21 +17,31 @@ import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
-public class BehaviorAnalyzer implements Listener {
+public class BehaviorAnalyzer implements Listener, CaptureHandler {
+    private final AnalysisPipeline pipeline;
+    private final NearDuplicateDetector duplicateDetector;
     private final Map<String, BehaviorPattern> patterns;
     private final Map<UUID, PlayerBehavior> playerBehaviors;
-    private final Map<UUID, List<String>> chatHistory;
-    private final Map<UUID, Integer> blockInteractions;
     private final Map<UUID, Long> lastMoveTime;
-    private final Map<UUID, Location> lastLocation;
 
     public BehaviorAnalyzer() {
+        this(null);
+    }
+
+    public BehaviorAnalyzer(AnalysisPipeline pipeline) {
+        this(pipeline, new NearDuplicateDetector());
+    }
+
+    /**
+     * @param pipeline Pipeline to run the analysis on, or null to analyse inline on the event thread
+     * @param duplicateDetector Near-duplicate detector owned by this analyzer
+     */
+    public BehaviorAnalyzer(AnalysisPipeline pipeline, NearDuplicateDetector duplicateDetector) {
+        this.pipeline = pipeline;
+        this.duplicateDetector = duplicateDetector;
         patterns = new HashMap<>();
         playerBehaviors = new ConcurrentHashMap<>();
-        chatHistory = new ConcurrentHashMap<>();
-        blockInteractions = new ConcurrentHashMap<>();
         lastMoveTime = new ConcurrentHashMap<>();
-        lastLocation = new ConcurrentHashMap<>();
 
         initializePatterns();
     }
@@ -36,192 +50,297 @@ public class BehaviorAnalyzer implements Listener {
         // Initialize default patterns
         patterns.put("Movement", new MovementPattern(this, 2.0, 50.0));
         patterns.put("BlockInteraction", new BlockInteractionPattern(this, 50));
-        patterns.put("ChatSpam", new ChatSpamPattern(this, 10, 0.8));
+        patterns.put("ChatSpam", new ChatSpamPattern(this, 10, 0.8, 3));
     }
 
     @EventHandler
-    public void onPlayerMove(PlayerMoveEvent event) {
-        Player player = event.getPlayer();
-        UUID playerId = player.getUniqueId();
-        Location from = event.getFrom();
-        Location to = event.getTo();
+    public void onPlayerChat(PlayerChatEvent event) {
+        UUID playerId = event.getPlayer().getUniqueId();
+        if (pipeline != null) {
+            pipeline.publishChat(this, playerId, event.getMessage());
+            return;
+        }
+        handleChat(playerId, System.currentTimeMillis(), event.getMessage());
+    }
 
-        lastLocation.put(playerId, to);
-        lastMoveTime.put(playerId, System.currentTimeMillis());
+    @Override
+    public void onCapture(CaptureEvent event) {
+        UUID playerId = event.getPlayerId();
+        switch (event.getType()) {
+            case CaptureEvent.TYPE_MOVE:
+                handleMovement(playerId, event.getTimestamp(),
+                    event.getFromX(), event.getFromY(), event.getFromZ(),
+                    event.getToX(), event.getToY(), event.getToZ());
+                break;
+            case CaptureEvent.TYPE_BLOCK_BREAK:
+            case CaptureEvent.TYPE_BLOCK_PLACE:
+                handleBlockInteraction(playerId, event.getTimestamp());
+                break;
+            case CaptureEvent.TYPE_CHAT:
+                handleChat(playerId, event.getTimestamp(), event.getMessage());
+                break;
+            case CaptureEvent.TYPE_QUIT:
+                removePlayer(playerId);
+                break;
+            default:
+                break;
+        }
+    }
 
-        // Calculate speed and distance
-        double distance = from.distance(to);
-        long timeDiff = System.currentTimeMillis() - lastMoveTime.getOrDefault(playerId, System.currentTimeMillis());
-        double speed = distance / (timeDiff / 1000.0);
+    private void handleMovement(UUID playerId, long now, double fromX, double fromY, double fromZ,
+                                double toX, double toY, double toZ) {
+        // Calculate speed and distance since the previous move
+        double dx = toX - fromX;
+        double dy = toY - fromY;
+        double dz = toZ - fromZ;
+        double distance = Math.sqrt(dx * dx + dy * dy + dz * dz);
+        Long previous = lastMoveTime.put(playerId, now);
+        long timeDiff = previous != null ? now - previous : 0;
+        double speed = timeDiff > 0 ? distance / (timeDiff / 1000.0) : 0.0;
 
         // Store behavior data
         PlayerBehavior behavior = playerBehaviors.computeIfAbsent(playerId, k -> new PlayerBehavior());
-        behavior.addMovementData(speed, distance);
+        behavior.addMovementData(now, speed, distance);
 
         // Check patterns
-        checkPatterns(player);
+        checkPatterns(playerId);
     }
 
     @EventHandler
-    public void onPlayerChat(PlayerChatEvent event) {
-        Player player = event.getPlayer();
-        UUID playerId = player.getUniqueId();
-        String message = event.getMessage();
-
-        // Update chat history
-        List<String> history = chatHistory.computeIfAbsent(playerId, k -> new ArrayList<>());
-        history.add(message);
-        if (history.size() > 100) {
-            history.remove(0);
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        UUID playerId = event.getPlayer().getUniqueId();
+        if (pipeline != null && pipeline.publishQuit(this, playerId)) {
+            return;
         }
+        removePlayer(playerId);
+    }
+
+    private void removePlayer(UUID playerId) {
+        playerBehaviors.remove(playerId);
+        lastMoveTime.remove(playerId);
+        duplicateDetector.removePlayer(playerId);
+    }
+
+    private void handleChat(UUID playerId, long now, String message) {
+        // Only a fingerprint of the message is kept, never the text
+        int duplicateFlags = duplicateDetector.check(playerId, now, message);
 
         // Calculate caps ratio
         int capsCount = message.replaceAll("[^A-Z]", "").length();
-        double capsRatio = (double) capsCount / message.length();
+        double capsRatio = message.isEmpty() ? 0.0 : (double) capsCount / message.length();
 
         // Store behavior data
         PlayerBehavior behavior = playerBehaviors.computeIfAbsent(playerId, k -> new PlayerBehavior());
-        behavior.addChatData(message, capsRatio);
+        behavior.addChatData(now, capsRatio, duplicateFlags);
 
         // Check patterns
-        checkPatterns(player);
+        checkPatterns(playerId);
     }
 
     @EventHandler
     public void onBlockInteraction(BlockBreakEvent event) {
-        handleBlockInteraction(event.getPlayer());
+        captureBlockInteraction(event.getPlayer().getUniqueId(), CaptureEvent.TYPE_BLOCK_BREAK);
     }
 
     @EventHandler
     public void onBlockInteraction(BlockPlaceEvent event) {
-        handleBlockInteraction(event.getPlayer());
+        captureBlockInteraction(event.getPlayer().getUniqueId(), CaptureEvent.TYPE_BLOCK_PLACE);
+    }
+
+    private void captureBlockInteraction(UUID playerId, byte type) {
+        if (pipeline != null) {
+            pipeline.publishBlock(this, playerId, type, null, 0, 0, 0);
+            return;
+        }
+        handleBlockInteraction(playerId, System.currentTimeMillis());
     }
 
-    private void handleBlockInteraction(Player player) {
-        UUID playerId = player.getUniqueId();
-        
-        // Update block interaction count
-        blockInteractions.merge(playerId, 1, Integer::sum);
-        
+    private void handleBlockInteraction(UUID playerId, long now) {
         // Store behavior data
         PlayerBehavior behavior = playerBehaviors.computeIfAbsent(playerId, k -> new PlayerBehavior());
-        behavior.addBlockInteraction();
+        behavior.addBlockInteraction(now);
 
         // Check patterns
-        checkPatterns(player);
+        checkPatterns(playerId);
     }
 
-    private void checkPatterns(Player player) {
+    private void checkPatterns(UUID playerId) {
         for (BehaviorPattern pattern : patterns.values()) {
-            if (pattern.matches(player)) {
+            if (pattern.matches(playerId)) {
                 // Generate alert if pattern matches
                 String alertMessage = pattern.getAlertMessage();
                 int severity = pattern.getSeverity();
                 
                 // Send alert through the alert system
-                sendAlert(player, alertMessage, severity);
+                sendAlert(playerId, alertMessage, severity);
             }
         }
     }
 
-    private void sendAlert(Player player, String message, int severity) {
+    private void sendAlert(UUID playerId, String message, int severity) {
         // Implementation of alert sending would go here
-        // This would typically use the AlertManager
+        // This would typically use the AlertManager, via pipeline.postToMain when analysing off-thread
     }
 
     public double getMovementSpeed(Player player) {
-        PlayerBehavior behavior = playerBehaviors.get(player.getUniqueId());
+        return getMovementSpeed(player.getUniqueId());
+    }
+
+    public double getMovementSpeed(UUID playerId) {
+        PlayerBehavior behavior = playerBehaviors.get(playerId);
         return behavior != null ? behavior.getAverageSpeed() : 0.0;
     }
 
     public double getMovementDistance(Player player) {
-        PlayerBehavior behavior = playerBehaviors.get(player.getUniqueId());
+        return getMovementDistance(player.getUniqueId());
+    }
+
+    public double getMovementDistance(UUID playerId) {
+        PlayerBehavior behavior = playerBehaviors.get(playerId);
         return behavior != null ? behavior.getTotalDistance() : 0.0;
     }
 
     public int getBlockInteractionRate(Player player) {
-        UUID playerId = player.getUniqueId();
-        long now = System.currentTimeMillis();
-        
-        // Calculate interactions per second
-        int interactions = blockInteractions.getOrDefault(playerId, 0);
-        long timeDiff = now - lastMoveTime.getOrDefault(playerId, now);
-        
-        return (int) (interactions / (timeDiff / 1000.0));
+        return getBlockInteractionRate(player.getUniqueId());
+    }
+
+    /**
+     * @return Block interactions during the last second
+     */
+    public int getBlockInteractionRate(UUID playerId) {
+        PlayerBehavior behavior = playerBehaviors.get(playerId);
+        return behavior != null ? behavior.getBlockInteractionsPerSecond() : 0;
     }
 
     public double getChatCapsRatio(Player player) {
-        PlayerBehavior behavior = playerBehaviors.get(player.getUniqueId());
+        return getChatCapsRatio(player.getUniqueId());
+    }
+
+    public double getChatCapsRatio(UUID playerId) {
+        PlayerBehavior behavior = playerBehaviors.get(playerId);
         return behavior != null ? behavior.getAverageCapsRatio() : 0.0;
     }
 
     public int getChatMessageRate(Player player) {
-        PlayerBehavior behavior = playerBehaviors.get(player.getUniqueId());
+        return getChatMessageRate(player.getUniqueId());
+    }
+
+    /**
+     * @return Near-duplicate messages (own repeats or part of a multi-player wave) during the last minute
+     */
+    public int getChatDuplicateRate(UUID playerId) {
+        PlayerBehavior behavior = playerBehaviors.get(playerId);
+        return behavior != null ? behavior.getDuplicatesPerMinute() : 0;
+    }
+
+    /**
+     * @return Messages sent during the last minute that were part of a multi-player wave
+     */
+    public int getChatWaveCount(UUID playerId) {
+        PlayerBehavior behavior = playerBehaviors.get(playerId);
+        return behavior != null ? behavior.getWaveMessagesPerMinute() : 0;
+    }
+
+    public NearDuplicateDetector getDuplicateDetector() {
+        return duplicateDetector;
+    }
+
+    /**
+     * @return Messages sent during the last minute
+     */
+    public int getChatMessageRate(UUID playerId) {
+        PlayerBehavior behavior = playerBehaviors.get(playerId);
         return behavior != null ? behavior.getMessagesPerMinute() : 0;
     }
 
-    private class PlayerBehavior {
-        private final List<Double> speeds;
-        private final List<Double> distances;
-        private final List<Double> capsRatios;
-        private int totalInteractions;
-        private long lastInteractionTime;
-        private int messageCount;
-        private long lastMessageTime;
+    /**
+     * Per-player sliding windows, updated in O(1) per event. Written by the thread that
+     * analyses the player and read by the pattern checks and commands, hence synchronized.
+     */
+    private static class PlayerBehavior {
+        private static final long MOVEMENT_WINDOW = 10000;
+        private static final long CHAT_WINDOW = 60000;
+        private static final long BLOCK_WINDOW = 1000;
+
+        private final SlidingWindowStats speeds;
+        private final SlidingWindowStats distances;
+        private final SlidingWindowStats capsRatios;
+        private final SlidingWindowStats blockInteractions;
+        private final SlidingWindowStats duplicates;
+        private final SlidingWindowStats waveMessages;
 
         public PlayerBehavior() {
-            speeds = new ArrayList<>();
-            distances = new ArrayList<>();
-            capsRatios = new ArrayList<>();
-            lastInteractionTime = System.currentTimeMillis();
-            lastMessageTime = System.currentTimeMillis();
+            speeds = new SlidingWindowStats(MOVEMENT_WINDOW, 512);
+            distances = new SlidingWindowStats(MOVEMENT_WINDOW, 512);
+            capsRatios = new SlidingWindowStats(CHAT_WINDOW, 256);
+            blockInteractions = new SlidingWindowStats(BLOCK_WINDOW, 256);
+            duplicates = new SlidingWindowStats(CHAT_WINDOW, 256);
+            waveMessages = new SlidingWindowStats(CHAT_WINDOW, 256);
         }
 
-        public void addMovementData(double speed, double distance) {
-            speeds.add(speed);
-            distances.add(distance);
-            cleanOldData();
+        public synchronized void addMovementData(long now, double speed, double distance) {
+            speeds.add(now, speed);
+            distances.add(now, distance);
         }
 
-        public void addChatData(String message, double capsRatio) {
-            capsRatios.add(capsRatio);
-            messageCount++;
-            lastMessageTime = System.currentTimeMillis();
-            cleanOldData();
+        public synchronized void addChatData(long now, double capsRatio, int duplicateFlags) {
+            capsRatios.add(now, capsRatio);
+            if (duplicateFlags != 0) {
+                duplicates.add(now, 1);
+            }
+            if ((duplicateFlags & NearDuplicateDetector.FLAG_GROUP_WAVE) != 0) {
+                waveMessages.add(now, 1);
+            }
         }
 
-        public void addBlockInteraction() {
-            totalInteractions++;
-            lastInteractionTime = System.currentTimeMillis();
-            cleanOldData();
+        public synchronized void addBlockInteraction(long now) {
+            blockInteractions.add(now, 1);
         }
 
-        private void cleanOldData() {
+        // Slides every window to the current time so that idle players decay to zero
+        private void advance() {
             long now = System.currentTimeMillis();
-            
-            // Remove old speed/distance data (keep last 10 seconds)
-            speeds.removeIf(s -> now - lastInteractionTime > 10000);
-            distances.removeIf(d -> now - lastInteractionTime > 10000);
-            
-            // Remove old caps ratio data (keep last minute)
-            capsRatios.removeIf(r -> now - lastMessageTime > 60000);
+            speeds.advance(now);
+            distances.advance(now);
+            capsRatios.advance(now);
+            blockInteractions.advance(now);
+            duplicates.advance(now);
+            waveMessages.advance(now);
+        }
+
+        public synchronized double getAverageSpeed() {
+            advance();
+            return speeds.mean();
+        }
+
+        public synchronized double getTotalDistance() {
+            advance();
+            return distances.sum();
+        }
+
+        public synchronized double getAverageCapsRatio() {
+            advance();
+            return capsRatios.mean();
         }
 
-        public double getAverageSpeed() {
-            return speeds.isEmpty() ? 0.0 : speeds.stream().mapToDouble(Double::doubleValue).average().orElse(0.0);
+        public synchronized int getMessagesPerMinute() {
+            advance();
+            return capsRatios.count();
         }
 
-        public double getTotalDistance() {
-            return distances.isEmpty() ? 0.0 : distances.stream().mapToDouble(Double::doubleValue).sum();
+        public synchronized int getBlockInteractionsPerSecond() {
+            advance();
+            return blockInteractions.count();
         }
 
-        public double getAverageCapsRatio() {
-            return capsRatios.isEmpty() ? 0.0 : capsRatios.stream().mapToDouble(Double::doubleValue).average().orElse(0.0);
+        public synchronized int getDuplicatesPerMinute() {
+            advance();
+            return duplicates.count();
         }
 
-        public int getMessagesPerMinute() {
-            long timeDiff = System.currentTimeMillis() - lastMessageTime;
-            return (int) (messageCount / (timeDiff / 60000.0));
+        public synchronized int getWaveMessagesPerMinute() {
+            advance();
+            return waveMessages.count();
         }
     }
 }
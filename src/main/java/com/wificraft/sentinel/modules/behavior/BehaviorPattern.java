@@ -5,6 +5,7 @@ import org.bukkit.Location;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.UUID;
 
 public abstract class BehaviorPattern {
     protected final BehaviorAnalyzer analyzer;
@@ -42,7 +43,7 @@ public abstract class BehaviorPattern {
         return patternData.get(key);
     }
 
-    public abstract boolean matches(Player player);
+    public abstract boolean matches(UUID playerId);
     public abstract String getDescription();
     public abstract String getAlertMessage();
 }
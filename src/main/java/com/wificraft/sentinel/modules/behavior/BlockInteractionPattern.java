@@ -1,6 +1,6 @@
 package com.wificraft.sentinel.modules.behavior;
 
-import org.bukkit.entity.Player;
+import java.util.UUID;
 
 public class BlockInteractionPattern extends BehaviorPattern {
     private int maxBlocksPerSecond;
@@ -11,8 +11,8 @@ public class BlockInteractionPattern extends BehaviorPattern {
     }
 
     @Override
-    public boolean matches(Player player) {
-        int blocksPerSecond = analyzer.getBlockInteractionRate(player);
+    public boolean matches(UUID playerId) {
+        int blocksPerSecond = analyzer.getBlockInteractionRate(playerId);
         return blocksPerSecond > maxBlocksPerSecond;
     }
 
@@ -1,28 +1,40 @@
 package com.wificraft.sentinel.modules.behavior;
 
-import org.bukkit.entity.Player;
+import java.util.UUID;
 
 public class ChatSpamPattern extends BehaviorPattern {
     private int maxMessagesPerMinute;
     private double maxCapsRatio;
+    private int maxDuplicatesPerMinute;
 
     public ChatSpamPattern(BehaviorAnalyzer analyzer, int maxMessagesPerMinute, double maxCapsRatio) {
+        this(analyzer, maxMessagesPerMinute, maxCapsRatio, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param maxDuplicatesPerMinute Near-duplicate messages per minute tolerated before matching
+     */
+    public ChatSpamPattern(BehaviorAnalyzer analyzer, int maxMessagesPerMinute, double maxCapsRatio, int maxDuplicatesPerMinute) {
         super(analyzer, "ChatSpam", 2, 1.0);
         this.maxMessagesPerMinute = maxMessagesPerMinute;
         this.maxCapsRatio = maxCapsRatio;
+        this.maxDuplicatesPerMinute = maxDuplicatesPerMinute;
     }
 
     @Override
-    public boolean matches(Player player) {
-        int messagesPerMinute = analyzer.getChatMessageRate(player);
-        double capsRatio = analyzer.getChatCapsRatio(player);
+    public boolean matches(UUID playerId) {
+        int messagesPerMinute = analyzer.getChatMessageRate(playerId);
+        double capsRatio = analyzer.getChatCapsRatio(playerId);
+        int duplicates = analyzer.getChatDuplicateRate(playerId);
         
-        return messagesPerMinute > maxMessagesPerMinute || capsRatio > maxCapsRatio;
+        // Any message that was part of a multi-player wave is enough on its own
+        return messagesPerMinute > maxMessagesPerMinute || capsRatio > maxCapsRatio
+            || duplicates > maxDuplicatesPerMinute || analyzer.getChatWaveCount(playerId) > 0;
     }
 
     @Override
     public String getDescription() {
-        return "Player is spamming chat or using excessive caps";
+        return "Player is spamming chat, repeating near-identical messages or using excessive caps";
     }
 
     @Override
@@ -1,6 +1,6 @@
 package com.wificraft.sentinel.modules.behavior;
 
-import org.bukkit.entity.Player;
+import java.util.UUID;
 
 public class MovementPattern extends BehaviorPattern {
     private double maxSpeed;
@@ -13,9 +13,9 @@ public class MovementPattern extends BehaviorPattern {
     }
 
     @Override
-    public boolean matches(Player player) {
-        double speed = analyzer.getMovementSpeed(player);
-        double distance = analyzer.getMovementDistance(player);
+    public boolean matches(UUID playerId) {
+        double speed = analyzer.getMovementSpeed(playerId);
+        double distance = analyzer.getMovementDistance(playerId);
         
         return speed > maxSpeed || distance > maxDistance;
     }
@@ -0,0 +1,425 @@
+package com.wificraft.sentinel.modules.cache;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * Size-bounded cache for lookup results, with separate lifetimes for answers and for
+ * failures, W-TinyLFU eviction and refresh-ahead.
+ *
+ * New entries enter a small LRU window. Entries leaving the window compete with the least
+ * recently used entry of the main segmented LRU (probation and protected), and the one a
+ * {@link FrequencySketch} says is used less often is evicted, so a burst of one-off keys
+ * (a bot wave from fresh addresses) cannot flush the regulars. The number of entries never
+ * exceeds {@code maximumSize}, and expired entries are swept as the cache is written, so
+ * memory stays flat however many distinct keys pass through.
+ *
+ * Reads are lock-free map lookups; reordering on a hit only happens if the policy lock is
+ * free at that moment, so a busy cache drops some recency updates instead of blocking.
+ * Writes take the lock.
+ */
+public class LookupCache<K, V> {
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+
+    private final int maximumSize;
+    private final int windowMaximum;
+    private final int protectedMaximum;
+    private final long positiveTtl;
+    private final long negativeTtl;
+    private final double refreshAhead;
+    private final Predicate<V> isNegative;
+    private final int cleanupInterval;
+
+    private final Map<K, Node<K, V>> data;
+    private final ReentrantLock policyLock;
+    private final FrequencySketch sketch;
+    private final AccessQueue<K, V> window;
+    private final AccessQueue<K, V> probation;
+    private final AccessQueue<K, V> protectedQueue;
+    private int writesSinceCleanup;
+
+    private final LongAdder hits;
+    private final LongAdder negativeHits;
+    private final LongAdder misses;
+    private final LongAdder evictions;
+    private final LongAdder expirations;
+    private final LongAdder refreshes;
+
+    /**
+     * @param maximumSize Entries kept at most
+     * @param positiveTtl Lifetime of a normal result, in milliseconds
+     * @param negativeTtl Lifetime of a failed or empty result, in milliseconds
+     * @param refreshAhead Share of the lifetime after which a hit asks for a refresh (see
+     *                     {@link #needsRefresh(Object, long)}), 1 or more to disable
+     * @param isNegative Tells failed or empty results apart
+     */
+    public LookupCache(int maximumSize, long positiveTtl, long negativeTtl, double refreshAhead, Predicate<V> isNegative) {
+        this.maximumSize = Math.max(2, maximumSize);
+        this.windowMaximum = Math.max(1, this.maximumSize / 100);
+        this.protectedMaximum = (int) ((this.maximumSize - windowMaximum) * 0.8);
+        this.positiveTtl = Math.max(0, positiveTtl);
+        this.negativeTtl = Math.max(0, negativeTtl);
+        this.refreshAhead = refreshAhead;
+        this.isNegative = isNegative;
+        this.cleanupInterval = Math.max(64, this.maximumSize / 8);
+        this.data = new ConcurrentHashMap<>();
+        this.policyLock = new ReentrantLock();
+        this.sketch = new FrequencySketch(this.maximumSize);
+        this.window = new AccessQueue<>();
+        this.probation = new AccessQueue<>();
+        this.protectedQueue = new AccessQueue<>();
+        this.hits = new LongAdder();
+        this.negativeHits = new LongAdder();
+        this.misses = new LongAdder();
+        this.evictions = new LongAdder();
+        this.expirations = new LongAdder();
+        this.refreshes = new LongAdder();
+    }
+
+    /**
+     * @return The unexpired value, or null
+     */
+    public V get(K key, long now) {
+        Node<K, V> node = data.get(key);
+        if (node == null) {
+            misses.increment();
+            return null;
+        }
+        if (now >= node.expiresAt) {
+            misses.increment();
+            expire(node);
+            return null;
+        }
+        hits.increment();
+        if (node.negative) {
+            negativeHits.increment();
+        }
+        if (policyLock.tryLock()) {
+            try {
+                onAccess(node);
+            } finally {
+                policyLock.unlock();
+            }
+        }
+        return node.value;
+    }
+
+    /**
+     * Same as {@link #get(Object, long)} without counting a hit or miss or touching recency.
+     */
+    public V peek(K key, long now) {
+        Node<K, V> node = data.get(key);
+        return node == null || now >= node.expiresAt ? null : node.value;
+    }
+
+    public void put(K key, V value, long now) {
+        boolean negative = isNegative.test(value);
+        long expiresAt = now + (negative ? negativeTtl : positiveTtl);
+        policyLock.lock();
+        try {
+            sketch.increment(key);
+            Node<K, V> node = data.get(key);
+            if (node != null && !node.removed) {
+                node.value = value;
+                node.negative = negative;
+                node.writtenAt = now;
+                node.expiresAt = expiresAt;
+                node.refreshing.set(false);
+                onAccess(node);
+            } else {
+                node = new Node<>(key, value, negative, now, expiresAt);
+                data.put(key, node);
+                window.addLast(node);
+                evictOverflow();
+            }
+            if (++writesSinceCleanup >= cleanupInterval) {
+                writesSinceCleanup = 0;
+                removeExpired(now);
+            }
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    /**
+     * Asks whether a cached value is old enough to reload in the background before it expires.
+     * Returns true once per write, so exactly one caller starts the refresh.
+     */
+    public boolean needsRefresh(K key, long now) {
+        if (refreshAhead >= 1) {
+            return false;
+        }
+        Node<K, V> node = data.get(key);
+        if (node == null || now >= node.expiresAt) {
+            return false;
+        }
+        long lifetime = node.expiresAt - node.writtenAt;
+        if (now - node.writtenAt < (long) (lifetime * refreshAhead)) {
+            return false;
+        }
+        if (node.refreshing.compareAndSet(false, true)) {
+            refreshes.increment();
+            return true;
+        }
+        return false;
+    }
+
+    public void invalidate(K key) {
+        Node<K, V> node = data.get(key);
+        if (node != null && data.remove(key, node)) {
+            policyLock.lock();
+            try {
+                unlink(node);
+            } finally {
+                policyLock.unlock();
+            }
+        }
+    }
+
+    public void clear() {
+        policyLock.lock();
+        try {
+            data.clear();
+            window.clear();
+            probation.clear();
+            protectedQueue.clear();
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    /**
+     * Removes every expired entry now rather than as the cache is written.
+     */
+    public void cleanUp(long now) {
+        policyLock.lock();
+        try {
+            removeExpired(now);
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    private void onAccess(Node<K, V> node) {
+        if (node.removed) {
+            return;
+        }
+        sketch.increment(node.key);
+        switch (node.queue) {
+            case WINDOW:
+                window.moveToLast(node);
+                break;
+            case PROBATION:
+                // A second hit while on probation earns a place in the protected segment
+                probation.remove(node);
+                node.queue = PROTECTED;
+                protectedQueue.addLast(node);
+                if (protectedQueue.size > protectedMaximum) {
+                    Node<K, V> demoted = protectedQueue.first();
+                    protectedQueue.remove(demoted);
+                    demoted.queue = PROBATION;
+                    probation.addLast(demoted);
+                }
+                break;
+            default:
+                protectedQueue.moveToLast(node);
+                break;
+        }
+    }
+
+    private void evictOverflow() {
+        while (window.size > windowMaximum) {
+            Node<K, V> candidate = window.first();
+            window.remove(candidate);
+            candidate.queue = PROBATION;
+            probation.addLast(candidate);
+            if (probation.size + protectedQueue.size <= maximumSize - windowMaximum) {
+                continue;
+            }
+            Node<K, V> victim = probation.first();
+            if (victim == candidate && protectedQueue.size > 0) {
+                victim = protectedQueue.first();
+            }
+            // TinyLFU admission: the candidate replaces the victim only if it is used more often
+            if (victim != candidate && sketch.frequency(candidate.key) > sketch.frequency(victim.key)) {
+                evict(victim);
+            } else {
+                evict(candidate);
+            }
+        }
+    }
+
+    private void evict(Node<K, V> node) {
+        data.remove(node.key, node);
+        unlink(node);
+        evictions.increment();
+    }
+
+    private void expire(Node<K, V> node) {
+        if (data.remove(node.key, node)) {
+            expirations.increment();
+            policyLock.lock();
+            try {
+                unlink(node);
+            } finally {
+                policyLock.unlock();
+            }
+        }
+    }
+
+    private void removeExpired(long now) {
+        Iterator<Node<K, V>> iterator = data.values().iterator();
+        while (iterator.hasNext()) {
+            Node<K, V> node = iterator.next();
+            if (now >= node.expiresAt) {
+                iterator.remove();
+                unlink(node);
+                expirations.increment();
+            }
+        }
+    }
+
+    private void unlink(Node<K, V> node) {
+        if (node.removed) {
+            return;
+        }
+        node.removed = true;
+        queueOf(node).remove(node);
+    }
+
+    private AccessQueue<K, V> queueOf(Node<K, V> node) {
+        return node.queue == WINDOW ? window : node.queue == PROBATION ? probation : protectedQueue;
+    }
+
+    public int size() {
+        return data.size();
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getNegativeHitCount() {
+        return negativeHits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public long getExpirationCount() {
+        return expirations.sum();
+    }
+
+    public long getRefreshCount() {
+        return refreshes.sum();
+    }
+
+    /**
+     * @return Share of reads that were hits, 0 if nothing was read yet
+     */
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    public String getStatusLine() {
+        return String.format("size: %d/%d, hit rate: %.1f%% (negative hits: %d), evictions: %d, expired: %d, refreshes: %d",
+            data.size(), maximumSize, getHitRate() * 100, negativeHits.sum(), evictions.sum(),
+            expirations.sum(), refreshes.sum());
+    }
+
+    private static final class Node<K, V> {
+        final K key;
+        final AtomicBoolean refreshing = new AtomicBoolean();
+        volatile V value;
+        volatile boolean negative;
+        volatile long writtenAt;
+        volatile long expiresAt;
+
+        // Guarded by the policy lock
+        int queue = WINDOW;
+        boolean removed;
+        Node<K, V> prev;
+        Node<K, V> next;
+
+        Node(K key, V value, boolean negative, long writtenAt, long expiresAt) {
+            this.key = key;
+            this.value = value;
+            this.negative = negative;
+            this.writtenAt = writtenAt;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * Intrusive doubly linked list, least recently used first.
+     */
+    private static final class AccessQueue<K, V> {
+        private final Node<K, V> sentinel = new Node<>(null, null, false, 0, 0);
+        int size;
+
+        AccessQueue() {
+            sentinel.prev = sentinel;
+            sentinel.next = sentinel;
+        }
+
+        Node<K, V> first() {
+            return sentinel.next == sentinel ? null : sentinel.next;
+        }
+
+        void addLast(Node<K, V> node) {
+            node.prev = sentinel.prev;
+            node.next = sentinel;
+            sentinel.prev.next = node;
+            sentinel.prev = node;
+            size++;
+        }
+
+        void remove(Node<K, V> node) {
+            if (node.prev == null) {
+                return;
+            }
+            node.prev.next = node.next;
+            node.next.prev = node.prev;
+            node.prev = null;
+            node.next = null;
+            size--;
+        }
+
+        void moveToLast(Node<K, V> node) {
+            remove(node);
+            addLast(node);
+        }
+
+        void clear() {
+            Node<K, V> node = sentinel.next;
+            while (node != sentinel) {
+                Node<K, V> next = node.next;
+                node.prev = null;
+                node.next = null;
+                node.removed = true;
+                node = next;
+            }
+            sentinel.prev = sentinel;
+            sentinel.next = sentinel;
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.wificraft.sentinel.modules.chat;
+
+import com.wificraft.sentinel.modules.config.NotificationConfig;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Shared chat pattern matcher used by every chat scanner.
+ *
+ * All word lists are compiled into one {@link PatternAutomaton}, each list as its own group:
+ * <ul>
+ *   <li>{@link #BANNED} - {@code security.banned-patterns}</li>
+ *   <li>{@link #SUSPICIOUS} - {@code security.suspicious-patterns}</li>
+ *   <li>{@link #CHAT_RULES} - {@code chat-patterns.rule-words}, used by ChatMonitor</li>
+ *   <li>{@link #BEHAVIOR} - {@code chat-patterns.behavior-words}, used by the behavior analyzer</li>
+ *   <li>{@link #NOTIFICATION} - {@code patterns.suspicious} from notifications.yml</li>
+ * </ul>
+ * {@link #reload()} builds a new automaton and swaps it in atomically, so scans running on
+ * other threads keep using the previous one until they finish.
+ *
+ * Notification patterns are regular expressions. Those of the form {@code ^.*word.*$} (the
+ * defaults) are compiled as literals; anything else is kept as a regex and checked separately.
+ */
+public class ChatPatternMatcher {
+    public static final int BANNED = 1;
+    public static final int SUSPICIOUS = 1 << 1;
+    public static final int CHAT_RULES = 1 << 2;
+    public static final int BEHAVIOR = 1 << 3;
+    public static final int NOTIFICATION = 1 << 4;
+    public static final int ALL = BANNED | SUSPICIOUS | CHAT_RULES | BEHAVIOR | NOTIFICATION;
+
+    private static final List<String> DEFAULT_RULE_WORDS = Arrays.asList(
+        "hack", "cheat", "exploit", "bug", "admin", "mod", "staff",
+        "pay", "buy", "sell", "trade", "ip", "server", "cracked"
+    );
+    private static final List<String> DEFAULT_BEHAVIOR_WORDS = Arrays.asList(
+        "hack", "cheat", "bot", "exploit", "admin", "op", "mod", "staff",
+        "bug", "glitch", "crash", "lag", "laggy", "slow", "performance",
+        "ban", "kick", "mute", "unfair", "complain", "complaint"
+    );
+
+    private final JavaPlugin plugin;
+    private final NotificationConfig notificationConfig;
+    private volatile Compiled compiled;
+
+    /**
+     * @param notificationConfig Source of the notification patterns, or null to leave that group empty
+     */
+    public ChatPatternMatcher(JavaPlugin plugin, NotificationConfig notificationConfig) {
+        this.plugin = plugin;
+        this.notificationConfig = notificationConfig;
+        this.compiled = compile();
+    }
+
+    /**
+     * Rebuilds the automaton from the current configuration.
+     */
+    public void reload() {
+        this.compiled = compile();
+    }
+
+    private Compiled compile() {
+        FileConfiguration config = plugin.getConfig();
+        PatternAutomaton.Builder builder = PatternAutomaton.builder()
+            .addAll(config.getStringList("security.banned-patterns"), BANNED)
+            .addAll(config.getStringList("security.suspicious-patterns"), SUSPICIOUS)
+            .addAll(config.isList("chat-patterns.rule-words")
+                ? config.getStringList("chat-patterns.rule-words") : DEFAULT_RULE_WORDS, CHAT_RULES)
+            .addAll(config.isList("chat-patterns.behavior-words")
+                ? config.getStringList("chat-patterns.behavior-words") : DEFAULT_BEHAVIOR_WORDS, BEHAVIOR);
+
+        List<Pattern> regexes = new ArrayList<>();
+        if (notificationConfig != null) {
+            for (String pattern : notificationConfig.getPatterns()) {
+                String literal = toLiteral(pattern);
+                if (literal != null) {
+                    builder.add(literal, NOTIFICATION);
+                } else {
+                    try {
+                        regexes.add(Pattern.compile(pattern, Pattern.CASE_INSENSITIVE));
+                    } catch (PatternSyntaxException e) {
+                        plugin.getLogger().warning("Nieprawidłowy wzorzec powiadomień: " + pattern);
+                    }
+                }
+            }
+        }
+
+        PatternAutomaton automaton = builder.build();
+        plugin.getLogger().info(String.format("Chat pattern matcher compiled (%d patterns, %d states, %d regex)",
+            automaton.getPatternCount(), automaton.getStateCount(), regexes.size()));
+        return new Compiled(automaton, regexes.toArray(new Pattern[0]));
+    }
+
+    /**
+     * @return The current automaton; hold on to it for a sequence of scans that must see one version
+     */
+    public PatternAutomaton getAutomaton() {
+        return compiled.automaton;
+    }
+
+    public boolean containsAny(CharSequence text, int groups) {
+        Compiled current = compiled;
+        if (current.automaton.containsAny(text, groups)) {
+            return true;
+        }
+        return (groups & NOTIFICATION) != 0 && matchesRegex(current.regexes, text);
+    }
+
+    /**
+     * Reports every pattern occurrence from the given groups in one pass.
+     * Notification regexes that could not be compiled as literals are not reported here.
+     */
+    public int scan(CharSequence text, int groups, PatternAutomaton.MatchListener listener) {
+        return compiled.automaton.scan(text, groups, listener);
+    }
+
+    /**
+     * @return Distinct patterns found in the text, including notification regexes, for reporting.
+     *         Allocates, so call {@link #containsAny(CharSequence, int)} first on hot paths.
+     */
+    public List<String> findAll(CharSequence text, int groups) {
+        Compiled current = compiled;
+        List<String> found = new ArrayList<>();
+        current.automaton.scan(text, groups, (patternId, endIndex) -> {
+            String pattern = current.automaton.getPattern(patternId);
+            if (!found.contains(pattern)) {
+                found.add(pattern);
+            }
+        });
+        if ((groups & NOTIFICATION) != 0) {
+            for (Pattern regex : current.regexes) {
+                if (regex.matcher(text).find()) {
+                    found.add(regex.pattern());
+                }
+            }
+        }
+        return found;
+    }
+
+    public String getStatusLine() {
+        Compiled current = compiled;
+        return String.format("patterns: %d, states: %d, regex: %d",
+            current.automaton.getPatternCount(), current.automaton.getStateCount(), current.regexes.length);
+    }
+
+    private static boolean matchesRegex(Pattern[] regexes, CharSequence text) {
+        for (Pattern regex : regexes) {
+            if (regex.matcher(text).find()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return The literal searched for by a regex such as {@code ^.*literal.*$}, or null if it is not one
+     */
+    static String toLiteral(String regex) {
+        String body = regex;
+        if (body.startsWith("^.*")) {
+            body = body.substring(3);
+        } else if (body.startsWith(".*")) {
+            body = body.substring(2);
+        }
+        if (body.endsWith(".*$")) {
+            body = body.substring(0, body.length() - 3);
+        } else if (body.endsWith(".*")) {
+            body = body.substring(0, body.length() - 2);
+        }
+        // Anything still anchored or containing a metacharacter is a real regex
+        if (body.isEmpty()) {
+            return null;
+        }
+        for (int i = 0; i < body.length(); i++) {
+            if ("\\.[]{}()*+?|^$".indexOf(body.charAt(i)) >= 0) {
+                return null;
+            }
+        }
+        return body;
+    }
+
+    private static final class Compiled {
+        final PatternAutomaton automaton;
+        final Pattern[] regexes;
+
+        Compiled(PatternAutomaton automaton, Pattern[] regexes) {
+            this.automaton = automaton;
+            this.regexes = regexes;
+        }
+    }
+}
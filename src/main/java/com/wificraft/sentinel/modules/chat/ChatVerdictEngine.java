@@ -0,0 +1,324 @@
+package com.wificraft.sentinel.modules.chat;
+
+import com.wificraft.sentinel.modules.ratelimit.TokenBucketLimiter;
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Decides whether a chat message breaks a chat rule, safely from any number of chat threads.
+ *
+ * Per-player state is a pair of lock-free {@link TokenBucketLimiter}s (message rate and
+ * all-caps rate) and the time each verdict was last confirmed, all updated with
+ * compare-and-set. A call to {@link #evaluate(UUID, long, String)} only does arithmetic
+ * and one pattern scan, so it returns in microseconds and never blocks on I/O.
+ *
+ * Verdicts are bit flags. {@link #VERDICT_SHORT} and {@link #VERDICT_NUMBERS} fire on plenty of
+ * ordinary chat ("gg", "1v1"), and so do the rule words of {@link ChatPatternMatcher#CHAT_RULES}
+ * ("ip", "server"); they are only reported when switched on in {@code chat-verdicts.report-*}.
+ *
+ * The first time a verdict fires for a player within
+ * {@code report-cooldown-seconds} it is confirmed and put on a bounded queue; whoever owns
+ * persistence (the main thread, or a worker) takes them off with {@link #drain(Consumer)}.
+ */
+public class ChatVerdictEngine {
+    public static final int VERDICT_RATE = 1;
+    public static final int VERDICT_CAPS = 1 << 1;
+    public static final int VERDICT_RULES = 1 << 2;
+    public static final int VERDICT_SHORT = 1 << 3;
+    public static final int VERDICT_NUMBERS = 1 << 4;
+    public static final int VERDICT_REPEAT = 1 << 5;
+    public static final int VERDICT_WAVE = 1 << 6;
+    private static final int VERDICT_COUNT = 7;
+
+    private static final String[] REASONS = {
+        "Potential spam detected",
+        "Excessive use of all-caps",
+        "Suspicious chat containing potential rule violation",
+        "Potential spam (very short message)",
+        "Potential spam (contains numbers)",
+        "Potential spam (repeated near-identical messages)",
+        "Potential spam wave (same message from several players)"
+    };
+
+    private static final int MAX_TRACKED_PLAYERS = 10_000;
+
+    private static final int ALL_VERDICTS = (1 << VERDICT_COUNT) - 1;
+    private static final int RULE_GROUPS = ChatPatternMatcher.CHAT_RULES | ChatPatternMatcher.BANNED
+        | ChatPatternMatcher.SUSPICIOUS;
+
+    private final ChatPatternMatcher patternMatcher;
+    private final NearDuplicateDetector duplicateDetector;
+    private final TokenBucketLimiter<UUID> messageRate;
+    private final double capsRatio;
+    private final TokenBucketLimiter<UUID> capsRate;
+    private final long cooldownMillis;
+    private final int queueCapacity;
+    private final int enabledVerdicts;
+    private final int ruleGroups;
+
+    private final Map<UUID, PlayerState> players;
+    private final Queue<ConfirmedVerdict> confirmed;
+    private final AtomicInteger queued;
+
+    private final LongAdder evaluated;
+    private final LongAdder flagged;
+    private final LongAdder confirmedCount;
+    private final LongAdder dropped;
+
+    /**
+     * Reads {@code chat-verdicts.*} from the plugin configuration.
+     */
+    public ChatVerdictEngine(FileConfiguration config, ChatPatternMatcher patternMatcher,
+                             NearDuplicateDetector duplicateDetector) {
+        this(patternMatcher, duplicateDetector,
+            config.getLong("chat-verdicts.rate-interval-ms", 2000),
+            config.getInt("chat-verdicts.rate-burst", 6),
+            config.getDouble("chat-verdicts.caps-ratio", 0.7),
+            config.getLong("chat-verdicts.caps-interval-ms", 20000),
+            config.getInt("chat-verdicts.caps-burst", 3),
+            config.getLong("chat-verdicts.report-cooldown-seconds", 30) * 1000L,
+            config.getInt("chat-verdicts.queue-capacity", 4096),
+            ALL_VERDICTS
+                & (config.getBoolean("chat-verdicts.report-short-messages", false) ? ALL_VERDICTS : ~VERDICT_SHORT)
+                & (config.getBoolean("chat-verdicts.report-numbers", false) ? ALL_VERDICTS : ~VERDICT_NUMBERS),
+            config.getBoolean("chat-verdicts.report-rule-words", false)
+                ? RULE_GROUPS : RULE_GROUPS & ~ChatPatternMatcher.CHAT_RULES);
+    }
+
+    /**
+     * With every verdict enabled and every rule group counted.
+     */
+    public ChatVerdictEngine(ChatPatternMatcher patternMatcher, NearDuplicateDetector duplicateDetector,
+                             long rateInterval, int rateBurst, double capsRatio, long capsInterval, int capsBurst,
+                             long cooldownMillis, int queueCapacity) {
+        this(patternMatcher, duplicateDetector, rateInterval, rateBurst, capsRatio, capsInterval, capsBurst,
+            cooldownMillis, queueCapacity, ALL_VERDICTS, RULE_GROUPS);
+    }
+
+    /**
+     * @param patternMatcher Rule word matcher, or null to skip the rule word check
+     * @param duplicateDetector Near-duplicate detector owned by this engine, or null to skip that check
+     * @param rateInterval Sustained time between messages, in milliseconds
+     * @param rateBurst Messages allowed back to back before {@link #VERDICT_RATE}
+     * @param capsRatio Share of uppercase characters that makes a message all-caps
+     * @param capsInterval Sustained time between all-caps messages, in milliseconds
+     * @param capsBurst All-caps messages allowed back to back before {@link #VERDICT_CAPS}
+     * @param cooldownMillis Time before the same verdict is confirmed again for a player
+     * @param queueCapacity Confirmed verdicts kept waiting for {@link #drain(Consumer)}; newer ones are dropped
+     * @param enabledVerdicts Bit set of the verdicts that may fire
+     * @param ruleGroups {@link ChatPatternMatcher} groups that make a message break the rules
+     */
+    public ChatVerdictEngine(ChatPatternMatcher patternMatcher, NearDuplicateDetector duplicateDetector,
+                             long rateInterval, int rateBurst, double capsRatio, long capsInterval, int capsBurst,
+                             long cooldownMillis, int queueCapacity, int enabledVerdicts, int ruleGroups) {
+        this.patternMatcher = patternMatcher;
+        this.duplicateDetector = duplicateDetector;
+        this.messageRate = new TokenBucketLimiter<>(rateInterval, rateBurst, MAX_TRACKED_PLAYERS);
+        this.capsRatio = capsRatio;
+        this.capsRate = new TokenBucketLimiter<>(capsInterval, capsBurst, MAX_TRACKED_PLAYERS);
+        this.cooldownMillis = Math.max(0, cooldownMillis);
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.enabledVerdicts = enabledVerdicts;
+        this.ruleGroups = ruleGroups;
+        this.players = new ConcurrentHashMap<>();
+        this.confirmed = new ConcurrentLinkedQueue<>();
+        this.queued = new AtomicInteger();
+        this.evaluated = new LongAdder();
+        this.flagged = new LongAdder();
+        this.confirmedCount = new LongAdder();
+        this.dropped = new LongAdder();
+    }
+
+    /**
+     * Runs every chat check on a message. Safe to call concurrently, including for the same player.
+     * @return Bit set of the verdicts that fired, 0 if the message is fine
+     */
+    public int evaluate(UUID playerId, long timestamp, String message) {
+        evaluated.increment();
+        PlayerState state = players.computeIfAbsent(playerId, k -> new PlayerState());
+        int verdicts = 0;
+
+        if (!messageRate.tryAcquire(playerId, timestamp)) {
+            verdicts |= VERDICT_RATE;
+        }
+
+        int upper = 0;
+        boolean digits = false;
+        for (int i = 0, length = message.length(); i < length; i++) {
+            char c = message.charAt(i);
+            if (Character.isUpperCase(c)) {
+                upper++;
+            } else if (c >= '0' && c <= '9') {
+                digits = true;
+            }
+        }
+        if (!message.isEmpty() && (double) upper / message.length() > capsRatio
+                && !capsRate.tryAcquire(playerId, timestamp)) {
+            verdicts |= VERDICT_CAPS;
+        }
+        if (digits) {
+            verdicts |= VERDICT_NUMBERS;
+        }
+        if (message.trim().length() < 3) {
+            verdicts |= VERDICT_SHORT;
+        }
+        if (patternMatcher != null && ruleGroups != 0 && patternMatcher.containsAny(message, ruleGroups)) {
+            verdicts |= VERDICT_RULES;
+        }
+        if (duplicateDetector != null) {
+            int duplicates = duplicateDetector.check(playerId, timestamp, message);
+            if ((duplicates & NearDuplicateDetector.FLAG_GROUP_WAVE) != 0) {
+                verdicts |= VERDICT_WAVE;
+            } else if ((duplicates & NearDuplicateDetector.FLAG_PLAYER_REPEAT) != 0) {
+                verdicts |= VERDICT_REPEAT;
+            }
+        }
+
+        verdicts &= enabledVerdicts;
+        if (verdicts != 0) {
+            flagged.increment();
+            confirm(playerId, state, timestamp, verdicts, message);
+        }
+        return verdicts;
+    }
+
+    private void confirm(UUID playerId, PlayerState state, long timestamp, int verdicts, String message) {
+        for (int bit = 0; bit < VERDICT_COUNT; bit++) {
+            if ((verdicts & (1 << bit)) == 0) {
+                continue;
+            }
+            // Only the thread that moves the timestamp forward confirms the verdict
+            long last = state.lastConfirmed.get(bit);
+            if (last != 0 && timestamp - last < cooldownMillis) {
+                continue;
+            }
+            if (!state.lastConfirmed.compareAndSet(bit, last, timestamp)) {
+                continue;
+            }
+            if (queued.incrementAndGet() > queueCapacity) {
+                queued.decrementAndGet();
+                dropped.increment();
+                continue;
+            }
+            confirmed.offer(new ConfirmedVerdict(playerId, 1 << bit, timestamp, message));
+            confirmedCount.increment();
+        }
+    }
+
+    /**
+     * Hands every queued confirmed verdict to the consumer, oldest first.
+     * @return Number of verdicts drained
+     */
+    public int drain(Consumer<ConfirmedVerdict> consumer) {
+        int count = 0;
+        ConfirmedVerdict verdict;
+        while ((verdict = confirmed.poll()) != null) {
+            queued.decrementAndGet();
+            consumer.accept(verdict);
+            count++;
+        }
+        return count;
+    }
+
+    public void removePlayer(UUID playerId) {
+        players.remove(playerId);
+        messageRate.remove(playerId);
+        capsRate.remove(playerId);
+        if (duplicateDetector != null) {
+            duplicateDetector.removePlayer(playerId);
+        }
+    }
+
+    public NearDuplicateDetector getDuplicateDetector() {
+        return duplicateDetector;
+    }
+
+    public long getEvaluatedCount() {
+        return evaluated.sum();
+    }
+
+    public long getFlaggedCount() {
+        return flagged.sum();
+    }
+
+    public long getConfirmedCount() {
+        return confirmedCount.sum();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    public int getQueuedCount() {
+        return queued.get();
+    }
+
+    public String getStatusLine() {
+        return String.format("evaluated: %d, flagged: %d, confirmed: %d, queued: %d, dropped: %d",
+            evaluated.sum(), flagged.sum(), confirmedCount.sum(), queued.get(), dropped.sum());
+    }
+
+    /**
+     * @return Report reason for a single verdict flag
+     */
+    public static String getReason(int verdict) {
+        int bit = Integer.numberOfTrailingZeros(verdict);
+        return bit < REASONS.length ? REASONS[bit] : "Suspicious chat";
+    }
+
+    private static final class PlayerState {
+        final AtomicLongArray lastConfirmed = new AtomicLongArray(VERDICT_COUNT);
+    }
+
+    /**
+     * A verdict that passed its cooldown and should be persisted.
+     */
+    public static final class ConfirmedVerdict {
+        private final UUID playerId;
+        private final int verdict;
+        private final long timestamp;
+        private final String message;
+
+        ConfirmedVerdict(UUID playerId, int verdict, long timestamp, String message) {
+            this.playerId = playerId;
+            this.verdict = verdict;
+            this.timestamp = timestamp;
+            this.message = message;
+        }
+
+        public UUID getPlayerId() {
+            return playerId;
+        }
+
+        /**
+         * @return A single verdict flag
+         */
+        public int getVerdict() {
+            return verdict;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        /**
+         * @return The message that confirmed the verdict
+         */
+        public String getMessage() {
+            return message;
+        }
+
+        public String getReason() {
+            return ChatVerdictEngine.getReason(verdict);
+        }
+    }
+}
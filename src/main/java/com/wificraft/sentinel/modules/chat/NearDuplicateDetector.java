@@ -0,0 +1,226 @@
+package com.wificraft.sentinel.modules.chat;
+
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Detects players, and groups of players, repeating near-identical chat messages.
+ *
+ * Only a 64-bit {@link SimHash} and a timestamp are kept per message, in fixed-size
+ * primitive rings: a small one per player and a shared one for the whole server. Each
+ * check compares the new fingerprint against both rings, so it costs the same no matter
+ * how much chat has been seen, and raw message text is never retained.
+ *
+ * A player is flagged when enough of their own recent messages are within
+ * {@code max-distance} bits of the new one; a wave is flagged when messages from
+ * enough distinct players are. The instance is thread-safe. Each consumer of the chat
+ * stream needs its own instance, otherwise every message is counted twice.
+ */
+public class NearDuplicateDetector {
+    public static final int FLAG_PLAYER_REPEAT = 1;
+    public static final int FLAG_GROUP_WAVE = 2;
+
+    private static final long DEFAULT_WINDOW_SECONDS = 60;
+    private static final int DEFAULT_MAX_DISTANCE = 8;
+    private static final int DEFAULT_MIN_LENGTH = 12;
+    private static final int DEFAULT_PLAYER_THRESHOLD = 3;
+    private static final int DEFAULT_GROUP_THRESHOLD = 3;
+    private static final int DEFAULT_PLAYER_HISTORY = 16;
+    private static final int DEFAULT_GLOBAL_HISTORY = 512;
+
+    private final long windowMillis;
+    private final int maxDistance;
+    private final int minLength;
+    private final int playerThreshold;
+    private final int groupThreshold;
+    private final int playerCapacity;
+
+    private final Map<UUID, Ring> playerRings;
+
+    // Server-wide ring: fingerprint, time and sender of the most recent messages
+    private final long[] globalFingerprints;
+    private final long[] globalTimes;
+    private final long[] globalSenders;
+    private final int globalMask;
+    private long globalNext;
+    // Scratch space for counting distinct senders; only used under the lock
+    private final long[] distinctSenders;
+
+    private long checked;
+    private long playerFlags;
+    private long groupFlags;
+
+    public NearDuplicateDetector() {
+        this(DEFAULT_WINDOW_SECONDS * 1000L, DEFAULT_MAX_DISTANCE, DEFAULT_MIN_LENGTH, DEFAULT_PLAYER_THRESHOLD,
+            DEFAULT_GROUP_THRESHOLD, DEFAULT_PLAYER_HISTORY, DEFAULT_GLOBAL_HISTORY);
+    }
+
+    /**
+     * Reads {@code chat-duplicates.*} from the plugin configuration.
+     */
+    public NearDuplicateDetector(FileConfiguration config) {
+        this(config.getLong("chat-duplicates.window-seconds", DEFAULT_WINDOW_SECONDS) * 1000L,
+            config.getInt("chat-duplicates.max-distance", DEFAULT_MAX_DISTANCE),
+            config.getInt("chat-duplicates.min-length", DEFAULT_MIN_LENGTH),
+            config.getInt("chat-duplicates.player-threshold", DEFAULT_PLAYER_THRESHOLD),
+            config.getInt("chat-duplicates.group-threshold", DEFAULT_GROUP_THRESHOLD),
+            config.getInt("chat-duplicates.player-history", DEFAULT_PLAYER_HISTORY),
+            config.getInt("chat-duplicates.global-history", DEFAULT_GLOBAL_HISTORY));
+    }
+
+    /**
+     * @param maxDistance Largest Hamming distance between fingerprints still treated as the same message
+     * @param minLength Messages with fewer letters and digits are ignored ("gg", "hi")
+     * @param playerThreshold Earlier near-duplicates from the same player that flag a repeat
+     * @param groupThreshold Distinct players, including the sender, that flag a wave
+     * @param playerCapacity Messages remembered per player, rounded up to a power of two
+     * @param globalCapacity Messages remembered server-wide, rounded up to a power of two
+     */
+    public NearDuplicateDetector(long windowMillis, int maxDistance, int minLength, int playerThreshold,
+                                 int groupThreshold, int playerCapacity, int globalCapacity) {
+        this.windowMillis = windowMillis;
+        this.maxDistance = maxDistance;
+        this.minLength = minLength;
+        this.playerThreshold = Math.max(1, playerThreshold);
+        this.groupThreshold = Math.max(2, groupThreshold);
+        this.playerCapacity = powerOfTwo(playerCapacity);
+        this.playerRings = new ConcurrentHashMap<>();
+
+        int global = powerOfTwo(globalCapacity);
+        this.globalFingerprints = new long[global];
+        this.globalTimes = new long[global];
+        this.globalSenders = new long[global];
+        this.globalMask = global - 1;
+        this.distinctSenders = new long[this.groupThreshold];
+    }
+
+    /**
+     * Records a message and checks it against recent ones.
+     * @return Bit set of {@link #FLAG_PLAYER_REPEAT} and {@link #FLAG_GROUP_WAVE}, 0 if nothing was found
+     */
+    public int check(UUID playerId, long timestamp, CharSequence message) {
+        if (SimHash.significantLength(message) < minLength) {
+            return 0;
+        }
+        long fingerprint = SimHash.fingerprint(message);
+        long sender = playerId.getMostSignificantBits() ^ playerId.getLeastSignificantBits();
+        long cutoff = timestamp - windowMillis;
+        Ring ring = playerRings.computeIfAbsent(playerId, k -> new Ring(playerCapacity));
+
+        synchronized (this) {
+            checked++;
+            int flags = 0;
+
+            if (ring.countNear(fingerprint, cutoff, maxDistance) >= playerThreshold) {
+                flags |= FLAG_PLAYER_REPEAT;
+                playerFlags++;
+            }
+            if (countDistinctSenders(fingerprint, sender, cutoff) >= groupThreshold) {
+                flags |= FLAG_GROUP_WAVE;
+                groupFlags++;
+            }
+
+            ring.add(fingerprint, timestamp);
+            int index = (int) (globalNext++ & globalMask);
+            globalFingerprints[index] = fingerprint;
+            globalTimes[index] = timestamp;
+            globalSenders[index] = sender;
+            return flags;
+        }
+    }
+
+    // Distinct senders (including this one) of near-duplicates in the window, capped at the threshold
+    private int countDistinctSenders(long fingerprint, long sender, long cutoff) {
+        distinctSenders[0] = sender;
+        int distinct = 1;
+        long oldest = Math.max(0, globalNext - globalFingerprints.length);
+        for (long sequence = globalNext - 1; sequence >= oldest && distinct < groupThreshold; sequence--) {
+            int index = (int) (sequence & globalMask);
+            if (globalTimes[index] < cutoff) {
+                break;
+            }
+            if (SimHash.distance(globalFingerprints[index], fingerprint) > maxDistance) {
+                continue;
+            }
+            long other = globalSenders[index];
+            boolean seen = false;
+            for (int i = 0; i < distinct; i++) {
+                if (distinctSenders[i] == other) {
+                    seen = true;
+                    break;
+                }
+            }
+            if (!seen) {
+                distinctSenders[distinct++] = other;
+            }
+        }
+        return distinct;
+    }
+
+    public void removePlayer(UUID playerId) {
+        playerRings.remove(playerId);
+    }
+
+    public long getCheckedCount() {
+        return checked;
+    }
+
+    public long getPlayerFlagCount() {
+        return playerFlags;
+    }
+
+    public long getGroupFlagCount() {
+        return groupFlags;
+    }
+
+    public String getStatusLine() {
+        synchronized (this) {
+            return String.format("checked: %d, repeats: %d, waves: %d, tracked players: %d",
+                checked, playerFlags, groupFlags, playerRings.size());
+        }
+    }
+
+    private static int powerOfTwo(int capacity) {
+        return Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+    }
+
+    /**
+     * Per-player ring of fingerprints and timestamps, newest last.
+     */
+    private static final class Ring {
+        private final long[] fingerprints;
+        private final long[] times;
+        private final int mask;
+        private long next;
+
+        Ring(int capacity) {
+            this.fingerprints = new long[capacity];
+            this.times = new long[capacity];
+            this.mask = capacity - 1;
+        }
+
+        void add(long fingerprint, long time) {
+            int index = (int) (next++ & mask);
+            fingerprints[index] = fingerprint;
+            times[index] = time;
+        }
+
+        int countNear(long fingerprint, long cutoff, int maxDistance) {
+            int count = 0;
+            long oldest = Math.max(0, next - fingerprints.length);
+            for (long sequence = next - 1; sequence >= oldest; sequence--) {
+                int index = (int) (sequence & mask);
+                if (times[index] < cutoff) {
+                    break;
+                }
+                if (SimHash.distance(fingerprints[index], fingerprint) <= maxDistance) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+}
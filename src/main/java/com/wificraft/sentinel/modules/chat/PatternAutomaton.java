@@ -0,0 +1,279 @@
+package com.wificraft.sentinel.modules.chat;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Immutable Aho–Corasick automaton over a set of case-insensitive literal patterns.
+ *
+ * The goto and failure functions are compiled into one dense transition table
+ * (states x character classes), so scanning a message is a single pass with one array
+ * lookup per character and no allocation. Every pattern belongs to one or more groups
+ * (a bit mask), and a scan only reports patterns from the groups it asks for.
+ *
+ * Matching is plain substring matching, like the {@code contains} checks it replaces.
+ */
+public final class PatternAutomaton {
+    private final String[] patterns;
+    private final int[] patternGroups;
+
+    private final int alphabetSize;
+    private final int[] asciiClass;
+    private final char[] otherChars;
+    private final int otherBase;
+    private final int[] transitions;
+
+    // Pattern ending exactly at the state (-1 if none) and the next state on the
+    // failure chain that ends a pattern (0 if none)
+    private final int[] statePattern;
+    private final int[] dictionaryLink;
+    // Union of the groups of every pattern ending at the state or along its failure chain
+    private final int[] stateGroups;
+
+    private PatternAutomaton(String[] patterns, int[] patternGroups, int alphabetSize, int[] asciiClass,
+                             char[] otherChars, int otherBase, int[] transitions, int[] statePattern, int[] dictionaryLink,
+                             int[] stateGroups) {
+        this.patterns = patterns;
+        this.patternGroups = patternGroups;
+        this.alphabetSize = alphabetSize;
+        this.asciiClass = asciiClass;
+        this.otherChars = otherChars;
+        this.otherBase = otherBase;
+        this.transitions = transitions;
+        this.statePattern = statePattern;
+        this.dictionaryLink = dictionaryLink;
+        this.stateGroups = stateGroups;
+    }
+
+    /**
+     * @return True if the text contains any pattern from the given groups
+     */
+    public boolean containsAny(CharSequence text, int groups) {
+        int state = 0;
+        for (int i = 0, length = text.length(); i < length; i++) {
+            state = transitions[state * alphabetSize + classOf(text.charAt(i))];
+            if ((stateGroups[state] & groups) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reports every occurrence of every pattern from the given groups, in order of end position.
+     * @return Number of occurrences reported
+     */
+    public int scan(CharSequence text, int groups, MatchListener listener) {
+        int hits = 0;
+        int state = 0;
+        for (int i = 0, length = text.length(); i < length; i++) {
+            state = transitions[state * alphabetSize + classOf(text.charAt(i))];
+            if ((stateGroups[state] & groups) == 0) {
+                continue;
+            }
+            for (int s = statePattern[state] >= 0 ? state : dictionaryLink[state]; s != 0; s = dictionaryLink[s]) {
+                int pattern = statePattern[s];
+                if ((patternGroups[pattern] & groups) != 0) {
+                    listener.onMatch(pattern, i + 1);
+                    hits++;
+                }
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * @return Union of the groups of every pattern found in the text
+     */
+    public int matchedGroups(CharSequence text) {
+        int groups = 0;
+        int state = 0;
+        for (int i = 0, length = text.length(); i < length; i++) {
+            state = transitions[state * alphabetSize + classOf(text.charAt(i))];
+            groups |= stateGroups[state];
+        }
+        return groups;
+    }
+
+    public int getPatternCount() {
+        return patterns.length;
+    }
+
+    public int getStateCount() {
+        return statePattern.length;
+    }
+
+    /**
+     * @return The pattern, lowercased
+     */
+    public String getPattern(int patternId) {
+        return patterns[patternId];
+    }
+
+    public int getPatternGroups(int patternId) {
+        return patternGroups[patternId];
+    }
+
+    private int classOf(char c) {
+        if (c < 128) {
+            return asciiClass[c];
+        }
+        int index = Arrays.binarySearch(otherChars, Character.toLowerCase(c));
+        return index >= 0 ? otherBase + index : 0;
+    }
+
+    @FunctionalInterface
+    public interface MatchListener {
+        /**
+         * @param patternId Index of the pattern, see {@link #getPattern(int)}
+         * @param endIndex Index just past the last matched character
+         */
+        void onMatch(int patternId, int endIndex);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Collects patterns and compiles them. Empty patterns are ignored and a pattern
+     * added under several groups is stored once with the union of its groups.
+     */
+    public static final class Builder {
+        private final Map<String, Integer> groupsByPattern = new LinkedHashMap<>();
+
+        public Builder add(String pattern, int groups) {
+            if (pattern != null && !pattern.isEmpty()) {
+                groupsByPattern.merge(pattern.toLowerCase(Locale.ROOT), groups, (a, b) -> a | b);
+            }
+            return this;
+        }
+
+        public Builder addAll(Iterable<String> patterns, int groups) {
+            for (String pattern : patterns) {
+                add(pattern, groups);
+            }
+            return this;
+        }
+
+        public PatternAutomaton build() {
+            String[] patterns = groupsByPattern.keySet().toArray(new String[0]);
+            int[] patternGroups = new int[patterns.length];
+            for (int i = 0; i < patterns.length; i++) {
+                patternGroups[i] = groupsByPattern.get(patterns[i]);
+            }
+
+            // Character classes: 0 is "any other character", ASCII first, then the rest sorted
+            TreeSet<Character> nonAscii = new TreeSet<>();
+            int[] asciiClass = new int[128];
+            int nextClass = 1;
+            for (String pattern : patterns) {
+                for (int i = 0; i < pattern.length(); i++) {
+                    char c = pattern.charAt(i);
+                    if (c < 128) {
+                        if (asciiClass[c] == 0) {
+                            asciiClass[c] = nextClass++;
+                        }
+                    } else {
+                        nonAscii.add(c);
+                    }
+                }
+            }
+            // Uppercase ASCII folds onto its lowercase class
+            for (char c = 'A'; c <= 'Z'; c++) {
+                asciiClass[c] = asciiClass[Character.toLowerCase(c)];
+            }
+            char[] otherChars = new char[nonAscii.size()];
+            int index = 0;
+            for (char c : nonAscii) {
+                otherChars[index++] = c;
+            }
+            int otherBase = nextClass;
+            int alphabetSize = otherBase + otherChars.length;
+
+            // Trie
+            List<int[]> trie = new ArrayList<>();
+            List<Integer> terminal = new ArrayList<>();
+            trie.add(newRow(alphabetSize));
+            terminal.add(-1);
+            for (int p = 0; p < patterns.length; p++) {
+                int state = 0;
+                String pattern = patterns[p];
+                for (int i = 0; i < pattern.length(); i++) {
+                    int cls = classOf(pattern.charAt(i), asciiClass, otherChars, otherBase);
+                    int next = trie.get(state)[cls];
+                    if (next < 0) {
+                        next = trie.size();
+                        trie.add(newRow(alphabetSize));
+                        terminal.add(-1);
+                        trie.get(state)[cls] = next;
+                    }
+                    state = next;
+                }
+                terminal.set(state, p);
+            }
+
+            int states = trie.size();
+            int[] transitions = new int[states * alphabetSize];
+            int[] failure = new int[states];
+            int[] statePattern = new int[states];
+            int[] dictionaryLink = new int[states];
+            int[] stateGroups = new int[states];
+            for (int s = 0; s < states; s++) {
+                statePattern[s] = terminal.get(s);
+            }
+
+            // Breadth-first construction of failure links, folded into a full transition table
+            ArrayDeque<Integer> queue = new ArrayDeque<>();
+            int[] root = trie.get(0);
+            for (int c = 0; c < alphabetSize; c++) {
+                if (root[c] > 0) {
+                    transitions[c] = root[c];
+                    failure[root[c]] = 0;
+                    queue.add(root[c]);
+                }
+            }
+            while (!queue.isEmpty()) {
+                int state = queue.poll();
+                int fail = failure[state];
+                dictionaryLink[state] = statePattern[fail] >= 0 ? fail : dictionaryLink[fail];
+                stateGroups[state] = stateGroups[fail]
+                    | (statePattern[state] >= 0 ? patternGroups[statePattern[state]] : 0);
+
+                int[] row = trie.get(state);
+                for (int c = 0; c < alphabetSize; c++) {
+                    int child = row[c];
+                    if (child > 0) {
+                        failure[child] = transitions[fail * alphabetSize + c];
+                        transitions[state * alphabetSize + c] = child;
+                        queue.add(child);
+                    } else {
+                        transitions[state * alphabetSize + c] = transitions[fail * alphabetSize + c];
+                    }
+                }
+            }
+
+            return new PatternAutomaton(patterns, patternGroups, alphabetSize, asciiClass, otherChars, otherBase,
+                transitions, statePattern, dictionaryLink, stateGroups);
+        }
+
+        private static int[] newRow(int size) {
+            int[] row = new int[size];
+            Arrays.fill(row, -1);
+            return row;
+        }
+
+        private static int classOf(char c, int[] asciiClass, char[] otherChars, int otherBase) {
+            if (c < 128) {
+                return asciiClass[c];
+            }
+            return otherBase + Arrays.binarySearch(otherChars, c);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.wificraft.sentinel.modules.chat;
+
+/**
+ * 64-bit SimHash fingerprints of chat messages.
+ *
+ * Text is normalized on the fly (lowercase, letters and digits only, runs of anything
+ * else collapsed into one space) and cut into overlapping 3-character shingles. Messages
+ * that share most of their shingles get fingerprints a few bits apart, so a bot that adds
+ * random suffixes or swaps a word still lands within a small Hamming distance.
+ */
+public final class SimHash {
+    private static final int SHINGLE = 3;
+
+    private SimHash() {
+    }
+
+    /**
+     * @return Fingerprint of the text, or 0 for text without letters or digits
+     */
+    public static long fingerprint(CharSequence text) {
+        int[] weights = new int[64];
+        long window = 0;
+        int filled = 0;
+        int shingles = 0;
+        boolean pendingSpace = false;
+
+        for (int i = 0, length = text.length(); i < length; i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            if (!Character.isLetterOrDigit(c)) {
+                pendingSpace = filled > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                window = (window << 16) | ' ';
+                filled++;
+                pendingSpace = false;
+                if (filled >= SHINGLE) {
+                    accumulate(weights, mix(window & 0xFFFFFFFFFFFFL));
+                    shingles++;
+                }
+            }
+            window = (window << 16) | c;
+            filled++;
+            if (filled >= SHINGLE) {
+                accumulate(weights, mix(window & 0xFFFFFFFFFFFFL));
+                shingles++;
+            }
+        }
+
+        if (shingles == 0) {
+            // Shorter than one shingle: hash what there is
+            return filled == 0 ? 0 : mix(window | ((long) filled << 48));
+        }
+
+        long fingerprint = 0;
+        for (int bit = 0; bit < 64; bit++) {
+            if (weights[bit] > 0) {
+                fingerprint |= 1L << bit;
+            }
+        }
+        return fingerprint;
+    }
+
+    /**
+     * @return Number of letters and digits in the text, the length used to skip very short messages
+     */
+    public static int significantLength(CharSequence text) {
+        int count = 0;
+        for (int i = 0, length = text.length(); i < length; i++) {
+            if (Character.isLetterOrDigit(text.charAt(i))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    private static void accumulate(int[] weights, long hash) {
+        for (int bit = 0; bit < 64; bit++) {
+            weights[bit] += (int) ((hash >>> bit) & 1L) * 2 - 1;
+        }
+    }
+
+    // Murmur3 64-bit finalizer
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -1,5 +1,6 @@
 package com.wificraft.sentinel.modules.config;
 
+import com.wificraft.sentinel.modules.data.WriteBehindService;
 import org.bukkit.configuration.file.YamlConfiguration;
 import java.io.File;
 import java.util.concurrent.TimeUnit;
@@ -33,7 +34,7 @@ public class InspectionConfig {
             config.set("inspection.max_duration", 30); // Minutes before warning about long inspection
             
             try {
-                config.save(configFile);
+                WriteBehindService.save(configFile, config::saveToString);
             } catch (Exception e) {
                 throw new RuntimeException("Failed to save default config: " + e.getMessage());
             }
@@ -107,7 +108,7 @@ public class InspectionConfig {
     
     public void saveConfig() {
         try {
-            config.save(configFile);
+            WriteBehindService.save(configFile, config::saveToString);
         } catch (Exception e) {
             throw new RuntimeException("Failed to save config: " + e.getMessage());
         }
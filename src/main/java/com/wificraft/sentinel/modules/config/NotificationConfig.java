@@ -1,5 +1,6 @@
 package com.wificraft.sentinel.modules.config;
 
+import com.wificraft.sentinel.modules.data.WriteBehindService;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
 import java.io.File;
@@ -187,7 +188,7 @@ public class NotificationConfig {
 
     public void saveConfig() {
         try {
-            config.save(configFile);
+            WriteBehindService.save(configFile, config::saveToString);
         } catch (IOException e) {
             System.err.println("Błąd podczas zapisywania konfiguracji powiadomień: " + e.getMessage());
         }
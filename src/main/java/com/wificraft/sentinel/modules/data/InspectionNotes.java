@@ -1,5 +1,6 @@
 package com.wificraft.sentinel.modules.data;
 
+import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.entity.Player;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
@@ -18,9 +19,16 @@ public class InspectionNotes {
         private final long duration;
         
         public Note(String type, String content, UUID moderatorUuid, long duration) {
+            this(type, content, System.currentTimeMillis(), moderatorUuid, duration);
+        }
+        
+        /**
+         * A stored note, with the time it was written.
+         */
+        public Note(String type, String content, long timestamp, UUID moderatorUuid, long duration) {
             this.type = type;
             this.content = content;
-            this.timestamp = System.currentTimeMillis();
+            this.timestamp = timestamp;
             this.moderatorUuid = moderatorUuid;
             this.duration = duration;
         }
@@ -70,13 +78,24 @@ public class InspectionNotes {
         this.noteDurations = new HashMap<>();
     }
     
-    public void addNote(String type, String content, UUID moderatorUuid, long duration) {
+    /**
+     * @return The note added, to be stored
+     */
+    public Note addNote(String type, String content, UUID moderatorUuid, long duration) {
         Note note = new Note(type, content, moderatorUuid, duration);
+        addNote(note);
+        return note;
+    }
+    
+    /**
+     * Adds a note written earlier, such as one read back from storage.
+     */
+    public void addNote(Note note) {
         notes.add(note);
         
         // Update statistics
-        noteCounts.merge(type, 1, Integer::sum);
-        noteDurations.merge(type, duration, Long::sum);
+        noteCounts.merge(note.getType(), 1, Integer::sum);
+        noteDurations.merge(note.getType(), note.getDuration(), Long::sum);
     }
     
     public List<Note> getNotes() {
@@ -143,20 +162,18 @@ public class InspectionNotes {
     
     public static InspectionNotes loadFromConfig(UUID playerUuid, YamlConfiguration config) {
         InspectionNotes notes = new InspectionNotes(playerUuid);
-        List<Map<String, Object>> notesList = config.getMapList("notes." + playerUuid.toString());
+        List<Map<?, ?>> notesList = config.getMapList("notes." + playerUuid.toString());
         
         if (notesList != null) {
-            for (Map<String, Object> noteMap : notesList) {
+            for (Map<?, ?> noteMap : notesList) {
                 String type = (String) noteMap.get("type");
                 String content = (String) noteMap.get("content");
-                long timestamp = (long) noteMap.get("timestamp");
+                // Small values come back from YAML as Integer
+                long timestamp = ((Number) noteMap.get("timestamp")).longValue();
                 UUID moderator = UUID.fromString((String) noteMap.get("moderator"));
-                long duration = (long) noteMap.get("duration");
+                long duration = ((Number) noteMap.get("duration")).longValue();
                 
-                Note note = new Note(type, content, moderator, duration);
-                notes.notes.add(note);
-                notes.noteCounts.merge(type, 1, Integer::sum);
-                notes.noteDurations.merge(type, duration, Long::sum);
+                notes.addNote(new Note(type, content, timestamp, moderator, duration));
             }
         }
         
@@ -1,76 +1,71 @@
 package com.wificraft.sentinel.modules.data;
 
-import org.bukkit.Bukkit;
+import com.wificraft.sentinel.modules.storage.SentinelStorage;
 import org.bukkit.entity.Player;
-import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.plugin.java.JavaPlugin;
-import java.io.File;
+import java.io.IOException;
 import java.util.*;
-import java.util.concurrent.TimeUnit;
 
+/**
+ * Inspection notes of players, kept in the {@link SentinelStorage}.
+ *
+ * A player's notes are read from the storage the first time they are needed and kept in
+ * memory after that; every new note is handed to the storage as it is added.
+ */
 public class NotesManager {
     private final JavaPlugin plugin;
-    private final File notesFile;
-    private final YamlConfiguration notesConfig;
+    private final SentinelStorage storage;
     private final Map<UUID, InspectionNotes> activeNotes;
-    
-    public NotesManager(JavaPlugin plugin) {
+
+    public NotesManager(JavaPlugin plugin, SentinelStorage storage) {
         this.plugin = plugin;
-        this.notesFile = new File(plugin.getDataFolder(), "inspection_notes.yml");
-        this.notesConfig = YamlConfiguration.loadConfiguration(notesFile);
+        this.storage = storage;
         this.activeNotes = new HashMap<>();
-        
-        // Load existing notes
-        loadNotes();
     }
-    
-    private void loadNotes() {
-        for (String uuid : notesConfig.getConfigurationSection("notes").getKeys(false)) {
-            UUID playerUuid = UUID.fromString(uuid);
-            InspectionNotes notes = InspectionNotes.loadFromConfig(playerUuid, notesConfig);
-            activeNotes.put(playerUuid, notes);
+
+    private InspectionNotes notesOf(UUID uuid) {
+        return activeNotes.computeIfAbsent(uuid, this::loadNotes);
+    }
+
+    private InspectionNotes loadNotes(UUID uuid) {
+        InspectionNotes notes = new InspectionNotes(uuid);
+        try {
+            for (InspectionNotes.Note note : storage.loadNotes(uuid)) {
+                notes.addNote(note);
+            }
+        } catch (IOException e) {
+            plugin.getLogger().severe("Error loading inspection notes: " + e.getMessage());
         }
+        return notes;
     }
-    
+
     public void addNote(Player player, String type, String content, UUID moderatorUuid, long duration) {
         UUID uuid = player.getUniqueId();
-        InspectionNotes notes = activeNotes.computeIfAbsent(uuid, k -> new InspectionNotes(uuid));
-        notes.addNote(type, content, moderatorUuid, duration);
-        
-        // Save to config
-        notes.saveToConfig(notesConfig);
-        try {
-            notesConfig.save(notesFile);
-        } catch (Exception e) {
-            plugin.getLogger().severe("Error saving inspection notes: " + e.getMessage());
-        }
+        InspectionNotes.Note note = notesOf(uuid).addNote(type, content, moderatorUuid, duration);
+        storage.addNote(uuid, note);
     }
-    
+
     public List<InspectionNotes.Note> getNotes(Player player) {
-        InspectionNotes notes = activeNotes.get(player.getUniqueId());
-        return notes != null ? notes.getNotes() : Collections.emptyList();
+        return notesOf(player.getUniqueId()).getNotes();
     }
-    
+
     public Map<String, Integer> getNoteCounts(Player player) {
-        InspectionNotes notes = activeNotes.get(player.getUniqueId());
-        return notes != null ? notes.getNoteCounts() : Collections.emptyMap();
+        return notesOf(player.getUniqueId()).getNoteCounts();
     }
-    
+
     public Map<String, Long> getNoteDurations(Player player) {
-        InspectionNotes notes = activeNotes.get(player.getUniqueId());
-        return notes != null ? notes.getNoteDurations() : Collections.emptyMap();
+        return notesOf(player.getUniqueId()).getNoteDurations();
     }
-    
+
     public String getStatistics(Player player) {
-        InspectionNotes notes = activeNotes.get(player.getUniqueId());
-        return notes != null ? notes.getStatistics() : "§7Brak statystyk inspekcji";
+        InspectionNotes notes = notesOf(player.getUniqueId());
+        return notes.getNotes().isEmpty() ? "§7Brak statystyk inspekcji" : notes.getStatistics();
     }
-    
+
+    /**
+     * Drops the notes kept in memory; they are already in the storage.
+     */
     public void shutdown() {
-        try {
-            notesConfig.save(notesFile);
-        } catch (Exception e) {
-            plugin.getLogger().severe("Error saving notes on shutdown: " + e.getMessage());
-        }
+        activeNotes.clear();
     }
 }
@@ -0,0 +1,312 @@
+package com.wificraft.sentinel.modules.data;
+
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Writes the plugin's YAML files behind the code that changes them.
+ *
+ * A store calls {@link #save(File, Supplier)} instead of saving the file itself. That only
+ * marks the file dirty; repeated saves of the same file before the next collection are one
+ * write. Once per flush interval the dirty files are serialized on the main thread, where
+ * the stores change them, and handed to an I/O thread that writes each one to a temporary
+ * file, fsyncs it and renames it over the old copy, so a crash leaves either version whole.
+ * {@link #shutdown()} collects and waits for every pending write. While no service is
+ * running, {@link #save(File, Supplier)} writes at once on the calling thread.
+ */
+public class WriteBehindService {
+    private static volatile WriteBehindService active;
+
+    private final Logger logger;
+    // Both guarded by lock; LinkedHashMap keeps the files in the order they first changed
+    private final Map<File, Supplier<String>> dirty = new LinkedHashMap<>();
+    private final Map<File, String> queued = new LinkedHashMap<>();
+    private final Object lock = new Object();
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+    private final LongAdder writeNanos = new LongAdder();
+    private final AtomicLong maxWriteNanos = new AtomicLong();
+
+    private Thread writer;
+    private BukkitTask collectTask;
+    private int inFlight;
+    private boolean closed;
+
+    public WriteBehindService(Logger logger) {
+        this.logger = logger;
+    }
+
+    /**
+     * Saves the file through the running service, or right away if there is none.
+     * @param contents Produces the file contents; called on the main thread when the file is collected
+     * @throws IOException If there is no service and the immediate write fails
+     */
+    public static void save(File file, Supplier<String> contents) throws IOException {
+        WriteBehindService service = active;
+        if (service != null && service.markDirty(file, contents)) {
+            return;
+        }
+        writeAtomically(file, contents.get().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return The running service, or null outside of the plugin's lifetime
+     */
+    public static WriteBehindService getActive() {
+        return active;
+    }
+
+    /**
+     * Starts the I/O thread and the collection on the main thread, and becomes the service
+     * behind {@link #save(File, Supplier)}.
+     */
+    public void start(JavaPlugin plugin, long flushIntervalTicks) {
+        if (writer != null) {
+            return;
+        }
+        startWriter();
+        long interval = Math.max(1, flushIntervalTicks);
+        collectTask = plugin.getServer().getScheduler().runTaskTimer(plugin, this::collect, interval, interval);
+        active = this;
+    }
+
+    void startWriter() {
+        writer = new Thread(this::writeLoop, "Sentinel-FileWriter");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Writes everything still dirty or queued, waits for it and stops the I/O thread.
+     * Later saves are written on the calling thread.
+     */
+    public void shutdown() {
+        if (active == this) {
+            active = null;
+        }
+        if (collectTask != null) {
+            collectTask.cancel();
+            collectTask = null;
+        }
+        flush();
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+        if (writer != null) {
+            try {
+                writer.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            writer = null;
+        }
+    }
+
+    /**
+     * @return false if the service no longer takes writes
+     */
+    boolean markDirty(File file, Supplier<String> contents) {
+        synchronized (lock) {
+            if (closed) {
+                return false;
+            }
+            dirty.put(file.getAbsoluteFile(), contents);
+        }
+        requests.increment();
+        return true;
+    }
+
+    /**
+     * Serializes the dirty files on the calling thread and queues them for the I/O thread.
+     */
+    void collect() {
+        Map<File, Supplier<String>> batch;
+        synchronized (lock) {
+            if (dirty.isEmpty()) {
+                return;
+            }
+            batch = new LinkedHashMap<>(dirty);
+            dirty.clear();
+        }
+        for (Map.Entry<File, Supplier<String>> entry : batch.entrySet()) {
+            String contents;
+            try {
+                contents = entry.getValue().get();
+            } catch (RuntimeException e) {
+                failures.increment();
+                logger.log(Level.WARNING, "Nie udało się przygotować zapisu pliku " + entry.getKey().getName(), e);
+                continue;
+            }
+            synchronized (lock) {
+                // A write still waiting for the I/O thread is replaced by the newer contents
+                queued.put(entry.getKey(), contents);
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Collects the dirty files and waits until every queued write is on disk.
+     */
+    public void flush() {
+        collect();
+        synchronized (lock) {
+            boolean interrupted = false;
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            while ((!queued.isEmpty() || inFlight > 0) && writer != null && writer.isAlive()) {
+                long left = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (left <= 0) {
+                    logger.warning(String.format("Nie zapisano %d plików przed upływem czasu", queued.size() + inFlight));
+                    break;
+                }
+                try {
+                    lock.wait(Math.min(left, 100));
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (writer == null || !writer.isAlive()) {
+            // Nothing will pick the queue up any more
+            drainOnCallingThread();
+        }
+    }
+
+    private void drainOnCallingThread() {
+        Map<File, String> batch;
+        synchronized (lock) {
+            batch = new LinkedHashMap<>(queued);
+            queued.clear();
+        }
+        batch.forEach(this::write);
+    }
+
+    private void writeLoop() {
+        while (true) {
+            Map<File, String> batch;
+            synchronized (lock) {
+                while (queued.isEmpty() && !closed) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        closed = true;
+                    }
+                }
+                if (queued.isEmpty()) {
+                    return;
+                }
+                batch = new LinkedHashMap<>(queued);
+                queued.clear();
+                inFlight = batch.size();
+            }
+            for (Map.Entry<File, String> entry : batch.entrySet()) {
+                write(entry.getKey(), entry.getValue());
+                synchronized (lock) {
+                    inFlight--;
+                    lock.notifyAll();
+                }
+            }
+        }
+    }
+
+    private void write(File file, String contents) {
+        byte[] bytes = contents.getBytes(StandardCharsets.UTF_8);
+        long started = System.nanoTime();
+        try {
+            writeAtomically(file, bytes);
+            long nanos = System.nanoTime() - started;
+            writes.increment();
+            bytesWritten.add(bytes.length);
+            writeNanos.add(nanos);
+            maxWriteNanos.accumulateAndGet(nanos, Math::max);
+        } catch (IOException e) {
+            failures.increment();
+            logger.log(Level.SEVERE, "Nie udało się zapisać pliku " + file.getName(), e);
+        }
+    }
+
+    private static void writeAtomically(File file, byte[] bytes) throws IOException {
+        File folder = file.getAbsoluteFile().getParentFile();
+        if (folder != null && !folder.exists()) {
+            folder.mkdirs();
+        }
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        try {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    public long getWriteCount() {
+        return writes.sum();
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    /**
+     * @return Save requests per file actually written; above 1 when coalescing saved writes
+     */
+    public double getCoalescingRatio() {
+        long written = writes.sum();
+        return written == 0 ? 0.0 : requests.sum() / (double) written;
+    }
+
+    /**
+     * @return Bytes written to disk per save request, the write amplification of one change
+     */
+    public double getBytesPerRequest() {
+        long requested = requests.sum();
+        return requested == 0 ? 0.0 : bytesWritten.sum() / (double) requested;
+    }
+
+    public String getStatusLine() {
+        long written = writes.sum();
+        int pending;
+        synchronized (lock) {
+            pending = dirty.size() + queued.size() + inFlight;
+        }
+        return String.format("saves: %d, writes: %d (%.1f saves per write), %.0f B per save, latency avg %.2f ms max %.2f ms, pending: %d, failed: %d",
+            requests.sum(), written, getCoalescingRatio(), getBytesPerRequest(),
+            written == 0 ? 0.0 : writeNanos.sum() / 1e6 / written, maxWriteNanos.get() / 1e6, pending, failures.sum());
+    }
+}
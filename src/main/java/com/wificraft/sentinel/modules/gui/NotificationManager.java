@@ -1,32 +1,28 @@
 package com.wificraft.sentinel.modules.gui;
 
+import com.wificraft.sentinel.modules.chat.ChatPatternMatcher;
 import com.wificraft.sentinel.modules.config.NotificationConfig;
+import com.wificraft.sentinel.modules.ratelimit.HierarchicalCounter;
+import com.wificraft.sentinel.modules.ratelimit.HierarchicalCounter.Period;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.scheduler.BukkitRunnable;
 import java.util.*;
-import java.util.regex.Pattern;
 
 public class NotificationManager {
     private final NotificationConfig config;
     private final Map<UUID, Long> lastInspection = new HashMap<>();
-    private final Map<UUID, Integer> dailyInspections = new HashMap<>();
-    private final Map<UUID, Integer> hourlyInspections = new HashMap<>();
+    // Sliding hourly and daily counts, so no timer has to clear them
+    private final HierarchicalCounter<UUID> inspections = new HierarchicalCounter<>(10_000);
     private final Map<UUID, Long> lastLogin = new HashMap<>();
-    private final Map<UUID, Integer> hourlyLogins = new HashMap<>();
-    private final Map<UUID, Integer> dailyLogins = new HashMap<>();
+    private final HierarchicalCounter<UUID> logins = new HierarchicalCounter<>(10_000);
     private final Map<UUID, Long> lastActivity = new HashMap<>();
-    private final Set<Pattern> suspiciousPatterns;
+    private final ChatPatternMatcher patternMatcher;
     
-    public NotificationManager(NotificationConfig config) {
+    public NotificationManager(NotificationConfig config, ChatPatternMatcher patternMatcher) {
         this.config = config;
-        this.suspiciousPatterns = new HashSet<>();
-        
-        // Load suspicious patterns
-        String[] patterns = config.getSuspiciousPatterns();
-        for (String pattern : patterns) {
-            suspiciousPatterns.add(Pattern.compile(pattern, Pattern.CASE_INSENSITIVE));
-        }
+        // Suspicious patterns from notifications.yml are compiled into the shared matcher
+        this.patternMatcher = patternMatcher;
         
         // Start periodic checks
         startPeriodicChecks();
@@ -40,8 +36,6 @@ public class NotificationManager {
                 checkActivityThresholds();
                 checkSuspiciousPatterns();
                 
-                // Reset counters
-                resetHourlyCounters();
                 resetActivityTracking();
             }
         }.runTaskTimer(Bukkit.getPluginManager().getPlugins()[0], 20 * 60, 20 * 60); // Every minute
@@ -51,38 +45,29 @@ public class NotificationManager {
         UUID uuid = target.getUniqueId();
         
         // Update inspection counters
-        lastInspection.put(uuid, System.currentTimeMillis());
-        hourlyInspections.merge(uuid, 1, Integer::sum);
-        dailyInspections.merge(uuid, 1, Integer::sum);
+        long now = System.currentTimeMillis();
+        lastInspection.put(uuid, now);
+        inspections.increment(uuid, now);
         
         // Check thresholds immediately
         checkInspectionThresholds(uuid);
     }
     
     private void checkInspectionThresholds() {
-        Map<String, Integer> thresholds = getInspectionThresholds();
-        
-        for (Map.Entry<UUID, Integer> entry : hourlyInspections.entrySet()) {
-            if (entry.getValue() >= thresholds.get("hourly")) {
-                sendNotification(entry.getKey(), "hourly", "inspections");
-            }
-        }
-        
-        for (Map.Entry<UUID, Integer> entry : dailyInspections.entrySet()) {
-            if (entry.getValue() >= thresholds.get("daily")) {
-                sendNotification(entry.getKey(), "daily", "inspections");
-            }
+        for (UUID uuid : inspections.getKeys()) {
+            checkInspectionThresholds(uuid);
         }
     }
     
     private void checkInspectionThresholds(UUID uuid) {
         Map<String, Integer> thresholds = getInspectionThresholds();
+        long now = System.currentTimeMillis();
         
-        if (hourlyInspections.getOrDefault(uuid, 0) >= thresholds.get("hourly")) {
+        if (inspections.count(uuid, Period.HOUR, now) >= thresholds.get("hourly")) {
             sendNotification(uuid, "hourly", "inspections");
         }
         
-        if (dailyInspections.getOrDefault(uuid, 0) >= thresholds.get("daily")) {
+        if (inspections.count(uuid, Period.DAY, now) >= thresholds.get("daily")) {
             sendNotification(uuid, "daily", "inspections");
         }
     }
@@ -91,12 +76,12 @@ public class NotificationManager {
         UUID uuid = player.getUniqueId();
         
         // Update login counters
-        lastLogin.put(uuid, System.currentTimeMillis());
-        hourlyLogins.merge(uuid, 1, Integer::sum);
-        dailyLogins.merge(uuid, 1, Integer::sum);
+        long now = System.currentTimeMillis();
+        lastLogin.put(uuid, now);
+        logins.increment(uuid, now);
         
         // Reset activity timer on login
-        lastActivity.put(uuid, System.currentTimeMillis());
+        lastActivity.put(uuid, now);
         
         // Check thresholds immediately
         checkActivityThresholds(uuid);
@@ -104,21 +89,18 @@ public class NotificationManager {
     
     private void checkActivityThresholds() {
         Map<String, Integer> thresholds = getActivityThresholds();
+        long currentTime = System.currentTimeMillis();
         
-        for (Map.Entry<UUID, Integer> entry : hourlyLogins.entrySet()) {
-            if (entry.getValue() >= thresholds.get("logins.hourly")) {
-                sendNotification(entry.getKey(), "hourly", "logins");
+        for (UUID uuid : logins.getKeys()) {
+            if (logins.count(uuid, Period.HOUR, currentTime) >= thresholds.get("logins.hourly")) {
+                sendNotification(uuid, "hourly", "logins");
             }
-        }
-        
-        for (Map.Entry<UUID, Integer> entry : dailyLogins.entrySet()) {
-            if (entry.getValue() >= thresholds.get("logins.daily")) {
-                sendNotification(entry.getKey(), "daily", "logins");
+            if (logins.count(uuid, Period.DAY, currentTime) >= thresholds.get("logins.daily")) {
+                sendNotification(uuid, "daily", "logins");
             }
         }
         
         // Check idle time
-        long currentTime = System.currentTimeMillis();
         for (Map.Entry<UUID, Long> entry : lastActivity.entrySet()) {
             if (currentTime - entry.getValue() >= thresholds.get("idle") * 1000) {
                 sendNotification(entry.getKey(), "idle", "activity");
@@ -128,16 +110,16 @@ public class NotificationManager {
     
     private void checkActivityThresholds(UUID uuid) {
         Map<String, Integer> thresholds = getActivityThresholds();
+        long currentTime = System.currentTimeMillis();
         
-        if (hourlyLogins.getOrDefault(uuid, 0) >= thresholds.get("logins.hourly")) {
+        if (logins.count(uuid, Period.HOUR, currentTime) >= thresholds.get("logins.hourly")) {
             sendNotification(uuid, "hourly", "logins");
         }
         
-        if (dailyLogins.getOrDefault(uuid, 0) >= thresholds.get("logins.daily")) {
+        if (logins.count(uuid, Period.DAY, currentTime) >= thresholds.get("logins.daily")) {
             sendNotification(uuid, "daily", "logins");
         }
         
-        long currentTime = System.currentTimeMillis();
         if (currentTime - lastActivity.getOrDefault(uuid, currentTime) >= thresholds.get("idle") * 1000) {
             sendNotification(uuid, "idle", "activity");
         }
@@ -167,11 +149,6 @@ public class NotificationManager {
         }
     }
     
-    private void resetHourlyCounters() {
-        hourlyInspections.clear();
-        hourlyLogins.clear();
-    }
-    
     private void resetActivityTracking() {
         lastActivity.clear();
         for (Player player : Bukkit.getOnlinePlayers()) {
@@ -195,14 +172,23 @@ public class NotificationManager {
     }
     
     public String[] getSuspiciousPatterns() {
-        return new String[0];  // Empty array for now
+        return config.getSuspiciousPatterns();
+    }
+    
+    /**
+     * @return True if the message matches any suspicious pattern from notifications.yml
+     */
+    public boolean isSuspicious(String message) {
+        return patternMatcher.containsAny(message, ChatPatternMatcher.NOTIFICATION);
     }
     
     public void addSuspiciousPattern(String pattern) {
-        suspiciousPatterns.add(Pattern.compile(pattern, Pattern.CASE_INSENSITIVE));
+        config.addPattern(pattern);
+        patternMatcher.reload();
     }
     
     public void removeSuspiciousPattern(String pattern) {
-        suspiciousPatterns.remove(Pattern.compile(pattern, Pattern.CASE_INSENSITIVE));
+        config.removePattern(pattern);
+        patternMatcher.reload();
     }
 }
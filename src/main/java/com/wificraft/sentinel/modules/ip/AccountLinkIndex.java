@@ -0,0 +1,453 @@
+package com.wificraft.sentinel.modules.ip;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Links accounts that share identifiers: IP addresses, address ranges (/24 for IPv4, /48 for
+ * IPv6) and client fingerprint hashes.
+ *
+ * Accounts and identifiers form a bipartite graph. Every new edge is also applied to a
+ * union-find forest, so the cluster an account belongs to (everyone reachable through shared
+ * addresses or fingerprints) is known in O(α(n)) at login without rescanning history. How
+ * strongly two accounts are linked comes from the identifiers they share directly, each
+ * weighted by its {@link IdentifierType}. Ranges are too coarse to merge clusters on their
+ * own and only add to the strength, and an identifier seen on more than
+ * {@code maxSharedAccounts} accounts (public Wi-Fi, carrier-grade NAT) stops linking accounts
+ * altogether; it is counted but no longer listed.
+ *
+ * All methods are synchronized; logins are rare enough that a single lock is cheaper than
+ * anything finer. {@link #write(DataOutputStream)} and {@link #read(DataInputStream, int)}
+ * store the whole graph in a compact binary form:
+ * <pre>
+ * header      magic "SLNK", int version, int maxSharedAccounts
+ * accounts    int count, count x (long msb, long lsb, long lastSeen, int parent)
+ * identifiers int count, count x (byte type, utf value, int seen, int listed, listed x int account)
+ * </pre>
+ */
+public class AccountLinkIndex {
+    static final int MAGIC = 0x534C4E4B;
+    static final int VERSION = 1;
+
+    /**
+     * Kinds of identifier, with how much sharing one says about two accounts being the same person.
+     */
+    public enum IdentifierType {
+        IP(0.9, true),
+        NETWORK(0.35, false),
+        FINGERPRINT(0.8, true);
+
+        private final double weight;
+        private final boolean merges;
+
+        IdentifierType(double weight, boolean merges) {
+            this.weight = weight;
+            this.merges = merges;
+        }
+
+        public double getWeight() {
+            return weight;
+        }
+
+        /**
+         * @return True if sharing this identifier puts two accounts in one cluster
+         */
+        public boolean mergesClusters() {
+            return merges;
+        }
+    }
+
+    /**
+     * Another account and how strongly it is linked, from 0 to 1.
+     */
+    public static final class AccountLink {
+        private final UUID account;
+        private final double strength;
+        private final int sharedIdentifiers;
+        private final long lastSeen;
+
+        AccountLink(UUID account, double strength, int sharedIdentifiers, long lastSeen) {
+            this.account = account;
+            this.strength = strength;
+            this.sharedIdentifiers = sharedIdentifiers;
+            this.lastSeen = lastSeen;
+        }
+
+        public UUID getAccount() {
+            return account;
+        }
+
+        /**
+         * @return 1 minus the product of (1 - weight) over the shared identifiers
+         */
+        public double getStrength() {
+            return strength;
+        }
+
+        public int getSharedIdentifiers() {
+            return sharedIdentifiers;
+        }
+
+        public long getLastSeen() {
+            return lastSeen;
+        }
+    }
+
+    private final int maxSharedAccounts;
+
+    private final Map<UUID, Integer> accountIds;
+    private UUID[] accounts;
+    private long[] lastSeen;
+    private int[][] accountIdentifiers;
+    private int[] accountIdentifierCount;
+    private int[] parent;
+    private int[] clusterSize;
+    private int[] nextInCluster;
+    private int accountCount;
+
+    private final Map<String, Integer> identifierIds;
+    private IdentifierType[] identifierTypes;
+    private String[] identifierValues;
+    private int[][] identifierAccounts;
+    private int[] identifierListed;
+    private int[] identifierSeen;
+    private int identifierCount;
+
+    private int clusterCount;
+    private long edgeCount;
+    private boolean dirty;
+
+    /**
+     * @param maxSharedAccounts Accounts an identifier may link before it is treated as shared infrastructure
+     */
+    public AccountLinkIndex(int maxSharedAccounts) {
+        this.maxSharedAccounts = Math.max(2, maxSharedAccounts);
+        this.accountIds = new HashMap<>();
+        this.accounts = new UUID[64];
+        this.lastSeen = new long[64];
+        this.accountIdentifiers = new int[64][];
+        this.accountIdentifierCount = new int[64];
+        this.parent = new int[64];
+        this.clusterSize = new int[64];
+        this.nextInCluster = new int[64];
+        this.identifierIds = new HashMap<>();
+        this.identifierTypes = new IdentifierType[64];
+        this.identifierValues = new String[64];
+        this.identifierAccounts = new int[64][];
+        this.identifierListed = new int[64];
+        this.identifierSeen = new int[64];
+    }
+
+    /**
+     * Records a login: links the account to the address and to its /24 or /48 range.
+     * @param address Address in any form {@link IpAddresses#normalize(String)} accepts; ignored if it does not parse
+     */
+    public synchronized void recordLogin(UUID account, String address, long now) {
+        int id = accountId(account);
+        lastSeen[id] = Math.max(lastSeen[id], now);
+        dirty = true;
+        String ip = IpAddresses.normalize(address);
+        if (ip == null) {
+            return;
+        }
+        link(id, IdentifierType.IP, ip);
+        link(id, IdentifierType.NETWORK, IpAddresses.networkOf(ip, 24, 48));
+    }
+
+    /**
+     * Links the account to a client fingerprint hash.
+     */
+    public synchronized void recordFingerprint(UUID account, String fingerprintHash) {
+        if (fingerprintHash == null || fingerprintHash.isEmpty()) {
+            return;
+        }
+        link(accountId(account), IdentifierType.FINGERPRINT, fingerprintHash);
+        dirty = true;
+    }
+
+    private void link(int account, IdentifierType type, String value) {
+        String key = type.ordinal() + value;
+        Integer existing = identifierIds.get(key);
+        int identifier = existing != null ? existing : newIdentifier(key, type, value);
+        if (existing != null && contains(accountIdentifiers[account], accountIdentifierCount[account], identifier)) {
+            return;
+        }
+        accountIdentifiers[account] = append(accountIdentifiers[account], accountIdentifierCount[account]++, identifier);
+        int seen = ++identifierSeen[identifier];
+        edgeCount++;
+        if (seen > maxSharedAccounts) {
+            return;
+        }
+        int listed = identifierListed[identifier]++;
+        identifierAccounts[identifier] = append(identifierAccounts[identifier], listed, account);
+        if (type.mergesClusters() && listed > 0) {
+            union(account, identifierAccounts[identifier][0]);
+        }
+    }
+
+    /**
+     * @return Accounts sharing an identifier with this one, strongest first; empty for unknown accounts
+     */
+    public synchronized List<AccountLink> getLinkedAccounts(UUID account) {
+        Integer id = accountIds.get(account);
+        if (id == null) {
+            return Collections.emptyList();
+        }
+        Map<Integer, double[]> scores = new HashMap<>();
+        int[] identifiers = accountIdentifiers[id];
+        for (int i = 0; i < accountIdentifierCount[id]; i++) {
+            int identifier = identifiers[i];
+            if (identifierSeen[identifier] > maxSharedAccounts) {
+                continue;
+            }
+            double weight = identifierTypes[identifier].getWeight();
+            int[] others = identifierAccounts[identifier];
+            for (int j = 0; j < identifierListed[identifier]; j++) {
+                if (others[j] == id) {
+                    continue;
+                }
+                // [0] = product of (1 - weight), [1] = shared identifiers
+                double[] score = scores.computeIfAbsent(others[j], k -> new double[] {1.0, 0});
+                score[0] *= 1.0 - weight;
+                score[1]++;
+            }
+        }
+        List<AccountLink> links = new ArrayList<>(scores.size());
+        for (Map.Entry<Integer, double[]> entry : scores.entrySet()) {
+            int other = entry.getKey();
+            links.add(new AccountLink(accounts[other], 1.0 - entry.getValue()[0], (int) entry.getValue()[1], lastSeen[other]));
+        }
+        links.sort((a, b) -> Double.compare(b.getStrength(), a.getStrength()));
+        return links;
+    }
+
+    /**
+     * @return Accounts in the same cluster including this one; 0 for unknown accounts
+     */
+    public synchronized int getClusterSize(UUID account) {
+        Integer id = accountIds.get(account);
+        return id == null ? 0 : clusterSize[find(id)];
+    }
+
+    /**
+     * @return True if both accounts are known and in one cluster
+     */
+    public synchronized boolean isSameCluster(UUID first, UUID second) {
+        Integer a = accountIds.get(first);
+        Integer b = accountIds.get(second);
+        return a != null && b != null && find(a) == find(b);
+    }
+
+    /**
+     * @return Up to {@code limit} other accounts of the cluster, in no particular order
+     */
+    public synchronized List<UUID> getClusterMembers(UUID account, int limit) {
+        Integer id = accountIds.get(account);
+        if (id == null) {
+            return Collections.emptyList();
+        }
+        List<UUID> members = new ArrayList<>();
+        for (int member = nextInCluster[id]; member != id && members.size() < limit; member = nextInCluster[member]) {
+            members.add(accounts[member]);
+        }
+        return members;
+    }
+
+    private int accountId(UUID account) {
+        Integer existing = accountIds.get(account);
+        if (existing != null) {
+            return existing;
+        }
+        int id = accountCount++;
+        if (id == accounts.length) {
+            int size = accounts.length * 2;
+            accounts = Arrays.copyOf(accounts, size);
+            lastSeen = Arrays.copyOf(lastSeen, size);
+            accountIdentifiers = Arrays.copyOf(accountIdentifiers, size);
+            accountIdentifierCount = Arrays.copyOf(accountIdentifierCount, size);
+            parent = Arrays.copyOf(parent, size);
+            clusterSize = Arrays.copyOf(clusterSize, size);
+            nextInCluster = Arrays.copyOf(nextInCluster, size);
+        }
+        accounts[id] = account;
+        accountIdentifiers[id] = new int[4];
+        parent[id] = id;
+        clusterSize[id] = 1;
+        nextInCluster[id] = id;
+        clusterCount++;
+        accountIds.put(account, id);
+        return id;
+    }
+
+    private int newIdentifier(String key, IdentifierType type, String value) {
+        int id = identifierCount++;
+        if (id == identifierValues.length) {
+            int size = identifierValues.length * 2;
+            identifierTypes = Arrays.copyOf(identifierTypes, size);
+            identifierValues = Arrays.copyOf(identifierValues, size);
+            identifierAccounts = Arrays.copyOf(identifierAccounts, size);
+            identifierListed = Arrays.copyOf(identifierListed, size);
+            identifierSeen = Arrays.copyOf(identifierSeen, size);
+        }
+        identifierTypes[id] = type;
+        identifierValues[id] = value;
+        identifierAccounts[id] = new int[2];
+        identifierIds.put(key, id);
+        return id;
+    }
+
+    private int find(int account) {
+        // Path halving
+        while (parent[account] != account) {
+            parent[account] = parent[parent[account]];
+            account = parent[account];
+        }
+        return account;
+    }
+
+    private void union(int a, int b) {
+        int rootA = find(a);
+        int rootB = find(b);
+        if (rootA == rootB) {
+            return;
+        }
+        if (clusterSize[rootA] < clusterSize[rootB]) {
+            int swap = rootA;
+            rootA = rootB;
+            rootB = swap;
+        }
+        parent[rootB] = rootA;
+        clusterSize[rootA] += clusterSize[rootB];
+        // Splicing the two circular member lists joins them into one
+        int next = nextInCluster[rootA];
+        nextInCluster[rootA] = nextInCluster[rootB];
+        nextInCluster[rootB] = next;
+        clusterCount--;
+    }
+
+    private static int[] append(int[] array, int index, int value) {
+        if (index == array.length) {
+            array = Arrays.copyOf(array, array.length * 2);
+        }
+        array[index] = value;
+        return array;
+    }
+
+    private static boolean contains(int[] array, int length, int value) {
+        for (int i = 0; i < length; i++) {
+            if (array[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public synchronized void write(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(maxSharedAccounts);
+        out.writeInt(accountCount);
+        for (int i = 0; i < accountCount; i++) {
+            out.writeLong(accounts[i].getMostSignificantBits());
+            out.writeLong(accounts[i].getLeastSignificantBits());
+            out.writeLong(lastSeen[i]);
+            out.writeInt(find(i));
+        }
+        out.writeInt(identifierCount);
+        for (int i = 0; i < identifierCount; i++) {
+            out.writeByte(identifierTypes[i].ordinal());
+            out.writeUTF(identifierValues[i]);
+            out.writeInt(identifierSeen[i]);
+            out.writeInt(identifierListed[i]);
+            for (int j = 0; j < identifierListed[i]; j++) {
+                out.writeInt(identifierAccounts[i][j]);
+            }
+        }
+        dirty = false;
+    }
+
+    /**
+     * @param maxSharedAccounts Used if the stored index has none; see the constructor
+     * @throws IOException If the data is not an index written by {@link #write(DataOutputStream)}
+     */
+    public static AccountLinkIndex read(DataInputStream in, int maxSharedAccounts) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not an account link index");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported account link index version " + version);
+        }
+        int storedMax = in.readInt();
+        AccountLinkIndex index = new AccountLinkIndex(storedMax > 0 ? storedMax : maxSharedAccounts);
+        int accountTotal = in.readInt();
+        int[] roots = new int[accountTotal];
+        for (int i = 0; i < accountTotal; i++) {
+            int id = index.accountId(new UUID(in.readLong(), in.readLong()));
+            index.lastSeen[id] = in.readLong();
+            roots[i] = in.readInt();
+            if (id != i || roots[i] < 0 || roots[i] >= accountTotal) {
+                throw new IOException("Corrupt account link index");
+            }
+        }
+        for (int i = 0; i < accountTotal; i++) {
+            if (roots[i] != i) {
+                index.union(roots[i], i);
+            }
+        }
+        int identifierTotal = in.readInt();
+        IdentifierType[] types = IdentifierType.values();
+        for (int i = 0; i < identifierTotal; i++) {
+            int type = in.readUnsignedByte();
+            if (type >= types.length) {
+                throw new IOException("Corrupt account link index");
+            }
+            String value = in.readUTF();
+            int id = index.newIdentifier(type + value, types[type], value);
+            index.identifierSeen[id] = in.readInt();
+            int listed = in.readInt();
+            for (int j = 0; j < listed; j++) {
+                int account = in.readInt();
+                if (account < 0 || account >= accountTotal) {
+                    throw new IOException("Corrupt account link index");
+                }
+                index.identifierAccounts[id] = append(index.identifierAccounts[id], index.identifierListed[id]++, account);
+                index.accountIdentifiers[account] = append(index.accountIdentifiers[account],
+                    index.accountIdentifierCount[account]++, id);
+                index.edgeCount++;
+            }
+            // Accounts beyond the listing limit were counted but not stored
+            index.edgeCount += Math.max(0, index.identifierSeen[id] - listed);
+        }
+        return index;
+    }
+
+    public synchronized boolean isDirty() {
+        return dirty;
+    }
+
+    public synchronized int getAccountCount() {
+        return accountCount;
+    }
+
+    public synchronized int getIdentifierCount() {
+        return identifierCount;
+    }
+
+    public synchronized int getClusterCount() {
+        return clusterCount;
+    }
+
+    public synchronized String getStatusLine() {
+        return String.format("accounts: %d, identifiers: %d, links: %d, clusters: %d",
+            accountCount, identifierCount, edgeCount, clusterCount);
+    }
+}
@@ -0,0 +1,141 @@
+package com.wificraft.sentinel.modules.ip;
+
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Level;
+
+/**
+ * Keeps the {@link AccountLinkIndex} up to date from logins and saves it to the plugin data folder.
+ *
+ * Every allowed pre-login adds the player's address and range to the index on the login
+ * thread. The index is loaded once at startup and written back on an async task whenever it
+ * changed, and once more on shutdown; the file is replaced atomically, so a crash during a
+ * save leaves the previous copy.
+ */
+public class AccountLinkService implements Listener {
+    private final JavaPlugin plugin;
+    private final File file;
+    private final int maxSharedAccounts;
+    private final long saveIntervalTicks;
+
+    private volatile AccountLinkIndex index;
+    private BukkitTask saveTask;
+    private long lastSaveBytes;
+
+    public AccountLinkService(JavaPlugin plugin) {
+        this.plugin = plugin;
+        FileConfiguration config = plugin.getConfig();
+        this.file = new File(plugin.getDataFolder(), config.getString("alt-links.file", "alt-links.dat"));
+        this.maxSharedAccounts = config.getInt("alt-links.max-shared-accounts", 16);
+        this.saveIntervalTicks = Math.max(1, config.getLong("alt-links.save-interval-minutes", 5)) * 60L * 20L;
+        this.index = new AccountLinkIndex(maxSharedAccounts);
+    }
+
+    /**
+     * Loads the saved index and starts the periodic save.
+     */
+    public void start() {
+        if (file.isFile()) {
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(file.toPath()), 1 << 16)) {
+                index = AccountLinkIndex.read(new DataInputStream(in), maxSharedAccounts);
+                lastSaveBytes = file.length();
+                plugin.getLogger().info(String.format("Wczytano powiązania kont: %d kont, %d klastrów",
+                    index.getAccountCount(), index.getClusterCount()));
+            } catch (IOException e) {
+                plugin.getLogger().log(Level.WARNING, "Nie udało się wczytać powiązań kont z " + file.getName(), e);
+            }
+        }
+        if (saveTask == null) {
+            saveTask = plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, this::save,
+                saveIntervalTicks, saveIntervalTicks);
+        }
+    }
+
+    public void shutdown() {
+        if (saveTask != null) {
+            saveTask.cancel();
+            saveTask = null;
+        }
+        save();
+    }
+
+    /**
+     * Writes the index if it changed since the last save.
+     */
+    public synchronized void save() {
+        AccountLinkIndex current = index;
+        if (!current.isDirty()) {
+            return;
+        }
+        File temp = new File(file.getPath() + ".tmp");
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream((int) Math.max(1024, lastSaveBytes));
+            current.write(new DataOutputStream(bytes));
+            File folder = file.getParentFile();
+            if (folder != null && !folder.exists()) {
+                folder.mkdirs();
+            }
+            Files.write(temp.toPath(), bytes.toByteArray());
+            try {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            lastSaveBytes = bytes.size();
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Nie udało się zapisać powiązań kont do " + file.getName(), e);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED || event.getAddress() == null) {
+            return;
+        }
+        index.recordLogin(event.getUniqueId(), event.getAddress().getHostAddress(), System.currentTimeMillis());
+    }
+
+    public void recordFingerprint(UUID account, String fingerprintHash) {
+        index.recordFingerprint(account, fingerprintHash);
+    }
+
+    /**
+     * @return Accounts sharing an address, range or fingerprint with this one, strongest first
+     */
+    public List<AccountLinkIndex.AccountLink> getLinkedAccounts(UUID account) {
+        return index.getLinkedAccounts(account);
+    }
+
+    /**
+     * @return Accounts in the same cluster including this one, 0 if the account is unknown
+     */
+    public int getClusterSize(UUID account) {
+        return index.getClusterSize(account);
+    }
+
+    public AccountLinkIndex getIndex() {
+        return index;
+    }
+
+    public String getStatusLine() {
+        return String.format("%s, file: %d KB", index.getStatusLine(), lastSaveBytes / 1024);
+    }
+}
@@ -0,0 +1,217 @@
+package com.wificraft.sentinel.modules.ip;
+
+import com.wificraft.sentinel.modules.ratelimit.SlidingWindowCounter;
+import com.wificraft.sentinel.modules.security.IPUtils;
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts connection attempts per address, per network (/24 for IPv4, /48 for IPv6), per ASN
+ * and overall in sliding windows, and decides whether a new attempt may log in.
+ *
+ * Each attempt is counted in every window before it is judged, so a source that keeps
+ * retrying stays over its limit. Attempts from exempt addresses (a proxy in front of the
+ * server) count nowhere, not even overall. When the overall rate reaches {@code wave-threshold} the
+ * detector enters wave mode for {@code wave-cooldown-seconds} (extended while the rate stays
+ * high): the per-source limits are divided by {@code wave-divisor} and, if configured,
+ * accounts that never played before are turned away. All windows are lock-free
+ * {@link SlidingWindowCounter}s, so the login threads never wait on each other.
+ */
+public class BotWaveDetector {
+    private static final long DEFAULT_WINDOW_SECONDS = 10;
+    private static final int DEFAULT_IP_LIMIT = 3;
+    private static final int DEFAULT_NETWORK_LIMIT = 8;
+    private static final int DEFAULT_ASN_LIMIT = 25;
+    private static final int DEFAULT_WAVE_THRESHOLD = 100;
+    private static final long DEFAULT_WAVE_COOLDOWN_SECONDS = 60;
+    private static final int DEFAULT_WAVE_DIVISOR = 3;
+    private static final int WINDOW_SLOTS = 10;
+    private static final int MAX_KEYS = 50_000;
+    private static final String GLOBAL_KEY = "*";
+
+    /**
+     * Outcome of one attempt; everything except {@link #ALLOWED} is a denial.
+     */
+    public enum Verdict {
+        ALLOWED,
+        IP_RATE,
+        NETWORK_RATE,
+        ASN_RATE,
+        WAVE_NEW_ACCOUNT
+    }
+
+    private final long windowMillis;
+    private final int ipLimit;
+    private final int networkLimit;
+    private final int asnLimit;
+    private final int waveThreshold;
+    private final long waveCooldownMillis;
+    private final int waveDivisor;
+    private final boolean denyNewAccountsInWave;
+    private final boolean exemptPrivate;
+
+    private final SlidingWindowCounter<String> perIp;
+    private final SlidingWindowCounter<String> perNetwork;
+    private final SlidingWindowCounter<Long> perAsn;
+    private final SlidingWindowCounter<String> overall;
+    private final AtomicLong waveUntil;
+
+    private final Map<Verdict, LongAdder> verdicts;
+    private final LongAdder waves;
+
+    /**
+     * Reads {@code bot-wave.*} from the plugin configuration.
+     */
+    public BotWaveDetector(FileConfiguration config) {
+        this(config.getLong("bot-wave.window-seconds", DEFAULT_WINDOW_SECONDS) * 1000L,
+            config.getInt("bot-wave.per-ip", DEFAULT_IP_LIMIT),
+            config.getInt("bot-wave.per-network", DEFAULT_NETWORK_LIMIT),
+            config.getInt("bot-wave.per-asn", DEFAULT_ASN_LIMIT),
+            config.getInt("bot-wave.wave-threshold", DEFAULT_WAVE_THRESHOLD),
+            config.getLong("bot-wave.wave-cooldown-seconds", DEFAULT_WAVE_COOLDOWN_SECONDS) * 1000L,
+            config.getInt("bot-wave.wave-divisor", DEFAULT_WAVE_DIVISOR),
+            config.getBoolean("bot-wave.deny-new-accounts-in-wave", false),
+            config.getBoolean("bot-wave.exempt-private", true));
+    }
+
+    /**
+     * @param windowMillis Length of every sliding window
+     * @param ipLimit Attempts one address may make per window; 0 disables the check, as for the other limits
+     * @param networkLimit Attempts one /24 or /48 network may make per window
+     * @param asnLimit Attempts one autonomous system may make per window
+     * @param waveThreshold Attempts overall per window, from addresses that are not exempt, that start wave mode
+     * @param waveCooldownMillis How long wave mode lasts after the last attempt over the threshold
+     * @param waveDivisor The per-source limits are divided by this during a wave
+     * @param denyNewAccountsInWave Whether accounts that never played are denied during a wave
+     * @param exemptPrivate Whether private and loopback addresses (a proxy in front of the server) skip the per-source limits
+     */
+    public BotWaveDetector(long windowMillis, int ipLimit, int networkLimit, int asnLimit, int waveThreshold,
+                           long waveCooldownMillis, int waveDivisor, boolean denyNewAccountsInWave,
+                           boolean exemptPrivate) {
+        this.windowMillis = Math.max(1000, windowMillis);
+        this.ipLimit = Math.max(0, ipLimit);
+        this.networkLimit = Math.max(0, networkLimit);
+        this.asnLimit = Math.max(0, asnLimit);
+        this.waveThreshold = Math.max(0, waveThreshold);
+        this.waveCooldownMillis = Math.max(0, waveCooldownMillis);
+        this.waveDivisor = Math.max(1, waveDivisor);
+        this.denyNewAccountsInWave = denyNewAccountsInWave;
+        this.exemptPrivate = exemptPrivate;
+        this.perIp = new SlidingWindowCounter<>(this.windowMillis, WINDOW_SLOTS, MAX_KEYS);
+        this.perNetwork = new SlidingWindowCounter<>(this.windowMillis, WINDOW_SLOTS, MAX_KEYS);
+        this.perAsn = new SlidingWindowCounter<>(this.windowMillis, WINDOW_SLOTS, MAX_KEYS);
+        this.overall = new SlidingWindowCounter<>(this.windowMillis, WINDOW_SLOTS, 1);
+        this.waveUntil = new AtomicLong();
+        this.verdicts = new EnumMap<>(Verdict.class);
+        for (Verdict verdict : Verdict.values()) {
+            verdicts.put(verdict, new LongAdder());
+        }
+        this.waves = new LongAdder();
+    }
+
+    /**
+     * Counts the attempt and judges it.
+     * @param address Connecting address, in any form {@link IpAddresses#normalize(String)} accepts
+     * @param asn Autonomous system of the address, 0 if unknown
+     * @param knownAccount Whether the account has played before; only consulted during a wave
+     */
+    public Verdict check(String address, long asn, boolean knownAccount, long now) {
+        String ip = IpAddresses.normalize(address);
+        Verdict verdict;
+        if (ip == null || (exemptPrivate && (IPUtils.isPrivateIP(ip) || IPUtils.isReservedIP(ip)))) {
+            verdict = Verdict.ALLOWED;
+        } else {
+            boolean wave = updateWave(overall.increment(GLOBAL_KEY, now), now);
+            verdict = judge(ip, asn, knownAccount, wave, now);
+        }
+        verdicts.get(verdict).increment();
+        return verdict;
+    }
+
+    private Verdict judge(String ip, long asn, boolean knownAccount, boolean wave, long now) {
+        int divisor = wave ? waveDivisor : 1;
+        Verdict verdict = Verdict.ALLOWED;
+        if (over(perIp.increment(ip, now), ipLimit, divisor)) {
+            verdict = Verdict.IP_RATE;
+        }
+        if (over(perNetwork.increment(IpAddresses.networkOf(ip, 24, 48), now), networkLimit, divisor)
+                && verdict == Verdict.ALLOWED) {
+            verdict = Verdict.NETWORK_RATE;
+        }
+        if (asn > 0 && over(perAsn.increment(asn, now), asnLimit, divisor) && verdict == Verdict.ALLOWED) {
+            verdict = Verdict.ASN_RATE;
+        }
+        if (verdict == Verdict.ALLOWED && wave && denyNewAccountsInWave && !knownAccount) {
+            verdict = Verdict.WAVE_NEW_ACCOUNT;
+        }
+        return verdict;
+    }
+
+    private static boolean over(int count, int limit, int divisor) {
+        return limit > 0 && count > Math.max(1, limit / divisor);
+    }
+
+    /**
+     * @return True if wave mode is on after counting this attempt
+     */
+    private boolean updateWave(int total, long now) {
+        if (waveThreshold > 0 && total >= waveThreshold) {
+            long until = now + waveCooldownMillis;
+            long previous;
+            do {
+                previous = waveUntil.get();
+                if (previous >= until) {
+                    return true;
+                }
+            } while (!waveUntil.compareAndSet(previous, until));
+            if (previous <= now) {
+                waves.increment();
+            }
+            return true;
+        }
+        return now < waveUntil.get();
+    }
+
+    /**
+     * @return True while wave mode is on
+     */
+    public boolean isWaveActive(long now) {
+        return now < waveUntil.get();
+    }
+
+    /**
+     * @return Attempts overall in the current window, not counting exempt addresses
+     */
+    public int getRecentAttempts(long now) {
+        return overall.count(GLOBAL_KEY, now);
+    }
+
+    public long getVerdictCount(Verdict verdict) {
+        return verdicts.get(verdict).sum();
+    }
+
+    public long getDeniedCount() {
+        long denied = 0;
+        for (Map.Entry<Verdict, LongAdder> entry : verdicts.entrySet()) {
+            if (entry.getKey() != Verdict.ALLOWED) {
+                denied += entry.getValue().sum();
+            }
+        }
+        return denied;
+    }
+
+    public long getWaveCount() {
+        return waves.sum();
+    }
+
+    public String getStatusLine(long now) {
+        return String.format("mode: %s, attempts/%ds: %d, allowed: %d, denied: ip %d, network %d, asn %d, new accounts %d, waves: %d",
+            isWaveActive(now) ? "WAVE" : "normal", windowMillis / 1000, getRecentAttempts(now),
+            getVerdictCount(Verdict.ALLOWED), getVerdictCount(Verdict.IP_RATE), getVerdictCount(Verdict.NETWORK_RATE),
+            getVerdictCount(Verdict.ASN_RATE), getVerdictCount(Verdict.WAVE_NEW_ACCOUNT), waves.sum());
+    }
+}
@@ -0,0 +1,72 @@
+package com.wificraft.sentinel.modules.ip;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.plugin.java.JavaPlugin;
+
+/**
+ * Turns away connection floods while players are still logging in, before a player object,
+ * a world entity or any join handling exists for them.
+ *
+ * Runs first on the login thread and asks the {@link BotWaveDetector}; a denied attempt is
+ * disallowed there, so the later pre-login listeners (IP lookups, account links) skip it.
+ * The ASN comes from the cached or offline IP profile only, so the gate never waits on an
+ * HTTP lookup.
+ */
+public class BotWaveGate implements Listener {
+    private static final Component DENY_MESSAGE =
+        Component.text("Zbyt wiele połączeń z Twojej sieci. Spróbuj ponownie za chwilę.", NamedTextColor.RED);
+
+    private final JavaPlugin plugin;
+    private final IpIntelligenceService ipIntelligence;
+    private final BotWaveDetector detector;
+
+    public BotWaveGate(JavaPlugin plugin, IpIntelligenceService ipIntelligence) {
+        this.plugin = plugin;
+        this.ipIntelligence = ipIntelligence;
+        this.detector = new BotWaveDetector(plugin.getConfig());
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED || event.getAddress() == null) {
+            return;
+        }
+        String address = event.getAddress().getHostAddress();
+        long now = System.currentTimeMillis();
+        boolean waveBefore = detector.isWaveActive(now);
+        // Looking up the account is only worth it when a wave makes the answer matter
+        boolean knownAccount = !waveBefore || plugin.getServer().getOfflinePlayer(event.getUniqueId()).hasPlayedBefore();
+        BotWaveDetector.Verdict verdict = detector.check(address, asnOf(address), knownAccount, now);
+        if (!waveBefore && detector.isWaveActive(now)) {
+            plugin.getLogger().warning(String.format("Wykryto falę połączeń: %d prób w oknie, limity zaostrzone",
+                detector.getRecentAttempts(now)));
+        }
+        if (verdict != BotWaveDetector.Verdict.ALLOWED) {
+            event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_OTHER, DENY_MESSAGE);
+        }
+    }
+
+    private long asnOf(String address) {
+        if (ipIntelligence == null) {
+            return 0;
+        }
+        IpProfile profile = ipIntelligence.getCached(address);
+        if (profile == null) {
+            profile = ipIntelligence.getResolver().resolveOffline(address);
+        }
+        return profile.getGeo() != null ? profile.getGeo().getAsn() : 0;
+    }
+
+    public BotWaveDetector getDetector() {
+        return detector;
+    }
+
+    public String getStatusLine() {
+        return detector.getStatusLine(System.currentTimeMillis());
+    }
+}
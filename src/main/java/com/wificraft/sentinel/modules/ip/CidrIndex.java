@@ -0,0 +1,423 @@
+package com.wificraft.sentinel.modules.ip;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable longest-prefix-match index over IPv4 and IPv6 CIDR ranges.
+ *
+ * At build time the (possibly nested) prefixes of each address family are flattened into
+ * sorted, disjoint intervals, each carrying the value of the most specific prefix that
+ * covers it. A lookup parses the address once and binary-searches primitive arrays, so it
+ * costs about twenty comparisons even with hundreds of thousands of ranges, and never
+ * allocates for IPv4. IPv4-mapped IPv6 addresses are looked up as IPv4.
+ *
+ * When the same prefix is added twice, the value added last wins.
+ */
+public final class CidrIndex<V> {
+    private static final CidrIndex<?> EMPTY = new Builder<Object>().build();
+
+    private final int prefixCount;
+    private final Object[] values;
+
+    // IPv4 intervals, stored with the sign bit flipped so signed comparison orders them
+    private final int[] v4Start;
+    private final int[] v4End;
+    private final int[] v4Value;
+
+    private final long[] v6StartHigh;
+    private final long[] v6StartLow;
+    private final long[] v6EndHigh;
+    private final long[] v6EndLow;
+    private final int[] v6Value;
+
+    private CidrIndex(int prefixCount, Object[] values, int[] v4Start, int[] v4End, int[] v4Value,
+                      long[] v6StartHigh, long[] v6StartLow, long[] v6EndHigh, long[] v6EndLow, int[] v6Value) {
+        this.prefixCount = prefixCount;
+        this.values = values;
+        this.v4Start = v4Start;
+        this.v4End = v4End;
+        this.v4Value = v4Value;
+        this.v6StartHigh = v6StartHigh;
+        this.v6StartLow = v6StartLow;
+        this.v6EndHigh = v6EndHigh;
+        this.v6EndLow = v6EndLow;
+        this.v6Value = v6Value;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <V> CidrIndex<V> empty() {
+        return (CidrIndex<V>) EMPTY;
+    }
+
+    public static <V> Builder<V> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * @return Value of the most specific range containing the address, or null if none does
+     *         or the text is not an IP address
+     */
+    public V lookup(String address) {
+        if (address == null) {
+            return null;
+        }
+        long ipv4 = IpAddresses.parseIpv4(address);
+        if (ipv4 >= 0) {
+            return lookupIpv4(ipv4);
+        }
+        long[] ipv6 = new long[2];
+        if (!IpAddresses.parseIpv6(address, ipv6)) {
+            return null;
+        }
+        return lookupIpv6(ipv6[0], ipv6[1]);
+    }
+
+    public V lookup(InetAddress address) {
+        return address == null ? null : lookup(address.getAddress());
+    }
+
+    /**
+     * @param address 4 or 16 address bytes in network order
+     */
+    public V lookup(byte[] address) {
+        if (address.length == 4) {
+            return lookupIpv4(((address[0] & 0xFFL) << 24) | ((address[1] & 0xFFL) << 16)
+                | ((address[2] & 0xFFL) << 8) | (address[3] & 0xFFL));
+        }
+        if (address.length == 16) {
+            long high = 0;
+            long low = 0;
+            for (int i = 0; i < 8; i++) {
+                high = (high << 8) | (address[i] & 0xFFL);
+                low = (low << 8) | (address[i + 8] & 0xFFL);
+            }
+            return lookupIpv6(high, low);
+        }
+        return null;
+    }
+
+    /**
+     * @param address Unsigned 32-bit IPv4 address
+     */
+    @SuppressWarnings("unchecked")
+    public V lookupIpv4(long address) {
+        int key = (int) address ^ Integer.MIN_VALUE;
+        int low = 0;
+        int high = v4Start.length - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (v4Start[mid] <= key) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (found < 0 || v4End[found] < key) {
+            return null;
+        }
+        return (V) values[v4Value[found]];
+    }
+
+    @SuppressWarnings("unchecked")
+    public V lookupIpv6(long addressHigh, long addressLow) {
+        if (IpAddresses.isIpv4Mapped(addressHigh, addressLow)) {
+            return lookupIpv4(addressLow & 0xFFFFFFFFL);
+        }
+        int low = 0;
+        int high = v6StartHigh.length - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (compare(v6StartHigh[mid], v6StartLow[mid], addressHigh, addressLow) <= 0) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (found < 0 || compare(v6EndHigh[found], v6EndLow[found], addressHigh, addressLow) < 0) {
+            return null;
+        }
+        return (V) values[v6Value[found]];
+    }
+
+    public boolean contains(String address) {
+        return lookup(address) != null;
+    }
+
+    public boolean contains(InetAddress address) {
+        return lookup(address) != null;
+    }
+
+    /**
+     * @return Number of prefixes the index was built from
+     */
+    public int size() {
+        return prefixCount;
+    }
+
+    /**
+     * @return Number of disjoint intervals after flattening, both families
+     */
+    public int getIntervalCount() {
+        return v4Start.length + v6StartHigh.length;
+    }
+
+    public boolean isEmpty() {
+        return prefixCount == 0;
+    }
+
+    private static int compare(long aHigh, long aLow, long bHigh, long bLow) {
+        int high = Long.compareUnsigned(aHigh, bHigh);
+        return high != 0 ? high : Long.compareUnsigned(aLow, bLow);
+    }
+
+    /**
+     * Collects prefixes; not thread-safe. Invalid ranges are rejected with
+     * {@link IllegalArgumentException} so callers can log and skip them.
+     */
+    public static final class Builder<V> {
+        private final List<V> values = new ArrayList<>();
+        private final Map<V, Integer> valueIds = new HashMap<>();
+        private final Prefixes ipv4 = new Prefixes();
+        private final Prefixes ipv6 = new Prefixes();
+
+        /**
+         * @param cidr Range such as {@code 104.16.0.0/12} or {@code 2606:4700::/32}; a bare address is a single host
+         */
+        public Builder<V> add(String cidr, V value) {
+            if (cidr == null) {
+                throw new IllegalArgumentException("Missing CIDR range");
+            }
+            String text = cidr.trim();
+            int slash = text.indexOf('/');
+            String network = slash < 0 ? text : text.substring(0, slash);
+            int prefix = -1;
+            if (slash >= 0) {
+                try {
+                    prefix = Integer.parseInt(text.substring(slash + 1).trim());
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid prefix length in " + cidr);
+                }
+            }
+
+            long ipv4Address = IpAddresses.parseIpv4(network);
+            if (ipv4Address >= 0) {
+                return addIpv4(ipv4Address, prefix < 0 ? 32 : prefix, value);
+            }
+            long[] ipv6Address = new long[2];
+            if (!IpAddresses.parseIpv6(network, ipv6Address)) {
+                throw new IllegalArgumentException("Invalid address in " + cidr);
+            }
+            return addIpv6(ipv6Address[0], ipv6Address[1], prefix < 0 ? 128 : prefix, value);
+        }
+
+        public Builder<V> addAll(Iterable<String> cidrs, V value) {
+            for (String cidr : cidrs) {
+                add(cidr, value);
+            }
+            return this;
+        }
+
+        /**
+         * @param address Unsigned 32-bit network address; host bits are ignored
+         */
+        public Builder<V> addIpv4(long address, int prefix, V value) {
+            if (prefix < 0 || prefix > 32) {
+                throw new IllegalArgumentException("IPv4 prefix length must be between 0 and 32: " + prefix);
+            }
+            long mask = prefix == 0 ? 0 : (0xFFFFFFFFL << (32 - prefix)) & 0xFFFFFFFFL;
+            long start = address & mask;
+            ipv4.add(0, start, 0, start | (~mask & 0xFFFFFFFFL), prefix, valueIndex(value));
+            return this;
+        }
+
+        public Builder<V> addIpv6(long high, long low, int prefix, V value) {
+            if (prefix < 0 || prefix > 128) {
+                throw new IllegalArgumentException("IPv6 prefix length must be between 0 and 128: " + prefix);
+            }
+            if (IpAddresses.isIpv4Mapped(high, low) && prefix >= 96) {
+                return addIpv4(low & 0xFFFFFFFFL, prefix - 96, value);
+            }
+            long highMask = IpAddresses.highMask(prefix);
+            long lowMask = IpAddresses.lowMask(prefix);
+            ipv6.add(high & highMask, low & lowMask, (high & highMask) | ~highMask, (low & lowMask) | ~lowMask,
+                prefix, valueIndex(value));
+            return this;
+        }
+
+        private int valueIndex(V value) {
+            // One slot per distinct value, so adjacent ranges of one provider merge into one interval
+            Integer index = valueIds.get(value);
+            if (index == null) {
+                index = values.size();
+                values.add(value);
+                valueIds.put(value, index);
+            }
+            return index;
+        }
+
+        public int size() {
+            return ipv4.count + ipv6.count;
+        }
+
+        public CidrIndex<V> build() {
+            Intervals flatV4 = ipv4.flatten();
+            Intervals flatV6 = ipv6.flatten();
+
+            int[] v4Start = new int[flatV4.count];
+            int[] v4End = new int[flatV4.count];
+            for (int i = 0; i < flatV4.count; i++) {
+                v4Start[i] = (int) flatV4.startLow[i] ^ Integer.MIN_VALUE;
+                v4End[i] = (int) flatV4.endLow[i] ^ Integer.MIN_VALUE;
+            }
+            return new CidrIndex<>(size(), values.toArray(), v4Start, v4End, Arrays.copyOf(flatV4.value, flatV4.count),
+                Arrays.copyOf(flatV6.startHigh, flatV6.count), Arrays.copyOf(flatV6.startLow, flatV6.count),
+                Arrays.copyOf(flatV6.endHigh, flatV6.count), Arrays.copyOf(flatV6.endLow, flatV6.count),
+                Arrays.copyOf(flatV6.value, flatV6.count));
+        }
+    }
+
+    /**
+     * Growable columns of prefixes of one address family, as 128-bit start/end pairs.
+     */
+    private static final class Prefixes {
+        long[] startHigh = new long[16];
+        long[] startLow = new long[16];
+        long[] endHigh = new long[16];
+        long[] endLow = new long[16];
+        int[] length = new int[16];
+        int[] value = new int[16];
+        int count;
+
+        void add(long sHigh, long sLow, long eHigh, long eLow, int prefix, int valueIndex) {
+            if (count == startHigh.length) {
+                int capacity = count * 2;
+                startHigh = Arrays.copyOf(startHigh, capacity);
+                startLow = Arrays.copyOf(startLow, capacity);
+                endHigh = Arrays.copyOf(endHigh, capacity);
+                endLow = Arrays.copyOf(endLow, capacity);
+                length = Arrays.copyOf(length, capacity);
+                value = Arrays.copyOf(value, capacity);
+            }
+            startHigh[count] = sHigh;
+            startLow[count] = sLow;
+            endHigh[count] = eHigh;
+            endLow[count] = eLow;
+            length[count] = prefix;
+            value[count] = valueIndex;
+            count++;
+        }
+
+        /**
+         * Sweeps the prefixes in (start, length, insertion) order with a stack of open
+         * prefixes; every stretch of addresses is emitted with the value of the innermost
+         * open prefix, i.e. the longest match.
+         */
+        Intervals flatten() {
+            Integer[] order = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> {
+                int byStart = compare(startHigh[a], startLow[a], startHigh[b], startLow[b]);
+                if (byStart != 0) {
+                    return byStart;
+                }
+                return length[a] != length[b] ? Integer.compare(length[a], length[b]) : Integer.compare(a, b);
+            });
+
+            Intervals out = new Intervals(count * 2 + 1);
+            int[] stack = new int[Math.max(1, Math.min(count, 129))];
+            int depth = 0;
+            Cursor cursor = new Cursor();
+
+            for (int index : order) {
+                while (depth > 0 && compare(endHigh[stack[depth - 1]], endLow[stack[depth - 1]],
+                        startHigh[index], startLow[index]) < 0) {
+                    close(stack[--depth], cursor, out);
+                }
+                if (depth > 0 && !cursor.exhausted
+                        && compare(cursor.high, cursor.low, startHigh[index], startLow[index]) < 0) {
+                    long endLowValue = startLow[index] - 1;
+                    long endHighValue = startLow[index] == 0 ? startHigh[index] - 1 : startHigh[index];
+                    out.emit(cursor.high, cursor.low, endHighValue, endLowValue, value[stack[depth - 1]]);
+                }
+                cursor.high = startHigh[index];
+                cursor.low = startLow[index];
+                cursor.exhausted = false;
+                // Nested prefixes are at most 129 deep per start address, duplicates excepted
+                if (depth == stack.length) {
+                    stack = Arrays.copyOf(stack, depth * 2);
+                }
+                stack[depth++] = index;
+            }
+            while (depth > 0) {
+                close(stack[--depth], cursor, out);
+            }
+            return out;
+        }
+
+        private void close(int index, Cursor cursor, Intervals out) {
+            if (cursor.exhausted || compare(cursor.high, cursor.low, endHigh[index], endLow[index]) > 0) {
+                return;
+            }
+            out.emit(cursor.high, cursor.low, endHigh[index], endLow[index], value[index]);
+            if (endLow[index] == -1L && endHigh[index] == -1L) {
+                cursor.exhausted = true;
+            } else {
+                cursor.low = endLow[index] + 1;
+                cursor.high = endLow[index] == -1L ? endHigh[index] + 1 : endHigh[index];
+            }
+        }
+    }
+
+    private static final class Cursor {
+        long high;
+        long low;
+        boolean exhausted;
+    }
+
+    private static final class Intervals {
+        long[] startHigh;
+        long[] startLow;
+        long[] endHigh;
+        long[] endLow;
+        int[] value;
+        int count;
+
+        Intervals(int capacity) {
+            startHigh = new long[capacity];
+            startLow = new long[capacity];
+            endHigh = new long[capacity];
+            endLow = new long[capacity];
+            value = new int[capacity];
+        }
+
+        void emit(long sHigh, long sLow, long eHigh, long eLow, int valueIndex) {
+            // Merge with the previous interval when it is adjacent and has the same value
+            if (count > 0 && value[count - 1] == valueIndex) {
+                long nextLow = endLow[count - 1] + 1;
+                long nextHigh = endLow[count - 1] == -1L ? endHigh[count - 1] + 1 : endHigh[count - 1];
+                if (nextHigh == sHigh && nextLow == sLow) {
+                    endHigh[count - 1] = eHigh;
+                    endLow[count - 1] = eLow;
+                    return;
+                }
+            }
+            startHigh[count] = sHigh;
+            startLow[count] = sLow;
+            endHigh[count] = eHigh;
+            endLow[count] = eLow;
+            value[count] = valueIndex;
+            count++;
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.wificraft.sentinel.modules.ip;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Read-only, memory-mapped GeoIP/ASN database written by {@link GeoDatabaseCompiler}.
+ *
+ * The file holds sorted, disjoint IPv4 and IPv6 intervals, each pointing at a deduplicated
+ * record. A lookup parses the address, binary-searches the mapped intervals and decodes the
+ * record once (later hits reuse it), so it costs microseconds and never touches the network.
+ * Instances are immutable and safe to share between threads; to pick up a new file, open a
+ * new instance and swap the reference (see {@link GeoIpService}).
+ *
+ * Layout, big-endian:
+ * <pre>
+ * header   magic "SGEO", int version, long builtAt, int v4Count, int v6Count, int recordCount, int reserved
+ * ipv4     v4Count x (int start, int end, int record), sorted by unsigned start
+ * ipv6     v6Count x (long startHigh, long startLow, long endHigh, long endLow, int record)
+ * offsets  recordCount x int, file offset of each record
+ * records  utf countryCode, utf country, utf city, utf timezone, double lat, double lon, long asn, utf asnOrganization
+ * </pre>
+ * where utf is an unsigned short length followed by UTF-8 bytes.
+ */
+public final class GeoDatabase {
+    static final int MAGIC = 0x5347454F;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    static final int IPV4_ENTRY_SIZE = 12;
+    static final int IPV6_ENTRY_SIZE = 36;
+
+    private final Path path;
+    private final ByteBuffer buffer;
+    private final long builtAt;
+    private final int v4Count;
+    private final int v6Count;
+    private final int v6Offset;
+    private final int recordOffsets;
+    private final AtomicReferenceArray<GeoRecord> records;
+
+    private GeoDatabase(Path path, ByteBuffer buffer) throws IOException {
+        this.path = path;
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a GeoIP database: " + path);
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported GeoIP database version " + buffer.getInt(4) + ": " + path);
+        }
+        this.builtAt = buffer.getLong(8);
+        this.v4Count = buffer.getInt(16);
+        this.v6Count = buffer.getInt(20);
+        int recordCount = buffer.getInt(24);
+        if (v4Count < 0 || v6Count < 0 || recordCount < 0) {
+            throw new IOException("Corrupt GeoIP database header: " + path);
+        }
+        long v6 = HEADER_SIZE + (long) v4Count * IPV4_ENTRY_SIZE;
+        long offsets = v6 + (long) v6Count * IPV6_ENTRY_SIZE;
+        if (offsets + (long) recordCount * 4 > buffer.capacity()) {
+            throw new IOException("Truncated GeoIP database: " + path);
+        }
+        this.v6Offset = (int) v6;
+        this.recordOffsets = (int) offsets;
+        this.records = new AtomicReferenceArray<>(recordCount);
+
+        // Reject dangling record references up front so lookups never read outside the file
+        for (int i = 0; i < recordCount; i++) {
+            int offset = buffer.getInt(recordOffsets + i * 4);
+            if (offset < recordOffsets + recordCount * 4 || offset >= buffer.capacity()) {
+                throw new IOException("Corrupt GeoIP record offset: " + path);
+            }
+        }
+        for (int i = 0; i < v4Count; i++) {
+            checkRecordIndex(buffer.getInt(HEADER_SIZE + i * IPV4_ENTRY_SIZE + 8), recordCount);
+        }
+        for (int i = 0; i < v6Count; i++) {
+            checkRecordIndex(buffer.getInt(v6Offset + i * IPV6_ENTRY_SIZE + 32), recordCount);
+        }
+    }
+
+    private void checkRecordIndex(int record, int recordCount) throws IOException {
+        if (record < 0 || record >= recordCount) {
+            throw new IOException("Corrupt GeoIP range record: " + path);
+        }
+    }
+
+    /**
+     * Maps the file read-only. The mapping stays valid after the channel is closed.
+     * @throws IOException If the file cannot be read or is not a valid database
+     */
+    public static GeoDatabase open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("GeoIP database larger than 2 GB: " + path);
+            }
+            return new GeoDatabase(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * @return Record of the range containing the address, or null if none does or the text is not an IP address
+     */
+    public GeoRecord lookup(String address) {
+        if (address == null) {
+            return null;
+        }
+        long ipv4 = IpAddresses.parseIpv4(address);
+        if (ipv4 >= 0) {
+            return lookupIpv4(ipv4);
+        }
+        long[] ipv6 = new long[2];
+        if (!IpAddresses.parseIpv6(address, ipv6)) {
+            return null;
+        }
+        return lookupIpv6(ipv6[0], ipv6[1]);
+    }
+
+    public GeoRecord lookup(InetAddress address) {
+        byte[] bytes = address.getAddress();
+        if (bytes.length == 4) {
+            return lookupIpv4(((bytes[0] & 0xFFL) << 24) | ((bytes[1] & 0xFFL) << 16)
+                | ((bytes[2] & 0xFFL) << 8) | (bytes[3] & 0xFFL));
+        }
+        long high = 0;
+        long low = 0;
+        for (int i = 0; i < 8; i++) {
+            high = (high << 8) | (bytes[i] & 0xFFL);
+            low = (low << 8) | (bytes[i + 8] & 0xFFL);
+        }
+        return lookupIpv6(high, low);
+    }
+
+    /**
+     * @param address Unsigned 32-bit address
+     */
+    public GeoRecord lookupIpv4(long address) {
+        int key = (int) address;
+        int low = 0;
+        int high = v4Count - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (Integer.compareUnsigned(buffer.getInt(HEADER_SIZE + mid * IPV4_ENTRY_SIZE), key) <= 0) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (found < 0) {
+            return null;
+        }
+        int entry = HEADER_SIZE + found * IPV4_ENTRY_SIZE;
+        if (Integer.compareUnsigned(buffer.getInt(entry + 4), key) < 0) {
+            return null;
+        }
+        return record(buffer.getInt(entry + 8));
+    }
+
+    public GeoRecord lookupIpv6(long addressHigh, long addressLow) {
+        if (IpAddresses.isIpv4Mapped(addressHigh, addressLow)) {
+            return lookupIpv4(addressLow & 0xFFFFFFFFL);
+        }
+        int low = 0;
+        int high = v6Count - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int entry = v6Offset + mid * IPV6_ENTRY_SIZE;
+            if (compare(buffer.getLong(entry), buffer.getLong(entry + 8), addressHigh, addressLow) <= 0) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (found < 0) {
+            return null;
+        }
+        int entry = v6Offset + found * IPV6_ENTRY_SIZE;
+        if (compare(buffer.getLong(entry + 16), buffer.getLong(entry + 24), addressHigh, addressLow) < 0) {
+            return null;
+        }
+        return record(buffer.getInt(entry + 32));
+    }
+
+    private GeoRecord record(int index) {
+        GeoRecord record = records.get(index);
+        if (record == null) {
+            // Decoding twice under a race is harmless, both copies are equal
+            record = decode(buffer.getInt(recordOffsets + index * 4));
+            records.lazySet(index, record);
+        }
+        return record;
+    }
+
+    private GeoRecord decode(int offset) {
+        int[] position = {offset};
+        String countryCode = readString(position);
+        String country = readString(position);
+        String city = readString(position);
+        String timezone = readString(position);
+        double latitude = buffer.getDouble(position[0]);
+        double longitude = buffer.getDouble(position[0] + 8);
+        long asn = buffer.getLong(position[0] + 16);
+        position[0] += 24;
+        String asnOrganization = readString(position);
+        return new GeoRecord(countryCode, country, city, timezone, latitude, longitude, asn, asnOrganization);
+    }
+
+    private String readString(int[] position) {
+        int length = buffer.getShort(position[0]) & 0xFFFF;
+        byte[] bytes = new byte[length];
+        // Absolute bulk read, so concurrent lookups never share a buffer position
+        buffer.get(position[0] + 2, bytes);
+        position[0] += 2 + length;
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int compare(long aHigh, long aLow, long bHigh, long bLow) {
+        int high = Long.compareUnsigned(aHigh, bHigh);
+        return high != 0 ? high : Long.compareUnsigned(aLow, bLow);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return When the file was compiled, in epoch milliseconds
+     */
+    public long getBuiltAt() {
+        return builtAt;
+    }
+
+    /**
+     * @return Number of address ranges, both families
+     */
+    public int getRangeCount() {
+        return v4Count + v6Count;
+    }
+
+    public int getRecordCount() {
+        return records.length();
+    }
+
+    public long getSizeBytes() {
+        return buffer.capacity();
+    }
+}
@@ -0,0 +1,331 @@
+package com.wificraft.sentinel.modules.ip;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles a CSV range dump into the binary file read by {@link GeoDatabase}.
+ *
+ * One range per line:
+ * <pre>
+ * network,country_code,country,city,timezone,latitude,longitude,asn,asn_organization
+ * 5.172.224.0/19,PL,Poland,Warsaw,Europe/Warsaw,52.2297,21.0122,5617,"Orange Polska, S.A."
+ * 2a01:110::/31,US,United States,,America/Chicago,37.751,-97.822,8075,Microsoft Corporation
+ * 1.0.0.0-1.0.0.255,AU,Australia,,,,,13335,Cloudflare
+ * </pre>
+ * The network is a CIDR range, a single address or a {@code start-end} range. Fields may be
+ * quoted, trailing fields may be left out. Blank lines, lines starting with {@code #} and a
+ * header line starting with {@code network} are ignored. Ranges that overlap an earlier
+ * range are skipped, so the file stays a set of disjoint intervals.
+ */
+public final class GeoDatabaseCompiler {
+    private GeoDatabaseCompiler() {
+    }
+
+    /**
+     * Compiles the CSV into {@code target}, replacing it atomically where the file system allows.
+     * @throws IOException If reading or writing fails; {@code target} is then left untouched
+     */
+    public static Summary compile(BufferedReader csv, Path target) throws IOException {
+        List<long[]> ipv4 = new ArrayList<>();
+        List<long[]> ipv6 = new ArrayList<>();
+        List<GeoRecord> records = new ArrayList<>();
+        Map<GeoRecord, Integer> recordIndex = new HashMap<>();
+        int invalid = 0;
+
+        String line;
+        int lineNumber = 0;
+        while ((line = csv.readLine()) != null) {
+            lineNumber++;
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#") || (lineNumber == 1 && trimmed.startsWith("network"))) {
+                continue;
+            }
+            List<String> fields = splitCsv(trimmed);
+            long[] range = parseRange(fields.get(0).trim());
+            if (range == null) {
+                invalid++;
+                continue;
+            }
+            GeoRecord record;
+            try {
+                record = new GeoRecord(field(fields, 1), field(fields, 2), field(fields, 3), field(fields, 4),
+                    parseDouble(field(fields, 5)), parseDouble(field(fields, 6)),
+                    parseAsn(field(fields, 7)), field(fields, 8));
+            } catch (NumberFormatException e) {
+                invalid++;
+                continue;
+            }
+            Integer index = recordIndex.get(record);
+            if (index == null) {
+                index = records.size();
+                records.add(record);
+                recordIndex.put(record, index);
+            }
+            range[4] = index;
+            (range[0] == -1 ? ipv4 : ipv6).add(range);
+        }
+
+        Comparator<long[]> byStart = (a, b) -> {
+            int high = Long.compareUnsigned(a[0], b[0]);
+            return high != 0 ? high : Long.compareUnsigned(a[1], b[1]);
+        };
+        ipv4.sort(byStart);
+        ipv6.sort(byStart);
+        int overlapping = removeOverlaps(ipv4) + removeOverlaps(ipv6);
+
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            write(out, ipv4, ipv6, records);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        try {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return new Summary(ipv4.size() + ipv6.size(), records.size(), invalid, overlapping);
+    }
+
+    /**
+     * @return {startHigh, startLow, endHigh, endLow, record}; startHigh is -1 for IPv4, whose
+     *         bounds are in startLow and endLow. Null if the text is not a range.
+     */
+    private static long[] parseRange(String network) {
+        int dash = network.indexOf('-');
+        if (dash > 0) {
+            long[] start = parseAddress(network.substring(0, dash).trim());
+            long[] end = parseAddress(network.substring(dash + 1).trim());
+            if (start == null || end == null || (start[0] == -1) != (end[0] == -1)) {
+                return null;
+            }
+            long[] range = {start[0], start[1], end[0], end[1], 0};
+            return compareStart(range, range[2], range[3]) > 0 ? null : range;
+        }
+
+        int slash = network.indexOf('/');
+        long[] address = parseAddress(slash < 0 ? network : network.substring(0, slash));
+        if (address == null) {
+            return null;
+        }
+        int prefix;
+        try {
+            prefix = slash < 0 ? (address[0] == -1 ? 32 : 128) : Integer.parseInt(network.substring(slash + 1).trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (address[0] == -1) {
+            if (prefix < 0 || prefix > 32) {
+                return null;
+            }
+            long mask = prefix == 0 ? 0 : (0xFFFFFFFFL << (32 - prefix)) & 0xFFFFFFFFL;
+            long start = address[1] & mask;
+            return new long[] {-1, start, -1, start | (~mask & 0xFFFFFFFFL), 0};
+        }
+        if (prefix < 0 || prefix > 128) {
+            return null;
+        }
+        long highMask = IpAddresses.highMask(prefix);
+        long lowMask = IpAddresses.lowMask(prefix);
+        return new long[] {address[0] & highMask, address[1] & lowMask,
+            (address[0] & highMask) | ~highMask, (address[1] & lowMask) | ~lowMask, 0};
+    }
+
+    /**
+     * @return {high, low} for IPv6, {-1, address} for IPv4 (including IPv4-mapped IPv6)
+     */
+    private static long[] parseAddress(String text) {
+        long ipv4 = IpAddresses.parseIpv4(text);
+        if (ipv4 >= 0) {
+            return new long[] {-1, ipv4};
+        }
+        long[] ipv6 = new long[2];
+        if (!IpAddresses.parseIpv6(text, ipv6)) {
+            return null;
+        }
+        if (IpAddresses.isIpv4Mapped(ipv6[0], ipv6[1])) {
+            return new long[] {-1, ipv6[1] & 0xFFFFFFFFL};
+        }
+        // An IPv6 address with all high bits set would collide with the IPv4 marker; no such address is routed
+        return ipv6[0] == -1 ? null : ipv6;
+    }
+
+    private static int compareStart(long[] range, long high, long low) {
+        int result = Long.compareUnsigned(range[0], high);
+        return result != 0 ? result : Long.compareUnsigned(range[1], low);
+    }
+
+    private static int removeOverlaps(List<long[]> sorted) {
+        int kept = 0;
+        int removed = 0;
+        for (long[] range : sorted) {
+            if (kept > 0) {
+                long[] previous = sorted.get(kept - 1);
+                if (compareStart(range, previous[2], previous[3]) <= 0) {
+                    removed++;
+                    continue;
+                }
+            }
+            sorted.set(kept++, range);
+        }
+        sorted.subList(kept, sorted.size()).clear();
+        return removed;
+    }
+
+    private static void write(DataOutputStream out, List<long[]> ipv4, List<long[]> ipv6,
+                              List<GeoRecord> records) throws IOException {
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        DataOutputStream dataOut = new DataOutputStream(data);
+        int[] offsets = new int[records.size()];
+        long dataStart = GeoDatabase.HEADER_SIZE + (long) ipv4.size() * GeoDatabase.IPV4_ENTRY_SIZE
+            + (long) ipv6.size() * GeoDatabase.IPV6_ENTRY_SIZE + records.size() * 4L;
+        for (int i = 0; i < records.size(); i++) {
+            long offset = dataStart + dataOut.size();
+            if (offset > Integer.MAX_VALUE) {
+                throw new IOException("GeoIP database would exceed 2 GB");
+            }
+            offsets[i] = (int) offset;
+            GeoRecord record = records.get(i);
+            writeString(dataOut, record.getCountryCode());
+            writeString(dataOut, record.getCountry());
+            writeString(dataOut, record.getCity());
+            writeString(dataOut, record.getTimezone());
+            dataOut.writeDouble(record.getLatitude());
+            dataOut.writeDouble(record.getLongitude());
+            dataOut.writeLong(record.getAsn());
+            writeString(dataOut, record.getAsnOrganization());
+        }
+
+        out.writeInt(GeoDatabase.MAGIC);
+        out.writeInt(GeoDatabase.VERSION);
+        out.writeLong(System.currentTimeMillis());
+        out.writeInt(ipv4.size());
+        out.writeInt(ipv6.size());
+        out.writeInt(records.size());
+        out.writeInt(0);
+        for (long[] range : ipv4) {
+            out.writeInt((int) range[1]);
+            out.writeInt((int) range[3]);
+            out.writeInt((int) range[4]);
+        }
+        for (long[] range : ipv6) {
+            out.writeLong(range[0]);
+            out.writeLong(range[1]);
+            out.writeLong(range[2]);
+            out.writeLong(range[3]);
+            out.writeInt((int) range[4]);
+        }
+        for (int offset : offsets) {
+            out.writeInt(offset);
+        }
+        data.writeTo(out);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, 0xFFFF);
+        out.writeShort(length);
+        out.write(bytes, 0, length);
+    }
+
+    private static String field(List<String> fields, int index) {
+        return index < fields.size() ? fields.get(index).trim() : "";
+    }
+
+    private static double parseDouble(String value) {
+        return value.isEmpty() ? 0.0 : Double.parseDouble(value);
+    }
+
+    private static long parseAsn(String value) {
+        if (value.regionMatches(true, 0, "AS", 0, 2)) {
+            value = value.substring(2);
+        }
+        return value.isEmpty() ? 0 : Long.parseLong(value);
+    }
+
+    /**
+     * Splits one CSV line, honouring double quotes and doubled quotes inside them.
+     */
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        current.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        fields.add(current.toString());
+        return fields;
+    }
+
+    /**
+     * Outcome of one compilation.
+     */
+    public static final class Summary {
+        private final int ranges;
+        private final int records;
+        private final int invalid;
+        private final int overlapping;
+
+        Summary(int ranges, int records, int invalid, int overlapping) {
+            this.ranges = ranges;
+            this.records = records;
+            this.invalid = invalid;
+            this.overlapping = overlapping;
+        }
+
+        public int getRanges() {
+            return ranges;
+        }
+
+        public int getRecords() {
+            return records;
+        }
+
+        /**
+         * @return Lines skipped because the range or a number did not parse
+         */
+        public int getInvalid() {
+            return invalid;
+        }
+
+        /**
+         * @return Ranges skipped because they overlap an earlier range
+         */
+        public int getOverlapping() {
+            return overlapping;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.wificraft.sentinel.modules.ip;
+
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+
+/**
+ * Offline GeoIP/ASN lookups for every IP detector, backed by a memory-mapped {@link GeoDatabase}.
+ *
+ * The database file lives in the plugin data folder. A CSV range dump dropped next to it is
+ * compiled into a new database file, and a changed database file is opened and swapped in
+ * atomically; both checks run on an async task, so lookups never wait for a reload and keep
+ * using the previous database until the new one is ready. Without a database every lookup
+ * returns null and callers fall back to their HTTP providers if
+ * {@link #isHttpFallbackEnabled()} allows it.
+ */
+public class GeoIpService {
+    private final JavaPlugin plugin;
+    private final File databaseFile;
+    private final File sourceFile;
+    private final long checkIntervalTicks;
+    private final boolean httpFallback;
+
+    private volatile GeoDatabase database;
+    private long loadedModified;
+    private long loadedSize;
+    private BukkitTask reloadTask;
+
+    private final LongAdder lookups;
+    private final LongAdder hits;
+    private final LongAdder swaps;
+
+    public GeoIpService(JavaPlugin plugin) {
+        this.plugin = plugin;
+        FileConfiguration config = plugin.getConfig();
+        this.databaseFile = new File(plugin.getDataFolder(), config.getString("geoip.database", "geoip/sentinel-geo.db"));
+        this.sourceFile = new File(plugin.getDataFolder(), config.getString("geoip.source-csv", "geoip/geo.csv"));
+        this.checkIntervalTicks = Math.max(1, config.getLong("geoip.check-interval-seconds", 60)) * 20L;
+        this.httpFallback = config.getBoolean("geoip.http-fallback", true);
+        this.lookups = new LongAdder();
+        this.hits = new LongAdder();
+        this.swaps = new LongAdder();
+    }
+
+    /**
+     * Loads the database now and then watches the data folder for a new file.
+     */
+    public void start() {
+        File folder = databaseFile.getParentFile();
+        if (folder != null && !folder.exists()) {
+            folder.mkdirs();
+        }
+        reload();
+        if (reloadTask == null) {
+            reloadTask = plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, this::reload,
+                checkIntervalTicks, checkIntervalTicks);
+        }
+    }
+
+    public void shutdown() {
+        if (reloadTask != null) {
+            reloadTask.cancel();
+            reloadTask = null;
+        }
+    }
+
+    /**
+     * Compiles a newer CSV dump, then opens the database file if it changed since the last load.
+     * The current database stays in use if anything fails.
+     */
+    public synchronized void reload() {
+        if (sourceFile.isFile() && (!databaseFile.isFile() || sourceFile.lastModified() > databaseFile.lastModified())) {
+            try (BufferedReader reader = Files.newBufferedReader(sourceFile.toPath(), StandardCharsets.UTF_8)) {
+                GeoDatabaseCompiler.Summary summary = GeoDatabaseCompiler.compile(reader, databaseFile.toPath());
+                plugin.getLogger().info(String.format("Skompilowano bazę GeoIP z %s: %d zakresów, %d pominiętych",
+                    sourceFile.getName(), summary.getRanges(), summary.getInvalid() + summary.getOverlapping()));
+            } catch (IOException e) {
+                plugin.getLogger().log(Level.WARNING, "Nie udało się skompilować bazy GeoIP z " + sourceFile.getName(), e);
+            }
+        }
+
+        if (!databaseFile.isFile()) {
+            return;
+        }
+        long modified = databaseFile.lastModified();
+        long size = databaseFile.length();
+        if (database != null && modified == loadedModified && size == loadedSize) {
+            return;
+        }
+        try {
+            GeoDatabase opened = GeoDatabase.open(databaseFile.toPath());
+            database = opened;
+            loadedModified = modified;
+            loadedSize = size;
+            swaps.increment();
+            plugin.getLogger().info(String.format("Załadowano bazę GeoIP %s: %d zakresów",
+                databaseFile.getName(), opened.getRangeCount()));
+        } catch (IOException e) {
+            // Remember the broken file so it is not reopened every check
+            loadedModified = modified;
+            loadedSize = size;
+            plugin.getLogger().log(Level.WARNING, "Nie udało się wczytać bazy GeoIP " + databaseFile.getName(), e);
+        }
+    }
+
+    /**
+     * @return Location of the address, or null if no database is loaded or it has no range for the address
+     */
+    public GeoRecord lookup(String address) {
+        GeoDatabase current = database;
+        if (current == null) {
+            return null;
+        }
+        lookups.increment();
+        GeoRecord record = current.lookup(address);
+        if (record != null) {
+            hits.increment();
+        }
+        return record;
+    }
+
+    public GeoRecord lookup(InetAddress address) {
+        GeoDatabase current = database;
+        if (current == null || address == null) {
+            return null;
+        }
+        lookups.increment();
+        GeoRecord record = current.lookup(address);
+        if (record != null) {
+            hits.increment();
+        }
+        return record;
+    }
+
+    public boolean isLoaded() {
+        return database != null;
+    }
+
+    /**
+     * @return True if callers may ask their HTTP provider when the offline database has no answer
+     */
+    public boolean isHttpFallbackEnabled() {
+        return httpFallback;
+    }
+
+    public String getStatusLine() {
+        GeoDatabase current = database;
+        if (current == null) {
+            return String.format("not loaded (%s), http fallback: %s", databaseFile.getName(), httpFallback ? "on" : "off");
+        }
+        return String.format("ranges: %d, lookups: %d, hits: %d, reloads: %d, http fallback: %s",
+            current.getRangeCount(), lookups.sum(), hits.sum(), swaps.sum(), httpFallback ? "on" : "off");
+    }
+}
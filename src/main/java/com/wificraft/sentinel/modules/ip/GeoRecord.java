@@ -0,0 +1,95 @@
+package com.wificraft.sentinel.modules.ip;
+
+import java.util.Objects;
+
+/**
+ * Location and network owner of an address range, as stored in a {@link GeoDatabase}.
+ * Missing text fields are empty strings, a missing ASN is 0.
+ */
+public final class GeoRecord {
+    private final String countryCode;
+    private final String country;
+    private final String city;
+    private final String timezone;
+    private final double latitude;
+    private final double longitude;
+    private final long asn;
+    private final String asnOrganization;
+
+    public GeoRecord(String countryCode, String country, String city, String timezone,
+                     double latitude, double longitude, long asn, String asnOrganization) {
+        this.countryCode = nonNull(countryCode);
+        this.country = nonNull(country);
+        this.city = nonNull(city);
+        this.timezone = nonNull(timezone);
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.asn = asn;
+        this.asnOrganization = nonNull(asnOrganization);
+    }
+
+    private static String nonNull(String value) {
+        return value == null ? "" : value;
+    }
+
+    public String getCountryCode() {
+        return countryCode;
+    }
+
+    public String getCountry() {
+        return country;
+    }
+
+    public String getCity() {
+        return city;
+    }
+
+    public String getTimezone() {
+        return timezone;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public long getAsn() {
+        return asn;
+    }
+
+    public String getAsnOrganization() {
+        return asnOrganization;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof GeoRecord)) {
+            return false;
+        }
+        GeoRecord other = (GeoRecord) o;
+        return Double.compare(latitude, other.latitude) == 0
+            && Double.compare(longitude, other.longitude) == 0
+            && asn == other.asn
+            && countryCode.equals(other.countryCode)
+            && country.equals(other.country)
+            && city.equals(other.city)
+            && timezone.equals(other.timezone)
+            && asnOrganization.equals(other.asnOrganization);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(countryCode, country, city, timezone, latitude, longitude, asn, asnOrganization);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s (%s), %s, %s, AS%d %s", country, countryCode, city, timezone, asn, asnOrganization);
+    }
+}
@@ -0,0 +1,284 @@
+package com.wificraft.sentinel.modules.ip;
+
+/**
+ * Allocation-light parsing of textual IPv4 and IPv6 addresses, without {@code InetAddress}
+ * or DNS lookups.
+ *
+ * IPv4 addresses are returned as an unsigned 32-bit value in a long, IPv6 addresses as
+ * two longs (high and low 64 bits). IPv4-mapped IPv6 addresses ({@code ::ffff:a.b.c.d})
+ * are recognised so callers can treat them as IPv4.
+ */
+public final class IpAddresses {
+    private static final long IPV4_MAPPED_MARKER = 0x0000FFFFL;
+
+    private IpAddresses() {
+    }
+
+    /**
+     * @return The address as an unsigned 32-bit value, or -1 if the text is not a dotted-quad IPv4 address
+     */
+    public static long parseIpv4(CharSequence text) {
+        return parseIpv4(text, 0, text.length());
+    }
+
+    static long parseIpv4(CharSequence text, int from, int to) {
+        long result = 0;
+        int octets = 0;
+        int value = 0;
+        int digits = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                value = value * 10 + (c - '0');
+                if (++digits > 3 || value > 255) {
+                    return -1;
+                }
+            } else if (c == '.') {
+                if (digits == 0 || octets == 3) {
+                    return -1;
+                }
+                result = (result << 8) | value;
+                octets++;
+                value = 0;
+                digits = 0;
+            } else {
+                return -1;
+            }
+        }
+        if (digits == 0 || octets != 3) {
+            return -1;
+        }
+        return (result << 8) | value;
+    }
+
+    /**
+     * Parses an IPv6 address, optionally in brackets and with a zone id ({@code fe80::1%eth0}).
+     * @param out Receives the high 64 bits at index 0 and the low 64 bits at index 1
+     * @return False if the text is not an IPv6 address; {@code out} is then undefined
+     */
+    public static boolean parseIpv6(CharSequence text, long[] out) {
+        int from = 0;
+        int to = text.length();
+        if (to >= 2 && text.charAt(0) == '[' && text.charAt(to - 1) == ']') {
+            from++;
+            to--;
+        }
+        for (int i = from; i < to; i++) {
+            if (text.charAt(i) == '%') {
+                to = i;
+                break;
+            }
+        }
+        if (to - from < 2) {
+            return false;
+        }
+
+        int[] groups = new int[8];
+        int count = 0;
+        int gapAt = -1;
+        int i = from;
+        if (text.charAt(i) == ':') {
+            if (text.charAt(i + 1) != ':') {
+                return false;
+            }
+            gapAt = 0;
+            i += 2;
+        }
+        while (i < to) {
+            int start = i;
+            int value = 0;
+            int digits = 0;
+            boolean embeddedIpv4 = false;
+            while (i < to && text.charAt(i) != ':') {
+                char c = text.charAt(i);
+                if (c == '.') {
+                    // Trailing dotted quad, e.g. ::ffff:192.0.2.1
+                    long ipv4 = parseIpv4(text, start, to);
+                    if (ipv4 < 0 || count > 6) {
+                        return false;
+                    }
+                    groups[count++] = (int) (ipv4 >>> 16);
+                    groups[count++] = (int) (ipv4 & 0xFFFF);
+                    i = to;
+                    embeddedIpv4 = true;
+                    break;
+                }
+                int nibble = Character.digit(c, 16);
+                if (nibble < 0 || digits == 4) {
+                    return false;
+                }
+                value = (value << 4) | nibble;
+                digits++;
+                i++;
+            }
+            if (embeddedIpv4) {
+                break;
+            }
+            if (digits == 0 || count == 8) {
+                return false;
+            }
+            groups[count++] = value;
+            if (i < to) {
+                i++;
+                if (i < to && text.charAt(i) == ':') {
+                    if (gapAt >= 0) {
+                        return false;
+                    }
+                    gapAt = count;
+                    i++;
+                } else if (i == to) {
+                    return false;
+                }
+            }
+        }
+        if (gapAt < 0 ? count != 8 : count > 7) {
+            return false;
+        }
+
+        long high = 0;
+        long low = 0;
+        int tail = gapAt < 0 ? 0 : count - gapAt;
+        for (int g = 0; g < 8; g++) {
+            int value;
+            if (gapAt < 0 || g < gapAt) {
+                value = groups[g];
+            } else if (g >= 8 - tail) {
+                value = groups[gapAt + g - (8 - tail)];
+            } else {
+                value = 0;
+            }
+            if (g < 4) {
+                high = (high << 16) | value;
+            } else {
+                low = (low << 16) | value;
+            }
+        }
+        out[0] = high;
+        out[1] = low;
+        return true;
+    }
+
+    /**
+     * @return True if the IPv6 address is an IPv4-mapped address ({@code ::ffff:0:0/96})
+     */
+    public static boolean isIpv4Mapped(long high, long low) {
+        return high == 0 && (low >>> 32) == IPV4_MAPPED_MARKER;
+    }
+
+    /**
+     * Canonical text for an address, so one address always maps to one cache key: dotted quad
+     * for IPv4 and IPv4-mapped IPv6, eight uncompressed lowercase groups for other IPv6.
+     * @return The canonical text, or null if the text is not an IP address
+     */
+    public static String normalize(String address) {
+        if (address == null) {
+            return null;
+        }
+        long ipv4 = parseIpv4(address);
+        if (ipv4 >= 0) {
+            return toIpv4String(ipv4);
+        }
+        long[] ipv6 = new long[2];
+        if (!parseIpv6(address, ipv6)) {
+            return null;
+        }
+        if (isIpv4Mapped(ipv6[0], ipv6[1])) {
+            return toIpv4String(ipv6[1] & 0xFFFFFFFFL);
+        }
+        return toIpv6String(ipv6[0], ipv6[1]);
+    }
+
+    /**
+     * The network containing an address, in the canonical form of {@link #normalize(String)}
+     * with a prefix length: {@code 5.172.230.0/24} or {@code 2001:db8:0:0:0:0:0:0/48}.
+     * @return The network, or null if the text is not an IP address
+     */
+    public static String networkOf(String address, int ipv4Prefix, int ipv6Prefix) {
+        if (address == null) {
+            return null;
+        }
+        long ipv4 = parseIpv4(address);
+        long[] ipv6 = new long[2];
+        if (ipv4 < 0) {
+            if (!parseIpv6(address, ipv6)) {
+                return null;
+            }
+            if (isIpv4Mapped(ipv6[0], ipv6[1])) {
+                ipv4 = ipv6[1] & 0xFFFFFFFFL;
+            }
+        }
+        if (ipv4 >= 0) {
+            int length = Math.max(0, Math.min(32, ipv4Prefix));
+            long mask = length == 0 ? 0 : (0xFFFFFFFFL << (32 - length)) & 0xFFFFFFFFL;
+            return toIpv4String(ipv4 & mask) + "/" + length;
+        }
+        int length = Math.max(0, Math.min(128, ipv6Prefix));
+        return toIpv6String(ipv6[0] & highMask(length), ipv6[1] & lowMask(length)) + "/" + length;
+    }
+
+    private static String toIpv6String(long high, long low) {
+        StringBuilder text = new StringBuilder(39);
+        for (int group = 0; group < 8; group++) {
+            long half = group < 4 ? high : low;
+            if (group > 0) {
+                text.append(':');
+            }
+            text.append(Long.toHexString((half >>> (48 - (group % 4) * 16)) & 0xFFFF));
+        }
+        return text.toString();
+    }
+
+    public static String toIpv4String(long address) {
+        return ((address >>> 24) & 0xFF) + "." + ((address >>> 16) & 0xFF) + "."
+            + ((address >>> 8) & 0xFF) + "." + (address & 0xFF);
+    }
+
+    /**
+     * @return True if the address lies in the CIDR range; false for anything that does not parse
+     *         or mixes address families. A range without a prefix length matches one address.
+     */
+    public static boolean inRange(String address, String cidr) {
+        if (address == null || cidr == null) {
+            return false;
+        }
+        int slash = cidr.indexOf('/');
+        String network = slash < 0 ? cidr : cidr.substring(0, slash);
+        int prefix;
+        try {
+            prefix = slash < 0 ? -1 : Integer.parseInt(cidr.substring(slash + 1));
+        } catch (NumberFormatException e) {
+            return false;
+        }
+
+        long ip = parseIpv4(address);
+        long base = parseIpv4(network);
+        if (ip >= 0 && base >= 0) {
+            int length = prefix < 0 ? 32 : prefix;
+            if (length > 32) {
+                return false;
+            }
+            long mask = length == 0 ? 0 : (0xFFFFFFFFL << (32 - length)) & 0xFFFFFFFFL;
+            return (ip & mask) == (base & mask);
+        }
+
+        long[] a = new long[2];
+        long[] b = new long[2];
+        if (!parseIpv6(address, a) || !parseIpv6(network, b)) {
+            return false;
+        }
+        int length = prefix < 0 ? 128 : prefix;
+        if (length > 128) {
+            return false;
+        }
+        return (a[0] & highMask(length)) == (b[0] & highMask(length))
+            && (a[1] & lowMask(length)) == (b[1] & lowMask(length));
+    }
+
+    static long highMask(int prefix) {
+        return prefix <= 0 ? 0 : prefix >= 64 ? -1L : -1L << (64 - prefix);
+    }
+
+    static long lowMask(int prefix) {
+        return prefix <= 64 ? 0 : prefix >= 128 ? -1L : -1L << (128 - prefix);
+    }
+}
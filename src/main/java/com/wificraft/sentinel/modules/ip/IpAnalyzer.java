@@ -15,11 +15,12 @@ import com.wificraft.sentinel.config.SecurityConfig;
 // import com.wificraft.sentinel.modules.alerts.AlertSeverity;
 
 public class IpAnalyzer implements Runnable {
+    private static final double SHARED_ACCOUNT_STRENGTH = 0.8;
+
     private final WiFiCraftSentinel plugin;
     // private final AlertManager alertManager;
     // private final SecurityConfig config;
     private final Map<UUID, IpAnalysis> playerAnalyses;
-    private final Map<String, List<UUID>> ipToPlayers;
     private final Map<String, Long> lastCheckTimes;
     private final Map<String, Integer> suspiciousCountries;
     private final Map<String, Integer> suspiciousTimezones;
@@ -30,7 +31,6 @@ public class IpAnalyzer implements Runnable {
         // this.alertManager = plugin.getAlertManager();
         // this.config = plugin.getSecurityConfig();
         this.playerAnalyses = new ConcurrentHashMap<>();
-        this.ipToPlayers = new ConcurrentHashMap<>();
         this.lastCheckTimes = new ConcurrentHashMap<>();
         this.suspiciousCountries = new HashMap<>();
         this.suspiciousTimezones = new HashMap<>();
@@ -70,6 +70,17 @@ public class IpAnalyzer implements Runnable {
             checkIpSuspiciousness(analysis);
         }
         
+        // Accounts sharing an address or fingerprint come from the link index built at login
+        AccountLinkService accountLinks = plugin.getAccountLinks();
+        if (accountLinks != null) {
+            for (AccountLinkIndex.AccountLink link : accountLinks.getLinkedAccounts(playerId)) {
+                if (link.getStrength() >= SHARED_ACCOUNT_STRENGTH) {
+                    analysis.setSuspicious(true);
+                    break;
+                }
+            }
+        }
+        
         // Check for VPN/Proxy
         analysis.checkVpnProxy();
         
@@ -91,20 +102,7 @@ public class IpAnalyzer implements Runnable {
                 AlertSeverity.HIGH
             );
         }
-        
-        // Check if IP is shared
-        List<UUID> playersWithIp = ipToPlayers.computeIfAbsent(ip, k -> new ArrayList<>());
-        playersWithIp.add(analysis.getPlayer().getUniqueId());
-        
-        if (playersWithIp.size() > 1) {
-            analysis.setSuspicious(true);
-            alertManager.createAlert(
-                analysis.getPlayer(),
-                "Shared IP Address",
-                "Player is sharing IP address with " + (playersWithIp.size() - 1) + " other players",
-                AlertSeverity.MEDIUM
-            );
-        }
+
         */
     }
 
@@ -144,27 +142,6 @@ public class IpAnalyzer implements Runnable {
             long lastSeen = analysis.getLastSeen();
             return currentTime - lastSeen > TimeUnit.HOURS.toMillis(24);
         });
-        
-        // Check for shared IPs
-        ipToPlayers.forEach((ip, players) -> {
-            if (players.size() > 1) {
-                for (UUID playerId : players) {
-                    Player player = plugin.getServer().getPlayer(playerId);
-                    if (player != null) {
-                        IpAnalysis analysis = playerAnalyses.get(playerId);
-                        if (analysis != null) {
-                            analysis.setSuspicious(true);
-                        }
-                    }
-                }
-            }
-        });
-        
-        // Clean up old shared IP lists
-        ipToPlayers.entrySet().removeIf(entry -> {
-            List<UUID> players = entry.getValue();
-            return players.isEmpty();
-        });
     }
 
     public void shutdown() {
@@ -0,0 +1,361 @@
+package com.wificraft.sentinel.modules.ip;
+
+import com.wificraft.sentinel.modules.cache.LookupCache;
+import com.wificraft.sentinel.modules.storage.SentinelStorage;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * One place to ask what is known about an IP address.
+ *
+ * {@link #resolve(String)} returns a future {@link IpProfile}. Concurrent requests for the
+ * same address share a single in-flight lookup, so forty bots joining from one address cost
+ * one lookup and at most one HTTP request. Resolved profiles are kept in a size-bounded
+ * {@link LookupCache} for {@code ip-intelligence.cache-minutes}; addresses nothing knows are
+ * remembered for the shorter {@code negative-cache-minutes}, so a bot wave from unknown
+ * addresses does not repeat lookups. Popular profiles are refreshed in the background before
+ * they expire. Profiles that needed the HTTP provider are also written to an
+ * {@link IpProfileStore} for {@code persist-hours}, so after a restart returning players are
+ * answered from disk instead of the rate-limited API. Lookups run on a small pool of daemon threads and are
+ * started during {@link AsyncPlayerPreLoginEvent}, so the profile is usually ready before the
+ * player enters the world.
+ *
+ * The geolocation, cloud provider and data center detectors are views over the profile.
+ */
+public class IpIntelligenceService implements Listener {
+    private final IpProfileResolver resolver;
+    private final ExecutorService executor;
+    private final long prefetchWaitMillis;
+    private final IpProfileStore store;
+    private volatile SentinelStorage sharedStorage;
+    private volatile long sharedTtlMillis;
+
+    private final Map<String, CompletableFuture<IpProfile>> inFlight;
+    private final LookupCache<String, IpProfile> profiles;
+
+    private final LongAdder requests;
+    private final LongAdder cacheHits;
+    private final LongAdder coalesced;
+    private final LongAdder lookups;
+
+    /**
+     * Reads {@code ip-intelligence.*} and {@code geoip.http-fallback} from the plugin configuration.
+     * @param geoIpService Offline database, or null
+     */
+    public IpIntelligenceService(JavaPlugin plugin, GeoIpService geoIpService) {
+        this(plugin.getConfig(), new IpProfileResolver(geoIpService,
+            plugin.getConfig().getBoolean("geoip.http-fallback", true),
+            plugin.getConfig().getInt("ip-intelligence.http-requests-per-minute", 45),
+            plugin.getLogger()), openStore(plugin));
+    }
+
+    private IpIntelligenceService(FileConfiguration config, IpProfileResolver resolver, IpProfileStore store) {
+        this(resolver, Executors.newFixedThreadPool(Math.max(1, config.getInt("ip-intelligence.threads", 2)),
+                new LookupThreadFactory()),
+            config.getLong("ip-intelligence.cache-minutes", 60) * 60_000L,
+            config.getLong("ip-intelligence.negative-cache-minutes", 5) * 60_000L,
+            config.getInt("ip-intelligence.max-profiles", 50_000),
+            config.getDouble("ip-intelligence.refresh-ahead", 0.8),
+            config.getLong("ip-intelligence.prefetch-wait-ms", 1000),
+            store);
+    }
+
+    private static IpProfileStore openStore(JavaPlugin plugin) {
+        String file = plugin.getConfig().getString("ip-intelligence.persist-file", "ip-profiles.dat");
+        if (file == null || file.isEmpty()) {
+            return null;
+        }
+        return new IpProfileStore(new File(plugin.getDataFolder(), file).toPath(),
+            plugin.getConfig().getLong("ip-intelligence.persist-hours", 48) * 3_600_000L, plugin.getLogger());
+    }
+
+    /**
+     * Without a disk store; see the full constructor.
+     */
+    public IpIntelligenceService(IpProfileResolver resolver, ExecutorService executor, long cacheMillis,
+                                 long negativeCacheMillis, int maxProfiles, double refreshAhead,
+                                 long prefetchWaitMillis) {
+        this(resolver, executor, cacheMillis, negativeCacheMillis, maxProfiles, refreshAhead, prefetchWaitMillis, null);
+    }
+
+    /**
+     * @param executor Runs lookups; shut down by {@link #shutdown()}
+     * @param cacheMillis How long a resolved profile is reused
+     * @param negativeCacheMillis How long a profile without any data is reused
+     * @param maxProfiles Profiles kept at most
+     * @param refreshAhead Share of the lifetime after which a cache hit starts a background
+     *                     refresh, 1 to never refresh early
+     * @param prefetchWaitMillis How long a pre-login prefetch may hold the login thread, 0 to not wait
+     * @param store Disk store for HTTP-resolved profiles, or null; closed by {@link #shutdown()}
+     */
+    public IpIntelligenceService(IpProfileResolver resolver, ExecutorService executor, long cacheMillis,
+                                 long negativeCacheMillis, int maxProfiles, double refreshAhead,
+                                 long prefetchWaitMillis, IpProfileStore store) {
+        this.resolver = resolver;
+        this.executor = executor;
+        this.prefetchWaitMillis = Math.max(0, prefetchWaitMillis);
+        this.store = store;
+        this.inFlight = new ConcurrentHashMap<>();
+        this.profiles = new LookupCache<>(maxProfiles, cacheMillis, negativeCacheMillis, refreshAhead,
+            profile -> profile.getSource() == IpProfile.Source.NONE);
+        this.requests = new LongAdder();
+        this.cacheHits = new LongAdder();
+        this.coalesced = new LongAdder();
+        this.lookups = new LongAdder();
+    }
+
+    /**
+     * @return The profile of the address; completes immediately if it is cached. Text that is
+     *         not an IP address resolves to an empty profile.
+     */
+    public CompletableFuture<IpProfile> resolve(String address) {
+        requests.increment();
+        String key = IpAddresses.normalize(address);
+        if (key == null) {
+            return CompletableFuture.completedFuture(emptyProfile(address));
+        }
+        IpProfile cached = cachedProfile(key);
+        if (cached != null) {
+            cacheHits.increment();
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        CompletableFuture<IpProfile> created = new CompletableFuture<>();
+        CompletableFuture<IpProfile> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            coalesced.increment();
+            return existing;
+        }
+        start(key, created);
+        return created;
+    }
+
+    private void start(String key, CompletableFuture<IpProfile> created) {
+        try {
+            executor.execute(() -> lookup(key, created));
+        } catch (RejectedExecutionException e) {
+            // Shutting down: answer from the offline sources on the caller thread
+            inFlight.remove(key, created);
+            created.complete(resolver.resolveOffline(key));
+        }
+    }
+
+    private void lookup(String key, CompletableFuture<IpProfile> future) {
+        lookups.increment();
+        try {
+            long now = System.currentTimeMillis();
+            IpProfile profile = store != null ? store.get(key, now) : null;
+            SentinelStorage shared = sharedStorage;
+            if (profile == null && shared != null) {
+                // Another server may have paid for the HTTP lookup already
+                profile = loadShared(shared, key, now);
+                if (profile != null && store != null) {
+                    persist(profile, now);
+                }
+            }
+            if (profile == null) {
+                profile = resolver.resolve(key);
+                if (profile.getSource() == IpProfile.Source.HTTP) {
+                    if (store != null) {
+                        persist(profile, now);
+                    }
+                    if (shared != null) {
+                        shared.saveIpProfile(profile, now + sharedTtlMillis);
+                    }
+                }
+            }
+            profiles.put(key, profile, System.currentTimeMillis());
+            future.complete(profile);
+        } catch (Throwable t) {
+            future.completeExceptionally(t);
+        } finally {
+            // Removed only after the profile is cached, so a new request sees one or the other
+            inFlight.remove(key, future);
+        }
+    }
+
+    private IpProfile loadShared(SentinelStorage shared, String key, long now) {
+        try {
+            return shared.loadIpProfile(key, now);
+        } catch (IOException e) {
+            // Without the database the address is simply resolved again
+            return null;
+        }
+    }
+
+    /**
+     * Shares HTTP-resolved profiles with other servers through a database storage, on top of
+     * the local disk store.
+     * @param ttlMillis How long a shared profile is used
+     */
+    public void setSharedStorage(SentinelStorage storage, long ttlMillis) {
+        this.sharedTtlMillis = Math.max(0, ttlMillis);
+        this.sharedStorage = storage;
+    }
+
+    private void persist(IpProfile profile, long now) {
+        store.put(profile, now);
+        if (store.needsCompaction()) {
+            try {
+                executor.execute(() -> store.compact(System.currentTimeMillis()));
+            } catch (RejectedExecutionException e) {
+                // Shutting down; the next start compacts instead
+            }
+        }
+    }
+
+    /**
+     * For callers that cannot wait (the main thread): the cached profile, or else the offline
+     * answer computed right away while the full lookup continues in the background.
+     */
+    public IpProfile getProfileNow(String address) {
+        String key = IpAddresses.normalize(address);
+        if (key == null) {
+            return emptyProfile(address);
+        }
+        IpProfile cached = cachedProfile(key);
+        if (cached != null) {
+            requests.increment();
+            cacheHits.increment();
+            return cached;
+        }
+        CompletableFuture<IpProfile> future = resolve(key);
+        return future.isDone() && !future.isCompletedExceptionally() ? future.join() : resolver.resolveOffline(key);
+    }
+
+    /**
+     * @return The cached, unexpired profile of the address, or null
+     */
+    public IpProfile getCached(String address) {
+        String key = IpAddresses.normalize(address);
+        if (key == null) {
+            return null;
+        }
+        return profiles.peek(key, System.currentTimeMillis());
+    }
+
+    /**
+     * Cache read on the request path; a hit on a profile close to expiry starts its refresh,
+     * and the caller keeps the current profile meanwhile.
+     */
+    private IpProfile cachedProfile(String key) {
+        long now = System.currentTimeMillis();
+        IpProfile profile = profiles.get(key, now);
+        if (profile != null && profiles.needsRefresh(key, now)) {
+            CompletableFuture<IpProfile> refresh = new CompletableFuture<>();
+            if (inFlight.putIfAbsent(key, refresh) == null) {
+                start(key, refresh);
+            }
+        }
+        return profile;
+    }
+
+    private static IpProfile emptyProfile(String address) {
+        return new IpProfile(address, null, null, null, false, false, IpProfile.Source.NONE, System.currentTimeMillis());
+    }
+
+    /**
+     * Starts the lookup while the player is still logging in, and holds the login thread for
+     * up to {@code prefetch-wait-ms} so the profile is ready when the player joins.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED || event.getAddress() == null) {
+            return;
+        }
+        CompletableFuture<IpProfile> future = resolve(event.getAddress().getHostAddress());
+        if (prefetchWaitMillis > 0 && !future.isDone()) {
+            try {
+                future.get(prefetchWaitMillis, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // The lookup keeps running; detectors use the offline answer until it lands
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                // Lookup failures are already counted by the resolver
+            }
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+        for (CompletableFuture<IpProfile> future : inFlight.values()) {
+            future.cancel(false);
+        }
+        inFlight.clear();
+        if (store != null) {
+            store.close();
+        }
+    }
+
+    public IpProfileResolver getResolver() {
+        return resolver;
+    }
+
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    public long getCacheHitCount() {
+        return cacheHits.sum();
+    }
+
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    public long getLookupCount() {
+        return lookups.sum();
+    }
+
+    public int getCachedCount() {
+        return profiles.size();
+    }
+
+    public LookupCache<String, IpProfile> getCache() {
+        return profiles;
+    }
+
+    /**
+     * @return The disk store, or null if persistence is off
+     */
+    public IpProfileStore getStore() {
+        return store;
+    }
+
+    public String getStatusLine() {
+        return String.format("requests: %d, coalesced: %d, lookups: %d, http: %d (throttled: %d, failed: %d), cache: %s, disk: %s",
+            requests.sum(), coalesced.sum(), lookups.sum(), resolver.getHttpRequestCount(),
+            resolver.getHttpThrottledCount(), resolver.getHttpFailureCount(), profiles.getStatusLine(),
+            store != null ? store.getStatusLine() : "off");
+    }
+
+    private static final class LookupThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "Sentinel-IpLookup-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
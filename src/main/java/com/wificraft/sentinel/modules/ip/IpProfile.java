@@ -0,0 +1,95 @@
+package com.wificraft.sentinel.modules.ip;
+
+/**
+ * Everything Sentinel knows about one IP address, resolved once by {@link IpIntelligenceService}
+ * and shared by every detector that asks about the address.
+ */
+public final class IpProfile {
+
+    /**
+     * Where the location data came from.
+     */
+    public enum Source {
+        /** Offline GeoIP database */
+        OFFLINE,
+        /** HTTP fallback provider */
+        HTTP,
+        /** No location data; only the built-in range tables were checked */
+        NONE
+    }
+
+    private final String address;
+    private final GeoRecord geo;
+    private final String cloudProvider;
+    private final String dataCenter;
+    private final boolean hosting;
+    private final boolean proxy;
+    private final Source source;
+    private final long resolvedAt;
+
+    public IpProfile(String address, GeoRecord geo, String cloudProvider, String dataCenter,
+                     boolean hosting, boolean proxy, Source source, long resolvedAt) {
+        this.address = address;
+        this.geo = geo;
+        this.cloudProvider = cloudProvider;
+        this.dataCenter = dataCenter;
+        this.hosting = hosting;
+        this.proxy = proxy;
+        this.source = source;
+        this.resolvedAt = resolvedAt;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    /**
+     * @return Location and network owner, or null if neither the offline database nor the HTTP provider knew the address
+     */
+    public GeoRecord getGeo() {
+        return geo;
+    }
+
+    /**
+     * @return Cloud provider whose published range contains the address, or null
+     */
+    public String getCloudProvider() {
+        return cloudProvider;
+    }
+
+    /**
+     * @return Data center operator whose range contains the address, or null
+     */
+    public String getDataCenter() {
+        return dataCenter;
+    }
+
+    /**
+     * @return True if a provider reported the address as hosting (data center) space
+     */
+    public boolean isHosting() {
+        return hosting;
+    }
+
+    /**
+     * @return True if a provider reported the address as a proxy or VPN exit
+     */
+    public boolean isProxy() {
+        return proxy;
+    }
+
+    public Source getSource() {
+        return source;
+    }
+
+    public long getResolvedAt() {
+        return resolvedAt;
+    }
+
+    /**
+     * @return Network owner (ASN organization) if known, otherwise an empty string
+     */
+    public String getOrganization() {
+        return geo != null ? geo.getAsnOrganization() : "";
+    }
+}
@@ -0,0 +1,167 @@
+package com.wificraft.sentinel.modules.ip;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.wificraft.sentinel.modules.ratelimit.TokenBucketLimiter;
+import com.wificraft.sentinel.modules.security.IPUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Builds an {@link IpProfile} for one address: the shared cloud and data center range tables,
+ * the offline GeoIP database and, only when that has no answer, one rate-limited HTTP request.
+ *
+ * Blocking; {@link IpIntelligenceService} calls it from its own worker threads.
+ */
+public class IpProfileResolver {
+    private static final String HTTP_URL =
+        "http://ip-api.com/json/%s?fields=status,message,countryCode,country,city,timezone,lat,lon,as,org,hosting,proxy";
+    private static final int HTTP_TIMEOUT_MILLIS = 3000;
+    private static final String HTTP_KEY = "ip-api";
+
+    private final GeoIpService geoIpService;
+    private final boolean httpFallback;
+    private final TokenBucketLimiter<String> httpRate;
+    private final Logger logger;
+
+    private final LongAdder httpRequests;
+    private final LongAdder httpFailures;
+    private final LongAdder httpThrottled;
+
+    /**
+     * @param geoIpService Offline database, or null to skip it
+     * @param httpFallback Whether to ask the HTTP provider for addresses the offline database does not know
+     * @param httpRequestsPerMinute Sustained HTTP request rate; ip-api allows 45 per minute without a key
+     */
+    public IpProfileResolver(GeoIpService geoIpService, boolean httpFallback, int httpRequestsPerMinute, Logger logger) {
+        this.geoIpService = geoIpService;
+        this.httpFallback = httpFallback;
+        this.httpRate = new TokenBucketLimiter<>(60_000L / Math.max(1, httpRequestsPerMinute),
+            Math.max(1, httpRequestsPerMinute / 4), 1);
+        this.logger = logger;
+        this.httpRequests = new LongAdder();
+        this.httpFailures = new LongAdder();
+        this.httpThrottled = new LongAdder();
+    }
+
+    /**
+     * @param address Normalized address (see {@link IpAddresses#normalize(String)})
+     */
+    public IpProfile resolve(String address) {
+        IpProfile offline = resolveOffline(address);
+        if (offline.getGeo() != null || !httpFallback
+                || IPUtils.isPrivateIP(address) || IPUtils.isReservedIP(address)) {
+            return offline;
+        }
+        if (!httpRate.tryAcquire(HTTP_KEY, System.currentTimeMillis())) {
+            httpThrottled.increment();
+            return offline;
+        }
+        JsonObject json = fetch(address);
+        if (json == null) {
+            return offline;
+        }
+
+        String as = string(json, "as");
+        long asn = 0;
+        String asName = "";
+        if (as.startsWith("AS")) {
+            int space = as.indexOf(' ');
+            try {
+                asn = Long.parseLong(space < 0 ? as.substring(2) : as.substring(2, space));
+            } catch (NumberFormatException ignored) {
+                // Keep ASN 0, the name is still useful
+            }
+            asName = space < 0 ? "" : as.substring(space + 1);
+        }
+        String organization = string(json, "org");
+        GeoRecord geo = new GeoRecord(string(json, "countryCode"), string(json, "country"), string(json, "city"),
+            string(json, "timezone"), number(json, "lat"), number(json, "lon"), asn,
+            organization.isEmpty() ? asName : organization);
+        return new IpProfile(address, geo, offline.getCloudProvider(), offline.getDataCenter(),
+            bool(json, "hosting"), bool(json, "proxy"), IpProfile.Source.HTTP, System.currentTimeMillis());
+    }
+
+    /**
+     * Range tables and offline database only; returns in microseconds.
+     */
+    public IpProfile resolveOffline(String address) {
+        GeoRecord geo = geoIpService != null ? geoIpService.lookup(address) : null;
+        String cloudProvider = ProviderRanges.cloud().lookup(address);
+        String dataCenter = ProviderRanges.dataCenters().lookup(address);
+        return new IpProfile(address, geo, cloudProvider, dataCenter, false, false,
+            geo != null ? IpProfile.Source.OFFLINE : IpProfile.Source.NONE, System.currentTimeMillis());
+    }
+
+    private JsonObject fetch(String address) {
+        httpRequests.increment();
+        try {
+            HttpURLConnection connection = (HttpURLConnection) URI.create(String.format(HTTP_URL, address)).toURL().openConnection();
+            connection.setConnectTimeout(HTTP_TIMEOUT_MILLIS);
+            connection.setReadTimeout(HTTP_TIMEOUT_MILLIS);
+            try {
+                if (connection.getResponseCode() != 200) {
+                    httpFailures.increment();
+                    return null;
+                }
+                String body;
+                try (InputStream in = connection.getInputStream()) {
+                    body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+                }
+                JsonObject json = JsonParser.parseString(body).getAsJsonObject();
+                if (!"success".equalsIgnoreCase(string(json, "status"))) {
+                    httpFailures.increment();
+                    return null;
+                }
+                return json;
+            } finally {
+                connection.disconnect();
+            }
+        } catch (IOException | RuntimeException e) {
+            httpFailures.increment();
+            if (logger != null) {
+                logger.log(Level.FINE, "Zapytanie ip-api nie powiodło się dla " + address, e);
+            }
+            return null;
+        }
+    }
+
+    private static String string(JsonObject json, String key) {
+        JsonElement element = json.get(key);
+        return element == null || element.isJsonNull() ? "" : element.getAsString();
+    }
+
+    private static double number(JsonObject json, String key) {
+        JsonElement element = json.get(key);
+        return element == null || element.isJsonNull() ? 0.0 : element.getAsDouble();
+    }
+
+    private static boolean bool(JsonObject json, String key) {
+        JsonElement element = json.get(key);
+        return element != null && !element.isJsonNull() && element.getAsBoolean();
+    }
+
+    public boolean isHttpFallbackEnabled() {
+        return httpFallback;
+    }
+
+    public long getHttpRequestCount() {
+        return httpRequests.sum();
+    }
+
+    public long getHttpFailureCount() {
+        return httpFailures.sum();
+    }
+
+    public long getHttpThrottledCount() {
+        return httpThrottled.sum();
+    }
+}
@@ -0,0 +1,429 @@
+package com.wificraft.sentinel.modules.ip;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps HTTP-resolved {@link IpProfile}s on disk so a restart does not send every returning
+ * player's address to the rate-limited HTTP provider again. Offline profiles are not stored;
+ * the memory-mapped database answers them faster than a disk read would.
+ *
+ * The file is an append-only log; a newer record for an address replaces the older one. It
+ * is opened on the first lookup, not at startup: opening scans only the record headers into
+ * an index of address, offset and expiry, and profiles are decoded from disk when asked for.
+ * Once more than half of the file is overwritten or expired records, {@link #compact(long)}
+ * rewrites the live records into a new file and swaps it in; lookups meanwhile keep reading
+ * the old file. A record cut short by a crash is dropped when the file is opened.
+ *
+ * Layout, big-endian:
+ * <pre>
+ * header   magic "SPRF", int version
+ * record   int length, utf address, long resolvedAt, long expiresAt, byte flags (1 hosting, 2 proxy),
+ *          utf countryCode, utf country, utf city, utf timezone, double lat, double lon, long asn, utf asnOrganization
+ * </pre>
+ */
+public class IpProfileStore {
+    static final int MAGIC = 0x53505246;
+    static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int MAX_RECORD_SIZE = 64 * 1024;
+    private static final long MIN_COMPACT_BYTES = 256 * 1024;
+
+    private final Path path;
+    private final long ttlMillis;
+    private final Logger logger;
+
+    private volatile Generation generation;
+    private boolean failed;
+    private long deadBytes;
+
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder writes;
+    private final LongAdder compactions;
+
+    /**
+     * @param ttlMillis How long a stored profile is used
+     */
+    public IpProfileStore(Path path, long ttlMillis, Logger logger) {
+        this.path = path;
+        this.ttlMillis = Math.max(0, ttlMillis);
+        this.logger = logger;
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        this.writes = new LongAdder();
+        this.compactions = new LongAdder();
+    }
+
+    /**
+     * Reads the stored profile of a normalized address. The cloud provider and data center are
+     * looked up again in the current range tables, which may have changed since it was stored.
+     * @return The unexpired profile, or null
+     */
+    public IpProfile get(String address, long now) {
+        Generation current = open(now);
+        if (current == null) {
+            return null;
+        }
+        for (int attempt = 0; attempt < 2; attempt++) {
+            Entry entry = current.index.get(address);
+            if (entry == null || now >= entry.expiresAt) {
+                if (entry != null && current.index.remove(address, entry)) {
+                    markDead(entry.length);
+                }
+                misses.increment();
+                return null;
+            }
+            try {
+                IpProfile profile = read(current.channel, entry, address);
+                if (profile != null) {
+                    hits.increment();
+                    return profile;
+                }
+                misses.increment();
+                return null;
+            } catch (ClosedChannelException e) {
+                // Swapped by a compaction while reading; the new file has the same record
+                current = generation;
+                if (current == null) {
+                    break;
+                }
+            } catch (IOException e) {
+                log("Nie udało się odczytać profilu IP z " + path.getFileName(), e);
+                break;
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Appends the profile; it is returned by {@link #get(String, long)} for the store lifetime
+     * counted from {@code now}.
+     */
+    public synchronized void put(IpProfile profile, long now) {
+        Generation current = open(now);
+        if (current == null || profile.getGeo() == null) {
+            return;
+        }
+        try {
+            long expiresAt = now + ttlMillis;
+            byte[] record = encode(profile, expiresAt);
+            long offset = current.channel.size();
+            ByteBuffer buffer = ByteBuffer.allocate(4 + record.length);
+            buffer.putInt(record.length).put(record).flip();
+            while (buffer.hasRemaining()) {
+                current.channel.write(buffer, offset + buffer.position());
+            }
+            Entry previous = current.index.put(profile.getAddress(), new Entry(offset, 4 + record.length, expiresAt));
+            if (previous != null) {
+                deadBytes += previous.length;
+            }
+            writes.increment();
+        } catch (IOException e) {
+            log("Nie udało się zapisać profilu IP do " + path.getFileName(), e);
+        }
+    }
+
+    /**
+     * @return True once dead records take up more than half of a file worth compacting
+     */
+    public synchronized boolean needsCompaction() {
+        Generation current = generation;
+        if (current == null) {
+            return false;
+        }
+        try {
+            long size = current.channel.size();
+            return size >= MIN_COMPACT_BYTES && deadBytes * 2 > size;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Rewrites the unexpired records into a new file and swaps it in. Lookups keep reading the
+     * old file until the swap; appends wait for it.
+     */
+    public synchronized void compact(long now) {
+        Generation current = generation;
+        if (current == null) {
+            return;
+        }
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            Map<String, Entry> index = new ConcurrentHashMap<>();
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                writeHeader(out);
+                long offset = HEADER_SIZE;
+                for (Map.Entry<String, Entry> mapping : current.index.entrySet()) {
+                    Entry entry = mapping.getValue();
+                    if (now >= entry.expiresAt) {
+                        continue;
+                    }
+                    ByteBuffer buffer = ByteBuffer.allocate(entry.length);
+                    readFully(current.channel, buffer, entry.offset);
+                    buffer.flip();
+                    while (buffer.hasRemaining()) {
+                        out.write(buffer, offset + buffer.position());
+                    }
+                    index.put(mapping.getKey(), new Entry(offset, entry.length, entry.expiresAt));
+                    offset += entry.length;
+                }
+                out.force(false);
+            }
+            move(temp, path);
+            generation = new Generation(FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE), index);
+            deadBytes = 0;
+            compactions.increment();
+            current.channel.close();
+        } catch (IOException e) {
+            log("Nie udało się skompaktować pliku profili IP " + path.getFileName(), e);
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // Overwritten by the next compaction
+            }
+        }
+    }
+
+    public synchronized void close() {
+        Generation current = generation;
+        generation = null;
+        if (current != null) {
+            try {
+                if (current.channel.isOpen()) {
+                    current.channel.force(false);
+                }
+                current.channel.close();
+            } catch (IOException e) {
+                log("Nie udało się zamknąć pliku profili IP " + path.getFileName(), e);
+            }
+        }
+        // A later lookup reopens the file
+        failed = false;
+    }
+
+    private Generation open(long now) {
+        Generation current = generation;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (generation != null || failed) {
+                return generation;
+            }
+            try {
+                Path parent = path.getParent();
+                if (parent != null) {
+                    Files.createDirectories(parent);
+                }
+                FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+                Map<String, Entry> index = new ConcurrentHashMap<>();
+                if (channel.size() == 0) {
+                    writeHeader(channel);
+                } else {
+                    scan(channel, index, now);
+                }
+                generation = new Generation(channel, index);
+            } catch (IOException e) {
+                failed = true;
+                log("Nie udało się otworzyć pliku profili IP " + path.getFileName(), e);
+            }
+            return generation;
+        }
+    }
+
+    /**
+     * Builds the index from the record headers, skipping expired and replaced records, and cuts
+     * off a record left incomplete by a crash.
+     */
+    private void scan(FileChannel channel, Map<String, Entry> index, long now) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(channel, header, 0);
+        if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+            throw new IOException("Not an IP profile store: " + path);
+        }
+        long size = channel.size();
+        long offset = HEADER_SIZE;
+        ByteBuffer prefix = ByteBuffer.allocate(4 + 2 + 1024 + 16);
+        while (offset + 4 <= size) {
+            prefix.clear();
+            prefix.limit((int) Math.min(prefix.capacity(), size - offset));
+            readFully(channel, prefix, offset);
+            int length = prefix.getInt(0);
+            if (length <= 0 || length > MAX_RECORD_SIZE || offset + 4 + length > size) {
+                break;
+            }
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(prefix.array(), 4, prefix.limit() - 4));
+            String address = in.readUTF();
+            in.readLong();
+            long expiresAt = in.readLong();
+            Entry entry = new Entry(offset, 4 + length, expiresAt);
+            Entry previous = expiresAt > now ? index.put(address, entry) : index.remove(address);
+            if (previous != null) {
+                deadBytes += previous.length;
+            }
+            if (expiresAt <= now) {
+                deadBytes += entry.length;
+            }
+            offset += 4 + length;
+        }
+        if (offset < size) {
+            channel.truncate(offset);
+        }
+    }
+
+    private IpProfile read(FileChannel channel, Entry entry, String address) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(entry.length);
+        readFully(channel, buffer, entry.offset);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(buffer.array(), 4, entry.length - 4));
+        if (!address.equals(in.readUTF())) {
+            return null;
+        }
+        long resolvedAt = in.readLong();
+        in.readLong();
+        int flags = in.readByte();
+        GeoRecord geo = new GeoRecord(in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF(),
+            in.readDouble(), in.readDouble(), in.readLong(), in.readUTF());
+        return new IpProfile(address, geo, ProviderRanges.cloud().lookup(address),
+            ProviderRanges.dataCenters().lookup(address), (flags & 1) != 0, (flags & 2) != 0,
+            IpProfile.Source.HTTP, resolvedAt);
+    }
+
+    private static byte[] encode(IpProfile profile, long expiresAt) throws IOException {
+        GeoRecord geo = profile.getGeo();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeUTF(profile.getAddress());
+        out.writeLong(profile.getResolvedAt());
+        out.writeLong(expiresAt);
+        out.writeByte((profile.isHosting() ? 1 : 0) | (profile.isProxy() ? 2 : 0));
+        out.writeUTF(geo.getCountryCode());
+        out.writeUTF(geo.getCountry());
+        out.writeUTF(geo.getCity());
+        out.writeUTF(geo.getTimezone());
+        out.writeDouble(geo.getLatitude());
+        out.writeDouble(geo.getLongitude());
+        out.writeLong(geo.getAsn());
+        out.writeUTF(geo.getAsnOrganization());
+        return bytes.toByteArray();
+    }
+
+    private static void writeHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).flip();
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long offset) throws IOException {
+        int start = buffer.position();
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position() - start) < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private synchronized void markDead(int length) {
+        deadBytes += length;
+    }
+
+    private void log(String message, Exception e) {
+        if (logger != null) {
+            logger.log(Level.WARNING, message, e);
+        }
+    }
+
+    /**
+     * @return Profiles currently indexed, 0 before the file is opened
+     */
+    public int size() {
+        Generation current = generation;
+        return current == null ? 0 : current.index.size();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getWriteCount() {
+        return writes.sum();
+    }
+
+    public long getCompactionCount() {
+        return compactions.sum();
+    }
+
+    public String getStatusLine() {
+        Generation current = generation;
+        if (current == null) {
+            return String.format("%s not opened yet", path.getFileName());
+        }
+        long bytes;
+        try {
+            bytes = current.channel.size();
+        } catch (IOException e) {
+            bytes = -1;
+        }
+        return String.format("stored: %d (%d KB), hits: %d, misses: %d, writes: %d, compactions: %d",
+            current.index.size(), bytes / 1024, hits.sum(), misses.sum(), writes.sum(), compactions.sum());
+    }
+
+    /**
+     * An open file and the index of its records; replaced as a whole by a compaction.
+     */
+    private static final class Generation {
+        final FileChannel channel;
+        final Map<String, Entry> index;
+
+        Generation(FileChannel channel, Map<String, Entry> index) {
+            this.channel = channel;
+            this.index = index;
+        }
+    }
+
+    private static final class Entry {
+        final long offset;
+        final int length;
+        final long expiresAt;
+
+        Entry(long offset, int length, long expiresAt) {
+            this.offset = offset;
+            this.length = length;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
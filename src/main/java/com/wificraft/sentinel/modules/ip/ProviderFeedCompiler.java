@@ -0,0 +1,212 @@
+package com.wificraft.sentinel.modules.ip;
+
+import com.google.gson.Strictness;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compiles provider range feeds from a folder into {@link CidrIndex} tables.
+ *
+ * The folder has a {@code cloud} and a {@code datacenter} subfolder. Every file in them is a
+ * feed named after its provider ({@code cloud/AWS.json}, {@code datacenter/Hetzner.txt}):
+ * <ul>
+ *   <li>{@code .json}: any published range document. The file is streamed and every string
+ *       value that is a CIDR range is taken, which covers the AWS {@code ip-ranges.json}, the
+ *       Google Cloud {@code cloud.json}, the Azure service tags and the Oracle Cloud lists
+ *       without a parser per format.</li>
+ *   <li>anything else: one range per line, optionally followed by a provider name that
+ *       overrides the file name, separated by a comma or whitespace; {@code #} starts a comment.
+ *       ASN prefix dumps fit this form.</li>
+ * </ul>
+ * The built-in ranges of {@link ProviderRanges} are added first, so a feed can refine them.
+ * Adjacent ranges of one provider are merged into one interval.
+ */
+public final class ProviderFeedCompiler {
+    public static final String CLOUD_FOLDER = "cloud";
+    public static final String DATA_CENTER_FOLDER = "datacenter";
+
+    private ProviderFeedCompiler() {
+    }
+
+    /**
+     * @throws IOException If a feed cannot be read; nothing is returned, so callers keep their current tables
+     */
+    public static Result compile(Path folder) throws IOException {
+        Result result = new Result();
+        CidrIndex.Builder<String> cloud = ProviderRanges.addCloudDefaults(CidrIndex.builder());
+        CidrIndex.Builder<String> dataCenters = ProviderRanges.addDataCenterDefaults(CidrIndex.builder());
+        for (Path feed : feeds(folder.resolve(CLOUD_FOLDER))) {
+            read(feed, cloud, result);
+        }
+        for (Path feed : feeds(folder.resolve(DATA_CENTER_FOLDER))) {
+            read(feed, dataCenters, result);
+        }
+        result.cloud = cloud.build();
+        result.dataCenters = dataCenters.build();
+        return result;
+    }
+
+    /**
+     * @return The feed files of a subfolder in name order, empty if it does not exist
+     */
+    static List<Path> feeds(Path folder) throws IOException {
+        List<Path> files = new ArrayList<>();
+        if (!Files.isDirectory(folder)) {
+            return files;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder)) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                if (Files.isRegularFile(file) && !name.startsWith(".")) {
+                    files.add(file);
+                }
+            }
+        }
+        files.sort(null);
+        return files;
+    }
+
+    private static void read(Path feed, CidrIndex.Builder<String> builder, Result result) throws IOException {
+        String name = feed.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String provider = dot > 0 ? name.substring(0, dot) : name;
+        boolean json = dot > 0 && name.substring(dot + 1).equalsIgnoreCase("json");
+        try (BufferedReader reader = Files.newBufferedReader(feed, StandardCharsets.UTF_8)) {
+            if (json) {
+                readJson(new JsonReader(reader), provider, builder, result);
+            } else {
+                readText(reader, provider, builder, result);
+            }
+        } catch (IllegalStateException | NumberFormatException e) {
+            // Thrown by the JSON reader on malformed documents
+            throw new IOException("Malformed feed " + name + ": " + e.getMessage(), e);
+        }
+        result.feeds++;
+    }
+
+    private static void readJson(JsonReader json, String provider, CidrIndex.Builder<String> builder,
+                                 Result result) throws IOException {
+        json.setStrictness(Strictness.LENIENT);
+        int depth = 0;
+        do {
+            JsonToken token = json.peek();
+            switch (token) {
+                case BEGIN_OBJECT:
+                    json.beginObject();
+                    depth++;
+                    break;
+                case END_OBJECT:
+                    json.endObject();
+                    depth--;
+                    break;
+                case BEGIN_ARRAY:
+                    json.beginArray();
+                    depth++;
+                    break;
+                case END_ARRAY:
+                    json.endArray();
+                    depth--;
+                    break;
+                case NAME:
+                    json.nextName();
+                    break;
+                case STRING:
+                    String value = json.nextString();
+                    if (looksLikeCidr(value)) {
+                        add(builder, value, provider, result);
+                    }
+                    break;
+                case END_DOCUMENT:
+                    return;
+                default:
+                    json.skipValue();
+                    break;
+            }
+        } while (depth > 0);
+    }
+
+    private static void readText(BufferedReader reader, String provider, CidrIndex.Builder<String> builder,
+                                 Result result) throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            int comment = line.indexOf('#');
+            String text = (comment >= 0 ? line.substring(0, comment) : line).trim();
+            if (text.isEmpty()) {
+                continue;
+            }
+            int split = 0;
+            while (split < text.length() && text.charAt(split) != ',' && !Character.isWhitespace(text.charAt(split))) {
+                split++;
+            }
+            String owner = split < text.length() ? text.substring(split + 1).trim() : "";
+            add(builder, text.substring(0, split), owner.isEmpty() ? provider : owner, result);
+        }
+    }
+
+    private static void add(CidrIndex.Builder<String> builder, String cidr, String provider, Result result) {
+        try {
+            // Interned so every range of a provider shares one name instance
+            builder.add(cidr, provider.intern());
+            result.ranges++;
+        } catch (IllegalArgumentException e) {
+            result.invalid++;
+        }
+    }
+
+    private static boolean looksLikeCidr(String value) {
+        int length = value.length();
+        if (length < 9 || length > 49) {
+            return false;
+        }
+        int slash = value.indexOf('/');
+        if (slash < 2 || slash > length - 2) {
+            return false;
+        }
+        for (int i = slash + 1; i < length; i++) {
+            if (value.charAt(i) < '0' || value.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return value.indexOf('.') > 0 || value.indexOf(':') > 0;
+    }
+
+    public static final class Result {
+        private CidrIndex<String> cloud;
+        private CidrIndex<String> dataCenters;
+        private int feeds;
+        private int ranges;
+        private int invalid;
+
+        public CidrIndex<String> getCloud() {
+            return cloud;
+        }
+
+        public CidrIndex<String> getDataCenters() {
+            return dataCenters;
+        }
+
+        public int getFeeds() {
+            return feeds;
+        }
+
+        /**
+         * @return Ranges read from the feeds, not counting the built-in ones
+         */
+        public int getRanges() {
+            return ranges;
+        }
+
+        public int getInvalid() {
+            return invalid;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.wificraft.sentinel.modules.ip;
+
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+
+/**
+ * Keeps {@link ProviderRanges} in line with the range feeds in the plugin data folder.
+ *
+ * An async task checks the feed folder (see {@link ProviderFeedCompiler} for the layout) and,
+ * when a file was added, removed or changed, compiles all feeds on that task and installs the
+ * result. Lookups keep using the previous tables until then, so a refresh of tens of
+ * thousands of ranges never runs on the main thread. A feed that fails to compile leaves the
+ * previous tables in place.
+ */
+public class ProviderFeedService {
+    private final JavaPlugin plugin;
+    private final File folder;
+    private final long checkIntervalTicks;
+
+    private long loadedSignature;
+    private BukkitTask refreshTask;
+    private volatile String lastResult;
+
+    private final LongAdder swaps;
+
+    public ProviderFeedService(JavaPlugin plugin) {
+        this.plugin = plugin;
+        FileConfiguration config = plugin.getConfig();
+        this.folder = new File(plugin.getDataFolder(), config.getString("provider-feeds.directory", "ranges"));
+        this.checkIntervalTicks = Math.max(1, config.getLong("provider-feeds.check-interval-seconds", 300)) * 20L;
+        this.swaps = new LongAdder();
+        this.lastResult = "built-in ranges only";
+    }
+
+    /**
+     * Creates the feed folders and compiles the feeds on an async task right away, then
+     * keeps checking them.
+     */
+    public void start() {
+        new File(folder, ProviderFeedCompiler.CLOUD_FOLDER).mkdirs();
+        new File(folder, ProviderFeedCompiler.DATA_CENTER_FOLDER).mkdirs();
+        if (refreshTask == null) {
+            refreshTask = plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, this::refresh,
+                0L, checkIntervalTicks);
+        }
+    }
+
+    public void shutdown() {
+        if (refreshTask != null) {
+            refreshTask.cancel();
+            refreshTask = null;
+        }
+    }
+
+    /**
+     * Compiles and installs the feeds if any of them changed since the last successful compile.
+     */
+    public synchronized void refresh() {
+        Path root = folder.toPath();
+        long signature;
+        try {
+            signature = signature(root);
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Nie udało się odczytać folderu zakresów " + folder.getName(), e);
+            return;
+        }
+        if (signature == loadedSignature) {
+            return;
+        }
+        long started = System.nanoTime();
+        try {
+            ProviderFeedCompiler.Result result = ProviderFeedCompiler.compile(root);
+            ProviderRanges.install(result.getCloud(), result.getDataCenters());
+            loadedSignature = signature;
+            swaps.increment();
+            lastResult = String.format("feeds: %d, ranges: %d (invalid: %d), intervals: %d cloud / %d data center",
+                result.getFeeds(), result.getRanges(), result.getInvalid(),
+                result.getCloud().getIntervalCount(), result.getDataCenters().getIntervalCount());
+            if (result.getFeeds() > 0) {
+                plugin.getLogger().info(String.format("Załadowano zakresy dostawców: %d plików, %d zakresów w %d ms",
+                    result.getFeeds(), result.getRanges(), (System.nanoTime() - started) / 1_000_000));
+            }
+        } catch (IOException e) {
+            // Remember the broken state so it is not recompiled every check
+            loadedSignature = signature;
+            plugin.getLogger().log(Level.WARNING, "Nie udało się skompilować zakresów dostawców", e);
+        }
+    }
+
+    /**
+     * Hash of the name, size and modification time of every feed file.
+     */
+    private static long signature(Path root) throws IOException {
+        long signature = 1;
+        for (String subfolder : new String[] {ProviderFeedCompiler.CLOUD_FOLDER, ProviderFeedCompiler.DATA_CENTER_FOLDER}) {
+            for (Path feed : ProviderFeedCompiler.feeds(root.resolve(subfolder))) {
+                signature = signature * 31 + feed.toString().hashCode();
+                signature = signature * 31 + Files.size(feed);
+                signature = signature * 31 + Files.getLastModifiedTime(feed).toMillis();
+            }
+        }
+        return signature;
+    }
+
+    public String getStatusLine() {
+        return String.format("%s, reloads: %d", lastResult, swaps.sum());
+    }
+}
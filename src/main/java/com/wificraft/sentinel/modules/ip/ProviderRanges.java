@@ -0,0 +1,78 @@
+package com.wificraft.sentinel.modules.ip;
+
+/**
+ * Cloud provider and data center ranges, shared by every IP detector.
+ *
+ * The built-in defaults are compiled once into {@link CidrIndex} instances keyed by provider
+ * name. {@link ProviderFeedService} compiles range feeds from the data folder on a background
+ * thread and {@link #install(CidrIndex, CidrIndex)} swaps them in with one volatile write, so
+ * lookups never wait for a rebuild. Builders
+ * that want the defaults start from {@link #addCloudDefaults(CidrIndex.Builder)} /
+ * {@link #addDataCenterDefaults(CidrIndex.Builder)} so the lists are not duplicated.
+ */
+public final class ProviderRanges {
+    private static final String[][] CLOUD = {
+        {"AWS", "52.0.0.0/8", "54.0.0.0/8", "34.0.0.0/8"},
+        {"Google Cloud", "35.191.0.0/16", "104.154.0.0/15"},
+        {"Azure", "13.64.0.0/14", "13.68.0.0/14"}
+    };
+    private static final String[][] DATA_CENTERS = {
+        {"Equinix", "184.106.0.0/16", "184.107.0.0/16"},
+        {"Digital Realty", "184.105.0.0/16"},
+        {"OVH", "149.202.0.0/16", "185.10.0.0/16"}
+    };
+
+    private static volatile Tables tables = new Tables(addCloudDefaults(CidrIndex.<String>builder()).build(),
+        addDataCenterDefaults(CidrIndex.<String>builder()).build());
+
+    private ProviderRanges() {
+    }
+
+    public static CidrIndex.Builder<String> addCloudDefaults(CidrIndex.Builder<String> builder) {
+        return addAll(builder, CLOUD);
+    }
+
+    public static CidrIndex.Builder<String> addDataCenterDefaults(CidrIndex.Builder<String> builder) {
+        return addAll(builder, DATA_CENTERS);
+    }
+
+    /**
+     * @return Provider name for each cloud range currently installed
+     */
+    public static CidrIndex<String> cloud() {
+        return tables.cloud;
+    }
+
+    /**
+     * @return Operator name for each data center range currently installed
+     */
+    public static CidrIndex<String> dataCenters() {
+        return tables.dataCenters;
+    }
+
+    /**
+     * Replaces both indexes at once; lookups already running finish on the previous ones.
+     */
+    public static void install(CidrIndex<String> cloud, CidrIndex<String> dataCenters) {
+        tables = new Tables(cloud, dataCenters);
+    }
+
+    private static CidrIndex.Builder<String> addAll(CidrIndex.Builder<String> builder, String[][] table) {
+        for (String[] row : table) {
+            for (int i = 1; i < row.length; i++) {
+                builder.add(row[i], row[0]);
+            }
+        }
+        return builder;
+    }
+
+    private static final class Tables {
+        final CidrIndex<String> cloud;
+        final CidrIndex<String> dataCenters;
+
+        Tables(CidrIndex<String> cloud, CidrIndex<String> dataCenters) {
+            this.cloud = cloud;
+            this.dataCenters = dataCenters;
+        }
+    }
+}
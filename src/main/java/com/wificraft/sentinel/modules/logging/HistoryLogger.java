@@ -1,6 +1,9 @@
 package com.wificraft.sentinel.modules.logging;
 
+import com.wificraft.sentinel.modules.chat.ChatPatternMatcher;
 import com.wificraft.sentinel.modules.config.NotificationConfig;
+import com.wificraft.sentinel.modules.ratelimit.HierarchicalCounter;
+import com.wificraft.sentinel.modules.ratelimit.HierarchicalCounter.Period;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.configuration.file.YamlConfiguration;
@@ -27,23 +30,26 @@ public class HistoryLogger {
     private final File logFile;
     private final SimpleDateFormat dateFormat;
     private final SimpleDateFormat timeFormat;
-    private final Map<String, Integer> activityCounters;
+    // Sliding minute/hour/day counts per activity; thresholds apply to the last hour
+    private final HierarchicalCounter<String> activityCounters;
     private final NotificationConfig config;
+    private final ChatPatternMatcher patternMatcher;
+    // Recent occurrences per matched pattern
     private final Map<String, List<String>> suspiciousPatterns;
     private final int logRetentionDays;
     private final File dataFolder;
     
-    public HistoryLogger(File dataFolder, NotificationConfig config, int logRetentionDays) {
+    public HistoryLogger(File dataFolder, NotificationConfig config, ChatPatternMatcher patternMatcher, int logRetentionDays) {
         this.dataFolder = dataFolder;
         this.config = config;
+        this.patternMatcher = patternMatcher;
         this.logRetentionDays = logRetentionDays;
         this.logFile = new File(dataFolder, "sentinel.log");
         this.dateFormat = new SimpleDateFormat("yyyy-MM-dd");
         this.timeFormat = new SimpleDateFormat("HH:mm:ss");
-        this.activityCounters = new ConcurrentHashMap<>();
+        this.activityCounters = new HierarchicalCounter<>(64);
         this.suspiciousPatterns = new ConcurrentHashMap<>();
         
-        loadSuspiciousPatterns();
         setupFileLogging();
         
         // Start periodic logging task
@@ -67,13 +73,6 @@ public class HistoryLogger {
         }.runTaskTimerAsynchronously(Bukkit.getPluginManager().getPlugins()[0], 20L * 60L * 60L * 24L, 20L * 60L * 60L * 24L); // Every 24 hours
     }
     
-    private void loadSuspiciousPatterns() {
-        String[] patterns = config.getSuspiciousPatterns();
-        for (String pattern : patterns) {
-            suspiciousPatterns.put(pattern, new ArrayList<>());
-        }
-    }
-    
     private void setupFileLogging() {
         try {
             if (!logFile.exists()) {
@@ -163,15 +162,16 @@ public class HistoryLogger {
     }
     
     private void incrementCounter(String activity) {
-        activityCounters.merge(activity, 1, Integer::sum);
+        long now = System.currentTimeMillis();
+        activityCounters.increment(activity, now);
         
-        // Check threshold and send notification if exceeded
-        int count = activityCounters.get(activity);
+        // Alert once when the hourly count reaches the threshold; it re-arms as the window slides
+        int count = activityCounters.count(activity, Period.HOUR, now);
         int threshold = config.getActivityThreshold(activity);
         
-        if (count >= threshold) {
+        if (count == threshold) {
             String alertMessage = String.format(
-                "Threshold exceeded for %s: %d/%d",
+                "Threshold exceeded for %s: %d/%d in the last hour",
                 activity, count, threshold
             );
             logger.log(Level.WARNING, alertMessage);
@@ -181,42 +181,44 @@ public class HistoryLogger {
                 DiscordAlertSystem alertSystem = new DiscordAlertSystem(plugin);
                 alertSystem.sendAlert("Threshold Alert", alertMessage, SeverityLevel.WARNING);
             }
-            activityCounters.put(activity, 0); // Reset counter
         }
     }
     
     private void checkSuspiciousPatterns(Player player, String message) {
-        for (Map.Entry<String, List<String>> entry : suspiciousPatterns.entrySet()) {
-            String pattern = entry.getKey();
-            if (message.toLowerCase().contains(pattern.toLowerCase())) {
-                entry.getValue().add(message);
-                
-                // Check if pattern count exceeds threshold
-                int count = entry.getValue().size();
-                int threshold = config.getSuspiciousThreshold(pattern);
+        // Cheap single pass first; the matched patterns are only collected on a hit
+        if (message.isEmpty() || !patternMatcher.containsAny(message, ChatPatternMatcher.NOTIFICATION)) {
+            return;
+        }
+        
+        for (String pattern : patternMatcher.findAll(message, ChatPatternMatcher.NOTIFICATION)) {
+            List<String> occurrences = suspiciousPatterns.computeIfAbsent(pattern, k -> new ArrayList<>());
+            occurrences.add(message);
+            
+            // Check if pattern count exceeds threshold
+            int count = occurrences.size();
+            int threshold = config.getSuspiciousThreshold(pattern);
+            
+            if (count >= threshold) {
+                String alertMessage = String.format(
+                    "Suspicious pattern detected: %s\n" +
+                    "Pattern: %s\n" +
+                    "Occurrences: %d/%d\n" +
+                    "Last occurrences: %s",
+                    player.getName(),
+                    pattern,
+                    count,
+                    threshold,
+                    String.join("\n", occurrences)
+                );
                 
-                if (count >= threshold) {
-                    String alertMessage = String.format(
-                        "Suspicious pattern detected: %s\n" +
-                        "Pattern: %s\n" +
-                        "Occurrences: %d/%d\n" +
-                        "Last occurrences: %s",
-                        player.getName(),
-                        pattern,
-                        count,
-                        threshold,
-                        String.join("\n", entry.getValue())
-                    );
-                    
-                    logger.log(Level.SEVERE, alertMessage);
-                    // Get plugin instance and send alert
-                    WiFiCraftSentinel plugin = (WiFiCraftSentinel) Bukkit.getPluginManager().getPlugin("Sentinel");
-                    if (plugin != null) {
-                        DiscordAlertSystem alertSystem = new DiscordAlertSystem(plugin);
-                        alertSystem.sendAlert("Suspicious Pattern Detected", alertMessage, SeverityLevel.HIGH);
-                    }
-                    entry.getValue().clear(); // Reset pattern counter
+                logger.log(Level.SEVERE, alertMessage);
+                // Get plugin instance and send alert
+                WiFiCraftSentinel plugin = (WiFiCraftSentinel) Bukkit.getPluginManager().getPlugin("Sentinel");
+                if (plugin != null) {
+                    DiscordAlertSystem alertSystem = new DiscordAlertSystem(plugin);
+                    alertSystem.sendAlert("Suspicious Pattern Detected", alertMessage, SeverityLevel.HIGH);
                 }
+                occurrences.clear(); // Reset pattern counter
             }
         }
     }
@@ -226,8 +228,12 @@ public class HistoryLogger {
         stats.append("Date: ").append(dateFormat.format(new Date())).append(" ");
         stats.append("Time: ").append(timeFormat.format(new Date())).append("\n");
         
-        for (Map.Entry<String, Integer> entry : activityCounters.entrySet()) {
-            stats.append(entry.getKey()).append(": ").append(entry.getValue()).append("\n");
+        long now = System.currentTimeMillis();
+        for (String activity : activityCounters.getKeys()) {
+            stats.append(activity).append(": ")
+                .append(activityCounters.count(activity, Period.MINUTE, now)).append("/min, ")
+                .append(activityCounters.count(activity, Period.HOUR, now)).append("/h, ")
+                .append(activityCounters.count(activity, Period.DAY, now)).append("/day\n");
         }
         
         logger.log(Level.INFO, stats.toString());
@@ -264,8 +270,11 @@ public class HistoryLogger {
         }
     }
 
+    /**
+     * @return Occurrences of the activity during the last hour
+     */
     public int getActivityCount(String activity) {
-        return activityCounters.getOrDefault(activity, 0);
+        return activityCounters.count(activity, Period.HOUR, System.currentTimeMillis());
     }
 
     public void applyFilter(Player player, String option, String value) {
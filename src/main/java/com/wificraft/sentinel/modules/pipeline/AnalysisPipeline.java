@@ -0,0 +1,332 @@
+package com.wificraft.sentinel.modules.pipeline;
+
+import com.lmax.disruptor.BlockingWaitStrategy;
+import com.lmax.disruptor.BusySpinWaitStrategy;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.ExceptionHandler;
+import com.lmax.disruptor.InsufficientCapacityException;
+import com.lmax.disruptor.LiteBlockingWaitStrategy;
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.SleepingWaitStrategy;
+import com.lmax.disruptor.WaitStrategy;
+import com.lmax.disruptor.YieldingWaitStrategy;
+import com.lmax.disruptor.dsl.Disruptor;
+import com.lmax.disruptor.dsl.ProducerType;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+/**
+ * Capture-and-dispatch pipeline that moves behavior analysis off the server thread.
+ *
+ * Event listeners only copy a few primitives into a pre-allocated Disruptor ring.
+ * Consumer threads run the analysis, partitioned by player so that each player's
+ * captures are always handled by the same thread in publish order. Anything that
+ * needs the Bukkit API (alerts, reports, teleports) is posted back with
+ * {@link #postToMain(Runnable)} and executed on the server thread in batches.
+ */
+public class AnalysisPipeline {
+    private final JavaPlugin plugin;
+    private final int ringSize;
+    private final int consumerCount;
+    private final boolean dropOnFull;
+    private final int mainThreadBatchSize;
+    private final String waitStrategyName;
+
+    private final AtomicLong published;
+    private final AtomicLong consumed;
+    private final AtomicLong dropped;
+    private final AtomicLong failed;
+    private final Queue<Runnable> mainThreadQueue;
+
+    private Disruptor<CaptureEvent> disruptor;
+    private RingBuffer<CaptureEvent> ringBuffer;
+    private BukkitTask drainTask;
+
+    public AnalysisPipeline(JavaPlugin plugin) {
+        this.plugin = plugin;
+        FileConfiguration config = plugin.getConfig();
+
+        // Disruptor requires a power-of-two ring
+        int requested = Math.max(64, config.getInt("analysis-pipeline.ring-size", 8192));
+        this.ringSize = Integer.bitCount(requested) == 1 ? requested : Integer.highestOneBit(requested) << 1;
+        this.consumerCount = Math.max(1, config.getInt("analysis-pipeline.consumers", 2));
+        this.dropOnFull = config.getBoolean("analysis-pipeline.drop-on-full", true);
+        this.mainThreadBatchSize = Math.max(1, config.getInt("analysis-pipeline.main-thread-batch-size", 100));
+        this.waitStrategyName = config.getString("analysis-pipeline.wait-strategy", "sleeping");
+
+        this.published = new AtomicLong();
+        this.consumed = new AtomicLong();
+        this.dropped = new AtomicLong();
+        this.failed = new AtomicLong();
+        this.mainThreadQueue = new ConcurrentLinkedQueue<>();
+    }
+
+    public void start() {
+        if (disruptor != null) {
+            return;
+        }
+
+        disruptor = new Disruptor<>(CaptureEvent.FACTORY, ringSize, new AnalysisThreadFactory(),
+            ProducerType.MULTI, createWaitStrategy(waitStrategyName));
+
+        EventHandler<CaptureEvent>[] handlers = newHandlerArray(consumerCount);
+        for (int i = 0; i < consumerCount; i++) {
+            handlers[i] = new PartitionHandler(i, consumerCount);
+        }
+        disruptor.handleEventsWith(handlers);
+        disruptor.setDefaultExceptionHandler(new LoggingExceptionHandler());
+        ringBuffer = disruptor.start();
+
+        // Drain results posted by the consumers once per tick
+        drainTask = plugin.getServer().getScheduler().runTaskTimer(plugin, this::drainMainThreadQueue, 1L, 1L);
+
+        plugin.getLogger().info(String.format("Analysis pipeline started (ring: %d, consumers: %d, wait: %s, drop-on-full: %s)",
+            ringSize, consumerCount, waitStrategyName, dropOnFull));
+    }
+
+    /**
+     * Stops the consumers after the ring has drained and runs any pending main-thread work.
+     * Must be called from the server thread.
+     */
+    public void shutdown() {
+        if (disruptor == null) {
+            return;
+        }
+
+        try {
+            disruptor.shutdown(5, TimeUnit.SECONDS);
+        } catch (com.lmax.disruptor.TimeoutException e) {
+            plugin.getLogger().warning("Analysis pipeline did not drain in time, halting consumers");
+            disruptor.halt();
+        }
+        if (drainTask != null) {
+            drainTask.cancel();
+            drainTask = null;
+        }
+
+        Runnable task;
+        while ((task = mainThreadQueue.poll()) != null) {
+            runSafely(task);
+        }
+
+        disruptor = null;
+        ringBuffer = null;
+    }
+
+    public boolean isRunning() {
+        return ringBuffer != null;
+    }
+
+    public boolean publishMove(CaptureHandler target, UUID playerId, String worldName,
+                               double fromX, double fromY, double fromZ,
+                               double toX, double toY, double toZ) {
+        return publishMove(target, playerId, worldName, System.currentTimeMillis(), fromX, fromY, fromZ, toX, toY, toZ);
+    }
+
+    /**
+     * Publishes a move captured at {@code timestamp}, e.g. one merged from several raw events.
+     */
+    public boolean publishMove(CaptureHandler target, UUID playerId, String worldName, long timestamp,
+                               double fromX, double fromY, double fromZ,
+                               double toX, double toY, double toZ) {
+        return publish(target, CaptureEvent.TYPE_MOVE, playerId, worldName, timestamp, fromX, fromY, fromZ, toX, toY, toZ, null);
+    }
+
+    public boolean publishBlock(CaptureHandler target, UUID playerId, byte type, String worldName, int x, int y, int z) {
+        return publish(target, type, playerId, worldName, System.currentTimeMillis(), x, y, z, x, y, z, null);
+    }
+
+    public boolean publishChat(CaptureHandler target, UUID playerId, String message) {
+        return publish(target, CaptureEvent.TYPE_CHAT, playerId, null, System.currentTimeMillis(), 0, 0, 0, 0, 0, 0, message);
+    }
+
+    /**
+     * Published on quit so that per-player state is released after any captures still in flight.
+     */
+    public boolean publishQuit(CaptureHandler target, UUID playerId) {
+        return publish(target, CaptureEvent.TYPE_QUIT, playerId, null, System.currentTimeMillis(), 0, 0, 0, 0, 0, 0, null);
+    }
+
+    /**
+     * Claims a slot, copies the capture in and publishes it.
+     * @return false if the ring was full and the capture was dropped
+     */
+    private boolean publish(CaptureHandler target, byte type, UUID playerId, String worldName, long timestamp,
+                            double fromX, double fromY, double fromZ,
+                            double toX, double toY, double toZ, String message) {
+        RingBuffer<CaptureEvent> ring = ringBuffer;
+        if (ring == null) {
+            dropped.incrementAndGet();
+            return false;
+        }
+
+        long sequence;
+        if (dropOnFull) {
+            try {
+                sequence = ring.tryNext();
+            } catch (InsufficientCapacityException e) {
+                dropped.incrementAndGet();
+                return false;
+            }
+        } else {
+            // Back-pressure: the publishing thread waits for a free slot
+            sequence = ring.next();
+        }
+
+        try {
+            ring.get(sequence).set(target, type, playerId, timestamp, worldName,
+                fromX, fromY, fromZ, toX, toY, toZ, message);
+        } finally {
+            ring.publish(sequence);
+        }
+        published.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Queues work for the server thread. Tasks run in submission order, at most
+     * {@code main-thread-batch-size} per tick.
+     */
+    public void postToMain(Runnable task) {
+        mainThreadQueue.offer(task);
+    }
+
+    private void drainMainThreadQueue() {
+        for (int i = 0; i < mainThreadBatchSize; i++) {
+            Runnable task = mainThreadQueue.poll();
+            if (task == null) {
+                return;
+            }
+            runSafely(task);
+        }
+    }
+
+    private void runSafely(Runnable task) {
+        try {
+            task.run();
+        } catch (Exception e) {
+            plugin.getLogger().log(Level.WARNING, "Error running analysis result on main thread", e);
+        }
+    }
+
+    public long getPublishedCount() {
+        return published.get();
+    }
+
+    public long getConsumedCount() {
+        return consumed.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    public int getPendingMainThreadTasks() {
+        return mainThreadQueue.size();
+    }
+
+    /**
+     * @return Number of captures published but not yet consumed by every partition
+     */
+    public long getBacklog() {
+        RingBuffer<CaptureEvent> ring = ringBuffer;
+        return ring == null ? 0 : ring.getBufferSize() - ring.remainingCapacity();
+    }
+
+    public String getStatusLine() {
+        return String.format("published: %d, consumed: %d, dropped: %d, failed: %d, backlog: %d/%d, main queue: %d",
+            getPublishedCount(), getConsumedCount(), getDroppedCount(), getFailedCount(),
+            getBacklog(), ringSize, getPendingMainThreadTasks());
+    }
+
+    private static WaitStrategy createWaitStrategy(String name) {
+        switch (name == null ? "" : name.toLowerCase()) {
+            case "blocking": return new BlockingWaitStrategy();
+            case "lite-blocking": return new LiteBlockingWaitStrategy();
+            case "yielding": return new YieldingWaitStrategy();
+            case "busy-spin": return new BusySpinWaitStrategy();
+            case "sleeping":
+            default: return new SleepingWaitStrategy();
+        }
+    }
+
+    /**
+     * Consumer for one partition of the player space. Every partition sees every
+     * slot but only handles the players that hash to it.
+     */
+    // Arrays of a generic type can only be created raw
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static EventHandler<CaptureEvent>[] newHandlerArray(int length) {
+        return new EventHandler[length];
+    }
+
+    private final class PartitionHandler implements EventHandler<CaptureEvent> {
+        private final int partition;
+        private final int partitions;
+
+        PartitionHandler(int partition, int partitions) {
+            this.partition = partition;
+            this.partitions = partitions;
+        }
+
+        @Override
+        public void onEvent(CaptureEvent event, long sequence, boolean endOfBatch) {
+            if (event.partitionHash() % partitions != partition) {
+                return;
+            }
+            try {
+                event.getTarget().onCapture(event);
+            } catch (Exception e) {
+                failed.incrementAndGet();
+                plugin.getLogger().log(Level.WARNING, "Error analysing capture for " + event.getPlayerId(), e);
+            } finally {
+                // Only this partition reads the slot, so it can let go of what the slot holds
+                event.clear();
+                consumed.incrementAndGet();
+            }
+        }
+    }
+
+    private final class LoggingExceptionHandler implements ExceptionHandler<CaptureEvent> {
+        @Override
+        public void handleEventException(Throwable ex, long sequence, CaptureEvent event) {
+            failed.incrementAndGet();
+            plugin.getLogger().log(Level.WARNING, "Analysis pipeline error at sequence " + sequence, ex);
+        }
+
+        @Override
+        public void handleOnStartException(Throwable ex) {
+            plugin.getLogger().log(Level.SEVERE, "Analysis pipeline failed to start", ex);
+        }
+
+        @Override
+        public void handleOnShutdownException(Throwable ex) {
+            plugin.getLogger().log(Level.WARNING, "Analysis pipeline failed to shut down cleanly", ex);
+        }
+    }
+
+    private static final class AnalysisThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "Sentinel-Analysis-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
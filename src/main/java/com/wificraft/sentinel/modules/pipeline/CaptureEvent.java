@@ -0,0 +1,83 @@
+package com.wificraft.sentinel.modules.pipeline;
+
+import com.lmax.disruptor.EventFactory;
+
+import java.util.UUID;
+
+/**
+ * Pre-allocated ring slot holding the primitives copied out of a Bukkit event.
+ * Slots are reused, so handlers must not keep a reference past {@code onCapture}.
+ */
+public class CaptureEvent {
+    public static final EventFactory<CaptureEvent> FACTORY = CaptureEvent::new;
+
+    public static final byte TYPE_MOVE = 1;
+    public static final byte TYPE_BLOCK_BREAK = 2;
+    public static final byte TYPE_BLOCK_PLACE = 3;
+    public static final byte TYPE_CHAT = 4;
+    public static final byte TYPE_QUIT = 5;
+
+    private byte type;
+    private long playerMost;
+    private long playerLeast;
+    private long timestamp;
+    private String worldName;
+    private double fromX;
+    private double fromY;
+    private double fromZ;
+    private double toX;
+    private double toY;
+    private double toZ;
+    private String message;
+    private CaptureHandler target;
+
+    void set(CaptureHandler target, byte type, UUID playerId, long timestamp, String worldName,
+             double fromX, double fromY, double fromZ, double toX, double toY, double toZ, String message) {
+        this.target = target;
+        this.type = type;
+        this.playerMost = playerId.getMostSignificantBits();
+        this.playerLeast = playerId.getLeastSignificantBits();
+        this.timestamp = timestamp;
+        this.worldName = worldName;
+        this.fromX = fromX;
+        this.fromY = fromY;
+        this.fromZ = fromZ;
+        this.toX = toX;
+        this.toY = toY;
+        this.toZ = toZ;
+        this.message = message;
+    }
+
+    /**
+     * Drops the references held by the slot once its event was handled, so a ring full of
+     * handled slots does not keep chat messages or handlers alive.
+     */
+    void clear() {
+        this.target = null;
+        this.worldName = null;
+        this.message = null;
+    }
+
+    CaptureHandler getTarget() {
+        return target;
+    }
+
+    int partitionHash() {
+        return Long.hashCode(playerMost ^ playerLeast) & Integer.MAX_VALUE;
+    }
+
+    public byte getType() { return type; }
+    public long getTimestamp() { return timestamp; }
+    public String getWorldName() { return worldName; }
+    public double getFromX() { return fromX; }
+    public double getFromY() { return fromY; }
+    public double getFromZ() { return fromZ; }
+    public double getToX() { return toX; }
+    public double getToY() { return toY; }
+    public double getToZ() { return toZ; }
+    public String getMessage() { return message; }
+
+    public UUID getPlayerId() {
+        return new UUID(playerMost, playerLeast);
+    }
+}
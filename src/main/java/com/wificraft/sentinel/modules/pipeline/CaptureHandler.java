@@ -0,0 +1,10 @@
+package com.wificraft.sentinel.modules.pipeline;
+
+/**
+ * Analysis stage fed by the {@link AnalysisPipeline}. Called on a pipeline consumer
+ * thread; all captures for a given player are delivered to the same thread, in order.
+ * Anything that touches the Bukkit API must go through {@link AnalysisPipeline#postToMain(Runnable)}.
+ */
+public interface CaptureHandler {
+    void onCapture(CaptureEvent event);
+}
@@ -0,0 +1,282 @@
+package com.wificraft.sentinel.modules.pipeline;
+
+import org.bukkit.Location;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerTeleportEvent;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+
+/**
+ * Single {@link PlayerMoveEvent} listener shared by every movement consumer.
+ *
+ * Moves that only rotate the head or travel less than {@code move-ingestion.min-distance}
+ * from the last accepted position are dropped. The remaining moves of a player are merged
+ * until the end of the tick into one sample (first origin, last destination, last timestamp),
+ * which is then handed once to every subscriber, through the analysis pipeline when
+ * one is running or inline otherwise.
+ *
+ * All state is touched on the server thread only.
+ */
+public class MoveIngestionStage implements Listener {
+    private final JavaPlugin plugin;
+    private final AnalysisPipeline pipeline;
+    private final double minDistanceSquared;
+    private final boolean coalesce;
+    private final List<CaptureHandler> subscribers;
+    private final FanOutHandler fanOut;
+    private final Map<UUID, PendingMove> moves;
+    // Reused for inline delivery when there is no pipeline
+    private final CaptureEvent inlineEvent;
+
+    private BukkitTask flushTask;
+
+    private long rawCount;
+    private long filteredCount;
+    private long mergedCount;
+    private long emittedCount;
+    private long rateWindowStart;
+    private long rateWindowCollapsed;
+    private double collapsedPerSecond;
+    private double peakCollapsedPerSecond;
+
+    /**
+     * @param pipeline Pipeline to deliver samples on, or null to deliver inline on the server thread
+     */
+    public MoveIngestionStage(JavaPlugin plugin, AnalysisPipeline pipeline) {
+        this.plugin = plugin;
+        this.pipeline = pipeline;
+        double minDistance = Math.max(0, plugin.getConfig().getDouble("move-ingestion.min-distance", 0.01));
+        this.minDistanceSquared = minDistance * minDistance;
+        this.coalesce = plugin.getConfig().getBoolean("move-ingestion.coalesce-per-tick", true);
+        this.subscribers = new CopyOnWriteArrayList<>();
+        this.fanOut = new FanOutHandler();
+        this.moves = new HashMap<>();
+        this.inlineEvent = new CaptureEvent();
+    }
+
+    /**
+     * Registers a consumer for merged moves. It receives {@link CaptureEvent#TYPE_MOVE}
+     * captures through {@link CaptureHandler#onCapture(CaptureEvent)}.
+     */
+    public void subscribe(CaptureHandler handler) {
+        subscribers.add(handler);
+    }
+
+    public void start() {
+        if (flushTask != null) {
+            return;
+        }
+        rateWindowStart = System.currentTimeMillis();
+        flushTask = plugin.getServer().getScheduler().runTaskTimer(plugin, this::flushAll, 1L, 1L);
+    }
+
+    /**
+     * Delivers any moves still pending and stops the per-tick flush.
+     * Must be called before the pipeline is shut down.
+     */
+    public void shutdown() {
+        if (flushTask != null) {
+            flushTask.cancel();
+            flushTask = null;
+        }
+        flushAll();
+        moves.clear();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerMove(PlayerMoveEvent event) {
+        Location from = event.getFrom();
+        Location to = event.getTo();
+        if (to == null || to.getWorld() == null) {
+            return;
+        }
+        rawCount++;
+
+        UUID playerId = event.getPlayer().getUniqueId();
+        String worldName = to.getWorld().getName();
+        PendingMove move = moves.get(playerId);
+        if (move == null) {
+            move = new PendingMove(playerId, worldName, from.getX(), from.getY(), from.getZ());
+            moves.put(playerId, move);
+        }
+
+        // A world change ends the current sample so positions are never mixed across worlds
+        if (!move.worldName.equals(worldName)) {
+            flush(move);
+            move.reset(worldName, from.getX(), from.getY(), from.getZ());
+        }
+
+        // Measured against the last accepted position so slow drifts still add up
+        double dx = to.getX() - move.lastX;
+        double dy = to.getY() - move.lastY;
+        double dz = to.getZ() - move.lastZ;
+        if (dx * dx + dy * dy + dz * dz < minDistanceSquared) {
+            filteredCount++;
+            return;
+        }
+
+        if (move.pending) {
+            mergedCount++;
+        } else {
+            move.pending = true;
+            move.fromX = move.lastX;
+            move.fromY = move.lastY;
+            move.fromZ = move.lastZ;
+        }
+        move.lastX = to.getX();
+        move.lastY = to.getY();
+        move.lastZ = to.getZ();
+        move.timestamp = System.currentTimeMillis();
+
+        if (!coalesce) {
+            flush(move);
+        }
+    }
+
+    // Lowest priority so the pending move reaches subscribers before their own quit handling
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        PendingMove move = moves.remove(event.getPlayer().getUniqueId());
+        if (move != null) {
+            flush(move);
+        }
+    }
+
+    // A teleport is not a move: deliver what came before it and restart from the destination
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerTeleport(PlayerTeleportEvent event) {
+        PendingMove move = moves.get(event.getPlayer().getUniqueId());
+        Location to = event.getTo();
+        if (move == null || to == null || to.getWorld() == null) {
+            return;
+        }
+        flush(move);
+        move.reset(to.getWorld().getName(), to.getX(), to.getY(), to.getZ());
+    }
+
+    private void flushAll() {
+        for (PendingMove move : moves.values()) {
+            flush(move);
+        }
+        updateRate();
+    }
+
+    private void flush(PendingMove move) {
+        if (!move.pending) {
+            return;
+        }
+        move.pending = false;
+        emittedCount++;
+
+        if (pipeline != null && pipeline.isRunning()) {
+            pipeline.publishMove(fanOut, move.playerId, move.worldName, move.timestamp,
+                move.fromX, move.fromY, move.fromZ, move.lastX, move.lastY, move.lastZ);
+        } else {
+            inlineEvent.set(fanOut, CaptureEvent.TYPE_MOVE, move.playerId, move.timestamp, move.worldName,
+                move.fromX, move.fromY, move.fromZ, move.lastX, move.lastY, move.lastZ, null);
+            fanOut.onCapture(inlineEvent);
+        }
+    }
+
+    private void updateRate() {
+        long now = System.currentTimeMillis();
+        long elapsed = now - rateWindowStart;
+        if (elapsed < 1000) {
+            return;
+        }
+        long collapsed = rawCount - emittedCount;
+        collapsedPerSecond = (collapsed - rateWindowCollapsed) * 1000.0 / elapsed;
+        peakCollapsedPerSecond = Math.max(peakCollapsedPerSecond, collapsedPerSecond);
+        rateWindowCollapsed = collapsed;
+        rateWindowStart = now;
+    }
+
+    public long getRawCount() {
+        return rawCount;
+    }
+
+    /**
+     * @return Moves dropped for being look-only or shorter than the minimum distance
+     */
+    public long getFilteredCount() {
+        return filteredCount;
+    }
+
+    /**
+     * @return Moves folded into a sample that was already pending in the same tick
+     */
+    public long getMergedCount() {
+        return mergedCount;
+    }
+
+    public long getEmittedCount() {
+        return emittedCount;
+    }
+
+    /**
+     * @return Raw events that did not become a sample of their own during the last second
+     */
+    public double getCollapsedPerSecond() {
+        return collapsedPerSecond;
+    }
+
+    public double getPeakCollapsedPerSecond() {
+        return peakCollapsedPerSecond;
+    }
+
+    public String getStatusLine() {
+        return String.format("raw: %d, filtered: %d, merged: %d, emitted: %d, collapsed/s: %.1f (peak %.1f), subscribers: %d",
+            rawCount, filteredCount, mergedCount, emittedCount, collapsedPerSecond, peakCollapsedPerSecond,
+            subscribers.size());
+    }
+
+    /**
+     * Hands one sample to every subscriber. Runs on the consumer thread that owns the player,
+     * so each subscriber still sees that player's moves in order.
+     */
+    private final class FanOutHandler implements CaptureHandler {
+        @Override
+        public void onCapture(CaptureEvent event) {
+            for (CaptureHandler subscriber : subscribers) {
+                try {
+                    subscriber.onCapture(event);
+                } catch (Exception e) {
+                    plugin.getLogger().log(Level.WARNING, "Error in move subscriber " + subscriber.getClass().getName(), e);
+                }
+            }
+        }
+    }
+
+    private static final class PendingMove {
+        final UUID playerId;
+        String worldName;
+        boolean pending;
+        long timestamp;
+        double fromX, fromY, fromZ;
+        double lastX, lastY, lastZ;
+
+        PendingMove(UUID playerId, String worldName, double x, double y, double z) {
+            this.playerId = playerId;
+            reset(worldName, x, y, z);
+        }
+
+        void reset(String worldName, double x, double y, double z) {
+            this.worldName = worldName;
+            this.pending = false;
+            this.lastX = x;
+            this.lastY = y;
+            this.lastZ = z;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.wificraft.sentinel.modules.ratelimit;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Per-key event counts over the last minute, hour and day at once.
+ *
+ * Each key owns one {@link AtomicLongArray} holding three slot rings (12 x 5 s, 12 x 5 min
+ * and 24 x 1 h), so recording an event is three compare-and-sets and the counts slide
+ * continuously instead of being cleared by a timer. Keys idle for a day are evicted.
+ */
+public class HierarchicalCounter<K> {
+    public enum Period {
+        MINUTE(5_000L, 12, 0),
+        HOUR(300_000L, 12, 12),
+        DAY(3_600_000L, 24, 24);
+
+        private final long slotMillis;
+        private final int slots;
+        private final int offset;
+
+        Period(long slotMillis, int slots, int offset) {
+            this.slotMillis = slotMillis;
+            this.slots = slots;
+            this.offset = offset;
+        }
+
+        public long getLengthMillis() {
+            return slotMillis * slots;
+        }
+    }
+
+    private static final int TOTAL_SLOTS = 48;
+    private static final Period[] PERIODS = Period.values();
+
+    private final KeyedStore<K, AtomicLongArray> store;
+
+    /**
+     * @param maxKeys Keys kept before the least recently used are evicted
+     */
+    public HierarchicalCounter(int maxKeys) {
+        this.store = new KeyedStore<>(() -> new AtomicLongArray(TOTAL_SLOTS), maxKeys, Period.DAY.getLengthMillis());
+    }
+
+    public void increment(K key, long now) {
+        AtomicLongArray slots = store.get(key, now);
+        for (Period period : PERIODS) {
+            SlotRing.add(slots, period.offset, period.slots, SlotRing.epoch(now, period.slotMillis), 1);
+        }
+    }
+
+    /**
+     * @return Events for the key during the period ending at {@code now}, 0 for unknown keys
+     */
+    public int count(K key, Period period, long now) {
+        AtomicLongArray slots = store.peek(key);
+        if (slots == null) {
+            return 0;
+        }
+        long sum = SlotRing.sum(slots, period.offset, period.slots, SlotRing.epoch(now, period.slotMillis));
+        return (int) Math.min(Integer.MAX_VALUE, sum);
+    }
+
+    /**
+     * @return Live view of the tracked keys
+     */
+    public Set<K> getKeys() {
+        return store.keys();
+    }
+
+    public void remove(K key) {
+        store.remove(key);
+    }
+
+    public void clear() {
+        store.clear();
+    }
+
+    public int size() {
+        return store.size();
+    }
+
+    public int evictIdle(long now) {
+        return store.evictIdle(now);
+    }
+}
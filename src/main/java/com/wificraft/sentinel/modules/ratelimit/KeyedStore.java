@@ -0,0 +1,135 @@
+package com.wificraft.sentinel.modules.ratelimit;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Bounded map from key to limiter state, shared by every limiter in this package.
+ *
+ * Looking up an existing key is a plain concurrent map read plus a volatile write of the
+ * access time. Keys idle for longer than {@code idleMillis} are swept at most once per idle
+ * period by whichever caller notices first; when the map is over {@code maxKeys} the least
+ * recently used of a small sample is evicted, so memory stays bounded without a global lock.
+ */
+final class KeyedStore<K, S> {
+    private static final int EVICTION_SAMPLE = 16;
+
+    private final Map<K, Entry<S>> entries;
+    private final Supplier<S> factory;
+    private final int maxKeys;
+    private final long idleMillis;
+    private final AtomicLong lastSweep;
+    private final AtomicLong evicted;
+
+    KeyedStore(Supplier<S> factory, int maxKeys, long idleMillis) {
+        this.entries = new ConcurrentHashMap<>();
+        this.factory = factory;
+        this.maxKeys = Math.max(1, maxKeys);
+        this.idleMillis = Math.max(1, idleMillis);
+        this.lastSweep = new AtomicLong();
+        this.evicted = new AtomicLong();
+    }
+
+    /**
+     * @return State for the key, created if missing
+     */
+    S get(K key, long now) {
+        Entry<S> entry = entries.get(key);
+        if (entry == null) {
+            entry = entries.computeIfAbsent(key, k -> new Entry<>(factory.get(), now));
+            maintain(now);
+        }
+        if (entry.lastAccess != now) {
+            entry.lastAccess = now;
+        }
+        return entry.state;
+    }
+
+    /**
+     * @return State for the key, or null without creating it
+     */
+    S peek(K key) {
+        Entry<S> entry = entries.get(key);
+        return entry != null ? entry.state : null;
+    }
+
+    void remove(K key) {
+        entries.remove(key);
+    }
+
+    void clear() {
+        entries.clear();
+    }
+
+    Set<K> keys() {
+        return Collections.unmodifiableSet(entries.keySet());
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    long getEvictedCount() {
+        return evicted.get();
+    }
+
+    /**
+     * Removes every key not touched since {@code now - idleMillis}.
+     * @return Keys removed
+     */
+    int evictIdle(long now) {
+        long cutoff = now - idleMillis;
+        int removed = 0;
+        for (Iterator<Entry<S>> it = entries.values().iterator(); it.hasNext(); ) {
+            if (it.next().lastAccess < cutoff) {
+                it.remove();
+                removed++;
+            }
+        }
+        evicted.addAndGet(removed);
+        return removed;
+    }
+
+    private void maintain(long now) {
+        long last = lastSweep.get();
+        if (now - last >= idleMillis && lastSweep.compareAndSet(last, now)) {
+            evictIdle(now);
+        }
+        while (entries.size() > maxKeys) {
+            evictOldestSampled();
+        }
+    }
+
+    private void evictOldestSampled() {
+        K oldestKey = null;
+        long oldestAccess = Long.MAX_VALUE;
+        int sampled = 0;
+        for (Map.Entry<K, Entry<S>> candidate : entries.entrySet()) {
+            if (candidate.getValue().lastAccess < oldestAccess) {
+                oldestAccess = candidate.getValue().lastAccess;
+                oldestKey = candidate.getKey();
+            }
+            if (++sampled >= EVICTION_SAMPLE) {
+                break;
+            }
+        }
+        if (oldestKey != null && entries.remove(oldestKey) != null) {
+            evicted.incrementAndGet();
+        }
+    }
+
+    private static final class Entry<S> {
+        final S state;
+        volatile long lastAccess;
+
+        Entry(S state, long lastAccess) {
+            this.state = state;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
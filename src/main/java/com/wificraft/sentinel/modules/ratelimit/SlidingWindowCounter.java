@@ -0,0 +1,79 @@
+package com.wificraft.sentinel.modules.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Per-key event count over a sliding time window.
+ *
+ * The window is split into {@code slots} equal slots held in one {@link AtomicLongArray}
+ * per key, so recording an event is a single compare-and-set and counting is a scan of
+ * the slots; neither locks nor allocates. Counts are exact to one slot.
+ *
+ * Replaces hand-rolled "count + last time + manual reset" maps.
+ */
+public class SlidingWindowCounter<K> {
+    private final long slotMillis;
+    private final int slots;
+    private final KeyedStore<K, AtomicLongArray> store;
+
+    /**
+     * @param windowMillis Length of the window
+     * @param slots Number of slots the window is split into
+     * @param maxKeys Keys kept before the least recently used are evicted
+     */
+    public SlidingWindowCounter(long windowMillis, int slots, int maxKeys) {
+        this.slots = Math.max(1, slots);
+        this.slotMillis = Math.max(1, (windowMillis + this.slots - 1) / this.slots);
+        // A key idle for a whole window counts zero, so dropping it loses nothing
+        this.store = new KeyedStore<>(() -> new AtomicLongArray(this.slots), maxKeys, this.slotMillis * this.slots);
+    }
+
+    /**
+     * Records one event.
+     * @return Events in the window, including this one
+     */
+    public int increment(K key, long now) {
+        return add(key, now, 1);
+    }
+
+    /**
+     * Records {@code amount} events.
+     * @return Events in the window, including these
+     */
+    public int add(K key, long now, int amount) {
+        AtomicLongArray ring = store.get(key, now);
+        long epoch = SlotRing.epoch(now, slotMillis);
+        SlotRing.add(ring, 0, slots, epoch, amount);
+        return (int) Math.min(Integer.MAX_VALUE, SlotRing.sum(ring, 0, slots, epoch));
+    }
+
+    /**
+     * @return Events in the window ending at {@code now}, 0 for unknown keys
+     */
+    public int count(K key, long now) {
+        AtomicLongArray ring = store.peek(key);
+        if (ring == null) {
+            return 0;
+        }
+        return (int) Math.min(Integer.MAX_VALUE, SlotRing.sum(ring, 0, slots, SlotRing.epoch(now, slotMillis)));
+    }
+
+    public void remove(K key) {
+        store.remove(key);
+    }
+
+    public void clear() {
+        store.clear();
+    }
+
+    public int size() {
+        return store.size();
+    }
+
+    /**
+     * Drops keys with no events in the window. Also done automatically as keys are added.
+     */
+    public int evictIdle(long now) {
+        return store.evictIdle(now);
+    }
+}
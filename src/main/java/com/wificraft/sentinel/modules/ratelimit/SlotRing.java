@@ -0,0 +1,62 @@
+package com.wificraft.sentinel.modules.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free ring of time slots stored in a range of an {@link AtomicLongArray}.
+ *
+ * Each slot packs the slot epoch ({@code time / slotMillis}, truncated to 32 bits) in the
+ * high half and the event count in the low half, so a slot is claimed for a new epoch and
+ * counted with a single compare-and-set. A window is the sum of the slots whose epoch lies
+ * within the last {@code slots} epochs, which is exact to one slot.
+ */
+final class SlotRing {
+    private SlotRing() {
+    }
+
+    static long epoch(long now, long slotMillis) {
+        return Math.floorDiv(now, slotMillis);
+    }
+
+    /**
+     * Adds {@code amount} events at {@code epoch} to the ring at {@code offset}.
+     */
+    static void add(AtomicLongArray slots, int offset, int length, long epoch, int amount) {
+        int index = offset + (int) Math.floorMod(epoch, (long) length);
+        int stamp = (int) epoch;
+        while (true) {
+            long packed = slots.get(index);
+            int slotStamp = (int) (packed >>> 32);
+            long count = packed & 0xFFFFFFFFL;
+            long updated;
+            if (slotStamp == stamp) {
+                updated = packed + Math.min(amount, 0xFFFFFFFFL - count);
+            } else if (stamp - slotStamp > 0) {
+                // Slot belongs to an older epoch: reuse it
+                updated = ((long) stamp << 32) | (amount & 0xFFFFFFFFL);
+            } else {
+                // Event older than the slot's epoch (clock went back): count it in the newer slot
+                updated = packed + Math.min(amount, 0xFFFFFFFFL - count);
+            }
+            if (slots.compareAndSet(index, packed, updated)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return Events in the {@code length} epochs ending at {@code epoch}
+     */
+    static long sum(AtomicLongArray slots, int offset, int length, long epoch) {
+        int stamp = (int) epoch;
+        long total = 0;
+        for (int i = 0; i < length; i++) {
+            long packed = slots.get(offset + i);
+            int age = stamp - (int) (packed >>> 32);
+            if (packed != 0 && age >= 0 && age < length) {
+                total += packed & 0xFFFFFFFFL;
+            }
+        }
+        return total;
+    }
+}
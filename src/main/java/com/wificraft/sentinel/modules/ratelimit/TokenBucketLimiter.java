@@ -0,0 +1,71 @@
+package com.wificraft.sentinel.modules.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-key token bucket, implemented as the generic cell rate algorithm.
+ *
+ * The whole bucket is one "theoretical arrival time" per key: an event conforms when it
+ * arrives no more than {@code (burst - 1) * interval} ahead of it, and each conforming event
+ * pushes it forward by {@code interval}. That is one compare-and-set per call, and a key
+ * whose arrival time has passed has a full bucket, so idle keys are evicted without loss.
+ */
+public class TokenBucketLimiter<K> {
+    private final long interval;
+    private final long tolerance;
+    private final KeyedStore<K, AtomicLong> store;
+
+    /**
+     * @param interval Sustained time per token, in milliseconds
+     * @param burst Tokens available back to back when the bucket is full
+     * @param maxKeys Keys kept before the least recently used are evicted
+     */
+    public TokenBucketLimiter(long interval, int burst, int maxKeys) {
+        this.interval = Math.max(1, interval);
+        this.tolerance = this.interval * (Math.max(1, burst) - 1);
+        this.store = new KeyedStore<>(AtomicLong::new, maxKeys, this.interval + this.tolerance);
+    }
+
+    /**
+     * Takes one token if available.
+     * @return False if the bucket is empty; nothing is taken in that case
+     */
+    public boolean tryAcquire(K key, long now) {
+        AtomicLong tat = store.get(key, now);
+        while (true) {
+            long current = tat.get();
+            long base = Math.max(current, now);
+            if (base - now > tolerance) {
+                return false;
+            }
+            if (tat.compareAndSet(current, base + interval)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @return Tokens that could be taken right now
+     */
+    public int available(K key, long now) {
+        AtomicLong tat = store.peek(key);
+        long ahead = tat == null ? 0 : Math.max(0, tat.get() - now);
+        return (int) ((tolerance + interval - ahead) / interval);
+    }
+
+    public void remove(K key) {
+        store.remove(key);
+    }
+
+    public void clear() {
+        store.clear();
+    }
+
+    public int size() {
+        return store.size();
+    }
+
+    public int evictIdle(long now) {
+        return store.evictIdle(now);
+    }
+}
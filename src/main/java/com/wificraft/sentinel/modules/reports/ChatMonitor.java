@@ -1,116 +1,74 @@
 package com.wificraft.sentinel.modules.reports;
 
-import org.bukkit.Bukkit;
-import org.bukkit.ChatColor;
+import com.wificraft.sentinel.modules.chat.ChatVerdictEngine;
+import com.wificraft.sentinel.modules.reports.evidence.ChatEvidence;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.AsyncPlayerChatEvent;
 import org.bukkit.event.player.PlayerChatTabCompleteEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitTask;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.UUID;
-
+/**
+ * Chat listener that turns {@link ChatVerdictEngine} verdicts into reports.
+ *
+ * Messages are judged on the async chat thread, which never touches {@link ReportManager}.
+ * Confirmed verdicts are queued by the engine and handed to the report coalescer once per
+ * tick on the main thread, with the message as a sample.
+ */
 public class ChatMonitor implements Listener {
+    private final JavaPlugin plugin;
     private final ReportManager reportManager;
-    private final Map<UUID, Long> lastMessageTimes;
-    private final Map<UUID, Integer> messageCount;
-    private final Map<UUID, Long> lastCapsTimes;
-    private final Map<UUID, Integer> capsCount;
+    private final ChatVerdictEngine verdictEngine;
+    private final int reportThreshold;
+    private BukkitTask drainTask;
     
-    public ChatMonitor(ReportManager reportManager) {
+    public ChatMonitor(JavaPlugin plugin, ReportManager reportManager, ChatVerdictEngine verdictEngine) {
+        this.plugin = plugin;
         this.reportManager = reportManager;
-        this.lastMessageTimes = new HashMap<>();
-        this.messageCount = new HashMap<>();
-        this.lastCapsTimes = new HashMap<>();
-        this.capsCount = new HashMap<>();
+        this.verdictEngine = verdictEngine;
+        this.reportThreshold = plugin.getConfig().getInt("chat-verdicts.report-threshold", 1);
     }
 
-    @EventHandler
-    public void onPlayerChat(AsyncPlayerChatEvent event) {
-        Player player = event.getPlayer();
-        UUID playerId = player.getUniqueId();
-        
-        // Track message frequency
-        trackMessageFrequency(playerId);
-        
-        // Check for excessive caps
-        checkForCaps(event, player);
-        
-        // Check for banned words
-        checkForBannedWords(event, player);
-        
-        // Check for spam
-        checkForSpam(event, player);
+    public void start() {
+        if (drainTask == null) {
+            drainTask = plugin.getServer().getScheduler().runTaskTimer(plugin, this::drainVerdicts, 1L, 1L);
+        }
     }
 
-    private void trackMessageFrequency(UUID playerId) {
-        long currentTime = System.currentTimeMillis();
-        long lastTime = lastMessageTimes.getOrDefault(playerId, 0L);
-        int count = messageCount.getOrDefault(playerId, 0);
-        
-        if (currentTime - lastTime < 2000) { // Less than 2 seconds between messages
-            messageCount.put(playerId, count + 1);
-            if (count >= 5) { // More than 5 messages in quick succession
-                reportManager.createReport(null, playerId, "Potential spam detected");
-            }
-        } else {
-            messageCount.put(playerId, 1);
+    /**
+     * Stops the per-tick drain and reports whatever is still queued. Call from the main thread.
+     */
+    public void shutdown() {
+        if (drainTask != null) {
+            drainTask.cancel();
+            drainTask = null;
         }
-        lastMessageTimes.put(playerId, currentTime);
+        drainVerdicts();
     }
 
-    private void checkForCaps(AsyncPlayerChatEvent event, Player player) {
-        String message = event.getMessage();
-        int capsCharCount = (int) message.chars()
-                .filter(Character::isUpperCase)
-                .count();
-        
-        double capsRatio = (double) capsCharCount / message.length();
-        
-        if (capsRatio > 0.7) { // More than 70% of message is caps
-            long currentTime = System.currentTimeMillis();
-            long lastTime = lastCapsTimes.getOrDefault(player.getUniqueId(), 0L);
-            int count = this.capsCount.getOrDefault(player.getUniqueId(), 0);
-            
-            if (currentTime - lastTime < 60000) { // Less than 1 minute between caps
-                this.capsCount.put(player.getUniqueId(), count + 1);
-                if (count >= 3) { // More than 3 all-caps messages in a minute
-                    reportManager.createReport(null, player.getUniqueId(), "Excessive use of all-caps");
-                }
-            } else {
-                this.capsCount.put(player.getUniqueId(), 1);
-            }
-            lastCapsTimes.put(player.getUniqueId(), currentTime);
-        }
+    // Verdicts are already held back by the engine's cooldown, so they use a threshold of their own
+    private void drainVerdicts() {
+        verdictEngine.drain(verdict ->
+            reportManager.reportAutomated(verdict.getPlayerId(), verdict.getReason(),
+                new ChatEvidence(null, verdict.getMessage(), "global", null), reportThreshold));
     }
 
-    private void checkForBannedWords(AsyncPlayerChatEvent event, Player player) {
-        String message = event.getMessage().toLowerCase();
-        String[] bannedWords = {
-            "hack", "cheat", "exploit", "bug", "admin", "mod", "staff",
-            "pay", "buy", "sell", "trade", "ip", "server", "cracked"
-        };
-        
-        for (String word : bannedWords) {
-            if (message.contains(word)) {
-                reportManager.createReport(null, player.getUniqueId(), 
-                    "Suspicious chat containing potential rule violation");
-                break;
-            }
-        }
+    @EventHandler
+    public void onPlayerChat(AsyncPlayerChatEvent event) {
+        Player player = event.getPlayer();
+        verdictEngine.evaluate(player.getUniqueId(), System.currentTimeMillis(), event.getMessage());
     }
 
-    private void checkForSpam(AsyncPlayerChatEvent event, Player player) {
-        String message = event.getMessage();
-        if (message.trim().length() < 3) { // Very short messages
-            reportManager.createReport(null, player.getUniqueId(), "Potential spam (very short message)");
-        }
-        
-        if (message.matches(".*[0-9]+.*")) { // Messages containing numbers
-            reportManager.createReport(null, player.getUniqueId(), "Potential spam (contains numbers)");
-        }
+    @EventHandler
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        verdictEngine.removePlayer(event.getPlayer().getUniqueId());
+    }
+
+    public ChatVerdictEngine getVerdictEngine() {
+        return verdictEngine;
     }
 
     @EventHandler
@@ -124,8 +82,8 @@ public class ChatMonitor implements Listener {
         
         // Check for suspicious tab completions
         if (lastToken.length() > 15) {
-            reportManager.createReport(null, event.getPlayer().getUniqueId(), 
-                "Suspiciously long tab completion");
+            reportManager.reportAutomated(event.getPlayer().getUniqueId(), "Suspiciously long tab completion",
+                new ChatEvidence(null, lastToken, "tab", null));
         }
     }
 }
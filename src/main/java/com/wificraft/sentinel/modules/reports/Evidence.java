@@ -5,9 +5,9 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 
 public abstract class Evidence {
-    protected final UUID id;
+    protected UUID id;
     protected final UUID reporterId;
-    protected final LocalDateTime createdAt;
+    protected LocalDateTime createdAt;
     protected String notes;
     protected EvidenceType type;
 
@@ -29,6 +29,12 @@ public abstract class Evidence {
     // Setters
     public void setNotes(String notes) { this.notes = notes; }
 
+    // Restores the identity of stored evidence, so it can still be removed by ID
+    void restore(UUID id, LocalDateTime createdAt) {
+        this.id = id;
+        this.createdAt = createdAt;
+    }
+
     public enum EvidenceType {
         CHAT,
         SCREENSHOT,
@@ -1,11 +1,15 @@
 package com.wificraft.sentinel.modules.reports;
 
+import com.wificraft.sentinel.modules.pipeline.AnalysisPipeline;
+import com.wificraft.sentinel.modules.pipeline.CaptureEvent;
+import com.wificraft.sentinel.modules.pipeline.CaptureHandler;
+import com.wificraft.sentinel.modules.ratelimit.SlidingWindowCounter;
+import com.wificraft.sentinel.modules.reports.evidence.LocationEvidence;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
-import org.bukkit.event.player.PlayerMoveEvent;
 import org.bukkit.event.player.PlayerTeleportEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
@@ -15,56 +19,100 @@ import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 
-public class PlayerTracker implements Listener {
+public class PlayerTracker implements Listener, CaptureHandler {
+    private static final long TELEPORT_WINDOW_MILLIS = 10_000L;
+    private static final int MAX_TELEPORTS = 5;
+
     private final ReportManager reportManager;
-    private final Map<UUID, Location> lastLocations;
-    private final Map<UUID, Long> lastMoveTimes;
-    private final Map<UUID, Integer> teleportCount;
+    private final AnalysisPipeline pipeline;
+    private final Map<UUID, TrackedPosition> lastPositions;
+    private final SlidingWindowCounter<UUID> teleportCount;
     
     public PlayerTracker(ReportManager reportManager) {
+        this(reportManager, null);
+    }
+
+    /**
+     * @param pipeline Pipeline to run movement checks on, or null to check inline on the server thread
+     */
+    public PlayerTracker(ReportManager reportManager, AnalysisPipeline pipeline) {
         this.reportManager = reportManager;
-        this.lastLocations = new ConcurrentHashMap<>();
-        this.lastMoveTimes = new ConcurrentHashMap<>();
-        this.teleportCount = new ConcurrentHashMap<>();
+        this.pipeline = pipeline;
+        this.lastPositions = new ConcurrentHashMap<>();
+        this.teleportCount = new SlidingWindowCounter<>(TELEPORT_WINDOW_MILLIS, 10, 10_000);
     }
 
     @EventHandler
     public void onPlayerJoin(PlayerJoinEvent event) {
         Player player = event.getPlayer();
         UUID playerId = player.getUniqueId();
-        lastLocations.put(playerId, player.getLocation());
-        lastMoveTimes.put(playerId, System.currentTimeMillis());
-        teleportCount.put(playerId, 0);
+        Location location = player.getLocation();
+        lastPositions.put(playerId, new TrackedPosition(location.getWorld().getName(),
+            location.getX(), location.getY(), location.getZ(), System.currentTimeMillis()));
+        teleportCount.remove(playerId);
     }
 
     @EventHandler
     public void onPlayerQuit(PlayerQuitEvent event) {
         UUID playerId = event.getPlayer().getUniqueId();
-        lastLocations.remove(playerId);
-        lastMoveTimes.remove(playerId);
-        teleportCount.remove(playerId);
+        if (pipeline != null && pipeline.publishQuit(this, playerId)) {
+            teleportCount.remove(playerId);
+            return;
+        }
+        resetPlayerData(playerId);
     }
 
-    @EventHandler
-    public void onPlayerMove(PlayerMoveEvent event) {
-        Player player = event.getPlayer();
-        UUID playerId = player.getUniqueId();
-        Location oldLoc = lastLocations.get(playerId);
-        Location newLoc = player.getLocation();
+    @Override
+    public void onCapture(CaptureEvent event) {
+        if (event.getType() == CaptureEvent.TYPE_MOVE) {
+            checkMovement(event.getPlayerId(), event.getTimestamp(), event.getWorldName(),
+                event.getFromX(), event.getFromY(), event.getFromZ(), event.getToX(), event.getToY(), event.getToZ());
+        } else if (event.getType() == CaptureEvent.TYPE_QUIT) {
+            lastPositions.remove(event.getPlayerId());
+        }
+    }
+
+    /**
+     * Measures one merged move sample. The distance is taken within the sample, from its origin,
+     * so a teleport (where the ingestion stage starts a new sample at the destination) is never
+     * counted as movement; the time is taken since the previous sample.
+     */
+    private void checkMovement(UUID playerId, long now, String worldName,
+                               double fromX, double fromY, double fromZ, double x, double y, double z) {
+        TrackedPosition last = lastPositions.get(playerId);
         
-        if (oldLoc != null) {
+        // Positions in different worlds are not comparable
+        if (last != null && last.worldName.equals(worldName)) {
             // Check for suspicious movement
-            double distance = oldLoc.distance(newLoc);
-            long timeDiff = System.currentTimeMillis() - lastMoveTimes.get(playerId);
+            double dx = x - fromX;
+            double dy = y - fromY;
+            double dz = z - fromZ;
+            double distance = Math.sqrt(dx * dx + dy * dy + dz * dz);
+            long timeDiff = now - last.time;
             double speed = distance / (timeDiff / 1000.0);
             
             if (speed > 10.0) { // More than 10 blocks per second
-                reportManager.createReport(null, playerId, "Suspicious movement speed detected");
+                String detail = String.format("%.1f bloków/s", speed);
+                Runnable report = () -> {
+                    if (!isFastLegitimately(Bukkit.getPlayer(playerId))) {
+                        reportManager.reportAutomated(playerId, "Suspicious movement speed detected",
+                            new LocationEvidence(null, new Location(Bukkit.getWorld(worldName), x, y, z), null, detail));
+                    }
+                };
+                if (pipeline != null) {
+                    pipeline.postToMain(report);
+                } else {
+                    report.run();
+                }
             }
         }
         
-        lastLocations.put(playerId, newLoc);
-        lastMoveTimes.put(playerId, System.currentTimeMillis());
+        lastPositions.put(playerId, new TrackedPosition(worldName, x, y, z, now));
+    }
+
+    // Elytra, riptide and vehicles move faster than walking; player state is read on the main thread only
+    private static boolean isFastLegitimately(Player player) {
+        return player == null || player.isGliding() || player.isRiptiding() || player.isInsideVehicle();
     }
 
     @EventHandler
@@ -73,11 +121,11 @@ public class PlayerTracker implements Listener {
         UUID playerId = player.getUniqueId();
         
         // Track teleport frequency
-        int count = teleportCount.getOrDefault(playerId, 0);
-        teleportCount.put(playerId, count + 1);
+        int count = teleportCount.increment(playerId, System.currentTimeMillis());
         
-        if (count >= 5) { // More than 5 teleports in quick succession
-            reportManager.createReport(null, playerId, "Potential teleport spam detected");
+        if (count > MAX_TELEPORTS) { // More than 5 teleports in quick succession
+            reportManager.reportAutomated(playerId, "Potential teleport spam detected",
+                new LocationEvidence(null, event.getTo(), null, null));
         }
     }
 
@@ -89,21 +137,14 @@ public class PlayerTracker implements Listener {
     public Map<String, Object> getPlayerStatistics(UUID playerId) {
         Map<String, Object> stats = new HashMap<>();
         
-        Location currentLoc = lastLocations.get(playerId);
-        if (currentLoc != null) {
-            stats.put("last_location", currentLoc.toString());
-            stats.put("world", currentLoc.getWorld().getName());
+        TrackedPosition last = lastPositions.get(playerId);
+        if (last != null) {
+            stats.put("last_location", String.format("%s %.2f, %.2f, %.2f", last.worldName, last.x, last.y, last.z));
+            stats.put("world", last.worldName);
+            stats.put("last_move_time", last.time);
         }
         
-        Long lastMove = lastMoveTimes.get(playerId);
-        if (lastMove != null) {
-            stats.put("last_move_time", lastMove);
-        }
-        
-        Integer teleports = teleportCount.get(playerId);
-        if (teleports != null) {
-            stats.put("teleport_count", teleports);
-        }
+        stats.put("teleport_count", teleportCount.count(playerId, System.currentTimeMillis()));
         
         return stats;
     }
@@ -113,8 +154,26 @@ public class PlayerTracker implements Listener {
      * @param playerId Player's UUID
      */
     public void resetPlayerData(UUID playerId) {
-        lastLocations.remove(playerId);
-        lastMoveTimes.remove(playerId);
+        lastPositions.remove(playerId);
         teleportCount.remove(playerId);
     }
+
+    /**
+     * Last known position as primitives, so no Location (and its World reference) is kept.
+     */
+    private static final class TrackedPosition {
+        final String worldName;
+        final double x;
+        final double y;
+        final double z;
+        final long time;
+
+        TrackedPosition(String worldName, double x, double y, double z, long time) {
+            this.worldName = worldName;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.time = time;
+        }
+    }
 }
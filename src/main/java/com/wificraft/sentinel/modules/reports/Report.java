@@ -22,11 +22,16 @@ public class Report {
     private LocalDateTime resolvedAt;
 
     public Report(UUID reporterId, UUID reportedPlayerId, String reason) {
-        this.id = UUID.randomUUID();
+        this(UUID.randomUUID(), reporterId, reportedPlayerId, reason, LocalDateTime.now());
+    }
+
+    // Rebuilds a stored report with its original ID and creation time
+    Report(UUID id, UUID reporterId, UUID reportedPlayerId, String reason, LocalDateTime createdAt) {
+        this.id = id;
         this.reporterId = reporterId;
         this.reportedPlayerId = reportedPlayerId;
         this.reason = reason;
-        this.createdAt = LocalDateTime.now();
+        this.createdAt = createdAt;
         this.status = ReportStatus.OPEN;
         this.evidenceList = new ArrayList<>();
         this.notes = new ArrayList<>();
@@ -58,6 +63,11 @@ public class Report {
         }
     }
     
+    // Restores a stored note as written, without a new timestamp
+    void restoreNote(String note) {
+        notes.add(note);
+    }
+
     // Evidence management
     public void addEvidence(com.wificraft.sentinel.modules.reports.Evidence evidence) {
         if (evidence != null) {
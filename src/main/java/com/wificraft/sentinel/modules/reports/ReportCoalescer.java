@@ -0,0 +1,227 @@
+package com.wificraft.sentinel.modules.reports;
+
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Merges the signals of automated detectors into reports, so a player who trips a check
+ * hundreds of times a minute gets one report rather than hundreds.
+ *
+ * Signals for the same player and reason within {@code window-seconds} of the first one form
+ * a group. The group opens a report once it has {@code threshold} hits, or the threshold
+ * passed with its first signal for detectors that rate-limit themselves, with the samples
+ * collected so far as evidence; later hits only count, and add evidence until the group has
+ * {@code max-samples}. When the window ends, the total is written to the report as one note.
+ * Groups that never reach the threshold leave nothing in storage.
+ *
+ * At most {@code max-groups} groups are kept; when full, the oldest is closed early.
+ * Groups are kept in the order they were opened, so closing expired ones stops at the first
+ * group still open.
+ */
+public class ReportCoalescer {
+    /**
+     * Where the coalescer writes; {@link ReportManager} in the plugin.
+     */
+    interface Sink {
+        /**
+         * @return The ID of the new report
+         */
+        UUID openReport(UUID reportedPlayerId, String reason, List<Evidence> samples);
+
+        void addEvidence(UUID reportId, Evidence sample);
+
+        void addNote(UUID reportId, String note);
+    }
+
+    private final Sink sink;
+    private final long windowMillis;
+    private final int threshold;
+    private final int maxSamples;
+    private final int maxGroups;
+    private final Map<String, Group> groups;
+    private BukkitTask expireTask;
+
+    private final LongAdder signals;
+    private final LongAdder reportsOpened;
+    private final LongAdder belowThreshold;
+
+    /**
+     * Reads {@code report-coalescing.*} from the plugin configuration.
+     */
+    ReportCoalescer(Sink sink, FileConfiguration config) {
+        this(sink,
+            config.getLong("report-coalescing.window-seconds", 60) * 1000L,
+            config.getInt("report-coalescing.threshold", 3),
+            config.getInt("report-coalescing.max-samples", 5),
+            config.getInt("report-coalescing.max-groups", 2000));
+    }
+
+    /**
+     * @param windowMillis How long after its first signal a group takes more signals
+     * @param threshold Hits in one group before a report is opened; 1 opens it on the first hit
+     * @param maxSamples Evidence samples attached to one report per group
+     * @param maxGroups Groups kept at once
+     */
+    ReportCoalescer(Sink sink, long windowMillis, int threshold, int maxSamples, int maxGroups) {
+        this.sink = sink;
+        this.windowMillis = Math.max(1, windowMillis);
+        this.threshold = Math.max(1, threshold);
+        this.maxSamples = Math.max(0, maxSamples);
+        this.maxGroups = Math.max(1, maxGroups);
+        this.groups = new LinkedHashMap<>();
+        this.signals = new LongAdder();
+        this.reportsOpened = new LongAdder();
+        this.belowThreshold = new LongAdder();
+    }
+
+    /**
+     * Closes expired groups once a second on the main thread.
+     */
+    public void start(JavaPlugin plugin) {
+        if (expireTask == null) {
+            expireTask = plugin.getServer().getScheduler().runTaskTimer(plugin,
+                () -> expire(System.currentTimeMillis()), 20L, 20L);
+        }
+    }
+
+    /**
+     * Stops the timer and closes every group, writing the totals of the open reports.
+     */
+    public synchronized void shutdown() {
+        if (expireTask != null) {
+            expireTask.cancel();
+            expireTask = null;
+        }
+        for (Group group : groups.values()) {
+            close(group);
+        }
+        groups.clear();
+    }
+
+    /**
+     * Counts one hit of an automated check, with the configured threshold.
+     * @param sample Evidence of this hit, or null; kept only while the group still wants samples
+     * @return The ID of the report the hit counts toward, or null while below the threshold
+     */
+    public UUID signal(UUID reportedPlayerId, String reason, Evidence sample, long now) {
+        return signal(reportedPlayerId, reason, sample, threshold, now);
+    }
+
+    /**
+     * @param threshold Hits before a report is opened, for a group this hit starts; a group
+     *                  keeps the threshold it was started with
+     */
+    public synchronized UUID signal(UUID reportedPlayerId, String reason, Evidence sample, int threshold, long now) {
+        signals.increment();
+        String key = reportedPlayerId + "\n" + reason;
+        Group group = groups.get(key);
+        if (group != null && now - group.firstSeen >= windowMillis) {
+            groups.remove(key);
+            close(group);
+            group = null;
+        }
+        if (group == null) {
+            if (groups.size() >= maxGroups) {
+                Iterator<Group> oldest = groups.values().iterator();
+                close(oldest.next());
+                oldest.remove();
+            }
+            group = new Group(now, Math.max(1, threshold));
+            groups.put(key, group);
+        }
+        group.hits++;
+        group.lastSeen = now;
+
+        if (group.reportId == null) {
+            if (sample != null && group.samples.size() < maxSamples) {
+                group.samples.add(sample);
+            }
+            if (group.hits >= group.threshold) {
+                group.reportId = sink.openReport(reportedPlayerId, reason, group.samples);
+                group.hitsAtOpen = group.hits;
+                group.attached = group.samples.size();
+                group.samples = null;
+                reportsOpened.increment();
+            }
+        } else if (sample != null && group.attached < maxSamples) {
+            sink.addEvidence(group.reportId, sample);
+            group.attached++;
+        }
+        return group.reportId;
+    }
+
+    /**
+     * Closes the groups whose window has ended.
+     */
+    public synchronized void expire(long now) {
+        Iterator<Group> iterator = groups.values().iterator();
+        while (iterator.hasNext()) {
+            Group group = iterator.next();
+            if (now - group.firstSeen < windowMillis) {
+                break;
+            }
+            close(group);
+            iterator.remove();
+        }
+    }
+
+    private void close(Group group) {
+        if (group.reportId == null) {
+            belowThreshold.increment();
+        } else if (group.hits > group.hitsAtOpen) {
+            sink.addNote(group.reportId, String.format("Sygnałów łącznie: %d w ciągu %d s",
+                group.hits, (group.lastSeen - group.firstSeen) / 1000));
+        }
+    }
+
+    /**
+     * @return Hits counted so far in the open group for the player and reason, 0 if there is none
+     */
+    public synchronized int getHits(UUID reportedPlayerId, String reason) {
+        Group group = groups.get(reportedPlayerId + "\n" + reason);
+        return group != null ? group.hits : 0;
+    }
+
+    public synchronized int getGroupCount() {
+        return groups.size();
+    }
+
+    public long getSignalCount() {
+        return signals.sum();
+    }
+
+    public long getReportsOpened() {
+        return reportsOpened.sum();
+    }
+
+    public String getStatusLine() {
+        return String.format("signals: %d, reports: %d, groups: %d, below threshold: %d",
+            signals.sum(), reportsOpened.sum(), getGroupCount(), belowThreshold.sum());
+    }
+
+    private static final class Group {
+        final long firstSeen;
+        final int threshold;
+        long lastSeen;
+        int hits;
+        int hitsAtOpen;
+        int attached;
+        // Samples waiting for the report to open; null once it has
+        List<Evidence> samples = new ArrayList<>();
+        UUID reportId;
+
+        Group(long firstSeen, int threshold) {
+            this.firstSeen = firstSeen;
+            this.threshold = threshold;
+        }
+    }
+}
@@ -0,0 +1,430 @@
+package com.wificraft.sentinel.modules.reports;
+
+import com.wificraft.sentinel.modules.reports.evidence.ChatEvidence;
+import com.wificraft.sentinel.modules.reports.evidence.LocationEvidence;
+import com.wificraft.sentinel.modules.reports.evidence.ObjectEvidence;
+import com.wificraft.sentinel.modules.reports.evidence.ScreenshotEvidence;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.inventory.ItemStack;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Binary form of reports and of the changes made to them, shared by the journal and its snapshots.
+ *
+ * A record is one byte of type followed by its fields. {@link #REPORT} holds a whole report;
+ * the other types hold one change to a report that an earlier record created. Changes store
+ * the values after the change (the note with its timestamp, the resolution time), so replaying
+ * them gives the same report no matter when it happens. {@link #HEADER} is the part of a
+ * report kept in the snapshot index (see {@link ReportHeader}). {@link #encode(Report)} and
+ * {@link #decode(byte[])} are the whole-report form other storage backends keep.
+ */
+public final class ReportCodec {
+    static final byte REPORT = 1;
+    static final byte NOTE = 2;
+    static final byte STATE = 3;
+    static final byte EVIDENCE_ADDED = 4;
+    static final byte EVIDENCE_REMOVED = 5;
+    static final byte HEADER = 6;
+
+    private ReportCodec() {
+    }
+
+    /**
+     * @return The report with its notes and evidence as one record
+     */
+    public static byte[] encode(Report report) {
+        return report(report);
+    }
+
+    /**
+     * Reads a record written by {@link #encode(Report)}.
+     * @throws IOException If it is not a whole-report record or is malformed
+     */
+    public static Report decode(byte[] record) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+        byte type = in.readByte();
+        if (type != REPORT) {
+            throw new IOException("Not a report record: type " + type);
+        }
+        return readReport(in);
+    }
+
+    static byte[] report(Report report) {
+        return encode(out -> {
+            out.writeByte(REPORT);
+            writeReport(out, report);
+        });
+    }
+
+    static byte[] note(UUID reportId, String note) {
+        return encode(out -> {
+            out.writeByte(NOTE);
+            writeUuid(out, reportId);
+            writeString(out, note);
+        });
+    }
+
+    static byte[] state(Report report) {
+        return encode(out -> {
+            out.writeByte(STATE);
+            writeUuid(out, report.getId());
+            writeState(out, report);
+        });
+    }
+
+    static byte[] evidenceAdded(UUID reportId, Evidence evidence) {
+        return encode(out -> {
+            out.writeByte(EVIDENCE_ADDED);
+            writeUuid(out, reportId);
+            writeEvidence(out, evidence);
+        });
+    }
+
+    static byte[] evidenceRemoved(UUID reportId, UUID evidenceId) {
+        return encode(out -> {
+            out.writeByte(EVIDENCE_REMOVED);
+            writeUuid(out, reportId);
+            writeUuid(out, evidenceId);
+        });
+    }
+
+    static byte[] header(ReportHeader header) {
+        return encode(out -> {
+            out.writeByte(HEADER);
+            writeUuid(out, header.getId());
+            writeUuid(out, header.getReporterId());
+            writeUuid(out, header.getReportedPlayerId());
+            writeString(out, header.getStatus().name());
+            out.writeLong(header.getCreatedAt());
+            out.writeLong(header.getResolvedAt());
+            String[] words = header.getWords();
+            out.writeInt(words.length);
+            for (String word : words) {
+                writeString(out, word);
+            }
+        });
+    }
+
+    /**
+     * Reads a record written by {@link #header(ReportHeader)}.
+     */
+    static ReportHeader readHeader(DataInput in) throws IOException {
+        byte type = in.readByte();
+        if (type != HEADER) {
+            throw new IOException("Not a report header: type " + type);
+        }
+        UUID id = readUuid(in);
+        UUID reporter = readUuid(in);
+        UUID reported = readUuid(in);
+        String status = readString(in);
+        long createdAt = in.readLong();
+        long resolvedAt = in.readLong();
+        int count = in.readInt();
+        if (count < 0 || count > 1 << 20) {
+            throw new IOException("Invalid word count in report header: " + count);
+        }
+        String[] words = new String[count];
+        for (int i = 0; i < count; i++) {
+            words[i] = readString(in);
+        }
+        try {
+            return new ReportHeader(id, reporter, reported, Report.ReportStatus.valueOf(status), createdAt, resolvedAt, words);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new IOException("Unknown report status " + status);
+        }
+    }
+
+    /**
+     * @return The ID of the report a record creates or changes
+     */
+    static UUID targetOf(byte[] record) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+        in.readByte();
+        return readUuid(in);
+    }
+
+    /**
+     * Applies one record to the reports; changes to reports that are not there are skipped.
+     * @throws IOException If the record is malformed
+     */
+    static void apply(DataInput in, Map<UUID, Report> reports) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case REPORT: {
+                Report report = readReport(in);
+                reports.put(report.getId(), report);
+                break;
+            }
+            case NOTE: {
+                Report report = reports.get(readUuid(in));
+                String note = readString(in);
+                if (report != null) {
+                    report.restoreNote(note);
+                }
+                break;
+            }
+            case STATE: {
+                Report report = reports.get(readUuid(in));
+                readState(in, report);
+                break;
+            }
+            case EVIDENCE_ADDED: {
+                Report report = reports.get(readUuid(in));
+                Evidence evidence = readEvidence(in);
+                if (report != null && evidence != null) {
+                    report.addEvidence(evidence);
+                }
+                break;
+            }
+            case EVIDENCE_REMOVED: {
+                Report report = reports.get(readUuid(in));
+                UUID evidenceId = readUuid(in);
+                if (report != null) {
+                    report.removeEvidence(evidenceId);
+                }
+                break;
+            }
+            default:
+                throw new IOException("Unknown report record type " + type);
+        }
+    }
+
+    private static void writeReport(DataOutput out, Report report) throws IOException {
+        writeUuid(out, report.getId());
+        writeUuid(out, report.getReporterId());
+        writeUuid(out, report.getReportedPlayerId());
+        writeString(out, report.getReason());
+        writeTime(out, report.getCreatedAt());
+        writeState(out, report);
+        List<String> notes = report.getNotes();
+        out.writeInt(notes.size());
+        for (String note : notes) {
+            writeString(out, note);
+        }
+        List<Evidence> evidence = report.getEvidence();
+        out.writeInt(evidence.size());
+        for (Evidence item : evidence) {
+            writeEvidence(out, item);
+        }
+    }
+
+    private static Report readReport(DataInput in) throws IOException {
+        UUID id = readUuid(in);
+        UUID reporter = readUuid(in);
+        UUID reported = readUuid(in);
+        String reason = readString(in);
+        Report report = new Report(id, reporter, reported, reason, readTime(in));
+        readState(in, report);
+        int notes = in.readInt();
+        for (int i = 0; i < notes; i++) {
+            report.restoreNote(readString(in));
+        }
+        int evidence = in.readInt();
+        for (int i = 0; i < evidence; i++) {
+            Evidence item = readEvidence(in);
+            if (item != null) {
+                report.addEvidence(item);
+            }
+        }
+        return report;
+    }
+
+    private static void writeState(DataOutput out, Report report) throws IOException {
+        writeString(out, report.getStatus().name());
+        writeString(out, report.getAssignedModeratorId());
+        writeString(out, report.getResolutionNotes());
+        writeTime(out, report.getResolvedAt());
+    }
+
+    /**
+     * Reads a state and applies it to the report, if there is one.
+     */
+    private static void readState(DataInput in, Report report) throws IOException {
+        String status = readString(in);
+        String moderator = readString(in);
+        String resolutionNotes = readString(in);
+        LocalDateTime resolvedAt = readTime(in);
+        if (report == null) {
+            return;
+        }
+        try {
+            report.setStatus(Report.ReportStatus.valueOf(status));
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new IOException("Unknown report status " + status);
+        }
+        report.setAssignedModerator(moderator);
+        report.setResolutionNotes(resolutionNotes);
+        report.setResolvedAt(resolvedAt);
+    }
+
+    private static void writeEvidence(DataOutput out, Evidence evidence) throws IOException {
+        writeString(out, evidence.getType().name());
+        writeUuid(out, evidence.getId());
+        writeUuid(out, evidence.getReporterId());
+        writeTime(out, evidence.getCreatedAt());
+        writeString(out, evidence.getNotes());
+        if (evidence instanceof ChatEvidence) {
+            ChatEvidence chat = (ChatEvidence) evidence;
+            writeString(out, chat.getMessage());
+            writeString(out, chat.getChannel());
+        } else if (evidence instanceof ScreenshotEvidence) {
+            ScreenshotEvidence screenshot = (ScreenshotEvidence) evidence;
+            writeString(out, screenshot.getImageUrl());
+            writeString(out, screenshot.getFileName());
+            out.writeLong(screenshot.getFileSize());
+            writeString(out, screenshot.getMimeType());
+        } else if (evidence instanceof LocationEvidence) {
+            LocationEvidence location = (LocationEvidence) evidence;
+            Location at = location.getLocation();
+            writeString(out, location.getWorldName());
+            out.writeDouble(at != null ? at.getX() : 0);
+            out.writeDouble(at != null ? at.getY() : 0);
+            out.writeDouble(at != null ? at.getZ() : 0);
+            writeString(out, location.getBlockType().name());
+        } else if (evidence instanceof ObjectEvidence) {
+            ObjectEvidence object = (ObjectEvidence) evidence;
+            writeString(out, object.getMaterialName());
+            out.writeInt(object.getAmount());
+        }
+    }
+
+    /**
+     * @return The evidence, or null for a kind this version cannot rebuild
+     */
+    private static Evidence readEvidence(DataInput in) throws IOException {
+        String typeName = readString(in);
+        UUID id = readUuid(in);
+        UUID reporter = readUuid(in);
+        LocalDateTime createdAt = readTime(in);
+        String notes = readString(in);
+        Evidence.EvidenceType type;
+        try {
+            type = Evidence.EvidenceType.valueOf(typeName);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new IOException("Unknown evidence type " + typeName);
+        }
+        Evidence evidence;
+        switch (type) {
+            case CHAT:
+                evidence = new ChatEvidence(reporter, readString(in), readString(in), notes);
+                break;
+            case SCREENSHOT:
+                evidence = new ScreenshotEvidence(reporter, readString(in), readString(in), in.readLong(),
+                    readString(in), null, notes);
+                break;
+            case LOCATION: {
+                String worldName = readString(in);
+                double x = in.readDouble();
+                double y = in.readDouble();
+                double z = in.readDouble();
+                Material block = Material.matchMaterial(String.valueOf(readString(in)));
+                // Worlds and items can only be looked up with a server running
+                World world = Bukkit.getServer() != null && worldName != null ? Bukkit.getWorld(worldName) : null;
+                evidence = new LocationEvidence(reporter, new Location(world, x, y, z), block, notes);
+                break;
+            }
+            case OBJECT: {
+                Material material = Material.matchMaterial(String.valueOf(readString(in)));
+                int amount = in.readInt();
+                ItemStack item = Bukkit.getServer() != null && material != null && amount > 0
+                    ? new ItemStack(material, amount) : null;
+                evidence = new ObjectEvidence(reporter, item, notes);
+                break;
+            }
+            default:
+                // Custom evidence has no fields of its own to rebuild it from
+                return null;
+        }
+        evidence.restore(id, createdAt);
+        return evidence;
+    }
+
+    private static void writeUuid(DataOutput out, UUID uuid) throws IOException {
+        out.writeBoolean(uuid != null);
+        if (uuid != null) {
+            out.writeLong(uuid.getMostSignificantBits());
+            out.writeLong(uuid.getLeastSignificantBits());
+        }
+    }
+
+    private static UUID readUuid(DataInput in) throws IOException {
+        return in.readBoolean() ? new UUID(in.readLong(), in.readLong()) : null;
+    }
+
+    private static void writeTime(DataOutput out, LocalDateTime time) throws IOException {
+        out.writeBoolean(time != null);
+        if (time != null) {
+            out.writeLong(time.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(time.getNano());
+        }
+    }
+
+    private static LocalDateTime readTime(DataInput in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        long seconds = in.readLong();
+        int nanos = in.readInt();
+        try {
+            return LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC);
+        } catch (DateTimeException e) {
+            throw new IOException("Invalid time in report record", e);
+        }
+    }
+
+    // Length-prefixed UTF-8, since writeUTF stops at 64 KB
+    private static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > 1 << 24) {
+            throw new IOException("String too long in report record: " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private interface Writer {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private static byte[] encode(Writer writer) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try {
+            writer.write(new DataOutputStream(bytes));
+        } catch (IOException e) {
+            // Writing to memory does not fail
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -1,5 +1,6 @@
 package com.wificraft.sentinel.modules.reports;
 
+import com.wificraft.sentinel.modules.storage.ReportQuery;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.NamedTextColor;
 import net.kyori.adventure.text.minimessage.MiniMessage;
@@ -23,6 +24,7 @@ public class ReportCommand implements CommandExecutor {
 
     private static final String PREFIX = "<gradient:#FF6B6B:#4ECDC4>[Raporty]</gradient> ";
     private static final MiniMessage MINI_MESSAGE = MiniMessage.miniMessage();
+    private static final int SEARCH_PAGE_SIZE = 10;
     private static final SimpleDateFormat TIMESTAMP_FORMAT = new SimpleDateFormat("dd.MM.yyyy HH:mm:ss");
 
     public ReportCommand(ReportManager reportManager, ReportGUI reportGUI) {
@@ -105,9 +107,7 @@ public class ReportCommand implements CommandExecutor {
 
         try {
             final String idArg = args[0];
-            Optional<Report> reportOpt = reportManager.getAllReports().stream()
-                    .filter(r -> r.getId().toString().startsWith(idArg))
-                    .findFirst();
+            Optional<Report> reportOpt = reportManager.findReportByIdPrefix(idArg);
 
             if (reportOpt.isEmpty()) {
                 player.sendMessage(MINI_MESSAGE.deserialize(PREFIX + "<red>Raport o podanym ID nie istnieje!"));
@@ -151,7 +151,8 @@ public class ReportCommand implements CommandExecutor {
         }
 
         String query = String.join(" ", args);
-        List<Report> results = reportManager.searchReports(query, null, null, null);
+        ReportPage page = reportManager.searchReports(new ReportQuery().text(query).page(0, SEARCH_PAGE_SIZE), null);
+        List<Report> results = page.getReports();
 
         if (results.isEmpty()) {
             player.sendMessage(MINI_MESSAGE.deserialize(PREFIX + "<yellow>Brak wyników wyszukiwania dla zapytania: '" + query + "'"));
@@ -169,6 +170,9 @@ public class ReportCommand implements CommandExecutor {
                         report.getReason()
                 )));
         }
+        if (page.getNext() != null) {
+            player.sendMessage(MINI_MESSAGE.deserialize(PREFIX + "<gray>Pokazano pierwsze " + SEARCH_PAGE_SIZE + " wyników, doprecyzuj zapytanie."));
+        }
         return true;
     }
     
@@ -195,9 +199,7 @@ public class ReportCommand implements CommandExecutor {
             final String idArg = args[0];
             String note = String.join(" ", Arrays.copyOfRange(args, 1, args.length));
 
-            Optional<Report> reportOpt = reportManager.getAllReports().stream()
-                    .filter(r -> r.getId().toString().startsWith(idArg))
-                    .findFirst();
+            Optional<Report> reportOpt = reportManager.findReportByIdPrefix(idArg);
 
             if (reportOpt.isEmpty()) {
                 player.sendMessage(MINI_MESSAGE.deserialize(PREFIX + "<red>Raport o podanym ID nie istnieje!"));
@@ -4,6 +4,7 @@ import com.wificraft.sentinel.WiFiCraftSentinel;
 import com.wificraft.sentinel.modules.reports.evidence.ChatEvidence;
 import com.wificraft.sentinel.modules.reports.evidence.LocationEvidence;
 import com.wificraft.sentinel.modules.reports.evidence.ScreenshotEvidence;
+import com.wificraft.sentinel.modules.storage.ReportQuery;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.NamedTextColor;
 import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
@@ -116,9 +117,12 @@ public class ReportGUI implements Listener {
 
     
     public void openReportList(Player player, UUID targetPlayerId, int page) {
-        List<Report> reports = reportManager.getPlayerReports(targetPlayerId);
-        int totalPages = Math.max(1, (int) Math.ceil((double) reports.size() / PAGE_SIZE));
+        // Counted from the index, so only the reports on this page are read
+        int total = reportManager.countReports(new ReportQuery().reportedPlayer(targetPlayerId));
+        int totalPages = Math.max(1, (int) Math.ceil((double) total / PAGE_SIZE));
         page = Math.max(0, Math.min(page, totalPages - 1));
+        List<Report> reports = reportManager.searchReports(
+            new ReportQuery().reportedPlayer(targetPlayerId).page(page * PAGE_SIZE, PAGE_SIZE), null).getReports();
         
         String playerName = getPlayerName(targetPlayerId);
         // Build the inventory title with proper formatting
@@ -141,11 +145,7 @@ public class ReportGUI implements Listener {
         );
         
         // Add reports to the inventory
-        int start = page * PAGE_SIZE;
-        int end = Math.min(start + PAGE_SIZE, reports.size());
-        
-        for (int i = start; i < end; i++) {
-            Report report = reports.get(i);
+        for (Report report : reports) {
             inv.addItem(createReportItem(report));
         }
         
@@ -171,6 +171,7 @@ public class ReportGUI implements Listener {
         
         player.openInventory(inv);
         viewingReports.put(player.getUniqueId(), reports);
+        viewingPlayerReports.put(player.getUniqueId(), targetPlayerId);
         currentPage.put(player.getUniqueId(), page);
     }
     
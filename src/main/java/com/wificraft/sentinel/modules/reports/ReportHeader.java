@@ -0,0 +1,114 @@
+package com.wificraft.sentinel.modules.reports;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * The part of a report kept in memory for every report: who reported whom, the status, the
+ * times and the words of the reason and notes for searching. The rest of a report, its notes
+ * and evidence, is read from storage when the report is opened.
+ */
+public final class ReportHeader {
+    // The note prefix added by Report#addNote, not worth indexing
+    private static final String NOTE_TIME_END = "] ";
+    private static final int MAX_WORD_LENGTH = 48;
+
+    private final UUID id;
+    private final UUID reporterId;
+    private final UUID reportedPlayerId;
+    private final Report.ReportStatus status;
+    private final long createdAt;
+    private final long resolvedAt;
+    private final String[] words;
+
+    /**
+     * @param createdAt Creation time in epoch milliseconds, UTC
+     * @param resolvedAt Resolution time in epoch milliseconds, UTC, or 0
+     * @param words Distinct lower-case words, sorted, as from {@link #wordsOf(String, List)}
+     */
+    public ReportHeader(UUID id, UUID reporterId, UUID reportedPlayerId, Report.ReportStatus status,
+                        long createdAt, long resolvedAt, String[] words) {
+        this.id = id;
+        this.reporterId = reporterId;
+        this.reportedPlayerId = reportedPlayerId;
+        this.status = status;
+        this.createdAt = createdAt;
+        this.resolvedAt = resolvedAt;
+        this.words = words;
+    }
+
+    public static ReportHeader of(Report report) {
+        return new ReportHeader(report.getId(), report.getReporterId(), report.getReportedPlayerId(), report.getStatus(),
+            millis(report.getCreatedAt()), report.getResolvedAt() != null ? millis(report.getResolvedAt()) : 0,
+            wordsOf(report.getReason(), report.getNotes()));
+    }
+
+    static long millis(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public UUID getReporterId() {
+        return reporterId;
+    }
+
+    public UUID getReportedPlayerId() {
+        return reportedPlayerId;
+    }
+
+    public Report.ReportStatus getStatus() {
+        return status;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public long getResolvedAt() {
+        return resolvedAt;
+    }
+
+    String[] getWords() {
+        return words;
+    }
+
+    /**
+     * @return The distinct words of the reason and notes, without the time the notes start with
+     */
+    public static String[] wordsOf(String reason, List<String> notes) {
+        StringBuilder text = new StringBuilder(String.valueOf(reason));
+        for (String note : notes) {
+            int timeEnd = note.startsWith("[") ? note.indexOf(NOTE_TIME_END) : -1;
+            text.append(' ').append(timeEnd > 0 ? note.substring(timeEnd + NOTE_TIME_END.length()) : note);
+        }
+        return words(text.toString());
+    }
+
+    /**
+     * @return The distinct words of the text, runs of letters and digits in lower case, sorted
+     */
+    static String[] words(String text) {
+        TreeSet<String> words = new TreeSet<>();
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i <= text.length(); ) {
+            int codePoint = i < text.length() ? text.codePointAt(i) : ' ';
+            if (Character.isLetterOrDigit(codePoint)) {
+                if (word.length() < MAX_WORD_LENGTH) {
+                    word.appendCodePoint(codePoint);
+                }
+            } else if (word.length() > 0) {
+                words.add(word.toString().toLowerCase(Locale.ROOT));
+                word.setLength(0);
+            }
+            i += i < text.length() ? Character.charCount(codePoint) : 1;
+        }
+        return words.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,458 @@
+package com.wificraft.sentinel.modules.reports;
+
+import com.wificraft.sentinel.modules.storage.ReportQuery;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Secondary indexes over the {@link ReportHeader}s of all reports, so a search reads only the
+ * reports it returns.
+ *
+ * Every report has a {@link ReportPage.Cursor} as its key, ordered newest first. The index
+ * keeps the keys of all reports (which doubles as the creation time index), the keys per
+ * status, reporter and reported player, and an inverted index from the words of the reason
+ * and notes to the keys of the reports containing them. All of these are sorted the same
+ * way, so a search walks the smallest set its filters select, starting at its cursor,
+ * checks the remaining filters on each key and stops once the page is full.
+ *
+ * Words are runs of letters and digits in lower case. A search word matches every indexed
+ * word starting with it, so "hack" also finds "hacking"; when it covers several words their
+ * key sets are merged in order while walking.
+ *
+ * Each report is re-indexed through {@link #update(ReportHeader)} after it changes; only what
+ * changed since the last update is moved. The reports on a page are fetched through the
+ * loader in one call once the page is known, outside the lock.
+ */
+class ReportIndex {
+    // Past this many dictionary words a prefix is only checked on candidates, never walked
+    private static final int MAX_MERGED_WORDS = 64;
+    private static final UUID FIRST_ID = new UUID(Long.MIN_VALUE, Long.MIN_VALUE);
+    // The order of the hex digits, unlike UUID#compareTo
+    private static final Comparator<UUID> UNSIGNED = (a, b) -> {
+        int high = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+        return high != 0 ? high : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+    };
+
+    private static final class Entry {
+        final ReportHeader header;
+        final ReportPage.Cursor key;
+
+        Entry(ReportHeader header, ReportPage.Cursor key) {
+            this.header = header;
+            this.key = key;
+        }
+    }
+
+    private final Function<List<UUID>, Map<UUID, Report>> loader;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<UUID, Entry> entries = new HashMap<>();
+    private final TreeSet<ReportPage.Cursor> all = new TreeSet<>();
+    private final TreeSet<UUID> byId = new TreeSet<>(UNSIGNED);
+    private final Map<Report.ReportStatus, TreeSet<ReportPage.Cursor>> byStatus = new EnumMap<>(Report.ReportStatus.class);
+    private final Map<UUID, TreeSet<ReportPage.Cursor>> byReporter = new HashMap<>();
+    private final Map<UUID, TreeSet<ReportPage.Cursor>> byTarget = new HashMap<>();
+    private final TreeMap<String, TreeSet<ReportPage.Cursor>> byWord = new TreeMap<>();
+
+    /**
+     * @param loader Fetches whole reports by ID, leaving out the ones it cannot read
+     */
+    ReportIndex(Function<List<UUID>, Map<UUID, Report>> loader) {
+        this.loader = loader;
+    }
+
+    static ReportPage.Cursor keyOf(ReportHeader header) {
+        return new ReportPage.Cursor(header.getCreatedAt(), header.getId());
+    }
+
+    /**
+     * Adds the report, or moves it to match its current status and notes.
+     */
+    void update(ReportHeader header) {
+        String[] words = header.getWords();
+        Report.ReportStatus status = header.getStatus();
+        lock.writeLock().lock();
+        try {
+            Entry old = entries.get(header.getId());
+            ReportPage.Cursor key = old != null ? old.key : keyOf(header);
+            if (old == null) {
+                all.add(key);
+                byId.add(header.getId());
+                add(byReporter, header.getReporterId(), key);
+                add(byTarget, header.getReportedPlayerId(), key);
+                for (String word : words) {
+                    add(byWord, word, key);
+                }
+            } else {
+                if (old.header.getStatus() != status) {
+                    remove(byStatus, old.header.getStatus(), key);
+                }
+                diffWords(old.header.getWords(), words, key);
+            }
+            if (old == null || old.header.getStatus() != status) {
+                add(byStatus, status, key);
+            }
+            entries.put(header.getId(), new Entry(header, key));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Both arrays are sorted, so one pass finds the words that went away and the new ones
+    private void diffWords(String[] before, String[] after, ReportPage.Cursor key) {
+        int i = 0;
+        int j = 0;
+        while (i < before.length || j < after.length) {
+            int order = i == before.length ? 1 : j == after.length ? -1 : before[i].compareTo(after[j]);
+            if (order < 0) {
+                remove(byWord, before[i++], key);
+            } else if (order > 0) {
+                add(byWord, after[j++], key);
+            } else {
+                i++;
+                j++;
+            }
+        }
+    }
+
+    private static <K> void add(Map<K, TreeSet<ReportPage.Cursor>> index, K value, ReportPage.Cursor key) {
+        if (value != null) {
+            index.computeIfAbsent(value, k -> new TreeSet<>()).add(key);
+        }
+    }
+
+    private static <K> void remove(Map<K, TreeSet<ReportPage.Cursor>> index, K value, ReportPage.Cursor key) {
+        TreeSet<ReportPage.Cursor> keys = value != null ? index.get(value) : null;
+        if (keys != null && keys.remove(key) && keys.isEmpty()) {
+            index.remove(value);
+        }
+    }
+
+    boolean contains(UUID id) {
+        lock.readLock().lock();
+        try {
+            return entries.containsKey(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param prefix The start of a report ID as shown to players, with or without dashes
+     * @return The ID of a report whose ID starts with it, or null
+     */
+    UUID findByIdPrefix(String prefix) {
+        String hex = prefix.replace("-", "").toLowerCase(Locale.ROOT);
+        if (hex.isEmpty() || hex.length() > 32 || !hex.chars().allMatch(c -> Character.digit(c, 16) >= 0)) {
+            return null;
+        }
+        // IDs starting with the prefix lie between the prefix padded with 0s and with fs
+        UUID low = uuidOfHex((hex + "00000000000000000000000000000000").substring(0, 32));
+        UUID high = uuidOfHex((hex + "ffffffffffffffffffffffffffffffff").substring(0, 32));
+        lock.readLock().lock();
+        try {
+            UUID found = byId.ceiling(low);
+            return found != null && UNSIGNED.compare(found, high) <= 0 ? found : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static UUID uuidOfHex(String hex) {
+        return new UUID(Long.parseUnsignedLong(hex.substring(0, 16), 16), Long.parseUnsignedLong(hex.substring(16), 16));
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int wordCount() {
+        lock.readLock().lock();
+        try {
+            return byWord.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The page of reports matching the query after the cursor. The query's offset skips
+     * matches after the cursor; its limit is the page size. Text without any letters or
+     * digits matches nothing.
+     * @param after The cursor of the previous page, or null for the first page
+     */
+    ReportPage search(ReportQuery query, ReportPage.Cursor after) {
+        String[] words = query.getText() != null ? ReportHeader.words(query.getText()) : new String[0];
+        if (query.getText() != null && words.length == 0) {
+            return empty();
+        }
+        long from = query.getCreatedFrom() != null ? ReportHeader.millis(query.getCreatedFrom()) : Long.MIN_VALUE;
+
+        ReportPage.Cursor start = after;
+        boolean inclusive = false;
+        ReportPage.Cursor until = untilOf(query);
+        if (until != null && (start == null || until.compareTo(start) > 0)) {
+            // Nothing newer than the bound can match, so start at it
+            start = until;
+            inclusive = true;
+        }
+
+        List<UUID> ids = new ArrayList<>(Math.min(query.getLimit(), 64));
+        ReportPage.Cursor next;
+        lock.readLock().lock();
+        try {
+            Iterable<ReportPage.Cursor> driver = driverOf(query, words);
+            if (driver == null) {
+                return empty();
+            }
+            Iterator<ReportPage.Cursor> keys = tail(driver, start, inclusive);
+            int skip = query.getOffset();
+            ReportPage.Cursor last = null;
+            while (keys.hasNext() && ids.size() < query.getLimit()) {
+                ReportPage.Cursor key = keys.next();
+                if (key.createdAt < from) {
+                    break;
+                }
+                Entry entry = entries.get(key.id);
+                if (entry == null || !matches(entry.header, query, words)) {
+                    continue;
+                }
+                if (skip > 0) {
+                    skip--;
+                    continue;
+                }
+                ids.add(key.id);
+                last = key;
+            }
+            next = ids.size() == query.getLimit() && keys.hasNext() ? last : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+        Map<UUID, Report> loaded = ids.isEmpty() ? Collections.emptyMap() : loader.apply(ids);
+        List<Report> page = new ArrayList<>(ids.size());
+        for (UUID id : ids) {
+            Report report = loaded.get(id);
+            if (report != null) {
+                page.add(report);
+            }
+        }
+        return new ReportPage(page, next);
+    }
+
+    /**
+     * How many reports match the query, ignoring its offset and limit; reads no reports.
+     * Filtering on a single status, reporter or reported player costs nothing more than a
+     * lookup, anything else walks the matches.
+     */
+    int count(ReportQuery query) {
+        String[] words = query.getText() != null ? ReportHeader.words(query.getText()) : new String[0];
+        if (query.getText() != null && words.length == 0) {
+            return 0;
+        }
+        long from = query.getCreatedFrom() != null ? ReportHeader.millis(query.getCreatedFrom()) : Long.MIN_VALUE;
+        ReportPage.Cursor until = untilOf(query);
+        lock.readLock().lock();
+        try {
+            Iterable<ReportPage.Cursor> driver = driverOf(query, words);
+            if (driver == null) {
+                return 0;
+            }
+            int filters = (query.getStatus() != null ? 1 : 0) + (query.getReporterId() != null ? 1 : 0)
+                + (query.getReportedPlayerId() != null ? 1 : 0);
+            if (driver instanceof TreeSet && filters <= 1 && words.length == 0 && until == null && from == Long.MIN_VALUE) {
+                return ((TreeSet<ReportPage.Cursor>) driver).size();
+            }
+            int count = 0;
+            Iterator<ReportPage.Cursor> keys = tail(driver, until, true);
+            while (keys.hasNext()) {
+                ReportPage.Cursor key = keys.next();
+                if (key.createdAt < from) {
+                    break;
+                }
+                Entry entry = entries.get(key.id);
+                if (entry != null && matches(entry.header, query, words)) {
+                    count++;
+                }
+            }
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // The first key a query bounded by its creation time can match, or null if it is not bounded
+    private static ReportPage.Cursor untilOf(ReportQuery query) {
+        return query.getCreatedUntil() != null
+            ? new ReportPage.Cursor(ReportHeader.millis(query.getCreatedUntil()) - 1, FIRST_ID) : null;
+    }
+
+    /**
+     * The smallest key set the query's filters select, or null if one of them matches nothing;
+     * call with the read lock held.
+     */
+    private Iterable<ReportPage.Cursor> driverOf(ReportQuery query, String[] words) {
+        List<TreeSet<ReportPage.Cursor>> selected = new ArrayList<>(3);
+        if (query.getStatus() != null) {
+            selected.add(byStatus.get(query.getStatus()));
+        }
+        if (query.getReporterId() != null) {
+            selected.add(byReporter.get(query.getReporterId()));
+        }
+        if (query.getReportedPlayerId() != null) {
+            selected.add(byTarget.get(query.getReportedPlayerId()));
+        }
+        Iterable<ReportPage.Cursor> driver = all;
+        int driverSize = all.size();
+        for (TreeSet<ReportPage.Cursor> keys : selected) {
+            if (keys == null) {
+                return null;
+            }
+            if (keys.size() < driverSize) {
+                driver = keys;
+                driverSize = keys.size();
+            }
+        }
+        for (String word : words) {
+            NavigableMap<String, TreeSet<ReportPage.Cursor>> matching = byWord.subMap(word, true, word + Character.MAX_VALUE, false);
+            if (matching.isEmpty()) {
+                return null;
+            }
+            if (matching.size() > MAX_MERGED_WORDS) {
+                continue;
+            }
+            int size = 0;
+            for (TreeSet<ReportPage.Cursor> keys : matching.values()) {
+                size += keys.size();
+            }
+            if (size < driverSize) {
+                driver = matching.size() == 1 ? matching.firstEntry().getValue() : new Merged(matching.values());
+                driverSize = size;
+            }
+        }
+        return driver;
+    }
+
+    private static ReportPage empty() {
+        return new ReportPage(Collections.emptyList(), null);
+    }
+
+    private static Iterator<ReportPage.Cursor> tail(Iterable<ReportPage.Cursor> keys, ReportPage.Cursor start, boolean inclusive) {
+        if (keys instanceof NavigableSet) {
+            NavigableSet<ReportPage.Cursor> set = (NavigableSet<ReportPage.Cursor>) keys;
+            return (start == null ? set : set.tailSet(start, inclusive)).iterator();
+        }
+        return ((Merged) keys).iterator(start, inclusive);
+    }
+
+    private static boolean matches(ReportHeader header, ReportQuery query, String[] words) {
+        if (query.getStatus() != null && header.getStatus() != query.getStatus()) {
+            return false;
+        }
+        if (query.getReporterId() != null && !query.getReporterId().equals(header.getReporterId())) {
+            return false;
+        }
+        if (query.getReportedPlayerId() != null && !query.getReportedPlayerId().equals(header.getReportedPlayerId())) {
+            return false;
+        }
+        for (String word : words) {
+            if (!hasWordStartingWith(header.getWords(), word)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasWordStartingWith(String[] sorted, String prefix) {
+        int at = Arrays.binarySearch(sorted, prefix);
+        if (at >= 0) {
+            return true;
+        }
+        int next = -at - 1;
+        return next < sorted.length && sorted[next].startsWith(prefix);
+    }
+
+    /**
+     * The union of several key sets in key order, for a search word covering several words.
+     */
+    private static final class Merged implements Iterable<ReportPage.Cursor> {
+        private final Iterable<TreeSet<ReportPage.Cursor>> sets;
+
+        Merged(Iterable<TreeSet<ReportPage.Cursor>> sets) {
+            this.sets = sets;
+        }
+
+        @Override
+        public Iterator<ReportPage.Cursor> iterator() {
+            return iterator(null, false);
+        }
+
+        Iterator<ReportPage.Cursor> iterator(ReportPage.Cursor start, boolean inclusive) {
+            PriorityQueue<Head> heads = new PriorityQueue<>();
+            for (TreeSet<ReportPage.Cursor> set : sets) {
+                Iterator<ReportPage.Cursor> keys = (start == null ? set : set.tailSet(start, inclusive)).iterator();
+                if (keys.hasNext()) {
+                    heads.add(new Head(keys.next(), keys));
+                }
+            }
+            return new Iterator<ReportPage.Cursor>() {
+                @Override
+                public boolean hasNext() {
+                    return !heads.isEmpty();
+                }
+
+                @Override
+                public ReportPage.Cursor next() {
+                    if (heads.isEmpty()) {
+                        throw new NoSuchElementException();
+                    }
+                    ReportPage.Cursor key = heads.peek().key;
+                    // A report holding several of the words is in several sets; return it once
+                    while (!heads.isEmpty() && heads.peek().key.equals(key)) {
+                        Head head = heads.poll();
+                        if (head.rest.hasNext()) {
+                            heads.add(new Head(head.rest.next(), head.rest));
+                        }
+                    }
+                    return key;
+                }
+            };
+        }
+
+        private static final class Head implements Comparable<Head> {
+            final ReportPage.Cursor key;
+            final Iterator<ReportPage.Cursor> rest;
+
+            Head(ReportPage.Cursor key, Iterator<ReportPage.Cursor> rest) {
+                this.key = key;
+                this.rest = rest;
+            }
+
+            @Override
+            public int compareTo(Head other) {
+                return key.compareTo(other.key);
+            }
+        }
+    }
+}
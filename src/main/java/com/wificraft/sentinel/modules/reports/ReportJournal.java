@@ -0,0 +1,927 @@
+package com.wificraft.sentinel.modules.reports;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead journal with snapshots for reports.
+ *
+ * Every change is one small record (see {@link ReportCodec}) appended to the active journal
+ * segment, so its cost does not depend on how many reports exist. Callers only copy the
+ * record into a buffer; a writer thread appends everything buffered since its last pass and
+ * fsyncs once for the whole batch (group commit), waiting {@code commitIntervalMillis}
+ * first so a burst of changes shares one fsync. {@link #flush()} waits until everything
+ * appended so far is on disk.
+ *
+ * When the active segment passes {@code segmentBytes} it is sealed and a new one started, and
+ * a background thread folds the sealed segments into a new snapshot by replaying them onto
+ * the previous snapshot. A snapshot is two files: an index with the {@link ReportHeader} of
+ * every report, which {@link #load()} reads whole, and the report bodies with notes and
+ * evidence, which {@link #read(UUID)} reads one at a time. Startup costs the headers, not
+ * every report ever made, and a compaction copies the bodies of unchanged reports as they
+ * are. A snapshot is named after the last segment it contains, so segments and the previous
+ * snapshot are deleted only after the index of the new one was renamed into place. On
+ * startup, {@link #load()} reads the index, replays the newer segments and cuts off a record
+ * torn by a crash.
+ *
+ * Reports changed since the snapshot stay in memory until a snapshot contains them, so
+ * {@link #read(UUID)} never returns an outdated body. Files in the folder:
+ * <pre>
+ * snapshot-N.idx    magic "SRPS", int version, long last segment N, int count,
+ *                   count x frame of (long offset of the body, header record)
+ * snapshot-N.dat    frames of report records, at the offsets in the index
+ * journal-N.log     frames appended while segment N was active
+ * frame             int length, int crc32, length bytes of record
+ * </pre>
+ * A version 1 {@code snapshot.dat}, with whole reports in place of the index, is converted
+ * by {@link #load()}.
+ */
+public class ReportJournal {
+    static final int SNAPSHOT_MAGIC = 0x53525053;
+    static final int VERSION = 2;
+    private static final int LEGACY_VERSION = 1;
+
+    private static final String LEGACY_SNAPSHOT = "snapshot.dat";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String INDEX_SUFFIX = ".idx";
+    private static final String BODIES_SUFFIX = ".dat";
+    // Magic, version and last segment come before the count in an index
+    private static final int COUNT_POSITION = 16;
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int MAX_RECORD = 1 << 26;
+    // Pause between attempts to write a batch that failed
+    private static final long RETRY_MILLIS = 1000;
+
+    private final Path folder;
+    private final Logger logger;
+    private final long segmentBytes;
+    private final long commitIntervalMillis;
+
+    // Records handed in but not yet written; swapped with spare by the writer
+    private final Object lock = new Object();
+    private ByteArrayOutputStream pending;
+    private ByteArrayOutputStream spare;
+    private long appended;
+    private long durable;
+    private boolean closed;
+
+    // Touched by the writer thread only once it runs
+    private FileChannel channel;
+    private long segment;
+    private long segmentSize;
+    private Thread writer;
+    // Set while the last batch failed to write; flush() stops waiting for it
+    private volatile boolean failing;
+
+    // Reports changed since the snapshot, with the number of their last record
+    private final Map<UUID, Resident> resident;
+    // Number of the last record in each sealed segment not yet in a snapshot
+    private final Map<Long, Long> sealedAt;
+    private final Object snapshotLock = new Object();
+    private Snapshot snapshot;
+
+    private final ExecutorService compactor;
+    private final AtomicBoolean compacting;
+
+    private final LongAdder records;
+    private final LongAdder commits;
+    private final LongAdder bytesWritten;
+    private final LongAdder compactions;
+    private final LongAdder writeFailures;
+    private volatile long lastCompactionMillis;
+    private volatile int snapshotReports;
+
+    /**
+     * @param folder Folder of the snapshot and journal segments; created if missing
+     * @param segmentBytes Size after which a segment is sealed and folded into the snapshot
+     * @param commitIntervalMillis How long the writer gathers records before one write and fsync
+     */
+    public ReportJournal(Path folder, Logger logger, long segmentBytes, long commitIntervalMillis) {
+        this.folder = folder;
+        this.logger = logger;
+        this.segmentBytes = Math.max(4096, segmentBytes);
+        this.commitIntervalMillis = Math.max(0, commitIntervalMillis);
+        this.pending = new ByteArrayOutputStream(8192);
+        this.spare = new ByteArrayOutputStream(8192);
+        this.compactor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Sentinel-ReportCompactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.compacting = new AtomicBoolean();
+        this.resident = new ConcurrentHashMap<>();
+        this.sealedAt = new ConcurrentHashMap<>();
+        this.records = new LongAdder();
+        this.commits = new LongAdder();
+        this.bytesWritten = new LongAdder();
+        this.compactions = new LongAdder();
+        this.writeFailures = new LongAdder();
+    }
+
+    /**
+     * Reads the snapshot index and the newer segments, then opens a new segment for appending.
+     * Call once, before {@link #start()}.
+     * @return The headers of the stored reports by ID
+     */
+    public Map<UUID, ReportHeader> load() throws IOException {
+        Files.createDirectories(folder);
+        convertLegacySnapshot();
+        Map<UUID, ReportHeader> headers = new HashMap<>();
+        Snapshot base = openNewestSnapshot(headers);
+        synchronized (snapshotLock) {
+            snapshot = base;
+        }
+        snapshotReports = headers.size();
+        long covered = base != null ? base.lastSegment : 0;
+        long last = covered;
+        Map<UUID, Report> changed = new HashMap<>();
+        for (long number : segments()) {
+            if (number <= covered) {
+                // Left behind by a compaction interrupted after its snapshot was in place
+                Files.deleteIfExists(segmentPath(number));
+                continue;
+            }
+            replay(segmentPath(number), changed, base, true);
+            // Older than every record appended from now on, so the next compaction releases them
+            sealedAt.put(number, 0L);
+            last = Math.max(last, number);
+        }
+        for (Report report : changed.values()) {
+            headers.put(report.getId(), ReportHeader.of(report));
+            resident.put(report.getId(), new Resident(report, 0));
+        }
+        segment = last + 1;
+        channel = FileChannel.open(segmentPath(segment), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.APPEND);
+        segmentSize = channel.size();
+        return headers;
+    }
+
+    /**
+     * Starts the writer thread, and folds the segments found by {@link #load()} into the snapshot.
+     */
+    public void start() {
+        if (writer != null) {
+            return;
+        }
+        writer = new Thread(this::writeLoop, "Sentinel-ReportJournal");
+        writer.setDaemon(true);
+        writer.start();
+        if (!sealedAt.isEmpty()) {
+            scheduleCompaction(segment - 1);
+        }
+    }
+
+    /**
+     * The report as it is now: the changed report in memory, or else its body in the snapshot.
+     * @return The report, or null if there is none with that ID
+     */
+    public Report read(UUID id) throws IOException {
+        Resident changed = resident.get(id);
+        if (changed != null) {
+            return changed.report;
+        }
+        // A report is released from memory only after the snapshot holding it is in place
+        synchronized (snapshotLock) {
+            return snapshot != null ? snapshot.read(id) : null;
+        }
+    }
+
+    public void appendReport(Report report) {
+        append(report, ReportCodec.report(report));
+    }
+
+    public void appendNote(Report report, String note) {
+        append(report, ReportCodec.note(report.getId(), note));
+    }
+
+    /**
+     * Records status, moderator, resolution notes and resolution time of the report as they are now.
+     */
+    public void appendState(Report report) {
+        append(report, ReportCodec.state(report));
+    }
+
+    public void appendEvidenceAdded(Report report, Evidence evidence) {
+        append(report, ReportCodec.evidenceAdded(report.getId(), evidence));
+    }
+
+    public void appendEvidenceRemoved(Report report, UUID evidenceId) {
+        append(report, ReportCodec.evidenceRemoved(report.getId(), evidenceId));
+    }
+
+    private void append(Report report, byte[] record) {
+        CRC32 crc = new CRC32();
+        crc.update(record, 0, record.length);
+        synchronized (lock) {
+            if (closed) {
+                logger.warning("Dziennik zgłoszeń jest zamknięty, zmiana nie zostanie zapisana");
+                return;
+            }
+            writeInt(pending, record.length);
+            writeInt(pending, (int) crc.getValue());
+            pending.write(record, 0, record.length);
+            appended++;
+            resident.put(report.getId(), new Resident(report, appended));
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Waits until every record appended before this call is on disk, or until a write fails;
+     * the writer keeps retrying a failed batch in the background.
+     */
+    public void flush() {
+        synchronized (lock) {
+            long target = appended;
+            boolean interrupted = false;
+            while (durable < target && writer != null && writer.isAlive() && !failing) {
+                try {
+                    lock.wait(100);
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Writes what is still buffered, stops the writer and waits briefly for a running compaction.
+     */
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+        if (writer != null) {
+            try {
+                writer.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+            synchronized (snapshotLock) {
+                if (snapshot != null) {
+                    snapshot.close();
+                    snapshot = null;
+                }
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Nie udało się zamknąć dziennika zgłoszeń", e);
+        }
+    }
+
+    private void writeLoop() {
+        while (true) {
+            ByteArrayOutputStream batch;
+            long upTo;
+            boolean closing;
+            synchronized (lock) {
+                while (pending.size() == 0 && !closed) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        closed = true;
+                    }
+                }
+                if (pending.size() == 0) {
+                    return;
+                }
+                closing = closed;
+            }
+            if (commitIntervalMillis > 0 && !closing) {
+                // Let the rest of a burst join this commit
+                try {
+                    Thread.sleep(commitIntervalMillis);
+                } catch (InterruptedException e) {
+                    synchronized (lock) {
+                        closed = true;
+                    }
+                }
+            }
+            synchronized (lock) {
+                batch = pending;
+                pending = spare;
+                spare = null;
+                upTo = appended;
+            }
+            long count = upTo - durableSnapshot();
+            try {
+                if (failing) {
+                    recoverSegment();
+                }
+                ByteBuffer buffer = ByteBuffer.wrap(batch.toByteArray());
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                writeFailures.increment();
+                if (closing) {
+                    logger.log(Level.SEVERE, "Nie udało się zapisać " + count + " zmian zgłoszeń do dziennika, zostaną utracone", e);
+                    return;
+                }
+                logger.log(Level.SEVERE, "Nie udało się zapisać " + count + " zmian zgłoszeń do dziennika, ponowna próba za "
+                    + RETRY_MILLIS + " ms", e);
+                retryLater(batch);
+                continue;
+            }
+            failing = false;
+            segmentSize += batch.size();
+            bytesWritten.add(batch.size());
+            records.add(count);
+            commits.increment();
+            batch.reset();
+            synchronized (lock) {
+                spare = batch;
+                durable = upTo;
+                lock.notifyAll();
+            }
+            if (segmentSize >= segmentBytes) {
+                rotate();
+            }
+        }
+    }
+
+    /**
+     * Puts a batch that failed to write back in front of the records appended since, so the
+     * next pass writes them in order, and waits before that pass.
+     */
+    private void retryLater(ByteArrayOutputStream batch) {
+        synchronized (lock) {
+            failing = true;
+            ByteArrayOutputStream merged = new ByteArrayOutputStream(batch.size() + pending.size());
+            merged.write(batch.toByteArray(), 0, batch.size());
+            merged.write(pending.toByteArray(), 0, pending.size());
+            pending = merged;
+            batch.reset();
+            spare = batch;
+            // Wakes flush() callers, which stop waiting while the journal is failing
+            lock.notifyAll();
+            if (!closed) {
+                try {
+                    lock.wait(RETRY_MILLIS);
+                } catch (InterruptedException e) {
+                    closed = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Cuts whatever a failed write left past the last batch on disk, or reopens the segment if
+     * its channel was lost, before the batch is written again.
+     */
+    private void recoverSegment() throws IOException {
+        if (!channel.isOpen()) {
+            channel = FileChannel.open(segmentPath(segment), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+            segmentSize = Math.min(segmentSize, channel.size());
+        }
+        if (channel.size() > segmentSize) {
+            channel.truncate(segmentSize);
+        }
+    }
+
+    private long durableSnapshot() {
+        synchronized (lock) {
+            return durable;
+        }
+    }
+
+    private void rotate() {
+        try {
+            channel.close();
+            sealedAt.put(segment, durableSnapshot());
+            segment++;
+            channel = FileChannel.open(segmentPath(segment), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+            segmentSize = channel.size();
+            scheduleCompaction(segment - 1);
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Nie udało się rozpocząć nowego segmentu dziennika zgłoszeń", e);
+        }
+    }
+
+    private void scheduleCompaction(long upTo) {
+        if (!compacting.compareAndSet(false, true)) {
+            // The running compaction leaves this segment for the next one
+            return;
+        }
+        try {
+            compactor.execute(() -> {
+                try {
+                    compact(upTo);
+                } catch (IOException e) {
+                    logger.log(Level.WARNING, "Nie udało się skompaktować dziennika zgłoszeń", e);
+                } finally {
+                    compacting.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            compacting.set(false);
+        }
+    }
+
+    /**
+     * Folds the snapshot and every segment up to {@code upTo} into a new snapshot.
+     */
+    void compact(long upTo) throws IOException {
+        long started = System.nanoTime();
+        Snapshot base;
+        synchronized (snapshotLock) {
+            base = snapshot;
+        }
+        long covered = base != null ? base.lastSegment : 0;
+        if (covered >= upTo) {
+            return;
+        }
+        Map<UUID, Report> changed = new HashMap<>();
+        List<Long> folded = new ArrayList<>();
+        for (long number : segments()) {
+            if (number > covered && number <= upTo) {
+                replay(segmentPath(number), changed, base, false);
+                folded.add(number);
+            }
+        }
+        Snapshot next = writeSnapshot(base, changed, upTo);
+        synchronized (snapshotLock) {
+            snapshot = next;
+        }
+        if (base != null) {
+            base.close();
+            deleteSnapshot(base.lastSegment);
+        }
+        long released = -1;
+        for (long number : segments()) {
+            if (number <= upTo) {
+                Files.deleteIfExists(segmentPath(number));
+            }
+        }
+        for (Map.Entry<Long, Long> sealed : new ArrayList<>(sealedAt.entrySet())) {
+            if (sealed.getKey() <= upTo) {
+                released = Math.max(released, sealed.getValue());
+                sealedAt.remove(sealed.getKey());
+            }
+        }
+        // Conditional per entry, so a report changed again meanwhile stays
+        long upToRecord = released;
+        resident.values().removeIf(entry -> entry.sequence <= upToRecord);
+        snapshotReports = next.size();
+        compactions.increment();
+        lastCompactionMillis = (System.nanoTime() - started) / 1_000_000;
+        logger.fine(String.format("Skompaktowano %d segmentów dziennika zgłoszeń (%d zmienionych zgłoszeń) w %d ms",
+            folded.size(), changed.size(), lastCompactionMillis));
+    }
+
+    /**
+     * Writes a snapshot of the base snapshot with the changed reports replaced or added.
+     * Bodies of unchanged reports are copied without decoding them.
+     * @return The new snapshot, open for reading
+     */
+    private Snapshot writeSnapshot(Snapshot base, Map<UUID, Report> changed, long lastSegment) throws IOException {
+        Path index = snapshotPath(lastSegment, INDEX_SUFFIX);
+        Path indexTemp = folder.resolve(index.getFileName() + ".tmp");
+        Path bodies = snapshotPath(lastSegment, BODIES_SUFFIX);
+        Map<UUID, Long> offsets = new HashMap<>();
+        try (FileChannel bodyFile = FileChannel.open(bodies, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+             DataOutputStream bodyOut = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(bodyFile), 1 << 16));
+             FileChannel indexFile = FileChannel.open(indexTemp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+             DataOutputStream indexOut = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(indexFile), 1 << 16))) {
+            indexOut.writeInt(SNAPSHOT_MAGIC);
+            indexOut.writeInt(VERSION);
+            indexOut.writeLong(lastSegment);
+            // The count is filled in at the end
+            indexOut.writeInt(0);
+            long position = 0;
+            if (base != null) {
+                try (DataInputStream in = openIndex(snapshotPath(base.lastSegment, INDEX_SUFFIX))) {
+                    in.readLong();
+                    int count = in.readInt();
+                    for (int i = 0; i < count; i++) {
+                        byte[] entry = readFrame(in);
+                        if (entry == null) {
+                            throw new IOException("Corrupt report snapshot index at report " + i);
+                        }
+                        ByteBuffer fields = ByteBuffer.wrap(entry);
+                        long offset = fields.getLong();
+                        byte[] header = new byte[fields.remaining()];
+                        fields.get(header);
+                        UUID id = ReportCodec.targetOf(header);
+                        if (changed.containsKey(id)) {
+                            continue;
+                        }
+                        byte[] body;
+                        try {
+                            body = base.readRecord(offset);
+                        } catch (IOException e) {
+                            logger.log(Level.WARNING, "Pominięto uszkodzone zgłoszenie " + id + " w migawce", e);
+                            continue;
+                        }
+                        position = writeEntry(bodyOut, indexOut, position, id, header, body, offsets);
+                    }
+                }
+            }
+            for (Report report : changed.values()) {
+                position = writeEntry(bodyOut, indexOut, position, report.getId(),
+                    ReportCodec.header(ReportHeader.of(report)), ReportCodec.report(report), offsets);
+            }
+            bodyOut.flush();
+            bodyFile.force(true);
+            indexOut.flush();
+            indexFile.write(ByteBuffer.allocate(4).putInt(0, offsets.size()), COUNT_POSITION);
+            indexFile.force(true);
+        }
+        try {
+            Files.move(indexTemp, index, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(indexTemp, index, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return new Snapshot(lastSegment, offsets, FileChannel.open(bodies, StandardOpenOption.READ));
+    }
+
+    private static long writeEntry(DataOutputStream bodyOut, DataOutputStream indexOut, long position, UUID id,
+                                   byte[] header, byte[] body, Map<UUID, Long> offsets) throws IOException {
+        writeFrame(bodyOut, body);
+        writeFrame(indexOut, ByteBuffer.allocate(8 + header.length).putLong(position).put(header).array());
+        offsets.put(id, position);
+        return position + 8 + body.length;
+    }
+
+    private static void writeFrame(DataOutputStream out, byte[] record) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(record, 0, record.length);
+        out.writeInt(record.length);
+        out.writeInt((int) crc.getValue());
+        out.write(record);
+    }
+
+    /**
+     * Opens the newest snapshot and removes older ones and leftovers of interrupted compactions.
+     * @return The snapshot, or null if there is none
+     */
+    private Snapshot openNewestSnapshot(Map<UUID, ReportHeader> headers) throws IOException {
+        long newest = -1;
+        for (long number : snapshots()) {
+            if (Files.isRegularFile(snapshotPath(number, BODIES_SUFFIX))) {
+                newest = Math.max(newest, number);
+            }
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder, SNAPSHOT_PREFIX + "*")) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                if (newest < 0 || !name.equals(snapshotPath(newest, INDEX_SUFFIX).getFileName().toString())
+                        && !name.equals(snapshotPath(newest, BODIES_SUFFIX).getFileName().toString())) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+        if (newest < 0) {
+            return null;
+        }
+        Map<UUID, Long> offsets = new HashMap<>();
+        Path index = snapshotPath(newest, INDEX_SUFFIX);
+        long lastSegment;
+        try (DataInputStream in = openIndex(index)) {
+            lastSegment = in.readLong();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                byte[] entry = readFrame(in);
+                if (entry == null) {
+                    throw new IOException("Corrupt report snapshot index at report " + i);
+                }
+                DataInputStream fields = new DataInputStream(new ByteArrayInputStream(entry));
+                long offset = fields.readLong();
+                ReportHeader header = ReportCodec.readHeader(fields);
+                offsets.put(header.getId(), offset);
+                headers.put(header.getId(), header);
+            }
+        }
+        return new Snapshot(lastSegment, offsets, FileChannel.open(snapshotPath(newest, BODIES_SUFFIX), StandardOpenOption.READ));
+    }
+
+    /**
+     * @return The index, positioned after its magic and version
+     */
+    private static DataInputStream openIndex(Path index) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(index), 1 << 16));
+        try {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Not a report snapshot: " + index);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported report snapshot version " + version);
+            }
+            return in;
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Rewrites a version 1 snapshot, whole reports in one file, as an index and bodies.
+     */
+    private void convertLegacySnapshot() throws IOException {
+        Path file = folder.resolve(LEGACY_SNAPSHOT);
+        if (!Files.isRegularFile(file)) {
+            return;
+        }
+        Map<UUID, Report> reports = new HashMap<>();
+        long lastSegment;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Not a report snapshot: " + file);
+            }
+            int version = in.readInt();
+            if (version != LEGACY_VERSION) {
+                throw new IOException("Unsupported report snapshot version " + version);
+            }
+            lastSegment = in.readLong();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                byte[] record = readFrame(in);
+                if (record == null) {
+                    throw new IOException("Corrupt report snapshot at report " + i);
+                }
+                ReportCodec.apply(new DataInputStream(new ByteArrayInputStream(record)), reports);
+            }
+        }
+        writeSnapshot(null, reports, lastSegment).close();
+        Files.delete(file);
+        logger.info(String.format("Przekształcono migawkę zgłoszeń (%d zgłoszeń) do formatu z indeksem", reports.size()));
+    }
+
+    private void deleteSnapshot(long lastSegment) {
+        for (String suffix : new String[] {INDEX_SUFFIX, BODIES_SUFFIX}) {
+            try {
+                Files.deleteIfExists(snapshotPath(lastSegment, suffix));
+            } catch (IOException e) {
+                // Still open elsewhere on some systems; removed on the next load
+            }
+        }
+    }
+
+    /**
+     * Applies the records of a segment in order, reading the reports they change from the
+     * base snapshot first. A torn or corrupt frame ends the segment; with {@code repair} the
+     * file is cut there, so new records never follow garbage.
+     */
+    private void replay(Path file, Map<UUID, Report> reports, Snapshot base, boolean repair) throws IOException {
+        long good = 0;
+        int skipped = 0;
+        try (InputStream stream = new BufferedInputStream(Files.newInputStream(file), 1 << 16);
+             DataInputStream in = new DataInputStream(stream)) {
+            while (true) {
+                byte[] record;
+                try {
+                    record = readFrame(in);
+                } catch (EOFException e) {
+                    break;
+                }
+                if (record == null) {
+                    break;
+                }
+                try {
+                    if (base != null && record[0] != ReportCodec.REPORT) {
+                        UUID target = ReportCodec.targetOf(record);
+                        if (target != null && !reports.containsKey(target)) {
+                            Report stored = base.read(target);
+                            if (stored != null) {
+                                reports.put(target, stored);
+                            }
+                        }
+                    }
+                    ReportCodec.apply(new DataInputStream(new ByteArrayInputStream(record)), reports);
+                } catch (IOException e) {
+                    // Intact but unreadable, e.g. written by a newer version: keep going
+                    skipped++;
+                }
+                good += 8 + record.length;
+            }
+        }
+        if (skipped > 0) {
+            logger.warning(String.format("Pominięto %d nieczytelnych zmian w %s", skipped, file.getFileName()));
+        }
+        if (good < Files.size(file)) {
+            logger.warning(String.format("Dziennik zgłoszeń %s urwany po %d bajtach (awaria podczas zapisu?)",
+                file.getFileName(), good));
+            if (repair) {
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                    channel.truncate(good);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The record, or null at the clean end of the data or on a CRC mismatch
+     * @throws EOFException If the data ends inside a frame
+     */
+    private static byte[] readFrame(DataInputStream in) throws IOException {
+        int length;
+        try {
+            length = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        if (length <= 0 || length > MAX_RECORD) {
+            return null;
+        }
+        int expected = in.readInt();
+        byte[] record = new byte[length];
+        in.readFully(record);
+        CRC32 crc = new CRC32();
+        crc.update(record, 0, length);
+        return (int) crc.getValue() == expected ? record : null;
+    }
+
+    private List<Long> segments() throws IOException {
+        List<Long> numbers = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                try {
+                    numbers.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    // Not ours
+                }
+            }
+        }
+        numbers.sort(null);
+        return numbers;
+    }
+
+    private Path segmentPath(long number) {
+        return folder.resolve(SEGMENT_PREFIX + number + SEGMENT_SUFFIX);
+    }
+
+    private List<Long> snapshots() throws IOException {
+        List<Long> numbers = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder, SNAPSHOT_PREFIX + "*" + INDEX_SUFFIX)) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                try {
+                    numbers.add(Long.parseLong(name.substring(SNAPSHOT_PREFIX.length(), name.length() - INDEX_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    // Not ours
+                }
+            }
+        }
+        return numbers;
+    }
+
+    private Path snapshotPath(long lastSegment, String suffix) {
+        return folder.resolve(SNAPSHOT_PREFIX + lastSegment + suffix);
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    public long getRecordCount() {
+        return records.sum();
+    }
+
+    public long getCommitCount() {
+        return commits.sum();
+    }
+
+    public long getCompactionCount() {
+        return compactions.sum();
+    }
+
+    /**
+     * @return How many changed reports are held in memory until the next snapshot
+     */
+    public int getResidentCount() {
+        return resident.size();
+    }
+
+    public String getStatusLine() {
+        long commitCount = commits.sum();
+        return String.format("records: %d in %d fsyncs (%.1f per fsync), written: %d KB, write failures: %d, snapshot: %d reports, changed in memory: %d, compactions: %d (last %d ms)",
+            records.sum(), commitCount, commitCount == 0 ? 0.0 : records.sum() / (double) commitCount,
+            bytesWritten.sum() / 1024, writeFailures.sum(), snapshotReports, resident.size(), compactions.sum(), lastCompactionMillis);
+    }
+
+    private static final class Resident {
+        final Report report;
+        final long sequence;
+
+        Resident(Report report, long sequence) {
+            this.report = report;
+            this.sequence = sequence;
+        }
+    }
+
+    /**
+     * An open snapshot: where each report body is, and the file holding them.
+     */
+    private static final class Snapshot {
+        final long lastSegment;
+        private final Map<UUID, Long> offsets;
+        private final FileChannel bodies;
+
+        Snapshot(long lastSegment, Map<UUID, Long> offsets, FileChannel bodies) {
+            this.lastSegment = lastSegment;
+            this.offsets = offsets;
+            this.bodies = bodies;
+        }
+
+        int size() {
+            return offsets.size();
+        }
+
+        Report read(UUID id) throws IOException {
+            Long offset = offsets.get(id);
+            return offset != null ? ReportCodec.decode(readRecord(offset)) : null;
+        }
+
+        /**
+         * @return The record of the frame at the offset, checked against its CRC
+         */
+        byte[] readRecord(long offset) throws IOException {
+            ByteBuffer frame = ByteBuffer.allocate(8);
+            readFully(frame, offset);
+            int length = frame.getInt(0);
+            if (length <= 0 || length > MAX_RECORD) {
+                throw new IOException("Corrupt report body at " + offset);
+            }
+            ByteBuffer record = ByteBuffer.allocate(length);
+            readFully(record, offset + 8);
+            CRC32 crc = new CRC32();
+            crc.update(record.array(), 0, length);
+            if ((int) crc.getValue() != frame.getInt(4)) {
+                throw new IOException("Corrupt report body at " + offset);
+            }
+            return record.array();
+        }
+
+        // Positional reads, so readers on several threads do not disturb each other
+        private void readFully(ByteBuffer buffer, long position) throws IOException {
+            while (buffer.hasRemaining()) {
+                int read = bodies.read(buffer, position + buffer.position());
+                if (read < 0) {
+                    throw new EOFException("Report body past the end of the snapshot");
+                }
+            }
+        }
+
+        void close() throws IOException {
+            bodies.close();
+        }
+    }
+}
@@ -4,9 +4,11 @@ import com.wificraft.sentinel.modules.reports.evidence.ChatEvidence;
 import com.wificraft.sentinel.modules.reports.evidence.LocationEvidence;
 import com.wificraft.sentinel.modules.reports.evidence.ObjectEvidence;
 import com.wificraft.sentinel.modules.reports.evidence.ScreenshotEvidence;
+import com.wificraft.sentinel.modules.storage.FileStorage;
+import com.wificraft.sentinel.modules.storage.ReportQuery;
+import com.wificraft.sentinel.modules.storage.SentinelStorage;
 import org.bukkit.Bukkit;
 import org.bukkit.OfflinePlayer;
-import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.plugin.java.JavaPlugin;
 
@@ -15,39 +17,153 @@ import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.logging.Level;
-import java.util.stream.Collectors;
 
+/**
+ * Keeps the header of every report in memory and persists every change through a
+ * {@link SentinelStorage}.
+ *
+ * Whole reports, with their notes and evidence, are read from the storage when they are
+ * first needed and kept in a cache of {@code report-storage.cache-size} reports, least
+ * recently used going first; a report keeps its ID for good. A change costs one small
+ * record in the storage, not a rewrite of every report. Reports
+ * from the old {@code reports.yml} are imported into an empty storage once and the file is
+ * renamed to {@code reports.yml.imported}.
+ *
+ * Searches are answered from a {@link ReportIndex} kept up to date on every change, a page
+ * at a time, so they are cheap enough for a GUI click handler.
+ *
+ * Automated detectors report through {@link #reportAutomated(UUID, String, Evidence)}, which
+ * merges repeated hits into one report with a {@link ReportCoalescer}.
+ */
 public class ReportManager {
     private final JavaPlugin plugin;
-    private final Map<UUID, Report> reports;
-    private final Map<UUID, List<UUID>> playerReports; // playerId -> list of report IDs
+    private final Map<UUID, Report> cache;
+    private final LongAdder cacheHits;
+    private final LongAdder cacheMisses;
+    private final ReportIndex index;
+    private final ReportCoalescer coalescer;
     private final File reportsFile;
     private final DateTimeFormatter dateTimeFormatter;
+    private final boolean ownsStorage;
+    private SentinelStorage storage;
 
+    /**
+     * With a storage of its own in the plugin folder.
+     */
     public ReportManager(JavaPlugin plugin) {
+        this(plugin, new FileStorage(plugin.getDataFolder(), plugin.getConfig(), plugin.getLogger(), null), true);
+    }
+
+    /**
+     * @param storage Opened storage shared with the rest of the plugin; not closed by {@link #shutdown()}
+     */
+    public ReportManager(JavaPlugin plugin, SentinelStorage storage) {
+        this(plugin, storage, false);
+    }
+
+    private ReportManager(JavaPlugin plugin, SentinelStorage storage, boolean ownsStorage) {
         this.plugin = plugin;
-        this.reports = new ConcurrentHashMap<>();
-        this.playerReports = new ConcurrentHashMap<>();
+        int cacheSize = Math.max(16, plugin.getConfig().getInt("report-storage.cache-size", 2000));
+        // Access order, so the least recently used report is evicted first; guarded by itself
+        this.cache = new LinkedHashMap<UUID, Report>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Report> eldest) {
+                return size() > cacheSize;
+            }
+        };
+        this.cacheHits = new LongAdder();
+        this.cacheMisses = new LongAdder();
+        this.index = new ReportIndex(this::getReports);
         this.reportsFile = new File(plugin.getDataFolder(), "reports.yml");
         this.dateTimeFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+        this.ownsStorage = ownsStorage;
+        this.coalescer = new ReportCoalescer(new ReportCoalescer.Sink() {
+            @Override
+            public UUID openReport(UUID reportedPlayerId, String reason, List<Evidence> samples) {
+                UUID reportId = createReport(null, reportedPlayerId, reason).getId();
+                for (Evidence sample : samples) {
+                    addEvidence(reportId, sample);
+                }
+                return reportId;
+            }
+
+            @Override
+            public void addEvidence(UUID reportId, Evidence sample) {
+                ReportManager.this.addEvidence(reportId, sample);
+            }
+
+            @Override
+            public void addNote(UUID reportId, String note) {
+                ReportManager.this.addNote(reportId, note);
+            }
+        }, plugin.getConfig());
         
-        loadReports();
+        loadReports(storage);
+        coalescer.start(plugin);
+    }
+
+    private void loadReports(SentinelStorage opened) {
+        try {
+            long started = System.nanoTime();
+            if (ownsStorage) {
+                opened.open();
+            }
+            Map<UUID, ReportHeader> headers = opened.loadReportHeaders();
+            for (ReportHeader header : headers.values()) {
+                index.update(header);
+            }
+            storage = opened;
+            if (index.size() == 0 && reportsFile.exists()) {
+                importLegacyReports();
+            }
+            plugin.getLogger().info(String.format("Wczytano %d zgłoszeń w %d ms",
+                index.size(), (System.nanoTime() - started) / 1_000_000));
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.SEVERE, "Nie udało się wczytać zgłoszeń, zmiany nie będą zapisywane", e);
+        }
+    }
+
+    // Caches the report and brings its header in the index up to date
+    private void track(Report report) {
+        synchronized (cache) {
+            cache.put(report.getId(), report);
+        }
+        index.update(ReportHeader.of(report));
     }
 
     // Create a new report
     public Report createReport(UUID reporterId, UUID reportedPlayerId, String reason) {
         Report report = new Report(reporterId, reportedPlayerId, reason);
-        reports.put(report.getId(), report);
-        
         // Track reports by player
-        playerReports.computeIfAbsent(reportedPlayerId, k -> new ArrayList<>()).add(report.getId());
+        track(report);
         
-        saveReports();
+        if (storage != null) {
+            storage.saveReport(report);
+        }
         return report;
     }
 
+    /**
+     * Reports a hit of an automated check. Hits for the same player and reason are merged, and
+     * a report is opened only once there are enough of them; see {@link ReportCoalescer}.
+     * @param sample Evidence of this hit, or null
+     * @return The ID of the report the hit counts toward, or null while below the threshold
+     */
+    public UUID reportAutomated(UUID reportedPlayerId, String reason, Evidence sample) {
+        return coalescer.signal(reportedPlayerId, reason, sample, System.currentTimeMillis());
+    }
+
+    /**
+     * Like {@link #reportAutomated(UUID, String, Evidence)}, with a threshold of its own, for
+     * checks that already limit how often they fire.
+     * @param threshold Hits in one window before a report is opened; 1 opens it on the first hit
+     */
+    public UUID reportAutomated(UUID reportedPlayerId, String reason, Evidence sample, int threshold) {
+        return coalescer.signal(reportedPlayerId, reason, sample, threshold, System.currentTimeMillis());
+    }
+
     /**
      * Adds a note to a report
      * @param reportId The ID of the report
@@ -55,95 +171,166 @@ public class ReportManager {
      * @return true if the note was added, false if the report doesn't exist
      */
     public boolean addNote(UUID reportId, String note) {
-        Report report = reports.get(reportId);
+        Report report = getReport(reportId).orElse(null);
         if (report != null) {
+            int before = report.getNotes().size();
             report.addNote(note);
-            saveReports();
+            track(report);
+            List<String> notes = report.getNotes();
+            if (storage != null && notes.size() > before) {
+                // Store the note with the timestamp it was given
+                storage.saveNote(report, notes.get(notes.size() - 1));
+            }
             return true;
         }
         return false;
     }
     
-    // Get a report by ID
+    /**
+     * Gets a report by ID, reading it from the storage if it is not cached. A cache miss
+     * is a file read or, with a database, a query over the network, so do not call this
+     * for many reports in a row on the main thread; use {@link #getReports(Collection)}.
+     */
     public Optional<Report> getReport(UUID reportId) {
-        return Optional.ofNullable(reports.get(reportId));
+        if (reportId == null) {
+            return Optional.empty();
+        }
+        synchronized (cache) {
+            Report cached = cache.get(reportId);
+            if (cached != null) {
+                cacheHits.increment();
+                return Optional.of(cached);
+            }
+        }
+        if (storage == null || !index.contains(reportId)) {
+            return Optional.empty();
+        }
+        cacheMisses.increment();
+        try {
+            Report loaded = storage.loadReport(reportId);
+            if (loaded == null) {
+                return Optional.empty();
+            }
+            synchronized (cache) {
+                // Another thread may have read it meanwhile; everyone gets the same instance
+                Report cached = cache.putIfAbsent(reportId, loaded);
+                return Optional.of(cached != null ? cached : loaded);
+            }
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Nie udało się wczytać zgłoszenia " + reportId, e);
+            return Optional.empty();
+        }
     }
 
-    // Get all reports for a player
-    public List<Report> getPlayerReports(UUID playerId) {
-        return playerReports.getOrDefault(playerId, Collections.emptyList()).stream()
-                .map(this::getReport)
-                .filter(Optional::isPresent)
-                .map(Optional::get)
-                .collect(Collectors.toList());
+    /**
+     * Gets several reports, reading all that are not cached in one storage call.
+     * @return The reports found, by ID; IDs without a readable report are left out
+     */
+    public Map<UUID, Report> getReports(Collection<UUID> reportIds) {
+        Map<UUID, Report> found = new HashMap<>();
+        List<UUID> missing = new ArrayList<>();
+        synchronized (cache) {
+            for (UUID id : reportIds) {
+                Report cached = cache.get(id);
+                if (cached != null) {
+                    cacheHits.increment();
+                    found.put(id, cached);
+                } else if (index.contains(id)) {
+                    missing.add(id);
+                }
+            }
+        }
+        if (missing.isEmpty() || storage == null) {
+            return found;
+        }
+        cacheMisses.add(missing.size());
+        try {
+            Map<UUID, Report> loaded = storage.loadReports(missing);
+            synchronized (cache) {
+                for (Report report : loaded.values()) {
+                    // Another thread may have read it meanwhile; everyone gets the same instance
+                    Report cached = cache.putIfAbsent(report.getId(), report);
+                    found.put(report.getId(), cached != null ? cached : report);
+                }
+            }
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Nie udało się wczytać " + missing.size() + " zgłoszeń", e);
+        }
+        return found;
     }
 
-    // Get all open reports
-    public List<Report> getOpenReports() {
-        return reports.values().stream()
-                .filter(r -> r.getStatus() == Report.ReportStatus.OPEN)
-                .collect(Collectors.toList());
+    /**
+     * @param idPrefix The start of a report ID, as shown in chat
+     */
+    public Optional<Report> findReportByIdPrefix(String idPrefix) {
+        UUID id = index.findByIdPrefix(idPrefix);
+        return id != null ? getReport(id) : Optional.empty();
     }
-    
-    // Get all reports
-    public List<Report> getAllReports() {
-        return new ArrayList<>(reports.values());
+
+    /**
+     * The newest reports about a player; reads only the reports on the page.
+     * @param limit How many reports to return at most
+     */
+    public ReportPage getPlayerReports(UUID playerId, int limit) {
+        return searchReports(new ReportQuery().reportedPlayer(playerId).page(0, limit), null);
+    }
+
+    /**
+     * The newest open reports; reads only the reports on the page.
+     * @param limit How many reports to return at most
+     */
+    public ReportPage getOpenReports(int limit) {
+        return searchReports(new ReportQuery().status(Report.ReportStatus.OPEN).page(0, limit), null);
+    }
+
+    /**
+     * The newest reports; reads only the reports on the page.
+     * @param limit How many reports to return at most
+     */
+    public ReportPage getAllReports(int limit) {
+        return searchReports(new ReportQuery().page(0, limit), null);
     }
     
     /**
      * Search reports by various criteria
-     * @param query Search query string
+     * @param query Search query string; every word must start a word of the reason or a note
      * @param reporterId Filter by reporter UUID (can be null)
      * @param targetId Filter by target player UUID (can be null)
      * @param status Filter by report status (can be null)
-     * @return List of matching reports
+     * @param limit How many reports to return at most
+     * @return The newest matching reports; pass {@link ReportPage#getNext()} to
+     *         {@link #searchReports(ReportQuery, ReportPage.Cursor)} for more
      */
+    public ReportPage searchReports(String query, UUID reporterId, UUID targetId, Report.ReportStatus status, int limit) {
+        return searchReports(new ReportQuery().text(query).reporter(reporterId).reportedPlayer(targetId).status(status)
+                .page(0, limit), null);
+    }
+
     /**
-     * Search reports by various criteria
-     * @param query Search query string
-     * @param reporterId Filter by reporter UUID (can be null)
-     * @param targetId Filter by target player UUID (can be null)
-     * @param status Filter by report status (can be null)
-     * @return List of matching reports
+     * One page of matching reports from the in-memory indexes; reads only the reports on
+     * the page and the ones skipped to reach it.
+     * @param after {@link ReportPage#getNext()} of the previous page, or null for the first page
      */
-    public List<Report> searchReports(String query, UUID reporterId, UUID targetId, Report.ReportStatus status) {
-        return reports.values().stream()
-                .filter(report -> {
-                    // Filter by search query
-                    if (query != null && !query.isEmpty()) {
-                        String queryLower = query.toLowerCase();
-                        boolean matches = report.getReason().toLowerCase().contains(queryLower) ||
-                                report.getNotes().stream()
-                                        .anyMatch(note -> note.toLowerCase().contains(queryLower));
-                        if (!matches) return false;
-                    }
-                    
-                    // Filter by reporter
-                    if (reporterId != null && !report.getReporterId().equals(reporterId)) {
-                        return false;
-                    }
-                    
-                    // Filter by target
-                    if (targetId != null && !report.getReportedPlayerId().equals(targetId)) {
-                        return false;
-                    }
-                    
-                    // Filter by status
-                    if (status != null && report.getStatus() != status) {
-                        return false;
-                    }
-                    
-                    return true;
-                })
-                .sorted(Comparator.comparing(Report::getCreatedAt).reversed())
-                .collect(Collectors.toList());
+    public ReportPage searchReports(ReportQuery query, ReportPage.Cursor after) {
+        return index.search(query, after);
+    }
+
+    /**
+     * How many reports match the query, ignoring its page; reads no reports, so it is fine
+     * for sizing a GUI.
+     */
+    public int countReports(ReportQuery query) {
+        return index.count(query);
     }
 
     // Assign a report to a moderator
     public boolean assignReport(UUID reportId, String moderatorId) {
         return getReport(reportId).map(report -> {
             report.assignToModerator(moderatorId);
-            saveReports();
+            track(report);
+            if (storage != null) {
+                storage.saveState(report);
+            }
             return true;
         }).orElse(false);
     }
@@ -152,7 +339,10 @@ public class ReportManager {
     public boolean resolveReport(UUID reportId, String resolutionNotes) {
         return getReport(reportId).map(report -> {
             report.resolve(resolutionNotes);
-            saveReports();
+            track(report);
+            if (storage != null) {
+                storage.saveState(report);
+            }
             return true;
         }).orElse(false);
     }
@@ -161,16 +351,21 @@ public class ReportManager {
     public boolean closeReport(UUID reportId, String reason) {
         return getReport(reportId).map(report -> {
             report.close(reason);
-            saveReports();
+            track(report);
+            if (storage != null) {
+                storage.saveState(report);
+            }
             return true;
         }).orElse(false);
     }
 
     // Add evidence to a report
-    public boolean addEvidence(UUID reportId, com.wificraft.sentinel.modules.reports.Evidence evidence) {
+    public boolean addEvidence(UUID reportId, Evidence evidence) {
         return getReport(reportId).map(report -> {
             report.addEvidence(evidence);
-            saveReports();
+            if (storage != null && evidence != null) {
+                storage.saveEvidence(report, evidence);
+            }
             return true;
         }).orElse(false);
     }
@@ -179,7 +374,9 @@ public class ReportManager {
     public boolean removeEvidence(UUID reportId, UUID evidenceId) {
         return getReport(reportId).map(report -> {
             report.removeEvidence(evidenceId);
-            saveReports();
+            if (storage != null) {
+                storage.removeEvidence(report, evidenceId);
+            }
             return true;
         }).orElse(false);
     }
@@ -191,117 +388,64 @@ public class ReportManager {
         return player.getName() != null ? player.getName() : "Unknown";
     }
 
-    // Save reports to file
     /**
-     * Saves all reports to disk
+     * Waits until every change made so far is stored. Changes are stored as they happen,
+     * so this is only needed before shutdown.
      */
     public void saveReports() {
-        try {
-            YamlConfiguration config = new YamlConfiguration();
-            
-            // Save each report
-            for (Report report : reports.values()) {
-                String reportPath = "reports." + report.getId().toString() + ".";
-                config.set(reportPath + "reporter", report.getReporterId().toString());
-                config.set(reportPath + "reported", report.getReportedPlayerId().toString());
-                config.set(reportPath + "reason", report.getReason());
-                config.set(reportPath + "createdAt", report.getCreatedAt().format(dateTimeFormatter));
-                config.set(reportPath + "status", report.getStatus().name());
-                
-                if (report.getAssignedModeratorId() != null) {
-                    config.set(reportPath + "assignedModerator", report.getAssignedModeratorId());
-                }
-                if (report.getResolutionNotes() != null) {
-                    config.set(reportPath + "resolutionNotes", report.getResolutionNotes());
-                }
-                if (report.getResolvedAt() != null) {
-                    config.set(reportPath + "resolvedAt", report.getResolvedAt().format(dateTimeFormatter));
-                }
-                
-                // Save evidence
-                int evidenceIndex = 0;
-                for (Evidence evidence : report.getEvidence()) {
-                    String evidencePath = reportPath + "evidence." + evidenceIndex + ".";
-                    config.set(evidencePath + "id", evidence.getId().toString());
-                    config.set(evidencePath + "type", evidence.getType().name());
-                    config.set(evidencePath + "notes", evidence.getNotes());
-                    config.set(evidencePath + "reporter", evidence.getReporterId().toString());
-                    config.set(evidencePath + "createdAt", evidence.getCreatedAt().format(dateTimeFormatter));
-                    
-                    // Save specific evidence type data
-                    if (evidence instanceof ScreenshotEvidence) {
-                        ScreenshotEvidence se = (ScreenshotEvidence) evidence;
-                        config.set(evidencePath + "screenshot.url", se.getImageUrl());
-                        config.set(evidencePath + "screenshot.fileName", se.getFileName());
-                    } else if (evidence instanceof ChatEvidence) {
-                        ChatEvidence ce = (ChatEvidence) evidence;
-                        config.set(evidencePath + "chat.message", ce.getMessage());
-                        config.set(evidencePath + "chat.channel", ce.getChannel());
-                    } else if (evidence instanceof LocationEvidence) {
-                        LocationEvidence le = (LocationEvidence) evidence;
-                        config.set(evidencePath + "location.world", le.getWorldName());
-                        config.set(evidencePath + "location.x", le.getLocation().getX());
-                        config.set(evidencePath + "location.y", le.getLocation().getY());
-                        config.set(evidencePath + "location.z", le.getLocation().getZ());
-                    } else if (evidence instanceof ObjectEvidence) {
-                        ObjectEvidence oe = (ObjectEvidence) evidence;
-                        config.set(evidencePath + "object.type", oe.getMaterialName());
-                        config.set(evidencePath + "object.amount", oe.getAmount());
-                        config.set(evidencePath + "object.displayName", oe.getDisplayName());
-                    }
-                    
-                    evidenceIndex++;
-                }
-                config.set(reportPath + "evidenceCount", evidenceIndex);
-            }
-            
-            // Save notes for each report
-            for (Map.Entry<UUID, Report> entry : reports.entrySet()) {
-                String reportPath = "reports." + entry.getKey().toString() + ".";
-                List<String> notes = entry.getValue().getNotes();
-                
-                // Save each note with an index
-                int noteIndex = 0;
-                for (String note : notes) {
-                    config.set(reportPath + "notes." + noteIndex, note);
-                    noteIndex++;
-                }
-                config.set(reportPath + "notesCount", noteIndex);
-            }
-            
-            // Save player reports mapping
-            for (Map.Entry<UUID, List<UUID>> entry : playerReports.entrySet()) {
-                config.set("player_reports." + entry.getKey().toString(), 
-                         entry.getValue().stream().map(UUID::toString).collect(Collectors.toList()));
+        if (storage != null) {
+            storage.flush();
+        }
+    }
+
+    /**
+     * Closes the automated report groups, writes the remaining changes and closes the storage
+     * if this manager opened it.
+     */
+    public void shutdown() {
+        coalescer.shutdown();
+        if (storage != null) {
+            storage.flush();
+            if (ownsStorage) {
+                storage.close();
             }
-            
-            config.save(reportsFile);
-        } catch (IOException e) {
-            plugin.getLogger().log(Level.SEVERE, "Could not save reports to " + reportsFile, e);
+            storage = null;
         }
     }
 
-    // Load reports from file
-    private void loadReports() {
-        if (!reportsFile.exists()) return;
-        
+    public ReportCoalescer getCoalescer() {
+        return coalescer;
+    }
+
+    public String getStatusLine() {
+        long hits = cacheHits.sum();
+        long lookups = hits + cacheMisses.sum();
+        int cached;
+        synchronized (cache) {
+            cached = cache.size();
+        }
+        return String.format("%d reports, %d cached (%.0f%% hits), %d indexed words, %s", index.size(), cached,
+            lookups == 0 ? 100.0 : hits * 100.0 / lookups, index.wordCount(), storage != null ? storage.getStatusLine() : "storage closed");
+    }
+
+    // Import the reports of the YAML file used before the storage, keeping their IDs
+    private void importLegacyReports() {
         try {
             YamlConfiguration config = YamlConfiguration.loadConfiguration(reportsFile);
             
-            // Clear existing data
-            reports.clear();
-            playerReports.clear();
-            
             // Load reports
             if (config.isConfigurationSection("reports")) {
                 for (String reportId : config.getConfigurationSection("reports").getKeys(false)) {
                     try {
                         String path = "reports." + reportId + ".";
-                        UUID reporterId = UUID.fromString(Objects.requireNonNull(config.getString(path + "reporter")));
+                        String reporter = config.getString(path + "reporter");
+                        UUID reporterId = reporter != null ? UUID.fromString(reporter) : null;
                         UUID reportedId = UUID.fromString(Objects.requireNonNull(config.getString(path + "reported")));
                         String reason = config.getString(path + "reason", "No reason provided");
+                        String createdAt = config.getString(path + "createdAt");
                         
-                        Report report = new Report(reporterId, reportedId, reason);
+                        Report report = new Report(UUID.fromString(reportId), reporterId, reportedId, reason,
+                                createdAt != null ? LocalDateTime.parse(createdAt, dateTimeFormatter) : LocalDateTime.now());
                         
                         // Set report status
                         String statusStr = config.getString(path + "status");
@@ -332,9 +476,8 @@ public class ReportManager {
                         for (int i = 0; i < notesCount; i++) {
                             String note = config.getString(path + "notes." + i);
                             if (note != null) {
-                                // Add the note directly without the timestamp
-                                // (the addNote method will add a new timestamp)
-                                report.getNotes().add(note);
+                                // Add the note as stored, without a new timestamp
+                                report.restoreNote(note);
                             }
                         }
                         
@@ -390,6 +533,12 @@ public class ReportManager {
                                 }
                                 
                                 if (evidence != null) {
+                                    String evidenceId = config.getString(evidencePath + "id");
+                                    String evidenceCreatedAt = config.getString(evidencePath + "createdAt");
+                                    if (evidenceId != null && evidenceCreatedAt != null) {
+                                        evidence.restore(UUID.fromString(evidenceId),
+                                                LocalDateTime.parse(evidenceCreatedAt, dateTimeFormatter));
+                                    }
                                     report.addEvidence(evidence);
                                 }
                             } catch (IllegalArgumentException e) {
@@ -397,11 +546,9 @@ public class ReportManager {
                             }
                         }
                         
-                        // Add to reports map
-                        reports.put(report.getId(), report);
-                        
-                        // Add to player reports mapping
-                        playerReports.computeIfAbsent(reportedId, k -> new ArrayList<>()).add(report.getId());
+                        // Add to reports map and player reports mapping
+                        track(report);
+                        storage.saveReport(report);
                         
                     } catch (Exception e) {
                         plugin.getLogger().log(Level.WARNING, "Error loading report " + reportId, e);
@@ -409,22 +556,10 @@ public class ReportManager {
                 }
             }
             
-            // Load player reports mapping
-            if (config.isConfigurationSection("player_reports")) {
-                for (String playerIdStr : config.getConfigurationSection("player_reports").getKeys(false)) {
-                    try {
-                        UUID playerId = UUID.fromString(playerIdStr);
-                        List<String> reportIds = config.getStringList("player_reports." + playerIdStr);
-                        
-                        List<UUID> reportUuids = reportIds.stream()
-                                .map(UUID::fromString)
-                                .collect(Collectors.toList());
-                                
-                        playerReports.put(playerId, reportUuids);
-                    } catch (IllegalArgumentException e) {
-                        plugin.getLogger().warning("Invalid UUID in player_reports: " + playerIdStr);
-                    }
-                }
+            storage.flush();
+            File imported = new File(reportsFile.getPath() + ".imported");
+            if (reportsFile.renameTo(imported)) {
+                plugin.getLogger().info(String.format("Zaimportowano %d zgłoszeń z %s", index.size(), reportsFile.getName()));
             }
             
         } catch (Exception e) {
@@ -0,0 +1,63 @@
+package com.wificraft.sentinel.modules.reports;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * One page of a report search, newest first, with the cursor to ask for the page after it.
+ */
+public final class ReportPage {
+    private final List<Report> reports;
+    private final Cursor next;
+
+    ReportPage(List<Report> reports, Cursor next) {
+        this.reports = Collections.unmodifiableList(reports);
+        this.next = next;
+    }
+
+    public List<Report> getReports() {
+        return reports;
+    }
+
+    /**
+     * @return Where the next page starts, or null if this is the last page
+     */
+    public Cursor getNext() {
+        return next;
+    }
+
+    /**
+     * A position in the order of reports: newest first, ties broken by ID. It stays valid
+     * while reports are added or changed, since it names a place in the order rather than
+     * an index into a result.
+     */
+    public static final class Cursor implements Comparable<Cursor> {
+        final long createdAt;
+        final UUID id;
+
+        Cursor(long createdAt, UUID id) {
+            this.createdAt = createdAt;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(Cursor other) {
+            int byTime = Long.compare(other.createdAt, createdAt);
+            return byTime != 0 ? byTime : id.compareTo(other.id);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Cursor)) return false;
+            Cursor cursor = (Cursor) o;
+            return createdAt == cursor.createdAt && id.equals(cursor.id);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Long.hashCode(createdAt) + id.hashCode();
+        }
+    }
+}
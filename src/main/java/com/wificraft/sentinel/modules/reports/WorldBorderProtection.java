@@ -1,27 +1,45 @@
 package com.wificraft.sentinel.modules.reports;
 
+import com.wificraft.sentinel.modules.pipeline.AnalysisPipeline;
+import com.wificraft.sentinel.modules.pipeline.CaptureEvent;
+import com.wificraft.sentinel.modules.pipeline.CaptureHandler;
+import com.wificraft.sentinel.modules.ratelimit.SlidingWindowCounter;
+import com.wificraft.sentinel.modules.reports.evidence.LocationEvidence;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.World;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
-import org.bukkit.event.player.PlayerMoveEvent;
 import org.bukkit.event.player.PlayerTeleportEvent;
 import org.bukkit.configuration.file.FileConfiguration;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class WorldBorderProtection implements Listener, CaptureHandler {
+    private static final long WARNING_WINDOW_MILLIS = 10_000L;
+    private static final int MAX_WARNINGS = 3;
 
-public class WorldBorderProtection implements Listener {
     private final ReportManager reportManager;
+    private final AnalysisPipeline pipeline;
     private final Map<String, Location> worldBorders;
-    private final Map<String, Integer> borderWarningCount;
+    // Per player, so one player straying in a busy world does not report everyone else
+    private final SlidingWindowCounter<UUID> borderWarningCount;
     
     public WorldBorderProtection(ReportManager reportManager, FileConfiguration config) {
+        this(reportManager, config, null);
+    }
+
+    /**
+     * @param pipeline Pipeline to run border checks on, or null to check inline on the server thread
+     */
+    public WorldBorderProtection(ReportManager reportManager, FileConfiguration config, AnalysisPipeline pipeline) {
         this.reportManager = reportManager;
-        this.worldBorders = new HashMap<>();
-        this.borderWarningCount = new HashMap<>();
+        this.pipeline = pipeline;
+        this.worldBorders = new ConcurrentHashMap<>();
+        this.borderWarningCount = new SlidingWindowCounter<>(WARNING_WINDOW_MILLIS, 10, 10_000);
         
         // Load world borders from config
         for (String worldName : config.getConfigurationSection("world-borders").getKeys(false)) {
@@ -36,41 +54,58 @@ public class WorldBorderProtection implements Listener {
     }
 
     @EventHandler
-    public void onPlayerMove(PlayerMoveEvent event) {
-        checkBorder(event.getPlayer(), event.getTo());
+    public void onPlayerTeleport(PlayerTeleportEvent event) {
+        Location to = event.getTo();
+        if (to == null) return;
+        checkBorder(event.getPlayer().getUniqueId(), to.getWorld().getName(), to.getX(), to.getY(), to.getZ());
     }
 
-    @EventHandler
-    public void onPlayerTeleport(PlayerTeleportEvent event) {
-        checkBorder(event.getPlayer(), event.getTo());
+    @Override
+    public void onCapture(CaptureEvent event) {
+        if (event.getType() == CaptureEvent.TYPE_MOVE) {
+            checkBorder(event.getPlayerId(), event.getWorldName(), event.getToX(), event.getToY(), event.getToZ());
+        }
     }
 
-    private void checkBorder(Player player, Location location) {
-        if (location == null) return;
-        
-        String worldName = location.getWorld().getName();
+    private void checkBorder(UUID playerId, String worldName, double x, double y, double z) {
         Location border = worldBorders.get(worldName);
         
         if (border != null) {
-            double distance = location.distance(border);
+            double dx = x - border.getX();
+            double dy = y - border.getY();
+            double dz = z - border.getZ();
+            double distance = Math.sqrt(dx * dx + dy * dy + dz * dz);
             
             if (distance > 2000) { // Player is too far from border
-                Integer count = borderWarningCount.getOrDefault(worldName, 0);
-                borderWarningCount.put(worldName, count + 1);
+                int count = borderWarningCount.increment(playerId, System.currentTimeMillis());
                 
-                if (count >= 3) { // More than 3 warnings in quick succession
-                    reportManager.createReport(null, player.getUniqueId(), 
-                        "Player approaching world border in " + worldName);
+                if (count > MAX_WARNINGS) { // More than 3 warnings in quick succession
+                    String detail = String.format("%.0f bloków od środka", distance);
+                    runOnMain(() -> reportManager.reportAutomated(playerId, "Player approaching world border in " + worldName,
+                        new LocationEvidence(null, new Location(border.getWorld(), x, y, z), null, detail)));
                 }
                 
                 // Teleport player back if they're too far
                 if (distance > 3000) {
-                    player.teleport(border);
+                    runOnMain(() -> {
+                        Player player = Bukkit.getPlayer(playerId);
+                        if (player != null) {
+                            player.teleport(border);
+                        }
+                    });
                 }
             }
         }
     }
 
+    private void runOnMain(Runnable task) {
+        if (pipeline != null) {
+            pipeline.postToMain(task);
+        } else {
+            task.run();
+        }
+    }
+
     /**
      * Get border information for a world
      * @param worldName Name of the world
@@ -87,7 +122,6 @@ public class WorldBorderProtection implements Listener {
      */
     public void setBorderLocation(String worldName, Location location) {
         worldBorders.put(worldName, location);
-        borderWarningCount.put(worldName, 0);
     }
 
     /**
@@ -96,6 +130,5 @@ public class WorldBorderProtection implements Listener {
      */
     public void removeBorder(String worldName) {
         worldBorders.remove(worldName);
-        borderWarningCount.remove(worldName);
     }
 }
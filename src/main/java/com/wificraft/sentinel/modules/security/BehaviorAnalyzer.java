@@ -4,26 +4,35 @@ import com.wificraft.sentinel.WiFiCraftSentinel;
 import com.wificraft.sentinel.alerts.AlertManager;
 import com.wificraft.sentinel.alerts.SeverityLevel;
 import com.wificraft.sentinel.config.SecurityConfig;
+import com.wificraft.sentinel.modules.chat.ChatPatternMatcher;
+import com.wificraft.sentinel.modules.pipeline.AnalysisPipeline;
+import com.wificraft.sentinel.modules.pipeline.CaptureEvent;
+import com.wificraft.sentinel.modules.pipeline.CaptureHandler;
+import com.wificraft.sentinel.modules.stats.MovementWindowStats;
+import org.bukkit.block.Block;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
 import org.bukkit.event.block.BlockBreakEvent;
 import org.bukkit.event.block.BlockPlaceEvent;
-import org.bukkit.event.player.PlayerMoveEvent;
-import java.util.ArrayList;
-import java.util.Collections;
+import org.bukkit.event.player.PlayerQuitEvent;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 
-public class BehaviorAnalyzer implements Listener, IAnalyzer {
+public class BehaviorAnalyzer implements Listener, IAnalyzer, CaptureHandler {
+    private static final long ANALYSIS_WINDOW = 10000;
+    private static final int MOVEMENT_WINDOW_CAPACITY = 512;
     private final AlertManager alertManager;
-    private final Map<UUID, List<BehaviorEvent>> playerEvents;
+    private final AnalysisPipeline pipeline;
+    private final ChatPatternMatcher patternMatcher;
+    private final Map<UUID, BehaviorHistory> playerHistories;
     private final long maxHistoryTime;
+    private final int bufferCapacity;
     private final double movementSpeedThreshold;
     private final double movementDistanceThreshold;
     private final int movementFrequencyThreshold;
@@ -32,12 +41,15 @@ public class BehaviorAnalyzer implements Listener, IAnalyzer {
 
     public BehaviorAnalyzer(WiFiCraftSentinel plugin) {
         this.alertManager = new AlertManager();
-        this.playerEvents = new HashMap<>();
+        this.pipeline = plugin.getAnalysisPipeline();
+        this.patternMatcher = plugin.getChatPatternMatcher();
+        this.playerHistories = new ConcurrentHashMap<>();
         FileConfiguration config = plugin.getConfig();
         
         // Convert 1h to milliseconds
         String historyDuration = config.getString(SecurityConfig.BEHAVIOR_TRACKING_HISTORY, "1h");
         this.maxHistoryTime = parseDuration(historyDuration);
+        this.bufferCapacity = config.getInt(SecurityConfig.BEHAVIOR_TRACKING_BUFFER_CAPACITY, 1024);
         
         this.movementSpeedThreshold = config.getDouble(SecurityConfig.BEHAVIOR_TRACKING_MOVEMENT_SPEED_THRESHOLD, 2.0);
         this.movementDistanceThreshold = config.getDouble(SecurityConfig.BEHAVIOR_TRACKING_MOVEMENT_DISTANCE_THRESHOLD, 10.0);
@@ -55,151 +67,115 @@ public class BehaviorAnalyzer implements Listener, IAnalyzer {
         int value = Integer.parseInt(duration.substring(0, duration.length() - 1));
         
         switch (unit) {
-            case 's': return value * 1000;
-            case 'm': return value * 60000;
-            case 'h': return value * 3600000;
-            case 'd': return value * 86400000;
+            case 's': return value * 1000L;
+            case 'm': return value * 60000L;
+            case 'h': return value * 3600000L;
+            case 'd': return value * 86400000L;
             default: return 3600000; // Default to 1 hour
         }
     }
 
-    @EventHandler
-    public void onPlayerMove(PlayerMoveEvent event) {
-        Player player = event.getPlayer();
-        UUID playerId = player.getUniqueId();
-        
-        // Get or create player's event list
-        List<BehaviorEvent> events = playerEvents.computeIfAbsent(playerId, k -> new ArrayList<>());
-        
-        // Add new movement event
-        BehaviorEvent newEvent = new BehaviorEvent(
-            "movement",
-            System.currentTimeMillis(),
-            event.getTo().getX() - event.getFrom().getX(),
-            event.getTo().getY() - event.getFrom().getY(),
-            event.getTo().getZ() - event.getFrom().getZ(),
-            0, // Distance will be calculated in analyzeMovementPatterns
-            player
-        );
-        events.add(newEvent);
-        
-        // Clean up old events
-        cleanOldEvents(events);
-        
-        // Analyze movement patterns if we have enough data
-        if (events.size() >= 10) {
-            analyzeMovementPatterns(events);
-        }
+    private BehaviorHistory getHistory(UUID playerId) {
+        return playerHistories.computeIfAbsent(playerId, k -> new BehaviorHistory(bufferCapacity,
+            new MovementWindowStats(ANALYSIS_WINDOW, MOVEMENT_WINDOW_CAPACITY, movementSpeedThreshold, movementDistanceThreshold)));
     }
 
     @EventHandler
     public void onBlockBreak(BlockBreakEvent event) {
-        Player player = event.getPlayer();
-        UUID playerId = player.getUniqueId();
-        
-        List<BehaviorEvent> events = playerEvents.computeIfAbsent(playerId, k -> new ArrayList<>());
-        
-        // Add new event
-        events.add(new BehaviorEvent(
-            "block_break",
-            System.currentTimeMillis(),
-            event.getBlock().getLocation().getX(),
-            event.getBlock().getLocation().getY(),
-            event.getBlock().getLocation().getZ(),
-            1, // Distance is 1 for block interactions
-            player
-        ));
-        
-        cleanOldEvents(events);
-        analyzeBlockPatterns(events);
+        captureBlockEvent(event.getPlayer().getUniqueId(), event.getBlock(), CaptureEvent.TYPE_BLOCK_BREAK);
     }
 
     @EventHandler
     public void onBlockPlace(BlockPlaceEvent event) {
-        Player player = event.getPlayer();
-        UUID playerId = player.getUniqueId();
-        
-        List<BehaviorEvent> events = playerEvents.computeIfAbsent(playerId, k -> new ArrayList<>());
-        
-        // Add new event
-        events.add(new BehaviorEvent(
-            "block_place",
-            System.currentTimeMillis(),
-            event.getBlock().getLocation().getX(),
-            event.getBlock().getLocation().getY(),
-            event.getBlock().getLocation().getZ(),
-            1, // Distance is 1 for block interactions
-            player
-        ));
-        
-        cleanOldEvents(events);
-        analyzeBlockPatterns(events);
+        captureBlockEvent(event.getPlayer().getUniqueId(), event.getBlock(), CaptureEvent.TYPE_BLOCK_PLACE);
     }
 
-    private void cleanOldEvents(List<BehaviorEvent> events) {
-        long currentTime = System.currentTimeMillis();
-        
-        // Remove events older than maxHistoryTime
-        events.removeIf(event -> (currentTime - event.getTimestamp()) > maxHistoryTime);
+    private void captureBlockEvent(UUID playerId, Block block, byte captureType) {
+        if (pipeline != null) {
+            pipeline.publishBlock(this, playerId, captureType, null, block.getX(), block.getY(), block.getZ());
+            return;
+        }
+        recordBlockEvent(playerId, System.currentTimeMillis(), toBufferType(captureType),
+            block.getX(), block.getY(), block.getZ());
     }
 
-    private void analyzeMovementPatterns(List<BehaviorEvent> events) {
-        double movementScore = 0;
-        double maxSpeed = 0;
-        double maxDistance = 0;
-        double avgSpeed = 0;
-        int movementCount = 0;
-        int rapidDirectionChanges = 0;
-        long currentTime = System.currentTimeMillis();
-        
-        List<BehaviorEvent> recentEvents = events.stream()
-            .filter(event -> event.getType().equals("movement") && 
-                        (currentTime - event.getTimestamp()) <= 10000)
-            .toList();
+    @Override
+    public void onCapture(CaptureEvent event) {
+        UUID playerId = event.getPlayerId();
+        switch (event.getType()) {
+            case CaptureEvent.TYPE_MOVE:
+                recordMovement(playerId, event.getTimestamp(),
+                    event.getToX() - event.getFromX(),
+                    event.getToY() - event.getFromY(),
+                    event.getToZ() - event.getFromZ());
+                break;
+            case CaptureEvent.TYPE_BLOCK_BREAK:
+            case CaptureEvent.TYPE_BLOCK_PLACE:
+                recordBlockEvent(playerId, event.getTimestamp(), toBufferType(event.getType()),
+                    event.getToX(), event.getToY(), event.getToZ());
+                break;
+            case CaptureEvent.TYPE_CHAT:
+                recordChat(playerId, event.getTimestamp(), event.getMessage());
+                break;
+            case CaptureEvent.TYPE_QUIT:
+                playerHistories.remove(playerId);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static byte toBufferType(byte captureType) {
+        return captureType == CaptureEvent.TYPE_BLOCK_BREAK
+            ? BehaviorEventBuffer.TYPE_BLOCK_BREAK
+            : BehaviorEventBuffer.TYPE_BLOCK_PLACE;
+    }
+
+    private void recordMovement(UUID playerId, long now, double dx, double dy, double dz) {
+        BehaviorHistory history = getHistory(playerId);
+        BehaviorEventBuffer movement = history.movement;
         
-        if (recentEvents.size() < 3) return; // Need at least 3 points for direction analysis
+        // Record the movement delta; no Location or Player is retained
+        movement.add(now, BehaviorEventBuffer.TYPE_MOVEMENT, dx, dy, dz, (byte) 0);
+        movement.evictOlderThan(now - maxHistoryTime);
+        history.movementStats.add(now, dx, dy, dz);
         
-        // Calculate movement statistics
-        for (int i = 0; i < recentEvents.size() - 1; i++) {
-            BehaviorEvent current = recentEvents.get(i);
-            BehaviorEvent next = recentEvents.get(i + 1);
-            
-            if (current.getType().equals("movement")) {
-                movementCount++;
-                double deltaTime = (next.getTimestamp() - current.getTimestamp()) / 1000.0;
-                double speed = Math.sqrt(Math.pow(next.getX() - current.getX(), 2) + 
-                                     Math.pow(next.getY() - current.getY(), 2) + 
-                                     Math.pow(next.getZ() - current.getZ(), 2)) / deltaTime;
-                double distance = Math.sqrt(Math.pow(next.getX() - current.getX(), 2) + 
-                                        Math.pow(next.getY() - current.getY(), 2) + 
-                                        Math.pow(next.getZ() - current.getZ(), 2));
-                
-                maxSpeed = Math.max(maxSpeed, speed);
-                maxDistance = Math.max(maxDistance, distance);
-                avgSpeed += speed;
-                
-                if (speed > movementSpeedThreshold) {
-                    movementScore += 2;
-                }
-                if (distance > movementDistanceThreshold) {
-                    movementScore += 1;
-                }
-                
-                // Check for rapid direction changes
-                if (i > 0) {
-                    BehaviorEvent prev = recentEvents.get(i - 1);
-                    double angleChange = calculateAngleChange(prev, current, next);
-                    if (angleChange > 90) { // More than 90 degree turn
-                        rapidDirectionChanges++;
-                        movementScore += 1;
-                    }
-                }
-            }
+        // Analyze movement patterns if we have enough data
+        if (movement.size() >= 10) {
+            analyzeMovementPatterns(history.movementStats);
         }
-        
-        if (movementCount > 0) {
-            avgSpeed /= movementCount;
+    }
+
+    @EventHandler
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        UUID playerId = event.getPlayer().getUniqueId();
+        if (pipeline != null && pipeline.publishQuit(this, playerId)) {
+            return;
         }
+        playerHistories.remove(playerId);
+    }
+
+    private void recordBlockEvent(UUID playerId, long now, byte type, double x, double y, double z) {
+        BehaviorEventBuffer blocks = getHistory(playerId).blocks;
+        
+        blocks.add(now, type, x, y, z, (byte) 0);
+        blocks.evictOlderThan(now - maxHistoryTime);
+        analyzeBlockPatterns(blocks, now);
+    }
+
+    /**
+     * Scores the last 10 seconds of movement from the incrementally maintained window
+     * statistics, so the cost per move does not depend on how many moves are in the window.
+     */
+    private void analyzeMovementPatterns(MovementWindowStats stats) {
+        // Need at least 3 points for direction analysis
+        if (stats.getPointCount() < 3) return;
+        
+        int movementCount = stats.getSegmentCount();
+        int rapidDirectionChanges = stats.getSharpTurnCount();
+        double movementScore = 2.0 * stats.getSpeedThresholdHits()
+            + stats.getDistanceThresholdHits()
+            + rapidDirectionChanges;
         
         if (movementCount > movementFrequencyThreshold) {
             movementScore += 3;
@@ -212,123 +188,88 @@ public class BehaviorAnalyzer implements Listener, IAnalyzer {
         movementScore = Math.min(100, movementScore);
         
         if (movementScore >= 70) {
-            alertManager.createAlert(
+            raiseAlert(
                 "Suspicious Movement Pattern",
                 String.format("Movement score: %.2f%%, Max Speed: %.2f, Avg Speed: %.2f, Max Distance: %.2f, Movements: %d, Rapid Direction Changes: %d", 
-                    movementScore, maxSpeed, avgSpeed, maxDistance, movementCount, rapidDirectionChanges),
+                    movementScore, stats.getMaxSpeed(), stats.getAverageSpeed(), stats.getMaxDistance(), movementCount, rapidDirectionChanges),
                 SeverityLevel.YELLOW
             );
         }
     }
 
-    private double calculateAngleChange(BehaviorEvent prev, BehaviorEvent current, BehaviorEvent next) {
-        double[] v1 = {
-            current.getX() - prev.getX(),
-            current.getY() - prev.getY(),
-            current.getZ() - prev.getZ()
-        };
-        double[] v2 = {
-            next.getX() - current.getX(),
-            next.getY() - current.getY(),
-            next.getZ() - current.getZ()
-        };
-        
-        double dotProduct = v1[0] * v2[0] + v1[1] * v2[1] + v1[2] * v2[2];
-        double mag1 = Math.sqrt(v1[0] * v1[0] + v1[1] * v1[1] + v1[2] * v1[2]);
-        double mag2 = Math.sqrt(v2[0] * v2[0] + v2[1] * v2[1] + v2[2] * v2[2]);
+    private static double calculateAngleChange(double v1x, double v1y, double v1z,
+                                               double v2x, double v2y, double v2z) {
+        double dotProduct = v1x * v2x + v1y * v2y + v1z * v2z;
+        double mag1 = Math.sqrt(v1x * v1x + v1y * v1y + v1z * v1z);
+        double mag2 = Math.sqrt(v2x * v2x + v2y * v2y + v2z * v2z);
         
         if (mag1 == 0 || mag2 == 0) return 0;
         
         double cosTheta = dotProduct / (mag1 * mag2);
         return Math.toDegrees(Math.acos(Math.min(1, Math.max(-1, cosTheta))));
     }
+
     @EventHandler
     public void onPlayerChat(org.bukkit.event.player.AsyncPlayerChatEvent event) {
-        Player player = event.getPlayer();
-        UUID playerId = player.getUniqueId();
-        
-        // Get or create player's event list
-        List<BehaviorEvent> events = playerEvents.computeIfAbsent(playerId, k -> new ArrayList<>());
-        
-        // Add new chat event
-        String message = event.getMessage();
-        BehaviorEvent newEvent = new BehaviorEvent("chat", System.currentTimeMillis(), message, player);
-        events.add(newEvent);
+        UUID playerId = event.getPlayer().getUniqueId();
+        if (pipeline != null) {
+            pipeline.publishChat(this, playerId, event.getMessage());
+            return;
+        }
+        recordChat(playerId, System.currentTimeMillis(), event.getMessage());
+    }
+
+    private void recordChat(UUID playerId, long now, String message) {
+        BehaviorEventBuffer chat = getHistory(playerId).chat;
         
-        // Clean up old events
-        cleanOldEvents(events);
+        // Only the suspicious-word verdict is kept, never the message itself
+        // Flagged once on arrival, so window scans never re-read message text
+        byte flags = patternMatcher.containsAny(message, ChatPatternMatcher.BEHAVIOR)
+            ? BehaviorEventBuffer.FLAG_SUSPICIOUS_WORD : 0;
+        chat.add(now, BehaviorEventBuffer.TYPE_CHAT, 0, 0, 0, flags);
+        chat.evictOlderThan(now - maxHistoryTime);
         
         // Analyze chat patterns
-        analyzeChatPatterns(events);
+        analyzeChatPatterns(chat, now);
     }
 
-    private void analyzeChatPatterns(List<BehaviorEvent> events) {
-        int messageCount = 0;
-        int rapidMessages = 0;
-        int suspiciousWords = 0;
-        long currentTime = System.currentTimeMillis();
-        
-        List<BehaviorEvent> recentEvents = events.stream()
-            .filter(event -> event.getType().equals("chat") && 
-                        (currentTime - event.getTimestamp()) <= 10000)
-            .toList();
-
-        if (recentEvents.isEmpty()) return;
-
-        // Track suspicious words
-        String[] suspiciousWordsList = {
-            "hack", "cheat", "bot", "exploit", "admin", "op", "mod", "staff",
-            "bug", "glitch", "crash", "lag", "laggy", "slow", "performance",
-            "ban", "kick", "mute", "unfair", "complain", "complaint"
-        };
-
-        // Analyze chat patterns
-        for (int i = 0; i < recentEvents.size(); i++) {
-            BehaviorEvent event = recentEvents.get(i);
-            messageCount++;
-            
-            // Check for rapid messages
-            if (i > 0) {
-                long timeDiff = event.getTimestamp() - recentEvents.get(i - 1).getTimestamp();
-                if (timeDiff < 500) { // Less than 500ms between messages
-                    rapidMessages++;
-                }
-            }
-            
-            // Check for suspicious words
-            String message = event.getMessage().toLowerCase();
-            for (String word : suspiciousWordsList) {
-                if (message.contains(word)) {
-                    suspiciousWords++;
-                    break;
-                }
-            }
+    /**
+     * Alerts are raised on the server thread; analysis may run on a pipeline consumer.
+     */
+    private void raiseAlert(String title, String description, SeverityLevel severity) {
+        if (pipeline != null) {
+            pipeline.postToMain(() -> alertManager.createAlert(title, description, severity));
+        } else {
+            alertManager.createAlert(title, description, severity);
         }
+    }
+
+    private void analyzeChatPatterns(BehaviorEventBuffer chat, long currentTime) {
+        ChatScan scan = new ChatScan();
+        if (chat.forEachSince(currentTime - ANALYSIS_WINDOW, scan) == 0) return;
 
         // Calculate chat score
         double chatScore = 0;
-        if (messageCount > 10) {
+        if (scan.messageCount > 10) {
             chatScore += 2;
         }
-        if (rapidMessages > 2) {
+        if (scan.rapidMessages > 2) {
             chatScore += 3;
         }
-        if (suspiciousWords > 1) {
+        if (scan.suspiciousWords > 1) {
             chatScore += 4;
         }
 
         if (chatScore >= 5) {
-            alertManager.createAlert(
+            raiseAlert(
                 "Suspicious Chat Behavior",
                 String.format("Messages: %d, Rapid messages: %d, Suspicious words: %d",
-                    messageCount, rapidMessages, suspiciousWords),
+                    scan.messageCount, scan.rapidMessages, scan.suspiciousWords),
                 SeverityLevel.YELLOW
             );
         }
     }
 
-
-
     @Override
     public String getPlayerInfo(Player player) {
         Map<String, Object> info = getPlayerInfoInternal(player);
@@ -378,170 +319,63 @@ public class BehaviorAnalyzer implements Listener, IAnalyzer {
     }
 
     private Map<String, Object> getPlayerInfoInternal(Player player) {
-        UUID playerId = player.getUniqueId();
-        List<BehaviorEvent> events = playerEvents.getOrDefault(playerId, Collections.emptyList());
+        BehaviorHistory history = playerHistories.get(player.getUniqueId());
         
         Map<String, Object> info = new HashMap<>();
         
         // Movement stats
         Map<String, Object> movementStats = new HashMap<>();
-        double avgSpeed = 0;
-        double avgDistance = 0;
-        int rapidDirectionChanges = 0;
-        
-        List<BehaviorEvent> movementEvents = events.stream()
-            .filter(event -> event.getType().equals("movement"))
-            .toList();
-            
-        for (int i = 0; i < movementEvents.size() - 1; i++) {
-            BehaviorEvent current = movementEvents.get(i);
-            BehaviorEvent next = movementEvents.get(i + 1);
-            
-            double deltaTime = (next.getTimestamp() - current.getTimestamp()) / 1000.0;
-            double speed = Math.sqrt(Math.pow(next.getX() - current.getX(), 2) + 
-                                 Math.pow(next.getY() - current.getY(), 2) + 
-                                 Math.pow(next.getZ() - current.getZ(), 2)) / deltaTime;
-            double distance = Math.sqrt(Math.pow(next.getX() - current.getX(), 2) + 
-                                    Math.pow(next.getY() - current.getY(), 2) + 
-                                    Math.pow(next.getZ() - current.getZ(), 2));
-            
-            avgSpeed += speed;
-            avgDistance += distance;
-            
-            if (i > 0) {
-                BehaviorEvent prev = movementEvents.get(i - 1);
-                double angleChange = calculateAngleChange(prev, current, next);
-                if (angleChange > 90) {
-                    rapidDirectionChanges++;
-                }
-            }
+        MovementScan movement = new MovementScan();
+        if (history != null) {
+            history.movement.forEachSince(Long.MIN_VALUE, movement);
         }
         
-        if (!movementEvents.isEmpty()) {
-            avgSpeed /= movementEvents.size();
-            avgDistance /= movementEvents.size();
+        double avgSpeed = 0;
+        double avgDistance = 0;
+        if (movement.points > 0) {
+            avgSpeed = movement.speedSum / movement.points;
+            avgDistance = movement.distanceSum / movement.points;
         }
         
         movementStats.put("avgSpeed", avgSpeed);
         movementStats.put("avgDistance", avgDistance);
-        movementStats.put("rapidDirectionChanges", rapidDirectionChanges);
-        movementStats.put("totalMovements", movementEvents.size());
+        movementStats.put("rapidDirectionChanges", movement.rapidDirectionChanges);
+        movementStats.put("totalMovements", movement.points);
         info.put("movement", movementStats);
 
         // Block interaction stats
         Map<String, Object> blockStats = new HashMap<>();
-        int blocksBroken = 0;
-        int blocksPlaced = 0;
-        int rapidBlockActions = 0;
-        double avgBreakDistance = 0;
-        double avgPlaceDistance = 0;
-        
-        List<BehaviorEvent> blockEvents = events.stream()
-            .filter(event -> event.getType().equals("block_break") || event.getType().equals("block_place"))
-            .toList();
-            
-        Map<String, BehaviorEvent> lastPositions = new HashMap<>();
-        
-        for (int i = 0; i < blockEvents.size(); i++) {
-            BehaviorEvent event = blockEvents.get(i);
-            if (event.getType().equals("block_break")) {
-                blocksBroken++;
-                if (lastPositions.containsKey("break")) {
-                    BehaviorEvent lastBreak = lastPositions.get("break");
-                    double distance = Math.sqrt(
-                        Math.pow(event.getX() - lastBreak.getX(), 2) +
-                        Math.pow(event.getY() - lastBreak.getY(), 2) +
-                        Math.pow(event.getZ() - lastBreak.getZ(), 2)
-                    );
-                    avgBreakDistance += distance;
-                }
-            } else if (event.getType().equals("block_place")) {
-                blocksPlaced++;
-                if (lastPositions.containsKey("place")) {
-                    BehaviorEvent lastPlace = lastPositions.get("place");
-                    double distance = Math.sqrt(
-                        Math.pow(event.getX() - lastPlace.getX(), 2) +
-                        Math.pow(event.getY() - lastPlace.getY(), 2) +
-                        Math.pow(event.getZ() - lastPlace.getZ(), 2)
-                    );
-                    avgPlaceDistance += distance;
-                }
-            }
-            
-            // Check for rapid block actions
-            if (i > 0 && blockEvents.get(i - 1).getType().equals(event.getType())) {
-                long timeDiff = event.getTimestamp() - blockEvents.get(i - 1).getTimestamp();
-                if (timeDiff < 100) {
-                    rapidBlockActions++;
-                }
-            }
-            
-            lastPositions.put(event.getType(), event);
-        }
-        
-        if (blocksBroken > 0) {
-            avgBreakDistance /= blocksBroken;
-        }
-        if (blocksPlaced > 0) {
-            avgPlaceDistance /= blocksPlaced;
+        BlockScan blocks = new BlockScan();
+        if (history != null) {
+            history.blocks.forEachSince(Long.MIN_VALUE, blocks);
         }
         
-        blockStats.put("blocksBroken", blocksBroken);
-        blockStats.put("blocksPlaced", blocksPlaced);
-        blockStats.put("rapidBlockActions", rapidBlockActions);
-        blockStats.put("avgBreakDistance", avgBreakDistance);
-        blockStats.put("avgPlaceDistance", avgPlaceDistance);
+        blockStats.put("blocksBroken", blocks.blocksBroken);
+        blockStats.put("blocksPlaced", blocks.blocksPlaced);
+        blockStats.put("rapidBlockActions", blocks.rapidBlockChanges);
+        blockStats.put("avgBreakDistance", blocks.averageBreakDistance());
+        blockStats.put("avgPlaceDistance", blocks.averagePlaceDistance());
         info.put("block", blockStats);
 
         // Chat stats
         Map<String, Object> chatStats = new HashMap<>();
-        int messageCount = 0;
-        int rapidMessages = 0;
-        int suspiciousWords = 0;
-        
-        List<BehaviorEvent> chatEvents = events.stream()
-            .filter(event -> event.getType().equals("chat"))
-            .toList();
-            
-        String[] suspiciousWordsList = {
-            "hack", "cheat", "bot", "exploit", "admin", "op", "mod", "staff",
-            "bug", "glitch", "crash", "lag", "laggy", "slow", "performance",
-            "ban", "kick", "mute", "unfair", "complain", "complaint"
-        };
-        
-        for (int i = 0; i < chatEvents.size(); i++) {
-            messageCount++;
-            
-            // Check for rapid messages
-            if (i > 0) {
-                long timeDiff = chatEvents.get(i).getTimestamp() - chatEvents.get(i - 1).getTimestamp();
-                if (timeDiff < 500) {
-                    rapidMessages++;
-                }
-            }
-            
-            // Check for suspicious words
-            String message = chatEvents.get(i).getMessage().toLowerCase();
-            for (String word : suspiciousWordsList) {
-                if (message.contains(word)) {
-                    suspiciousWords++;
-                    break;
-                }
-            }
+        ChatScan chat = new ChatScan();
+        if (history != null) {
+            history.chat.forEachSince(Long.MIN_VALUE, chat);
         }
         
-        chatStats.put("messageCount", messageCount);
-        chatStats.put("rapidMessages", rapidMessages);
-        chatStats.put("suspiciousWords", suspiciousWords);
+        chatStats.put("messageCount", chat.messageCount);
+        chatStats.put("rapidMessages", chat.rapidMessages);
+        chatStats.put("suspiciousWords", chat.suspiciousWords);
         info.put("chat", chatStats);
 
         // Overall behavior score
         double behaviorScore = 0;
-        if (rapidDirectionChanges > 2) behaviorScore += 2;
+        if (movement.rapidDirectionChanges > 2) behaviorScore += 2;
         if (avgSpeed > movementSpeedThreshold) behaviorScore += 2;
-        if (rapidBlockActions > 2) behaviorScore += 2;
-        if (suspiciousWords > 0) behaviorScore += 3;
-        if (rapidMessages > 2) behaviorScore += 2;
+        if (blocks.rapidBlockChanges > 2) behaviorScore += 2;
+        if (chat.suspiciousWords > 0) behaviorScore += 3;
+        if (chat.rapidMessages > 2) behaviorScore += 2;
         
         info.put("behaviorScore", behaviorScore);
         info.put("lastUpdated", System.currentTimeMillis());
@@ -549,90 +383,22 @@ public class BehaviorAnalyzer implements Listener, IAnalyzer {
         return info;
     }
 
-    private void analyzeBlockPatterns(List<BehaviorEvent> events) {
-        int blocksBroken = 0;
-        int blocksPlaced = 0;
-        int rapidBlockChanges = 0;
-        double avgBreakDistance = 0;
-        double avgPlaceDistance = 0;
-        long currentTime = System.currentTimeMillis();
-        List<BehaviorEvent> recentEvents = events.stream()
-            .filter(event -> event.getType().equals("block_break") || event.getType().equals("block_place") && 
-                        (currentTime - event.getTimestamp()) <= 10000)
-            .toList();
-
-        if (recentEvents.isEmpty()) return;
-
-        // Track previous block positions
-        Map<String, BehaviorEvent> lastBlockPositions = new HashMap<>();
-
-        for (int i = 0; i < recentEvents.size(); i++) {
-            BehaviorEvent event = recentEvents.get(i);
-            
-            if (event.getType().equals("block_break")) {
-                blocksBroken++;
-                
-                // Calculate distance from last break
-                if (lastBlockPositions.containsKey("break")) {
-                    BehaviorEvent lastBreak = lastBlockPositions.get("break");
-                    double distance = Math.sqrt(
-                        Math.pow(event.getX() - lastBreak.getX(), 2) +
-                        Math.pow(event.getY() - lastBreak.getY(), 2) +
-                        Math.pow(event.getZ() - lastBreak.getZ(), 2)
-                    );
-                    avgBreakDistance += distance;
-                    
-                    // Check for rapid block breaking
-                    if (i > 0 && recentEvents.get(i - 1).getType().equals("block_break")) {
-                        long timeDiff = event.getTimestamp() - recentEvents.get(i - 1).getTimestamp();
-                        if (timeDiff < 100) { // Less than 100ms between breaks
-                            rapidBlockChanges++;
-                        }
-                    }
-                }
-                lastBlockPositions.put("break", event);
-            } else if (event.getType().equals("block_place")) {
-                blocksPlaced++;
-                
-                // Calculate distance from last place
-                if (lastBlockPositions.containsKey("place")) {
-                    BehaviorEvent lastPlace = lastBlockPositions.get("place");
-                    double distance = Math.sqrt(
-                        Math.pow(event.getX() - lastPlace.getX(), 2) +
-                        Math.pow(event.getY() - lastPlace.getY(), 2) +
-                        Math.pow(event.getZ() - lastPlace.getZ(), 2)
-                    );
-                    avgPlaceDistance += distance;
-                    
-                    // Check for rapid block placing
-                    if (i > 0 && recentEvents.get(i - 1).getType().equals("block_place")) {
-                        long timeDiff = event.getTimestamp() - recentEvents.get(i - 1).getTimestamp();
-                        if (timeDiff < 100) { // Less than 100ms between places
-                            rapidBlockChanges++;
-                        }
-                    }
-                }
-                lastBlockPositions.put("place", event);
-            }
-        }
+    private void analyzeBlockPatterns(BehaviorEventBuffer blocks, long currentTime) {
+        BlockScan scan = new BlockScan();
+        if (blocks.forEachSince(currentTime - ANALYSIS_WINDOW, scan) == 0) return;
 
-        // Calculate averages
-        if (blocksBroken > 0) {
-            avgBreakDistance /= blocksBroken;
-        }
-        if (blocksPlaced > 0) {
-            avgPlaceDistance /= blocksPlaced;
-        }
+        double avgBreakDistance = scan.averageBreakDistance();
+        double avgPlaceDistance = scan.averagePlaceDistance();
 
         // Calculate block activity score
         int blockScore = 0;
-        if (blocksBroken > blockBreakThreshold) {
+        if (scan.blocksBroken > blockBreakThreshold) {
             blockScore += 3;
         }
-        if (blocksPlaced > blockPlaceThreshold) {
+        if (scan.blocksPlaced > blockPlaceThreshold) {
             blockScore += 3;
         }
-        if (rapidBlockChanges > 2) {
+        if (scan.rapidBlockChanges > 2) {
             blockScore += 4;
         }
         if (avgBreakDistance > 10 || avgPlaceDistance > 10) { // Large distances between blocks
@@ -640,12 +406,158 @@ public class BehaviorAnalyzer implements Listener, IAnalyzer {
         }
 
         if (blockScore >= 7) {
-            alertManager.createAlert(
+            raiseAlert(
                 "Suspicious Block Activity",
                 String.format("Blocks broken: %d, Blocks placed: %d, Rapid changes: %d, Avg break distance: %.2f, Avg place distance: %.2f",
-                    blocksBroken, blocksPlaced, rapidBlockChanges, avgBreakDistance, avgPlaceDistance),
+                    scan.blocksBroken, scan.blocksPlaced, scan.rapidBlockChanges, avgBreakDistance, avgPlaceDistance),
                 SeverityLevel.YELLOW
             );
         }
     }
+
+    /**
+     * Per-player event rings. Each channel has its own ring so that a flood of
+     * movement samples never evicts block or chat history.
+     */
+    private static final class BehaviorHistory {
+        final BehaviorEventBuffer movement;
+        final BehaviorEventBuffer blocks;
+        final BehaviorEventBuffer chat;
+        final MovementWindowStats movementStats;
+
+        BehaviorHistory(int capacity, MovementWindowStats movementStats) {
+            this.movementStats = movementStats;
+            this.movement = new BehaviorEventBuffer(capacity);
+            this.blocks = new BehaviorEventBuffer(capacity);
+            this.chat = new BehaviorEventBuffer(capacity);
+        }
+    }
+
+    /**
+     * Walks consecutive movement samples keeping only the last two points, summing the speed
+     * and distance of each (current, next) pair and counting sharp (prev, current, next) turns.
+     */
+    private static final class MovementScan implements BehaviorEventBuffer.Visitor {
+        int points;
+        int rapidDirectionChanges;
+        double speedSum;
+        double distanceSum;
+
+        private long lastTime;
+        private double lastX, lastY, lastZ;
+        private double prevX, prevY, prevZ;
+
+        @Override
+        public void visit(long timestamp, byte type, double x, double y, double z, byte flags) {
+            if (points > 0) {
+                double dx = x - lastX;
+                double dy = y - lastY;
+                double dz = z - lastZ;
+                double distance = Math.sqrt(dx * dx + dy * dy + dz * dz);
+                double speed = distance / ((timestamp - lastTime) / 1000.0);
+
+                speedSum += speed;
+                distanceSum += distance;
+
+                // Check for rapid direction changes (more than 90 degree turn)
+                if (points > 1) {
+                    double angleChange = calculateAngleChange(
+                        lastX - prevX, lastY - prevY, lastZ - prevZ, dx, dy, dz);
+                    if (angleChange > 90) {
+                        rapidDirectionChanges++;
+                    }
+                }
+            }
+
+            prevX = lastX;
+            prevY = lastY;
+            prevZ = lastZ;
+            lastX = x;
+            lastY = y;
+            lastZ = z;
+            lastTime = timestamp;
+            points++;
+        }
+    }
+
+    private static final class BlockScan implements BehaviorEventBuffer.Visitor {
+        int blocksBroken;
+        int blocksPlaced;
+        int rapidBlockChanges;
+        double breakDistanceSum;
+        double placeDistanceSum;
+
+        private boolean hasBreak, hasPlace;
+        private double breakX, breakY, breakZ;
+        private double placeX, placeY, placeZ;
+        private byte lastType;
+        private long lastTime;
+
+        @Override
+        public void visit(long timestamp, byte type, double x, double y, double z, byte flags) {
+            // Less than 100ms between two actions of the same kind
+            if (type == lastType && timestamp - lastTime < 100) {
+                rapidBlockChanges++;
+            }
+
+            if (type == BehaviorEventBuffer.TYPE_BLOCK_BREAK) {
+                blocksBroken++;
+                if (hasBreak) {
+                    breakDistanceSum += distance(x, y, z, breakX, breakY, breakZ);
+                }
+                hasBreak = true;
+                breakX = x;
+                breakY = y;
+                breakZ = z;
+            } else if (type == BehaviorEventBuffer.TYPE_BLOCK_PLACE) {
+                blocksPlaced++;
+                if (hasPlace) {
+                    placeDistanceSum += distance(x, y, z, placeX, placeY, placeZ);
+                }
+                hasPlace = true;
+                placeX = x;
+                placeY = y;
+                placeZ = z;
+            }
+
+            lastType = type;
+            lastTime = timestamp;
+        }
+
+        double averageBreakDistance() {
+            return blocksBroken > 0 ? breakDistanceSum / blocksBroken : 0;
+        }
+
+        double averagePlaceDistance() {
+            return blocksPlaced > 0 ? placeDistanceSum / blocksPlaced : 0;
+        }
+
+        private static double distance(double x1, double y1, double z1, double x2, double y2, double z2) {
+            double dx = x1 - x2;
+            double dy = y1 - y2;
+            double dz = z1 - z2;
+            return Math.sqrt(dx * dx + dy * dy + dz * dz);
+        }
+    }
+
+    private static final class ChatScan implements BehaviorEventBuffer.Visitor {
+        int messageCount;
+        int rapidMessages;
+        int suspiciousWords;
+
+        private long lastTime;
+
+        @Override
+        public void visit(long timestamp, byte type, double x, double y, double z, byte flags) {
+            // Less than 500ms between messages
+            if (messageCount > 0 && timestamp - lastTime < 500) {
+                rapidMessages++;
+            }
+            if ((flags & BehaviorEventBuffer.FLAG_SUSPICIOUS_WORD) != 0) {
+                suspiciousWords++;
+            }
+            messageCount++;
+            lastTime = timestamp;
+        }
+    }
 }
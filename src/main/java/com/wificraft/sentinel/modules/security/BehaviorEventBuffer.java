@@ -0,0 +1,192 @@
+package com.wificraft.sentinel.modules.security;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Fixed-capacity ring of behavior samples for a single player, stored as parallel
+ * primitive arrays (struct-of-arrays) so that recording an event allocates nothing
+ * and no {@link org.bukkit.entity.Player} reference is ever retained.
+ *
+ * Samples must be appended in non-decreasing timestamp order. When the ring is full
+ * the oldest sample is overwritten; {@link #evictOlderThan(long)} drops samples from
+ * the tail, so eviction is O(1) per removed sample.
+ *
+ * Writes take a short exclusive lock and window reads take a shared lock, so a worker
+ * thread can scan the buffer while the server thread keeps appending.
+ */
+public class BehaviorEventBuffer {
+    public static final byte TYPE_MOVEMENT = 1;
+    public static final byte TYPE_BLOCK_BREAK = 2;
+    public static final byte TYPE_BLOCK_PLACE = 3;
+    public static final byte TYPE_CHAT = 4;
+
+    /** Chat sample flag: the message contained at least one suspicious word. */
+    public static final byte FLAG_SUSPICIOUS_WORD = 1;
+
+    private final long[] timestamps;
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] zs;
+    private final byte[] types;
+    private final byte[] flags;
+    private final int mask;
+    private final StampedLock lock;
+
+    // Index of the oldest sample and number of live samples
+    private int tail;
+    private int size;
+
+    /**
+     * @param capacity Requested capacity, rounded up to the next power of two
+     */
+    public BehaviorEventBuffer(int capacity) {
+        int actual = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.timestamps = new long[actual];
+        this.xs = new double[actual];
+        this.ys = new double[actual];
+        this.zs = new double[actual];
+        this.types = new byte[actual];
+        this.flags = new byte[actual];
+        this.mask = actual - 1;
+        this.lock = new StampedLock();
+    }
+
+    /**
+     * Appends a sample, overwriting the oldest one when the ring is full.
+     */
+    public void add(long timestamp, byte type, double x, double y, double z, byte flag) {
+        long stamp = lock.writeLock();
+        try {
+            int index;
+            if (size == timestamps.length) {
+                index = tail;
+                tail = (tail + 1) & mask;
+            } else {
+                index = (tail + size) & mask;
+                size++;
+            }
+            timestamps[index] = timestamp;
+            xs[index] = x;
+            ys[index] = y;
+            zs[index] = z;
+            types[index] = type;
+            flags[index] = flag;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Drops every sample with a timestamp strictly before the cutoff.
+     * @return Number of samples evicted
+     */
+    public int evictOlderThan(long cutoff) {
+        long stamp = lock.writeLock();
+        try {
+            int evicted = 0;
+            while (size > 0 && timestamps[tail] < cutoff) {
+                tail = (tail + 1) & mask;
+                size--;
+                evicted++;
+            }
+            return evicted;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Visits, oldest first, every sample with a timestamp at or after {@code since}.
+     * The visitor is called under the read lock and must not write to this buffer.
+     * @return Number of samples visited
+     */
+    public int forEachSince(long since, Visitor visitor) {
+        long stamp = lock.readLock();
+        try {
+            int count = 0;
+            for (int i = firstIndexAtOrAfter(since); i < size; i++) {
+                int index = (tail + i) & mask;
+                visitor.visit(timestamps[index], types[index], xs[index], ys[index], zs[index], flags[index]);
+                count++;
+            }
+            return count;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Counts the samples with a timestamp at or after {@code since} without visiting them.
+     */
+    public int countSince(long since) {
+        long stamp = lock.tryOptimisticRead();
+        int count = size - firstIndexAtOrAfter(since);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                count = size - firstIndexAtOrAfter(since);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return Timestamp of the newest sample, or -1 if the buffer is empty
+     */
+    public long newestTimestamp() {
+        long stamp = lock.readLock();
+        try {
+            return size == 0 ? -1 : timestamps[(tail + size - 1) & mask];
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public int capacity() {
+        return timestamps.length;
+    }
+
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            tail = 0;
+            size = 0;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Binary search over the logical (oldest-first) order; caller holds a lock or validates
+    private int firstIndexAtOrAfter(long since) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestamps[(tail + mid) & mask] < since) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Receives buffered samples as primitives so that window scans never copy or box.
+     */
+    @FunctionalInterface
+    public interface Visitor {
+        void visit(long timestamp, byte type, double x, double y, double z, byte flags);
+    }
+}
@@ -88,6 +88,14 @@ public class ClientFingerprint {
         return timestamp;
     }
 
+    /**
+     * The fingerprint as a set of feature hashes for {@link FingerprintLshIndex}, the same
+     * set its {@link CompactFingerprint} gives.
+     */
+    public long[] getFeatureHashes() {
+        return CompactFingerprint.of(this).getFeatureHashes();
+    }
+
     public double calculateSimilarityScore(ClientFingerprint other) {
         double score = 0.0;
         
@@ -1,5 +1,6 @@
 package com.wificraft.sentinel.modules.security;
 
+import com.wificraft.sentinel.modules.ip.AccountLinkService;
 import com.wificraft.sentinel.modules.reports.ReportManager;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
@@ -8,21 +9,150 @@ import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.event.player.PlayerTeleportEvent;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Fingerprints the client of every joining player and compares it with the clients of past
+ * players through a {@link FingerprintLshIndex}.
+ *
+ * The index is loaded from the history file when the manager is created, saved every
+ * {@code client-fingerprints.save-interval-minutes} off the main thread once {@link #start()}
+ * is called, and saved again by {@link #shutdown()}. Fingerprints not seen for
+ * {@code client-fingerprints.max-age-days} are dropped when it is saved, and at most
+ * {@code client-fingerprints.max-entries} are kept.
+ */
 public class ClientFingerprintManager implements Listener {
+    // Candidates from the history index checked per join
+    private static final int HISTORY_CANDIDATES = 5;
+    // Estimated share of common features above which an offline account counts as the same client
+    private static final double HISTORY_THRESHOLD = 0.8;
+
     private final ReportManager reportManager;
-    private final Map<UUID, ClientFingerprint> fingerprints;
+    private final Plugin plugin;
+    private final Map<UUID, CompactFingerprint> fingerprints;
     private final Map<UUID, Long> lastFingerprintTimes;
     private final Map<UUID, Integer> suspiciousAttempts;
+    private final File historyFile;
+    private final FingerprintLshIndex history;
+    private final long maxAgeMillis;
+    private volatile AccountLinkService accountLinks;
+    private BukkitTask saveTask;
     
     public ClientFingerprintManager(ReportManager reportManager) {
+        this(null, reportManager, null);
+    }
+
+    public ClientFingerprintManager(ReportManager reportManager, File historyFile) {
+        this(null, reportManager, historyFile);
+    }
+
+    /**
+     * @param plugin Plugin whose scheduler runs the join checks off the main thread, or null to run them on the joining thread
+     * @param historyFile File the fingerprints of past players are loaded from and saved to, or null to keep them in memory only
+     */
+    public ClientFingerprintManager(Plugin plugin, ReportManager reportManager, File historyFile) {
+        this.plugin = plugin;
         this.reportManager = reportManager;
         this.fingerprints = new ConcurrentHashMap<>();
         this.lastFingerprintTimes = new ConcurrentHashMap<>();
         this.suspiciousAttempts = new ConcurrentHashMap<>();
+        this.historyFile = historyFile;
+        this.history = loadHistory(historyFile);
+        if (plugin != null) {
+            history.setMaxEntries(plugin.getConfig().getInt("client-fingerprints.max-entries",
+                FingerprintLshIndex.DEFAULT_MAX_ENTRIES));
+            this.maxAgeMillis = TimeUnit.DAYS.toMillis(plugin.getConfig().getLong("client-fingerprints.max-age-days", 90));
+        } else {
+            this.maxAgeMillis = 0;
+        }
+    }
+
+    /**
+     * Saves the history every {@code client-fingerprints.save-interval-minutes} off the main thread.
+     */
+    public void start() {
+        if (plugin == null || saveTask != null) {
+            return;
+        }
+        long interval = Math.max(1, plugin.getConfig().getLong("client-fingerprints.save-interval-minutes", 5)) * 60 * 20;
+        saveTask = Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, this::saveHistory, interval, interval);
+    }
+
+    /**
+     * Stops the periodic save and saves the history one last time.
+     */
+    public void shutdown() {
+        if (saveTask != null) {
+            saveTask.cancel();
+            saveTask = null;
+        }
+        saveHistory();
+    }
+
+    /**
+     * Links every joining account to the hash of its client, so alt accounts played from one
+     * client are linked even from different addresses.
+     * @param accountLinks Service to record the client hashes in, or null to stop recording
+     */
+    public void setAccountLinks(AccountLinkService accountLinks) {
+        this.accountLinks = accountLinks;
+    }
+
+    private static FingerprintLshIndex loadHistory(File file) {
+        if (file == null || !file.isFile()) {
+            return new FingerprintLshIndex();
+        }
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file.toPath()), 1 << 16)) {
+            return FingerprintLshIndex.read(new DataInputStream(in));
+        } catch (IOException e) {
+            Bukkit.getLogger().warning("Nie udało się wczytać historii odcisków klientów z " + file.getName() + ": " + e.getMessage());
+            return new FingerprintLshIndex();
+        }
+    }
+
+    /**
+     * Drops expired fingerprints and writes the history if it changed; the file is replaced atomically.
+     */
+    public synchronized void saveHistory() {
+        if (maxAgeMillis > 0) {
+            history.prune(System.currentTimeMillis() - maxAgeMillis);
+        }
+        if (historyFile == null || !history.isDirty()) {
+            return;
+        }
+        File temp = new File(historyFile.getPath() + ".tmp");
+        try {
+            File folder = historyFile.getParentFile();
+            if (folder != null && !folder.exists()) {
+                folder.mkdirs();
+            }
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp.toPath()), 1 << 16)) {
+                history.write(new DataOutputStream(out));
+            }
+            try {
+                Files.move(temp.toPath(), historyFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), historyFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            Bukkit.getLogger().warning("Nie udało się zapisać historii odcisków klientów: " + e.getMessage());
+        }
     }
 
     @EventHandler
@@ -30,13 +160,17 @@ public class ClientFingerprintManager implements Listener {
         Player player = event.getPlayer();
         UUID playerId = player.getUniqueId();
         
-        // Create new fingerprint
-        ClientFingerprint fingerprint = new ClientFingerprint(player);
+        // Hash the client once here; nothing of the player is kept beyond the hashes
+        CompactFingerprint fingerprint = CompactFingerprint.capture(player);
         fingerprints.put(playerId, fingerprint);
         lastFingerprintTimes.put(playerId, System.currentTimeMillis());
         
         // Check for suspicious behavior
-        checkForSuspiciousBehavior(playerId);
+        if (plugin != null) {
+            Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> checkForSuspiciousBehavior(playerId, fingerprint));
+        } else {
+            checkForSuspiciousBehavior(playerId, fingerprint);
+        }
     }
 
     @EventHandler
@@ -53,23 +187,29 @@ public class ClientFingerprintManager implements Listener {
         checkForSuspiciousTeleport(playerId);
     }
 
-    private void checkForSuspiciousBehavior(UUID playerId) {
-        ClientFingerprint current = fingerprints.get(playerId);
+    private void checkForSuspiciousBehavior(UUID playerId, CompactFingerprint current) {
+        long[] features = current.getFeatureHashes();
         
-        // Check against existing fingerprints
-        for (Map.Entry<UUID, ClientFingerprint> entry : fingerprints.entrySet()) {
-            if (!entry.getKey().equals(playerId)) {
-                ClientFingerprint other = entry.getValue();
-                if (current.isSuspicious(other)) {
-                    handleSuspiciousActivity(playerId);
-                    break;
-                }
+        // Only the most similar past fingerprints are checked, found through the index
+        for (FingerprintLshIndex.Match match : history.findSimilar(features, HISTORY_CANDIDATES, 0.0, playerId)) {
+            CompactFingerprint other = fingerprints.get(match.getAccount());
+            // Online players still have their whole fingerprint for the weighted comparison
+            boolean suspicious = other != null ? current.isSuspicious(other) : match.getSimilarity() >= HISTORY_THRESHOLD;
+            if (suspicious) {
+                handleSuspiciousActivity(playerId);
+                break;
             }
         }
+        history.put(playerId, features, current.getCapturedAt());
+
+        AccountLinkService links = accountLinks;
+        if (links != null) {
+            links.recordFingerprint(playerId, current.getClientHash());
+        }
     }
 
     private void checkForSuspiciousTeleport(UUID playerId) {
-        ClientFingerprint current = fingerprints.get(playerId);
+        CompactFingerprint current = fingerprints.get(playerId);
         if (current == null) return;
         
         // Check teleport frequency
@@ -89,10 +229,14 @@ public class ClientFingerprintManager implements Listener {
     }
 
     private void handleSuspiciousActivity(UUID playerId) {
+        if (plugin != null && !Bukkit.isPrimaryThread()) {
+            Bukkit.getScheduler().runTask(plugin, () -> handleSuspiciousActivity(playerId));
+            return;
+        }
         Player player = Bukkit.getPlayer(playerId);
         if (player != null) {
-            reportManager.createReport(null, playerId, 
-                "Suspicious client behavior detected - potential account sharing or cheating");
+            reportManager.reportAutomated(playerId,
+                "Suspicious client behavior detected - potential account sharing or cheating", null);
             
             // Add more actions as needed
             // For example: kick player, ban IP, etc.
@@ -102,9 +246,9 @@ public class ClientFingerprintManager implements Listener {
     /**
      * Get fingerprint for a player
      * @param playerId Player's UUID
-     * @return ClientFingerprint or null if not found
+     * @return CompactFingerprint or null if not found
      */
-    public ClientFingerprint getFingerprint(UUID playerId) {
+    public CompactFingerprint getFingerprint(UUID playerId) {
         return fingerprints.get(playerId);
     }
 
@@ -118,11 +262,33 @@ public class ClientFingerprintManager implements Listener {
         suspiciousAttempts.remove(playerId);
     }
 
+    /**
+     * Find past players whose client looked most like the given one
+     * @param playerId Player's UUID
+     * @param limit Maximum number of matches
+     * @return Matches with their estimated similarity, most similar first; empty if the player has no fingerprint
+     */
+    public List<FingerprintLshIndex.Match> findSimilar(UUID playerId, int limit) {
+        CompactFingerprint fingerprint = fingerprints.get(playerId);
+        if (fingerprint == null) {
+            return Collections.emptyList();
+        }
+        return history.findSimilar(fingerprint.getFeatureHashes(), limit, 0.0, playerId);
+    }
+
+    public FingerprintLshIndex getHistory() {
+        return history;
+    }
+
+    public String getStatusLine() {
+        return history.getStatusLine();
+    }
+
     /**
      * Get all fingerprints
-     * @return Map of all fingerprints
+     * @return Read-only view of the fingerprints of online players
      */
-    public Map<UUID, ClientFingerprint> getAllFingerprints() {
-        return new HashMap<>(fingerprints);
+    public Map<UUID, CompactFingerprint> getAllFingerprints() {
+        return Collections.unmodifiableMap(fingerprints);
     }
 }
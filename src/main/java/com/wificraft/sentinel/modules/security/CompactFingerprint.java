@@ -0,0 +1,219 @@
+package com.wificraft.sentinel.modules.security;
+
+import com.wificraft.sentinel.modules.ip.IpAddresses;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.potion.PotionEffect;
+import org.bukkit.potion.PotionEffectType;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A client fingerprint reduced to a fixed set of 64-bit hashes.
+ *
+ * {@link #capture(Player)} reads the player once on the main thread and keeps nothing but
+ * the hashes: no item stacks, effects or maps. The inventory becomes a 64-bit composition
+ * sketch (one bit per item type, so two inventories are compared by the bits they share)
+ * plus a hash of the hotbar layout; the active effects become a sketch the same way. Scoring
+ * two fingerprints only reads these fields, so it is safe on any thread. An instance is nine
+ * longs and holds no references, while a {@link ClientFingerprint} keeps a copy of every
+ * item stack and effect.
+ */
+public final class CompactFingerprint {
+    private static final int HOTBAR_SLOTS = 9;
+    private static final long EMPTY_HOTBAR = FingerprintLshIndex.featureHash("hotbar:" + ",".repeat(HOTBAR_SLOTS));
+
+    private final long address;
+    private final long network;
+    private final long version;
+    private final long brand;
+    private final long hardware;
+    private final long inventory;
+    private final long hotbar;
+    private final long effects;
+    private final long capturedAt;
+
+    /**
+     * @param hardware Hash of the known hardware values, 0 if none are known
+     */
+    public CompactFingerprint(long address, long network, long version, long brand, long hardware,
+                              long inventory, long hotbar, long effects, long capturedAt) {
+        this.address = address;
+        this.network = network;
+        this.version = version;
+        this.brand = brand;
+        this.hardware = hardware;
+        this.inventory = inventory;
+        this.hotbar = hotbar;
+        this.effects = effects;
+        this.capturedAt = capturedAt;
+    }
+
+    /**
+     * Reads the player's connection, client and inventory; call on the main thread.
+     */
+    public static CompactFingerprint capture(Player player) {
+        String ip = player.getAddress() != null ? player.getAddress().getAddress().getHostAddress() : "";
+        String brand = player.getClientBrandName();
+        return of(ip, player.getProtocolVersion() + "/" + player.getClientViewDistance(),
+            brand != null ? brand : "Vanilla", null, player.getInventory().getContents(),
+            player.getActivePotionEffects(), System.currentTimeMillis());
+    }
+
+    /**
+     * The compact form of a full fingerprint.
+     */
+    public static CompactFingerprint of(ClientFingerprint fingerprint) {
+        return of(fingerprint.getIp(), fingerprint.getClientVersion(), fingerprint.getUserAgent(),
+            fingerprint.getHardwareInfo(), fingerprint.getInventory().toArray(new ItemStack[0]),
+            fingerprint.getActiveEffects(), fingerprint.getTimestamp());
+    }
+
+    private static CompactFingerprint of(String ip, String version, String brand, Map<String, String> hardwareInfo,
+                                         ItemStack[] contents, Collection<PotionEffect> activeEffects, long capturedAt) {
+        String network = IpAddresses.networkOf(ip, 24, 48);
+        long inventory = 0;
+        // Item names rather than ordinals, so the hash survives new materials in a server update
+        StringBuilder hotbar = new StringBuilder("hotbar:");
+        for (int slot = 0; slot < contents.length; slot++) {
+            ItemStack item = contents[slot];
+            Material type = item != null ? item.getType() : null;
+            boolean empty = type == null || type == Material.AIR;
+            if (!empty) {
+                inventory |= bit("item:" + type.name());
+            }
+            if (slot < HOTBAR_SLOTS) {
+                hotbar.append(empty ? "" : type.name()).append(',');
+            }
+        }
+        long effects = 0;
+        for (PotionEffect effect : activeEffects) {
+            PotionEffectType type = effect.getType();
+            effects |= bit("effect:" + type.getKey());
+        }
+        return new CompactFingerprint(FingerprintLshIndex.featureHash("ip:" + ip),
+            network != null ? FingerprintLshIndex.featureHash("net:" + network) : 0,
+            FingerprintLshIndex.featureHash("ver:" + version),
+            FingerprintLshIndex.featureHash("brand:" + brand),
+            hardwareHash(hardwareInfo),
+            inventory, FingerprintLshIndex.featureHash(hotbar.toString()), effects, capturedAt);
+    }
+
+    private static long hardwareHash(Map<String, String> hardwareInfo) {
+        if (hardwareInfo == null) {
+            return 0;
+        }
+        StringBuilder known = new StringBuilder();
+        for (Map.Entry<String, String> entry : new TreeMap<>(hardwareInfo).entrySet()) {
+            // Placeholders would make every fingerprint look alike
+            if (entry.getValue() != null && !entry.getValue().equals("Unknown")) {
+                known.append(entry.getKey()).append('=').append(entry.getValue()).append(';');
+            }
+        }
+        return known.length() > 0 ? FingerprintLshIndex.featureHash("hw:" + known) : 0;
+    }
+
+    private static long bit(String feature) {
+        return 1L << (FingerprintLshIndex.featureHash(feature) & 63);
+    }
+
+    /**
+     * Similarity with the weights of {@link ClientFingerprint#calculateSimilarityScore(ClientFingerprint)},
+     * computed from the hashes alone.
+     * @return Score from 0 to 1
+     */
+    public double similarity(CompactFingerprint other) {
+        double score = 0.0;
+        score += (address == other.address ? 1.0 : network != 0 && network == other.network ? 0.6 : 0.0) * 0.2;
+        score += (hardware == other.hardware ? 1.0 : 0.0) * 0.3;
+        score += Math.min(1.0, overlap(inventory, other.inventory) + (hotbar == other.hotbar ? 0.2 : 0.0)) * 0.2;
+        score += overlap(effects, other.effects) * 0.15;
+        score += ((version == other.version ? 0.5 : 0.0) + (brand == other.brand ? 0.5 : 0.0)) * 0.1;
+
+        long timeDiff = Math.abs(capturedAt - other.capturedAt);
+        score += (timeDiff < 3_600_000 ? 0.8 : timeDiff < 86_400_000 ? 0.5 : 0.2) * 0.05;
+        score += (timeDiff < 60_000 ? 0.9 : timeDiff < 3_600_000 ? 0.7 : timeDiff < 86_400_000 ? 0.4 : 0.1) * 0.1;
+        return Math.min(score, 1.0);
+    }
+
+    /**
+     * Same threshold rules as {@link ClientFingerprint#isSuspicious(ClientFingerprint)}: 0.7,
+     * raised when the networks or the hardware differ.
+     */
+    public boolean isSuspicious(CompactFingerprint other) {
+        double threshold = 0.7;
+        if (address != other.address && network != other.network) {
+            threshold += 0.1;
+        }
+        if (hardware != other.hardware) {
+            threshold += 0.15;
+        }
+        return similarity(other) > Math.min(threshold, 1.0);
+    }
+
+    private static double overlap(long a, long b) {
+        int union = Long.bitCount(a | b);
+        return union == 0 ? 0.0 : Long.bitCount(a & b) / (double) union;
+    }
+
+    /**
+     * @return The fields as a feature set for {@link FingerprintLshIndex}; every sketch bit is a feature of its own
+     */
+    public long[] getFeatureHashes() {
+        int count = 4 + (network != 0 ? 1 : 0) + (hardware != 0 ? 1 : 0)
+            + Long.bitCount(inventory) + Long.bitCount(effects);
+        long[] features = new long[count];
+        int i = 0;
+        features[i++] = address;
+        features[i++] = version;
+        features[i++] = brand;
+        features[i++] = hotbar;
+        if (network != 0) {
+            features[i++] = network;
+        }
+        if (hardware != 0) {
+            features[i++] = hardware;
+        }
+        for (long bits = inventory; bits != 0; bits &= bits - 1) {
+            features[i++] = 0x1000 + Long.numberOfTrailingZeros(bits);
+        }
+        for (long bits = effects; bits != 0; bits &= bits - 1) {
+            features[i++] = 0x2000 + Long.numberOfTrailingZeros(bits);
+        }
+        return features;
+    }
+
+    /**
+     * Hash of the client alone: version and view distance, brand, hardware and hotbar layout.
+     * The address, range, item types, effects and capture time are left out, so two accounts
+     * played from one client match even from different connections.
+     * @return Hex hash, or null when neither the hardware nor the hotbar tells the client apart
+     *         from any fresh one of the same version
+     */
+    public String getClientHash() {
+        if (hardware == 0 && hotbar == EMPTY_HOTBAR) {
+            return null;
+        }
+        return Long.toHexString(FingerprintLshIndex.featureHash(
+            "client:" + version + ':' + brand + ':' + hardware + ':' + hotbar));
+    }
+
+    public long getAddressHash() {
+        return address;
+    }
+
+    public long getInventorySketch() {
+        return inventory;
+    }
+
+    public long getEffectSketch() {
+        return effects;
+    }
+
+    public long getCapturedAt() {
+        return capturedAt;
+    }
+}
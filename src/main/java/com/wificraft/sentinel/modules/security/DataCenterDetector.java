@@ -1,28 +1,23 @@
 package com.wificraft.sentinel.modules.security;
 
+import com.wificraft.sentinel.modules.ip.IpIntelligenceService;
+import com.wificraft.sentinel.modules.ip.IpProfile;
 import org.bukkit.entity.Player;
-import java.io.IOException;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletableFuture;
 
+/**
+ * Data center view over the shared {@link IpProfile}: the known data center ranges first,
+ * then hosting space reported by the HTTP provider, named after its network owner.
+ */
 public class DataCenterDetector {
-    private static final String DC_API_URL = "https://api.db-ip.com/v2/free";
-    private final Map<String, DataCenterInfo> cachedDataCenters;
-    private final Map<String, Long> lastLookupTime;
-    private final int cacheDurationMinutes;
+    private final IpIntelligenceService intelligence;
     private List<String> knownDataCenters = new ArrayList<>();
-    private Map<String, String> dcRanges = new HashMap<>();
     private Map<String, String> suspiciousDcs = new HashMap<>();
 
-    public DataCenterDetector(int cacheDurationMinutes) {
-        this.cachedDataCenters = new ConcurrentHashMap<>();
-        this.lastLookupTime = new ConcurrentHashMap<>();
-        this.cacheDurationMinutes = cacheDurationMinutes;
+    public DataCenterDetector(IpIntelligenceService intelligence) {
+        this.intelligence = intelligence;
         initializeKnownDataCenters();
-        initializeDcRanges();
         initializeSuspiciousDcs();
     }
 
@@ -35,105 +30,45 @@ public class DataCenterDetector {
         ));
     }
 
-    private void initializeDcRanges() {
-        // Equinix ranges
-        dcRanges.put("184.106.0.0/16", "Equinix");
-        dcRanges.put("184.107.0.0/16", "Equinix");
-        // Digital Realty ranges
-        dcRanges.put("184.105.0.0/16", "Digital Realty");
-        // Add more ranges as needed
-    }
-
     private void initializeSuspiciousDcs() {
         suspiciousDcs.put("Equinix", "High traffic, potential botnet origin");
         suspiciousDcs.put("Cyxtera", "Known for hosting malicious services");
         suspiciousDcs.put("Digital Realty", "Large data center, potential for botnets");
     }
 
+    /**
+     * Does not block: uses the cached profile, or the offline ranges while the lookup finishes.
+     */
     public DataCenterInfo detectDataCenter(Player player) {
-        String ipAddress = player.getAddress().getAddress().getHostAddress();
-        return detectDataCenter(ipAddress);
+        return toInfo(intelligence.getProfileNow(player.getAddress().getAddress().getHostAddress()));
     }
 
-    private DataCenterInfo detectDataCenter(String ipAddress) {
-        if (isCached(ipAddress)) {
-            return cachedDataCenters.get(ipAddress);
-        }
+    public CompletableFuture<DataCenterInfo> detectDataCenterAsync(Player player) {
+        return intelligence.resolve(player.getAddress().getAddress().getHostAddress()).thenApply(this::toInfo);
+    }
 
+    DataCenterInfo toInfo(IpProfile profile) {
         DataCenterInfo info = new DataCenterInfo();
-        
-        try {
-            // Check against known ranges first
-            for (Map.Entry<String, String> entry : dcRanges.entrySet()) {
-                if (isIpInRange(ipAddress, entry.getKey())) {
-                    info.setDataCenter(entry.getValue());
-                    info.setSuspicious(suspiciousDcs.containsKey(entry.getValue()));
-                    info.setReason(suspiciousDcs.getOrDefault(entry.getValue(), "Known data center"));
-                    break;
-                }
-            }
-
-            // If not in known ranges, check API
-            if (info.getDataCenter() == null) {
-                String apiUrl = DC_API_URL + "?ipAddress=" + ipAddress;
-                HttpURLConnection connection = (HttpURLConnection) new URL(apiUrl).openConnection();
-                
-                if (connection.getResponseCode() == 200) {
-                    String response = new java.util.Scanner(connection.getInputStream()).useDelimiter("\\A").next();
-                    
-                    // Parse response and check for data center
-                    if (response.contains("datacenter")) {
-                        String dcName = extractDataCenterName(response);
-                        info.setDataCenter(dcName);
-                        info.setSuspicious(suspiciousDcs.containsKey(dcName));
-                        info.setReason(suspiciousDcs.getOrDefault(dcName, "Known data center"));
-                    }
-                }
-            }
-        } catch (IOException e) {
-            // Log error but return cached data if available
-            if (isCached(ipAddress)) {
-                return cachedDataCenters.get(ipAddress);
-            }
+        String dataCenter = profile.getDataCenter();
+        if (dataCenter == null && profile.isHosting()) {
+            // Hosting space outside the known ranges: name it after the network owner
+            dataCenter = knownDataCenter(profile.getOrganization());
         }
-
-        cacheDataCenter(ipAddress, info);
-        return info;
-    }
-
-    private boolean isCached(String ipAddress) {
-        Long lastLookup = lastLookupTime.get(ipAddress);
-        if (lastLookup == null) {
-            return false;
+        if (dataCenter != null) {
+            info.setDataCenter(dataCenter);
+            info.setSuspicious(suspiciousDcs.containsKey(dataCenter));
+            info.setReason(suspiciousDcs.getOrDefault(dataCenter, "Known data center"));
         }
-        long now = System.currentTimeMillis();
-        return now - lastLookup < TimeUnit.MINUTES.toMillis(cacheDurationMinutes);
-    }
-
-    private void cacheDataCenter(String ipAddress, DataCenterInfo info) {
-        cachedDataCenters.put(ipAddress, info);
-        lastLookupTime.put(ipAddress, System.currentTimeMillis());
+        return info;
     }
 
-    private boolean isIpInRange(String ipAddress, String cidrRange) {
-        // Simplified CIDR checking
-        String[] parts = ipAddress.split("\\.");
-        String[] rangeParts = cidrRange.split("\\.");
-        
-        for (int i = 0; i < 4; i++) {
-            if (!parts[i].equals(rangeParts[i])) {
-                return false;
+    private String knownDataCenter(String owner) {
+        for (String name : knownDataCenters) {
+            if (owner.contains(name)) {
+                return name;
             }
         }
-        return true;
-    }
-
-    private String extractDataCenterName(String response) {
-        // Simplified response parsing
-        return response.contains("Equinix") ? "Equinix" :
-               response.contains("Digital Realty") ? "Digital Realty" :
-               response.contains("Cyxtera") ? "Cyxtera" :
-               "Unknown";
+        return owner.isEmpty() ? "Unknown" : owner;
     }
 
     public String getDataCenterAnalysis(Player player) {
@@ -0,0 +1,505 @@
+package com.wificraft.sentinel.modules.security;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+
+/**
+ * Finds the stored fingerprints most similar to a new one without comparing it to each of them.
+ *
+ * A fingerprint is a set of 64-bit feature hashes (see {@link CompactFingerprint#getFeatureHashes()}).
+ * Each stored set is reduced to a MinHash signature, where the share of equal positions in
+ * two signatures estimates the Jaccard similarity of the two sets. The signature is cut into
+ * bands, and every band is a key in a hash table of buckets. A query only scores the
+ * fingerprints that share at least one band with it. With the default 8 bands of 4 rows,
+ * pairs above about 0.6 similarity nearly always share a band and pairs below 0.3 rarely do,
+ * so a query against 100k fingerprints scores a handful of candidates instead of all of them.
+ *
+ * Signatures, bucket chains and the bucket table are primitive arrays. A fingerprint costs
+ * about 300 bytes in memory and {@code 24 + 4 x hashes} bytes on disk; the feature sets themselves
+ * are not kept. At most {@link #setMaxEntries(int) max entries} fingerprints are kept, the one
+ * seen longest ago going first, and {@link #prune(long)} drops the ones not seen since a time.
+ * All methods are synchronized, since joins are rare enough that one lock is
+ * enough. {@link #write(DataOutputStream)} and {@link #read(DataInputStream)} use:
+ * <pre>
+ * header  magic "SFPI", int version, int bands, int rows
+ * entries int count, count x (long msb, long lsb, long lastSeen, hashes x int signature)
+ * </pre>
+ */
+public class FingerprintLshIndex {
+    static final int MAGIC = 0x53465049;
+    static final int VERSION = 1;
+    public static final int DEFAULT_BANDS = 8;
+    public static final int DEFAULT_ROWS = 4;
+    public static final int DEFAULT_MAX_ENTRIES = 100_000;
+
+    private static final int UNUSED = -2;
+    private static final int END = -1;
+
+    /**
+     * A stored fingerprint and its estimated similarity to the query, from 0 to 1.
+     */
+    public static final class Match {
+        private final UUID account;
+        private final double similarity;
+        private final long lastSeen;
+
+        Match(UUID account, double similarity, long lastSeen) {
+            this.account = account;
+            this.similarity = similarity;
+            this.lastSeen = lastSeen;
+        }
+
+        public UUID getAccount() {
+            return account;
+        }
+
+        public double getSimilarity() {
+            return similarity;
+        }
+
+        public long getLastSeen() {
+            return lastSeen;
+        }
+    }
+
+    private final int bands;
+    private final int rows;
+    private final int hashes;
+    private final long[] seeds;
+
+    private final Map<UUID, Integer> ids;
+    private UUID[] accounts;
+    private long[] lastSeen;
+    private int[] signatures;
+    // Next fingerprint in the same bucket, per (fingerprint, band) slot
+    private int[] chains;
+    private int size;
+
+    // Open addressing table from band key to the first slot of its chain
+    private long[] bucketKeys;
+    private int[] bucketHeads;
+    private int bucketsUsed;
+
+    // Per-query marks, so a candidate found in several bands is scored once
+    private int[] visited;
+    private int query;
+    private boolean dirty;
+    private int maxEntries = DEFAULT_MAX_ENTRIES;
+
+    public FingerprintLshIndex() {
+        this(DEFAULT_BANDS, DEFAULT_ROWS);
+    }
+
+    /**
+     * @param bands Number of bands; more bands find less similar pairs
+     * @param rows Signature positions per band; more rows make a shared band rarer for unrelated pairs
+     */
+    public FingerprintLshIndex(int bands, int rows) {
+        if (bands < 1 || rows < 1) {
+            throw new IllegalArgumentException("Bands and rows must be positive");
+        }
+        this.bands = bands;
+        this.rows = rows;
+        this.hashes = bands * rows;
+        this.seeds = new long[hashes];
+        long seed = 0x5DEECE66DL;
+        for (int i = 0; i < hashes; i++) {
+            seed = mix(seed + 0x9E3779B97F4A7C15L);
+            seeds[i] = seed;
+        }
+        this.ids = new HashMap<>();
+        this.accounts = new UUID[64];
+        this.lastSeen = new long[64];
+        this.signatures = new int[64 * hashes];
+        this.chains = new int[64 * bands];
+        this.visited = new int[64];
+        this.bucketKeys = new long[256];
+        this.bucketHeads = new int[256];
+        Arrays.fill(bucketHeads, UNUSED);
+    }
+
+    /**
+     * @return 64-bit hash of a feature, for building the sets passed to the index
+     */
+    public static long featureHash(String feature) {
+        // FNV-1a over UTF-8, then mixed so similar strings spread over all bits
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : feature.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * Stores the fingerprint of an account, replacing the one stored before.
+     * @param features Feature hashes; duplicates are fine, an empty set is not stored
+     * @return False if there were no features
+     */
+    public synchronized boolean put(UUID account, long[] features, long now) {
+        if (features.length == 0) {
+            return false;
+        }
+        Integer existing = ids.get(account);
+        int id;
+        if (existing != null) {
+            id = existing;
+            unlink(id);
+        } else {
+            if (size >= maxEntries) {
+                removeAt(leastRecentlySeen());
+            }
+            id = size++;
+            ensureCapacity(size);
+            accounts[id] = account;
+            ids.put(account, id);
+        }
+        computeSignature(features, signatures, id * hashes);
+        link(id);
+        lastSeen[id] = now;
+        dirty = true;
+        return true;
+    }
+
+    /**
+     * @param features Feature hashes of the fingerprint to look for
+     * @param limit Maximum number of matches
+     * @param minSimilarity Matches below this estimated similarity are left out
+     * @param exclude Account left out of the result (usually the one asking), or null
+     * @return Up to {@code limit} stored fingerprints, most similar first
+     */
+    public synchronized List<Match> findSimilar(long[] features, int limit, double minSimilarity, UUID exclude) {
+        List<Match> result = new ArrayList<>();
+        if (features.length == 0 || limit <= 0 || size == 0) {
+            return result;
+        }
+        int[] signature = new int[hashes];
+        computeSignature(features, signature, 0);
+        if (++query == Integer.MAX_VALUE) {
+            Arrays.fill(visited, 0);
+            query = 1;
+        }
+        Integer excluded = exclude != null ? ids.get(exclude) : null;
+        PriorityQueue<Match> best = new PriorityQueue<>(limit + 1,
+            (a, b) -> Double.compare(a.similarity, b.similarity));
+        for (int band = 0; band < bands; band++) {
+            int bucket = findBucket(bandKey(signature, 0, band));
+            if (bucket < 0) {
+                continue;
+            }
+            for (int slot = bucketHeads[bucket]; slot != END; slot = chains[slot]) {
+                int id = slot / bands;
+                if (visited[id] == query) {
+                    continue;
+                }
+                visited[id] = query;
+                if (excluded != null && id == excluded) {
+                    continue;
+                }
+                double similarity = agreement(signature, id);
+                if (similarity < minSimilarity) {
+                    continue;
+                }
+                if (best.size() < limit) {
+                    best.add(new Match(accounts[id], similarity, lastSeen[id]));
+                } else if (similarity > best.peek().similarity) {
+                    best.poll();
+                    best.add(new Match(accounts[id], similarity, lastSeen[id]));
+                }
+            }
+        }
+        result.addAll(best);
+        result.sort((a, b) -> Double.compare(b.similarity, a.similarity));
+        return result;
+    }
+
+    /**
+     * @return Estimated similarity of two stored fingerprints, 0 if either is unknown
+     */
+    public synchronized double similarity(UUID first, UUID second) {
+        Integer a = ids.get(first);
+        Integer b = ids.get(second);
+        if (a == null || b == null) {
+            return 0.0;
+        }
+        int same = 0;
+        for (int i = 0; i < hashes; i++) {
+            if (signatures[a * hashes + i] == signatures[b * hashes + i]) {
+                same++;
+            }
+        }
+        return same / (double) hashes;
+    }
+
+    public synchronized boolean contains(UUID account) {
+        return ids.containsKey(account);
+    }
+
+    /**
+     * Keeps at most this many fingerprints, dropping the ones seen longest ago now and on later puts.
+     */
+    public synchronized void setMaxEntries(int maxEntries) {
+        this.maxEntries = Math.max(1, maxEntries);
+        while (size > this.maxEntries) {
+            removeAt(leastRecentlySeen());
+        }
+    }
+
+    /**
+     * Drops the fingerprints last seen before the cutoff.
+     * @return Number of fingerprints dropped
+     */
+    public synchronized int prune(long cutoff) {
+        int removed = 0;
+        for (int id = size - 1; id >= 0; id--) {
+            if (lastSeen[id] < cutoff) {
+                removeAt(id);
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    private int leastRecentlySeen() {
+        int oldest = 0;
+        for (int id = 1; id < size; id++) {
+            if (lastSeen[id] < lastSeen[oldest]) {
+                oldest = id;
+            }
+        }
+        return oldest;
+    }
+
+    // Moves the last fingerprint into the freed slot, so ids stay dense
+    private void removeAt(int id) {
+        unlink(id);
+        ids.remove(accounts[id]);
+        int last = --size;
+        if (id != last) {
+            unlink(last);
+            accounts[id] = accounts[last];
+            lastSeen[id] = lastSeen[last];
+            System.arraycopy(signatures, last * hashes, signatures, id * hashes, hashes);
+            ids.put(accounts[id], id);
+            link(id);
+        }
+        accounts[last] = null;
+        dirty = true;
+    }
+
+    private double agreement(int[] signature, int id) {
+        int offset = id * hashes;
+        int same = 0;
+        for (int i = 0; i < hashes; i++) {
+            if (signatures[offset + i] == signature[i]) {
+                same++;
+            }
+        }
+        return same / (double) hashes;
+    }
+
+    private void computeSignature(long[] features, int[] target, int offset) {
+        for (int i = 0; i < hashes; i++) {
+            long seed = seeds[i];
+            int min = Integer.MAX_VALUE;
+            for (long feature : features) {
+                // Signed comparison is fine: any fixed order over the hash values works
+                int value = (int) (mix(feature ^ seed) >>> 32);
+                if (value < min) {
+                    min = value;
+                }
+            }
+            target[offset + i] = min;
+        }
+    }
+
+    private long bandKey(int[] signature, int offset, int band) {
+        long key = band + 1;
+        for (int i = band * rows; i < (band + 1) * rows; i++) {
+            key = mix(key * 31 + signature[offset + i]);
+        }
+        return key;
+    }
+
+    private void link(int id) {
+        for (int band = 0; band < bands; band++) {
+            int bucket = bucketFor(bandKey(signatures, id * hashes, band));
+            int slot = id * bands + band;
+            chains[slot] = bucketHeads[bucket];
+            bucketHeads[bucket] = slot;
+        }
+    }
+
+    private void unlink(int id) {
+        for (int band = 0; band < bands; band++) {
+            int bucket = findBucket(bandKey(signatures, id * hashes, band));
+            if (bucket < 0) {
+                continue;
+            }
+            int slot = id * bands + band;
+            if (bucketHeads[bucket] == slot) {
+                bucketHeads[bucket] = chains[slot];
+                continue;
+            }
+            for (int previous = bucketHeads[bucket]; previous != END; previous = chains[previous]) {
+                if (chains[previous] == slot) {
+                    chains[previous] = chains[slot];
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Table position of the key, or -1; empty buckets stay in place for their key
+     */
+    private int findBucket(long key) {
+        int mask = bucketKeys.length - 1;
+        for (int i = (int) key & mask; bucketHeads[i] != UNUSED; i = (i + 1) & mask) {
+            if (bucketKeys[i] == key) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int bucketFor(long key) {
+        int mask = bucketKeys.length - 1;
+        int i = (int) key & mask;
+        for (; bucketHeads[i] != UNUSED; i = (i + 1) & mask) {
+            if (bucketKeys[i] == key) {
+                return i;
+            }
+        }
+        if ((bucketsUsed + 1) * 2 > bucketKeys.length) {
+            growBuckets();
+            return bucketFor(key);
+        }
+        bucketKeys[i] = key;
+        bucketHeads[i] = END;
+        bucketsUsed++;
+        return i;
+    }
+
+    private void growBuckets() {
+        long[] oldKeys = bucketKeys;
+        int[] oldHeads = bucketHeads;
+        bucketKeys = new long[oldKeys.length * 2];
+        bucketHeads = new int[oldKeys.length * 2];
+        Arrays.fill(bucketHeads, UNUSED);
+        bucketsUsed = 0;
+        int mask = bucketKeys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            // Buckets emptied by replacements are dropped here
+            if (oldHeads[j] < 0) {
+                continue;
+            }
+            int i = (int) oldKeys[j] & mask;
+            while (bucketHeads[i] != UNUSED) {
+                i = (i + 1) & mask;
+            }
+            bucketKeys[i] = oldKeys[j];
+            bucketHeads[i] = oldHeads[j];
+            bucketsUsed++;
+        }
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= accounts.length) {
+            return;
+        }
+        int capacity = Math.max(required, accounts.length * 2);
+        accounts = Arrays.copyOf(accounts, capacity);
+        lastSeen = Arrays.copyOf(lastSeen, capacity);
+        signatures = Arrays.copyOf(signatures, capacity * hashes);
+        chains = Arrays.copyOf(chains, capacity * bands);
+        visited = Arrays.copyOf(visited, capacity);
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @return True if a fingerprint was stored since the index was last written or read
+     */
+    public synchronized boolean isDirty() {
+        return dirty;
+    }
+
+    public synchronized void write(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(bands);
+        out.writeInt(rows);
+        out.writeInt(size);
+        for (int id = 0; id < size; id++) {
+            out.writeLong(accounts[id].getMostSignificantBits());
+            out.writeLong(accounts[id].getLeastSignificantBits());
+            out.writeLong(lastSeen[id]);
+            for (int i = 0; i < hashes; i++) {
+                out.writeInt(signatures[id * hashes + i]);
+            }
+        }
+        out.flush();
+        dirty = false;
+    }
+
+    /**
+     * @throws IOException If the data is not an index written by {@link #write(DataOutputStream)}
+     */
+    public static FingerprintLshIndex read(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a fingerprint index");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported fingerprint index version " + version);
+        }
+        int bands = in.readInt();
+        int rows = in.readInt();
+        int count = in.readInt();
+        if (bands < 1 || rows < 1 || bands * rows > 1024 || count < 0) {
+            throw new IOException("Corrupt fingerprint index");
+        }
+        FingerprintLshIndex index = new FingerprintLshIndex(bands, rows);
+        index.ensureCapacity(count);
+        for (int id = 0; id < count; id++) {
+            UUID account = new UUID(in.readLong(), in.readLong());
+            if (index.ids.putIfAbsent(account, id) != null) {
+                throw new IOException("Corrupt fingerprint index");
+            }
+            index.accounts[id] = account;
+            index.lastSeen[id] = in.readLong();
+            for (int i = 0; i < index.hashes; i++) {
+                index.signatures[id * index.hashes + i] = in.readInt();
+            }
+            index.size = id + 1;
+            index.link(id);
+        }
+        return index;
+    }
+
+    public synchronized String getStatusLine() {
+        return String.format("fingerprints: %d, buckets: %d, bands: %dx%d", size, bucketsUsed, bands, rows);
+    }
+
+    // Murmur3 64-bit finalizer
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
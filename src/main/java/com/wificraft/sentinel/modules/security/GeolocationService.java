@@ -1,27 +1,24 @@
 package com.wificraft.sentinel.modules.security;
 
+import com.wificraft.sentinel.modules.ip.GeoRecord;
+import com.wificraft.sentinel.modules.ip.IpIntelligenceService;
+import com.wificraft.sentinel.modules.ip.IpProfile;
 import org.bukkit.entity.Player;
-import org.json.JSONObject;
-import java.io.IOException;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletableFuture;
 
+/**
+ * Geolocation view over the shared {@link IpProfile}.
+ */
 public class GeolocationService {
-    private static final String GEO_API_URL = "https://api.ipgeolocation.io/ipgeo";
-    private static final String API_KEY = "YOUR_API_KEY"; // Will be configured in config.yml
-    private final Map<String, LocationData> cachedLocations;
-    private final Map<String, Long> lastLookupTime;
-    private final int cacheDurationMinutes;
+    private static final LocationData UNKNOWN = new LocationData("Unknown", "Unknown", "Unknown", "Unknown", 0.0, 0.0);
+
+    private final IpIntelligenceService intelligence;
     private List<String> suspiciousCountries = new ArrayList<>();
     private List<String> suspiciousTimezones = new ArrayList<>();
 
-    public GeolocationService(int cacheDurationMinutes) {
-        this.cachedLocations = new ConcurrentHashMap<>();
-        this.lastLookupTime = new ConcurrentHashMap<>();
-        this.cacheDurationMinutes = cacheDurationMinutes;
+    public GeolocationService(IpIntelligenceService intelligence) {
+        this.intelligence = intelligence;
         initializeSuspiciousLists();
     }
 
@@ -37,58 +34,25 @@ public class GeolocationService {
         ));
     }
 
+    /**
+     * Does not block: uses the cached profile, or the offline database while the lookup finishes.
+     */
     public LocationData getLocationData(Player player) {
-        String ipAddress = player.getAddress().getAddress().getHostAddress();
-        return getLocationData(ipAddress);
+        return toLocation(intelligence.getProfileNow(player.getAddress().getAddress().getHostAddress()));
     }
 
-    private LocationData getLocationData(String ipAddress) {
-        if (isCached(ipAddress)) {
-            return cachedLocations.get(ipAddress);
-        }
-
-        try {
-            String apiUrl = GEO_API_URL + "?apiKey=" + API_KEY + "&ip=" + ipAddress;
-            HttpURLConnection connection = (HttpURLConnection) new URL(apiUrl).openConnection();
-            
-            if (connection.getResponseCode() == 200) {
-                String response = new java.util.Scanner(connection.getInputStream()).useDelimiter("\\A").next();
-                JSONObject json = new JSONObject(response);
-                
-                LocationData location = new LocationData(
-                    json.getString("country_code2"),
-                    json.getString("country_name"),
-                    json.getString("city"),
-                    json.getString("timezone"),
-                    json.getDouble("latitude"),
-                    json.getDouble("longitude")
-                );
-                
-                cacheLocation(ipAddress, location);
-                return location;
-            }
-        } catch (IOException e) {
-            // Log error but return cached data if available
-            if (isCached(ipAddress)) {
-                return cachedLocations.get(ipAddress);
-            }
-        }
-        
-        return new LocationData("Unknown", "Unknown", "Unknown", "Unknown", 0.0, 0.0);
+    public CompletableFuture<LocationData> getLocationDataAsync(Player player) {
+        return intelligence.resolve(player.getAddress().getAddress().getHostAddress())
+            .thenApply(GeolocationService::toLocation);
     }
 
-    private boolean isCached(String ipAddress) {
-        Long lastLookup = lastLookupTime.get(ipAddress);
-        if (lastLookup == null) {
-            return false;
+    static LocationData toLocation(IpProfile profile) {
+        GeoRecord geo = profile.getGeo();
+        if (geo == null) {
+            return UNKNOWN;
         }
-        long now = System.currentTimeMillis();
-        return now - lastLookup < TimeUnit.MINUTES.toMillis(cacheDurationMinutes);
-    }
-
-    private void cacheLocation(String ipAddress, LocationData location) {
-        cachedLocations.put(ipAddress, location);
-        lastLookupTime.put(ipAddress, System.currentTimeMillis());
+        return new LocationData(geo.getCountryCode(), geo.getCountry(), geo.getCity(), geo.getTimezone(),
+            geo.getLatitude(), geo.getLongitude());
     }
 
     public boolean isSuspiciousLocation(LocationData location) {
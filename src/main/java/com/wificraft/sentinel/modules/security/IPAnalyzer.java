@@ -1,51 +1,58 @@
 package com.wificraft.sentinel.modules.security;
 
-import com.google.common.util.concurrent.RateLimiter;
-import com.google.gson.Gson;
-import org.apache.http.client.methods.CloseableHttpResponse;
-import org.apache.http.client.methods.HttpGet;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
-import org.apache.http.util.EntityUtils;
 import org.bukkit.entity.Player;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.plugin.java.JavaPlugin;
+import com.wificraft.sentinel.WiFiCraftSentinel;
 import com.wificraft.sentinel.alerts.AlertManager;
 import com.wificraft.sentinel.alerts.SeverityLevel;
 import com.wificraft.sentinel.logging.SecurityLogger;
 import com.wificraft.sentinel.modules.security.Configuration;
+import com.wificraft.sentinel.modules.ip.CidrIndex;
+import com.wificraft.sentinel.modules.ip.GeoRecord;
+import com.wificraft.sentinel.modules.ip.IpIntelligenceService;
+import com.wificraft.sentinel.modules.ip.IpProfile;
 import java.net.InetAddress;
 import java.util.HashSet;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Semaphore;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.Arrays;
 
 public class IPAnalyzer {
     private final AlertManager alertManager;
     private final Configuration config;
-    private final ConcurrentHashMap<String, GeolocationCacheEntry> geolocationCache;
-    private final Semaphore concurrentRequestSemaphore;
-    private final RateLimiter geolocationRateLimiter;
-    private final long cacheTtl;
     private final JavaPlugin plugin;
-    private final Gson gson;
-    private final CloseableHttpClient httpClient;
-    private final String geolocationApiKey;
+    private final CidrIndex<String> vpnNetworks;
+    private final CidrIndex<String> proxyNetworks;
+    private final IpIntelligenceService intelligence;
 
     public IPAnalyzer(AlertManager alertManager, Configuration config, JavaPlugin plugin) {
+        this(alertManager, config, plugin,
+            plugin instanceof WiFiCraftSentinel ? ((WiFiCraftSentinel) plugin).getIpIntelligence() : null);
+    }
+
+    /**
+     * @param intelligence Shared IP lookups, or null to skip geolocation checks
+     */
+    public IPAnalyzer(AlertManager alertManager, Configuration config, JavaPlugin plugin, IpIntelligenceService intelligence) {
         this.alertManager = alertManager;
+        this.intelligence = intelligence;
         this.config = config;
         this.plugin = plugin;
-        this.geolocationCache = new ConcurrentHashMap<>();
-        this.concurrentRequestSemaphore = new Semaphore(5); // Max 5 concurrent requests
-        this.cacheTtl = TimeUnit.HOURS.toMillis(1); // 1 hour cache TTL
-        this.geolocationRateLimiter = RateLimiter.create(60.0); // 60 requests per minute
-        this.gson = new Gson();
-        this.httpClient = HttpClients.createDefault();
-        this.geolocationApiKey = plugin.getConfig().getString("security.geolocation-api-key", "");
+        this.vpnNetworks = compileNetworks(config.getVpnNetworks());
+        this.proxyNetworks = compileNetworks(config.getProxyNetworks());
+    }
+
+    private CidrIndex<String> compileNetworks(Set<String> networks) {
+        CidrIndex.Builder<String> builder = CidrIndex.builder();
+        for (String network : networks) {
+            try {
+                builder.add(network, network);
+            } catch (IllegalArgumentException e) {
+                plugin.getLogger().warning("Nieprawidłowy zakres sieci: " + network);
+            }
+        }
+        return builder.build();
     }
 
     private static class IpApiResponse {
@@ -69,23 +76,19 @@ public class IPAnalyzer {
         public String getOrg() { return org; }
         public String getTimezone() { return timezone; }
         public String getZip() { return zip; }
-    }
-
-    private static class GeolocationCacheEntry {
-        private final IpApiResponse data;
-        private final long timestamp;
-        private final long cacheTtl;
         
-        public GeolocationCacheEntry(IpApiResponse data, long timestamp, long cacheTtl) {
-            this.data = data;
-            this.timestamp = timestamp;
-            this.cacheTtl = cacheTtl;
-        }
-        
-        public IpApiResponse getData() { return data; }
-        
-        public boolean isExpired() {
-            return System.currentTimeMillis() - timestamp > cacheTtl;
+        static IpApiResponse fromProfile(IpProfile profile) {
+            GeoRecord record = profile.getGeo();
+            IpApiResponse response = new IpApiResponse();
+            response.status = "success";
+            response.country = record.getCountry();
+            response.city = record.getCity();
+            response.regionName = "";
+            response.isp = record.getAsnOrganization();
+            response.org = record.getAsnOrganization();
+            response.timezone = record.getTimezone();
+            response.zip = "";
+            return response;
         }
     }
 
@@ -97,51 +100,11 @@ public class IPAnalyzer {
     }
 
     private double analyzeVPNScore(String ip) {
-        int matches = 0;
-        for (String network : config.getVpnNetworks()) {
-            if (isIpInRange(ip, network)) {
-                matches++;
-            }
-        }
-        return matches > 0 ? 1.0 : 0.0;
+        return vpnNetworks.contains(ip) ? 1.0 : 0.0;
     }
 
     private double analyzeProxyScore(String ip) {
-        int matches = 0;
-        for (String network : config.getProxyNetworks()) {
-            if (isIpInRange(ip, network)) {
-                matches++;
-            }
-        }
-        return matches > 0 ? 1.0 : 0.0;
-    }
-
-    private boolean isIpInRange(String ip, String cidr) {
-        if (ip == null || cidr == null) {
-            return false;
-        }
-        String[] parts = cidr.split("/");
-        if (parts.length != 2) {
-            return false;
-        }
-
-        String networkIp = parts[0];
-        int prefix = Integer.parseInt(parts[1]);
-        long ipNum = ipToLong(ip);
-        long networkNum = ipToLong(networkIp);
-        long mask = -1 << (32 - prefix);
-        return (ipNum & mask) == (networkNum & mask);
-    }
-
-    private long ipToLong(String ipAddress) {
-        String[] ipAddressInArray = ipAddress.split("\\.");
-        long result = 0;
-        for (int i = 0; i < ipAddressInArray.length; i++) {
-            int power = 3 - i;
-            int ip = Integer.parseInt(ipAddressInArray[i]);
-            result += ip * Math.pow(256, power);
-        }
-        return result;
+        return proxyNetworks.contains(ip) ? 1.0 : 0.0;
     }
 
     private void handleCachedGeolocation(Player player, IpApiResponse data) {
@@ -293,59 +256,27 @@ public class IPAnalyzer {
             return;
         }
         
-        String ip = address.getHostAddress();
-        
-        // Check cache first
-        GeolocationCacheEntry cacheEntry = geolocationCache.get(ip);
-        if (cacheEntry != null && !cacheEntry.isExpired()) {
-            handleCachedGeolocation(player, cacheEntry.getData());
-            return;
-        }
-        
-        // Rate limiting
-        if (!geolocationRateLimiter.tryAcquire()) {
-            SecurityLogger.getInstance(plugin).info(String.format("Rate limit hit for IP geolocation (player=%s)", player.getName()));
+        if (intelligence == null) {
             return;
         }
         
-        // Acquire semaphore
-        if (!concurrentRequestSemaphore.tryAcquire()) {
-            SecurityLogger.getInstance(plugin).info(String.format("Too many concurrent geolocation requests (player=%s)", player.getName()));
-            return;
-        }
-        
-        try {
-            // Make geolocation request
-            String url = String.format("http://ip-api.com/json/%s?fields=status,message,country,city,regionName,isp,org,timezone,zip&lang=pl", ip);
-            HttpGet request = new HttpGet(url);
-            
-            try (CloseableHttpResponse response = httpClient.execute(request)) {
-                if (response.getStatusLine().getStatusCode() != 200) {
-                    SecurityLogger.getInstance(plugin).warning(String.format("Failed to get geolocation data for %s (status=%d)", 
-                        ip, response.getStatusLine().getStatusCode()));
-                    return;
-                }
-                
-                String json = EntityUtils.toString(response.getEntity());
-                IpApiResponse data = gson.fromJson(json, IpApiResponse.class);
-                
-                if (data.getStatus() != null && data.getStatus().equalsIgnoreCase("success")) {
-                    // Cache the result
-                    GeolocationCacheEntry cacheEntry = new GeolocationCacheEntry(data, System.currentTimeMillis(), cacheTtl);
-                    geolocationCache.put(ip, cacheEntry);
-                    
-                    // Process the data
-                    handleCachedGeolocation(player, data);
-                } else {
-                    SecurityLogger.getInstance(plugin).warning(String.format("Failed to get geolocation data for %s: %s", 
-                        ip, data.getMessage()));
-                }
+        // Shared single-flight lookup, usually already resolved during pre-login; alerts go out on the main thread
+        String ip = address.getHostAddress();
+        intelligence.resolve(ip).whenComplete((profile, error) -> {
+            if (error != null) {
+                SecurityLogger.getInstance(plugin).severe(String.format("Error getting geolocation data for %s: %s", ip, error.getMessage()));
+                return;
             }
-        } catch (Exception e) {
-            SecurityLogger.getInstance(plugin).severe(String.format("Error getting geolocation data for %s: %s", ip, e.getMessage()));
-        } finally {
-            concurrentRequestSemaphore.release();
-        }
+            if (profile.getGeo() == null) {
+                SecurityLogger.getInstance(plugin).info(String.format("No geolocation data for %s (player=%s)", ip, player.getName()));
+                return;
+            }
+            plugin.getServer().getScheduler().runTask(plugin, () -> {
+                if (player.isOnline()) {
+                    handleCachedGeolocation(player, IpApiResponse.fromProfile(profile));
+                }
+            });
+        });
     }
 
     public static void loadConfiguration(JavaPlugin plugin) {
@@ -1,23 +1,23 @@
 package com.wificraft.sentinel.modules.security.advanced;
 
 import com.wificraft.sentinel.config.SecurityConfig;
+import com.wificraft.sentinel.modules.ip.CidrIndex;
+import com.wificraft.sentinel.modules.ip.ProviderRanges;
 import org.bukkit.configuration.file.FileConfiguration;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.regex.Pattern;
 
 public class IPAnalysis {
-    private static final Pattern CIDR_PATTERN = Pattern.compile("^(\\d{1,3}\\.\\d{1,3}\\.\\d{1,3}\\.\\d{1,3})/(\\d{1,2})$");
-    private final Map<String, IPRange> cloudProviderRanges;
-    private final Map<String, IPRange> dataCenterRanges;
+    // Ranges from the security config, built during initializeRanges() and then only read;
+    // the built-in and feed ranges are looked up in ProviderRanges
+    private CidrIndex<String> cloudProviderRanges;
+    private CidrIndex<String> dataCenterRanges;
     private final Map<String, List<String>> suspiciousPatterns;
     private final SecurityConfig config;
     
     public IPAnalysis(SecurityConfig config) {
-        this.cloudProviderRanges = new ConcurrentHashMap<>();
-        this.dataCenterRanges = new ConcurrentHashMap<>();
         this.suspiciousPatterns = new ConcurrentHashMap<>();
         this.config = config;
         
@@ -26,14 +26,8 @@ public class IPAnalysis {
     }
     
     private void initializeRanges() {
-        // Example cloud provider ranges (should be loaded from config)
-        addRange("AWS", "52.0.0.0/8");
-        addRange("AWS", "54.0.0.0/8");
-        addRange("AWS", "34.0.0.0/8");
-        
-        // Example data center ranges
-        addRange("OVH", "149.202.0.0/16");
-        addRange("OVH", "185.10.0.0/16");
+        CidrIndex.Builder<String> cloud = CidrIndex.builder();
+        CidrIndex.Builder<String> dataCenters = CidrIndex.builder();
         
         // Load additional ranges from config if available
         try {
@@ -43,7 +37,7 @@ public class IPAnalysis {
                     for (String provider : fileConfig.getConfigurationSection("security.ip-analysis.cloud-provider-ranges").getKeys(false)) {
                         List<String> ranges = fileConfig.getStringList("security.ip-analysis.cloud-provider-ranges." + provider);
                         for (String range : ranges) {
-                            addRange(provider, range);
+                            addRange(provider.startsWith("AWS") ? cloud : dataCenters, provider, range);
                         }
                     }
                 }
@@ -51,6 +45,9 @@ public class IPAnalysis {
         } catch (Exception e) {
             System.err.println("Error loading IP ranges from config: " + e.getMessage());
         }
+        
+        this.cloudProviderRanges = cloud.build();
+        this.dataCenterRanges = dataCenters.build();
     }
     
     private void initializePatterns() {
@@ -77,14 +74,9 @@ public class IPAnalysis {
         }
     }
     
-    private void addRange(String provider, String cidr) {
+    private void addRange(CidrIndex.Builder<String> ranges, String provider, String cidr) {
         try {
-            IPRange range = new IPRange(cidr);
-            if (provider.startsWith("AWS")) {
-                cloudProviderRanges.put(cidr, range);
-            } else {
-                dataCenterRanges.put(cidr, range);
-            }
+            ranges.add(cidr, provider);
         } catch (IllegalArgumentException e) {
             // Invalid CIDR format
             System.err.println("Invalid CIDR range: " + cidr);
@@ -103,19 +95,21 @@ public class IPAnalysis {
             InetAddress address = InetAddress.getByName(ip);
             
             // Check cloud provider ranges
-            for (Map.Entry<String, IPRange> entry : cloudProviderRanges.entrySet()) {
-                if (entry.getValue().contains(address)) {
-                    result.addFlag("CLOUD_PROVIDER", "IP belongs to " + entry.getKey());
-                    break;
-                }
+            String cloudProvider = cloudProviderRanges.lookup(address);
+            if (cloudProvider == null) {
+                cloudProvider = ProviderRanges.cloud().lookup(address);
+            }
+            if (cloudProvider != null) {
+                result.addFlag("CLOUD_PROVIDER", "IP belongs to " + cloudProvider);
             }
             
             // Check data center ranges
-            for (Map.Entry<String, IPRange> entry : dataCenterRanges.entrySet()) {
-                if (entry.getValue().contains(address)) {
-                    result.addFlag("DATA_CENTER", "IP belongs to " + entry.getKey());
-                    break;
-                }
+            String dataCenter = dataCenterRanges.lookup(address);
+            if (dataCenter == null) {
+                dataCenter = ProviderRanges.dataCenters().lookup(address);
+            }
+            if (dataCenter != null) {
+                result.addFlag("DATA_CENTER", "IP belongs to " + dataCenter);
             }
             
             // Check suspicious patterns
@@ -180,37 +174,4 @@ public class IPAnalysis {
             return Collections.unmodifiableMap(details);
         }
     }
-    
-    public static class IPRange {
-        private final long start;
-        private final long end;
-        private final String cidr;
-        
-        public IPRange(String cidr) {
-            this.cidr = cidr;
-            String[] parts = cidr.split("/");
-            String ip = parts[0];
-            int prefix = Integer.parseInt(parts[1]);
-            
-            long ipLong = ipToLong(ip);
-            long mask = -1L << (32 - prefix);
-            
-            this.start = ipLong & mask;
-            this.end = start | ~mask;
-        }
-        
-        public boolean contains(InetAddress address) {
-            long ipLong = ipToLong(address.getHostAddress());
-            return ipLong >= start && ipLong <= end;
-        }
-        
-        private long ipToLong(String ip) {
-            String[] octets = ip.split("\\.");
-            long result = 0;
-            for (String octet : octets) {
-                result = (result << 8) | Integer.parseInt(octet);
-            }
-            return result;
-        }
-    }
 }
@@ -0,0 +1,185 @@
+package com.wificraft.sentinel.modules.stats;
+
+/**
+ * Time-windowed aggregates over a stream of samples, updated in O(1) amortized per sample.
+ *
+ * Maintains count, sum, Welford running mean and variance, the window maximum
+ * (via a monotonic deque) and the number of samples above a fixed threshold.
+ * Samples must arrive in non-decreasing timestamp order. Removing a sample from
+ * Welford's accumulators is the exact inverse of adding it, but it accumulates
+ * floating point error over very long runs; the accumulators are reset whenever
+ * the window empties.
+ *
+ * Capacity is fixed; when it is reached the oldest sample is evicted early.
+ * Not thread-safe: each instance is meant to be owned by one analysis thread.
+ */
+public class SlidingWindowStats {
+    private final long windowMillis;
+    private final double threshold;
+    private final long[] timestamps;
+    private final double[] values;
+    private final int mask;
+
+    // Sequence numbers of the oldest live sample and of the next sample to be written
+    private long head;
+    private long next;
+
+    private double sum;
+    private double mean;
+    private double m2;
+    private int aboveThreshold;
+
+    // Monotonic (non-increasing values) deque of sample sequence numbers for the window maximum
+    private final long[] maxDeque;
+    private int maxFront;
+    private int maxSize;
+
+    public SlidingWindowStats(long windowMillis, int capacity) {
+        this(windowMillis, capacity, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * @param windowMillis Length of the window
+     * @param capacity Maximum number of samples kept, rounded up to a power of two
+     * @param threshold Samples strictly greater than this are counted by {@link #countAbove()}
+     */
+    public SlidingWindowStats(long windowMillis, int capacity, double threshold) {
+        int actual = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.windowMillis = windowMillis;
+        this.threshold = threshold;
+        this.timestamps = new long[actual];
+        this.values = new double[actual];
+        this.maxDeque = new long[actual];
+        this.mask = actual - 1;
+    }
+
+    public void add(long timestamp, double value) {
+        evictBefore(timestamp - windowMillis);
+        if (next - head == timestamps.length) {
+            removeOldest();
+        }
+
+        int index = (int) (next & mask);
+        timestamps[index] = timestamp;
+        values[index] = value;
+
+        sum += value;
+        int n = count();
+        n++;
+        double delta = value - mean;
+        mean += delta / n;
+        m2 += delta * (value - mean);
+        if (value > threshold) {
+            aboveThreshold++;
+        }
+
+        while (maxSize > 0 && values[(int) (maxDeque[(maxFront + maxSize - 1) & mask] & mask)] <= value) {
+            maxSize--;
+        }
+        maxDeque[(maxFront + maxSize) & mask] = next;
+        maxSize++;
+
+        next++;
+    }
+
+    /**
+     * Evicts samples older than the window as seen at {@code now}.
+     */
+    public void advance(long now) {
+        evictBefore(now - windowMillis);
+    }
+
+    /**
+     * Evicts every sample with a timestamp strictly before the cutoff.
+     */
+    public void evictBefore(long cutoff) {
+        while (next > head && timestamps[(int) (head & mask)] < cutoff) {
+            removeOldest();
+        }
+    }
+
+    private void removeOldest() {
+        double value = values[(int) (head & mask)];
+        int n = count();
+        if (n <= 1) {
+            sum = 0;
+            mean = 0;
+            m2 = 0;
+        } else {
+            sum -= value;
+            double delta = value - mean;
+            mean -= delta / (n - 1);
+            m2 -= delta * (value - mean);
+            if (m2 < 0) {
+                m2 = 0;
+            }
+        }
+        if (value > threshold) {
+            aboveThreshold--;
+        }
+        if (maxSize > 0 && maxDeque[maxFront] == head) {
+            maxFront = (maxFront + 1) & mask;
+            maxSize--;
+        }
+        head++;
+    }
+
+    public void clear() {
+        head = next;
+        sum = 0;
+        mean = 0;
+        m2 = 0;
+        aboveThreshold = 0;
+        maxSize = 0;
+    }
+
+    public int count() {
+        return (int) (next - head);
+    }
+
+    public boolean isEmpty() {
+        return next == head;
+    }
+
+    public double sum() {
+        return sum;
+    }
+
+    public double mean() {
+        return isEmpty() ? 0.0 : mean;
+    }
+
+    /**
+     * @return Population variance of the samples in the window
+     */
+    public double variance() {
+        int n = count();
+        return n > 0 ? m2 / n : 0.0;
+    }
+
+    public double standardDeviation() {
+        return Math.sqrt(variance());
+    }
+
+    /**
+     * @return Largest sample in the window, or 0 if the window is empty
+     */
+    public double max() {
+        return maxSize == 0 ? 0.0 : values[(int) (maxDeque[maxFront] & mask)];
+    }
+
+    public int countAbove() {
+        return aboveThreshold;
+    }
+
+    /**
+     * @return Samples per second over the window length
+     */
+    public double ratePerSecond() {
+        return count() * 1000.0 / windowMillis;
+    }
+
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+}
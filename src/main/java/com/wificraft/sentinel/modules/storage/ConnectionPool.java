@@ -0,0 +1,199 @@
+package com.wificraft.sentinel.modules.storage;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A small fixed-size JDBC connection pool.
+ *
+ * Connections are opened when first needed, up to {@code maxSize}, and reused afterwards. A
+ * connection that sat idle longer than {@link #VALIDATE_AFTER_MILLIS} is checked before it
+ * is handed out, since MySQL drops idle connections after {@code wait_timeout}. A caller
+ * that finds every connection in use waits up to the borrow timeout.
+ */
+public class ConnectionPool implements AutoCloseable {
+    private static final long VALIDATE_AFTER_MILLIS = 30_000;
+
+    /**
+     * Work done with a borrowed connection.
+     */
+    public interface Work<T> {
+        T run(Connection connection) throws SQLException;
+    }
+
+    private static final class Idle {
+        final Connection connection;
+        final long since;
+
+        Idle(Connection connection, long since) {
+            this.connection = connection;
+            this.since = since;
+        }
+    }
+
+    private final String url;
+    private final Properties properties;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final ArrayDeque<Idle> idle = new ArrayDeque<>();
+    private int open;
+    private long waits;
+    private boolean closed;
+
+    public ConnectionPool(String url, Properties properties, int maxSize, long borrowTimeoutMillis) {
+        this.url = url;
+        this.properties = properties;
+        this.maxSize = Math.max(1, maxSize);
+        this.borrowTimeoutMillis = Math.max(0, borrowTimeoutMillis);
+    }
+
+    /**
+     * Runs the work on a pooled connection. The connection goes back to the pool afterwards,
+     * or is closed if the work failed in a way that may have broken it.
+     */
+    public <T> T execute(Work<T> work) throws SQLException {
+        Connection connection = borrow();
+        boolean failed = true;
+        try {
+            T result = work.run(connection);
+            failed = false;
+            return result;
+        } finally {
+            release(connection, failed);
+        }
+    }
+
+    private Connection borrow() throws SQLException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(borrowTimeoutMillis);
+        while (true) {
+            Idle candidate;
+            synchronized (this) {
+                while (true) {
+                    if (closed) {
+                        throw new SQLException("Connection pool is closed");
+                    }
+                    candidate = idle.pollFirst();
+                    if (candidate != null || open < maxSize) {
+                        break;
+                    }
+                    long left = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                    if (left <= 0) {
+                        throw new SQLException("No database connection free after " + borrowTimeoutMillis + " ms");
+                    }
+                    waits++;
+                    try {
+                        wait(left);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Interrupted while waiting for a database connection", e);
+                    }
+                }
+                if (candidate == null) {
+                    // Counted before connecting, so concurrent callers cannot overshoot the limit
+                    open++;
+                }
+            }
+            if (candidate == null) {
+                try {
+                    return DriverManager.getConnection(url, properties);
+                } catch (SQLException | RuntimeException e) {
+                    synchronized (this) {
+                        open--;
+                        notifyAll();
+                    }
+                    throw e;
+                }
+            }
+            if (System.currentTimeMillis() - candidate.since < VALIDATE_AFTER_MILLIS || isValid(candidate.connection)) {
+                return candidate.connection;
+            }
+            discard(candidate.connection);
+        }
+    }
+
+    private void release(Connection connection, boolean failed) {
+        boolean usable;
+        try {
+            // Work that stopped half way must not leave a transaction open for the next user
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+            usable = !failed || isValid(connection);
+        } catch (SQLException e) {
+            usable = false;
+        }
+        if (!usable) {
+            discard(connection);
+            return;
+        }
+        synchronized (this) {
+            if (closed) {
+                open--;
+                closeQuietly(connection);
+                return;
+            }
+            idle.addFirst(new Idle(connection, System.currentTimeMillis()));
+            notifyAll();
+        }
+    }
+
+    private void discard(Connection connection) {
+        closeQuietly(connection);
+        synchronized (this) {
+            open--;
+            notifyAll();
+        }
+    }
+
+    private static boolean isValid(Connection connection) {
+        try {
+            return connection.isValid(2);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            // Already unusable
+        }
+    }
+
+    public synchronized int getOpenCount() {
+        return open;
+    }
+
+    public synchronized int getIdleCount() {
+        return idle.size();
+    }
+
+    /**
+     * @return How often a caller had to wait for a connection
+     */
+    public synchronized long getWaitCount() {
+        return waits;
+    }
+
+    /**
+     * Closes the idle connections; connections in use are closed when they come back.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            for (Idle entry : idle) {
+                closeQuietly(entry.connection);
+                open--;
+            }
+            idle.clear();
+            notifyAll();
+        }
+    }
+}
@@ -0,0 +1,378 @@
+package com.wificraft.sentinel.modules.storage;
+
+import com.wificraft.sentinel.modules.ModeratorStats;
+import com.wificraft.sentinel.modules.data.InspectionNotes;
+import com.wificraft.sentinel.modules.data.WriteBehindService;
+import com.wificraft.sentinel.modules.ip.IpProfile;
+import com.wificraft.sentinel.modules.ip.IpProfileStore;
+import com.wificraft.sentinel.modules.reports.Evidence;
+import com.wificraft.sentinel.modules.reports.Report;
+import com.wificraft.sentinel.modules.reports.ReportHeader;
+import com.wificraft.sentinel.modules.reports.ReportJournal;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Storage in the plugin folder, in the files Sentinel has always used: reports in the
+ * {@link ReportJournal}, IP profiles in the {@link IpProfileStore}, and notes, stats and
+ * inspections in their YAML files, saved through the {@link WriteBehindService}. No other
+ * class reads or writes those YAML files; the managers go through {@link SentinelStorage}, so
+ * each file has a single copy in memory and one writer.
+ *
+ * The YAML files are read whole at {@link #open()} and kept in memory; queries scan them.
+ * That is fine for one server, but every query costs as much as there is data. Of reports
+ * only the headers are in memory; a report is read from the journal when it is needed.
+ */
+public class FileStorage implements SentinelStorage {
+    private static final Comparator<ReportHeader> NEWEST_FIRST =
+        Comparator.comparingLong(ReportHeader::getCreatedAt).reversed().thenComparing(ReportHeader::getId);
+
+    private final File dataFolder;
+    private final FileConfiguration config;
+    private final Logger logger;
+    private final IpProfileStore ipProfiles;
+    private final Map<UUID, ReportHeader> headers;
+
+    private ReportJournal journal;
+    private File notesFile;
+    private YamlConfiguration notes;
+    private File statsFile;
+    private YamlConfiguration stats;
+    private File moderatorsFile;
+    private YamlConfiguration moderators;
+    private File inspectionsFile;
+    private YamlConfiguration inspections;
+
+    /**
+     * @param ipProfiles Store for IP profiles, or null to not keep them
+     */
+    public FileStorage(File dataFolder, FileConfiguration config, Logger logger, IpProfileStore ipProfiles) {
+        this.dataFolder = dataFolder;
+        this.config = config;
+        this.logger = logger;
+        this.ipProfiles = ipProfiles;
+        this.headers = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public void open() throws IOException {
+        journal = new ReportJournal(
+            new File(dataFolder, config.getString("report-storage.folder", "reports")).toPath(),
+            logger,
+            Math.max(64, config.getLong("report-storage.segment-size-kb", 4096)) * 1024L,
+            config.getLong("report-storage.commit-interval-ms", 10));
+        notesFile = new File(dataFolder, "inspection_notes.yml");
+        notes = YamlConfiguration.loadConfiguration(notesFile);
+        statsFile = new File(dataFolder, "player_stats.yml");
+        stats = YamlConfiguration.loadConfiguration(statsFile);
+        moderatorsFile = new File(dataFolder, "moderator_stats.yml");
+        moderators = YamlConfiguration.loadConfiguration(moderatorsFile);
+        inspectionsFile = new File(dataFolder, "inspections.yml");
+        inspections = YamlConfiguration.loadConfiguration(inspectionsFile);
+    }
+
+    @Override
+    public void flush() {
+        if (journal != null) {
+            journal.flush();
+        }
+        WriteBehindService writer = WriteBehindService.getActive();
+        if (writer != null) {
+            writer.flush();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (journal != null) {
+            journal.close();
+            journal = null;
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "file";
+    }
+
+    @Override
+    public String getStatusLine() {
+        return journal != null ? journal.getStatusLine() : "journal closed";
+    }
+
+    // Reports
+
+    @Override
+    public Map<UUID, ReportHeader> loadReportHeaders() throws IOException {
+        Map<UUID, ReportHeader> loaded = journal.load();
+        journal.start();
+        headers.putAll(loaded);
+        return loaded;
+    }
+
+    @Override
+    public Report loadReport(UUID id) throws IOException {
+        return journal != null ? journal.read(id) : null;
+    }
+
+    // Bodies are positional reads from the snapshot, so one at a time costs no more
+    @Override
+    public Map<UUID, Report> loadReports(Collection<UUID> ids) throws IOException {
+        Map<UUID, Report> reports = new HashMap<>();
+        for (UUID id : ids) {
+            Report report = loadReport(id);
+            if (report != null) {
+                reports.put(id, report);
+            }
+        }
+        return reports;
+    }
+
+    @Override
+    public void saveReport(Report report) {
+        headers.put(report.getId(), ReportHeader.of(report));
+        if (journal != null) {
+            journal.appendReport(report);
+        }
+    }
+
+    @Override
+    public void saveNote(Report report, String note) {
+        headers.put(report.getId(), ReportHeader.of(report));
+        if (journal != null) {
+            journal.appendNote(report, note);
+        }
+    }
+
+    @Override
+    public void saveState(Report report) {
+        headers.put(report.getId(), ReportHeader.of(report));
+        if (journal != null) {
+            journal.appendState(report);
+        }
+    }
+
+    @Override
+    public void saveEvidence(Report report, Evidence evidence) {
+        if (journal != null) {
+            journal.appendEvidenceAdded(report, evidence);
+        }
+    }
+
+    @Override
+    public void removeEvidence(Report report, UUID evidenceId) {
+        if (journal != null) {
+            journal.appendEvidenceRemoved(report, evidenceId);
+        }
+    }
+
+    // Filters on the headers, then reads the candidates one by one only to match the text
+    @Override
+    public List<Report> findReports(ReportQuery query) throws IOException {
+        List<ReportHeader> candidates = headers.values().stream()
+            .filter(query::matchesHeader)
+            .sorted(NEWEST_FIRST)
+            .collect(Collectors.toList());
+        List<Report> page = new ArrayList<>();
+        int skip = query.getOffset();
+        for (ReportHeader header : candidates) {
+            if (page.size() >= query.getLimit()) {
+                break;
+            }
+            Report report = loadReport(header.getId());
+            if (report == null || !query.matches(report)) {
+                continue;
+            }
+            if (skip > 0) {
+                skip--;
+                continue;
+            }
+            page.add(report);
+        }
+        return page;
+    }
+
+    // Inspection notes, in inspection_notes.yml in the layout of InspectionNotes#saveToConfig
+
+    @Override
+    public void addNote(UUID playerId, InspectionNotes.Note note) {
+        Map<String, Object> entry = new HashMap<>();
+        entry.put("type", note.getType());
+        entry.put("content", note.getContent());
+        entry.put("timestamp", note.getTimestamp());
+        entry.put("moderator", String.valueOf(note.getModeratorUuid()));
+        entry.put("duration", note.getDuration());
+        synchronized (notes) {
+            List<Map<?, ?>> list = new ArrayList<>(notes.getMapList("notes." + playerId));
+            list.add(entry);
+            notes.set("notes." + playerId, list);
+        }
+        save(notesFile, notes);
+    }
+
+    @Override
+    public List<InspectionNotes.Note> loadNotes(UUID playerId) {
+        List<Map<?, ?>> list;
+        synchronized (notes) {
+            list = notes.getMapList("notes." + playerId);
+        }
+        List<InspectionNotes.Note> result = new ArrayList<>(list.size());
+        for (Map<?, ?> entry : list) {
+            Object moderator = entry.get("moderator");
+            UUID moderatorId = null;
+            try {
+                moderatorId = moderator != null ? UUID.fromString(moderator.toString()) : null;
+            } catch (IllegalArgumentException e) {
+                // Kept without a moderator
+            }
+            result.add(new InspectionNotes.Note(String.valueOf(entry.get("type")), String.valueOf(entry.get("content")),
+                number(entry.get("timestamp")), moderatorId, number(entry.get("duration"))));
+        }
+        return result;
+    }
+
+    // Player stats in player_stats.yml, moderator stats in moderator_stats.yml
+
+    @Override
+    public void savePlayerStats(PlayerStatsRecord record) {
+        String path = "stats." + record.getPlayerId();
+        synchronized (stats) {
+            stats.set(path + ".lastLogin", record.getLastLogin());
+            stats.set(path + ".loginCount", record.getLoginCount());
+            stats.set(path + ".inspectionCount", record.getInspectionCount());
+            stats.set(path + ".banCount", record.getBanCount());
+            stats.set(path + ".totalPlayTime", record.getTotalPlayTime());
+            stats.set(path + ".longestPlaySession", record.getLongestSession());
+        }
+        save(statsFile, stats);
+    }
+
+    @Override
+    public PlayerStatsRecord loadPlayerStats(UUID playerId) {
+        synchronized (stats) {
+            ConfigurationSection section = stats.getConfigurationSection("stats." + playerId);
+            if (section == null) {
+                return null;
+            }
+            return new PlayerStatsRecord(playerId, section.getLong("lastLogin"), section.getInt("loginCount"),
+                section.getInt("inspectionCount"), section.getInt("banCount"), section.getLong("totalPlayTime"),
+                section.getLong("longestPlaySession"));
+        }
+    }
+
+    @Override
+    public void saveModeratorStats(ModeratorStats record) {
+        String path = "moderators." + record.getUuid();
+        synchronized (moderators) {
+            moderators.set(path + ".inspections", record.getInspections());
+            moderators.set(path + ".bans", record.getBans());
+            moderators.set(path + ".lastInspection", record.getLastInspection());
+        }
+        save(moderatorsFile, moderators);
+    }
+
+    @Override
+    public ModeratorStats loadModeratorStats(UUID moderatorId) {
+        synchronized (moderators) {
+            ConfigurationSection section = moderators.getConfigurationSection("moderators." + moderatorId);
+            if (section == null) {
+                return null;
+            }
+            return new ModeratorStats(moderatorId, section.getInt("inspections"), section.getInt("bans"),
+                section.getLong("lastInspection"));
+        }
+    }
+
+    // Inspections, in inspections.yml
+
+    @Override
+    public void saveInspection(InspectionRecord record) {
+        String path = "inspections." + record.getId();
+        synchronized (inspections) {
+            inspections.set(path + ".targetUuid", String.valueOf(record.getTargetId()));
+            inspections.set(path + ".moderatorUuid", String.valueOf(record.getModeratorId()));
+            inspections.set(path + ".startTime", record.getStartTime());
+            inspections.set(path + ".endTime", record.getEndTime() > 0 ? record.getEndTime() : null);
+            inspections.set(path + ".result", record.getResult());
+            inspections.set(path + ".notes", record.getNotes());
+            inspections.set(path + ".status", record.getStatus());
+            inspections.set(path + ".duration", record.getDuration() > 0 ? record.getDuration() : null);
+        }
+        save(inspectionsFile, inspections);
+    }
+
+    @Override
+    public List<InspectionRecord> findInspections(UUID targetId, int offset, int limit) {
+        List<InspectionRecord> matches = new ArrayList<>();
+        synchronized (inspections) {
+            ConfigurationSection section = inspections.getConfigurationSection("inspections");
+            if (section == null) {
+                return matches;
+            }
+            String target = targetId.toString();
+            for (String id : section.getKeys(false)) {
+                ConfigurationSection inspection = section.getConfigurationSection(id);
+                if (inspection == null || !target.equals(inspection.getString("targetUuid"))) {
+                    continue;
+                }
+                UUID moderatorId = null;
+                try {
+                    moderatorId = UUID.fromString(inspection.getString("moderatorUuid", ""));
+                } catch (IllegalArgumentException e) {
+                    // Kept without a moderator
+                }
+                matches.add(new InspectionRecord(id, targetId, moderatorId, inspection.getLong("startTime"),
+                    inspection.getLong("endTime"), inspection.getString("result"), inspection.getString("notes"),
+                    inspection.getString("status"), inspection.getLong("duration")));
+            }
+        }
+        matches.sort(Comparator.comparingLong(InspectionRecord::getStartTime).reversed());
+        return matches.stream().skip(Math.max(0, offset)).limit(Math.max(1, limit)).collect(Collectors.toList());
+    }
+
+    // IP profiles
+
+    @Override
+    public void saveIpProfile(IpProfile profile, long expiresAt) {
+        if (ipProfiles != null) {
+            // The store applies its own lifetime to what it keeps
+            ipProfiles.put(profile, profile.getResolvedAt());
+        }
+    }
+
+    @Override
+    public IpProfile loadIpProfile(String address, long now) {
+        return ipProfiles != null ? ipProfiles.get(address, now) : null;
+    }
+
+    private void save(File file, YamlConfiguration yaml) {
+        try {
+            WriteBehindService.save(file, () -> {
+                synchronized (yaml) {
+                    return yaml.saveToString();
+                }
+            });
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Nie udało się zapisać " + file.getName(), e);
+        }
+    }
+
+    private static long number(Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : 0L;
+    }
+}
@@ -0,0 +1,70 @@
+package com.wificraft.sentinel.modules.storage;
+
+import java.util.UUID;
+
+/**
+ * One inspection of a player by a moderator, as stored.
+ */
+public final class InspectionRecord {
+    private final String id;
+    private final UUID targetId;
+    private final UUID moderatorId;
+    private final long startTime;
+    private final long endTime;
+    private final String result;
+    private final String notes;
+    private final String status;
+    private final long duration;
+
+    /**
+     * @param endTime 0 while the inspection is running
+     */
+    public InspectionRecord(String id, UUID targetId, UUID moderatorId, long startTime, long endTime,
+                            String result, String notes, String status, long duration) {
+        this.id = id;
+        this.targetId = targetId;
+        this.moderatorId = moderatorId;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.result = result;
+        this.notes = notes;
+        this.status = status;
+        this.duration = duration;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public UUID getTargetId() {
+        return targetId;
+    }
+
+    public UUID getModeratorId() {
+        return moderatorId;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public long getEndTime() {
+        return endTime;
+    }
+
+    public String getResult() {
+        return result;
+    }
+
+    public String getNotes() {
+        return notes;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public long getDuration() {
+        return duration;
+    }
+}
@@ -0,0 +1,848 @@
+package com.wificraft.sentinel.modules.storage;
+
+import com.wificraft.sentinel.modules.ModeratorStats;
+import com.wificraft.sentinel.modules.data.InspectionNotes;
+import com.wificraft.sentinel.modules.ip.GeoRecord;
+import com.wificraft.sentinel.modules.ip.IpProfile;
+import com.wificraft.sentinel.modules.reports.Evidence;
+import com.wificraft.sentinel.modules.reports.Report;
+import com.wificraft.sentinel.modules.reports.ReportHeader;
+import com.wificraft.sentinel.modules.reports.ReportCodec;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Storage in a SQL database, written for MySQL and shared by every server pointed at it.
+ *
+ * Writes are queued and committed by one writer thread: every commit interval it takes what
+ * queued up and writes it in one transaction, with one batched prepared statement per table.
+ * Rows with a key are coalesced while queued, so ten changes to one report are one row write;
+ * an upsert is a batched delete followed by a batched insert, which every SQL database runs.
+ * If the database is unreachable the writes stay queued and are retried.
+ *
+ * Reads never wait for the writer. Lookups of a report or of stats by ID return the queued
+ * row if there is one; searches and lists read what is committed, so they can miss writes
+ * made within the last commit interval.
+ *
+ * Reports keep their filter columns (reporter, reported player, status, creation time) next
+ * to the whole report as a {@link ReportCodec} record, so searches and history pages are
+ * indexed queries. The tables and indexes are created on {@link #open()} when missing.
+ */
+public class JdbcStorage implements SentinelStorage {
+    private static final long RETRY_DELAY_MILLIS = 5_000;
+
+    /**
+     * A table and the statements to write it.
+     */
+    private static final class Table {
+        final String name;
+        final String key;
+        final String[] columns;
+        final int[] types;
+        final String definition;
+        final String[][] indexes;
+
+        /**
+         * @param key Primary key column replaced on every write, or null for an append-only table
+         * @param definition Column definitions for CREATE TABLE, in the order of {@code columns}
+         * @param indexes Index name followed by its columns
+         */
+        Table(String name, String key, String[] columns, int[] types, String definition, String[][] indexes) {
+            this.name = name;
+            this.key = key;
+            this.columns = columns;
+            this.types = types;
+            this.definition = definition;
+            this.indexes = indexes;
+        }
+
+        String insertSql() {
+            StringBuilder values = new StringBuilder();
+            for (int i = 0; i < columns.length; i++) {
+                values.append(i == 0 ? "?" : ", ?");
+            }
+            return "INSERT INTO " + name + " (" + String.join(", ", columns) + ") VALUES (" + values + ")";
+        }
+
+        String deleteSql() {
+            return "DELETE FROM " + name + " WHERE " + key + " = ?";
+        }
+    }
+
+    private static final Table REPORTS = new Table("sentinel_reports", "id",
+        new String[] {"id", "reporter", "reported", "status", "moderator", "created_at", "resolved_at", "search_text", "body"},
+        new int[] {Types.CHAR, Types.CHAR, Types.CHAR, Types.VARCHAR, Types.VARCHAR, Types.BIGINT, Types.BIGINT, Types.VARCHAR, Types.VARBINARY},
+        "id CHAR(36) NOT NULL PRIMARY KEY, reporter CHAR(36), reported CHAR(36), status VARCHAR(16) NOT NULL, "
+            + "moderator VARCHAR(64), created_at BIGINT NOT NULL, resolved_at BIGINT, search_text MEDIUMTEXT, body MEDIUMBLOB NOT NULL",
+        new String[][] {
+            {"idx_reports_reported", "reported", "created_at"},
+            {"idx_reports_reporter", "reporter", "created_at"},
+            {"idx_reports_status", "status", "created_at"},
+            {"idx_reports_created", "created_at"}});
+
+    private static final Table NOTES = new Table("sentinel_notes", null,
+        new String[] {"player", "type", "content", "created_at", "moderator", "duration"},
+        new int[] {Types.CHAR, Types.VARCHAR, Types.VARCHAR, Types.BIGINT, Types.CHAR, Types.BIGINT},
+        "id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY, player CHAR(36) NOT NULL, type VARCHAR(64), content MEDIUMTEXT, "
+            + "created_at BIGINT NOT NULL, moderator CHAR(36), duration BIGINT NOT NULL",
+        new String[][] {{"idx_notes_player", "player", "created_at"}});
+
+    private static final Table PLAYER_STATS = new Table("sentinel_player_stats", "player",
+        new String[] {"player", "last_login", "login_count", "inspection_count", "ban_count", "total_play_time", "longest_session"},
+        new int[] {Types.CHAR, Types.BIGINT, Types.INTEGER, Types.INTEGER, Types.INTEGER, Types.BIGINT, Types.BIGINT},
+        "player CHAR(36) NOT NULL PRIMARY KEY, last_login BIGINT NOT NULL, login_count INT NOT NULL, inspection_count INT NOT NULL, "
+            + "ban_count INT NOT NULL, total_play_time BIGINT NOT NULL, longest_session BIGINT NOT NULL",
+        new String[0][]);
+
+    private static final Table MODERATOR_STATS = new Table("sentinel_moderator_stats", "moderator",
+        new String[] {"moderator", "inspections", "bans", "last_inspection"},
+        new int[] {Types.CHAR, Types.INTEGER, Types.INTEGER, Types.BIGINT},
+        "moderator CHAR(36) NOT NULL PRIMARY KEY, inspections INT NOT NULL, bans INT NOT NULL, last_inspection BIGINT NOT NULL",
+        new String[0][]);
+
+    private static final Table INSPECTIONS = new Table("sentinel_inspections", "id",
+        new String[] {"id", "target", "moderator", "start_time", "end_time", "result", "notes", "status", "duration"},
+        new int[] {Types.VARCHAR, Types.CHAR, Types.CHAR, Types.BIGINT, Types.BIGINT, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.BIGINT},
+        "id VARCHAR(64) NOT NULL PRIMARY KEY, target CHAR(36) NOT NULL, moderator CHAR(36), start_time BIGINT NOT NULL, "
+            + "end_time BIGINT NOT NULL, result VARCHAR(255), notes MEDIUMTEXT, status VARCHAR(32), duration BIGINT NOT NULL",
+        new String[][] {{"idx_inspections_target", "target", "start_time"}});
+
+    private static final Table IP_PROFILES = new Table("sentinel_ip_profiles", "address",
+        new String[] {"address", "resolved_at", "expires_at", "source", "hosting", "proxy", "cloud_provider", "data_center",
+            "country_code", "country", "city", "timezone", "latitude", "longitude", "asn", "asn_org"},
+        new int[] {Types.VARCHAR, Types.BIGINT, Types.BIGINT, Types.VARCHAR, Types.BOOLEAN, Types.BOOLEAN, Types.VARCHAR, Types.VARCHAR,
+            Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.DOUBLE, Types.DOUBLE, Types.BIGINT, Types.VARCHAR},
+        "address VARCHAR(45) NOT NULL PRIMARY KEY, resolved_at BIGINT NOT NULL, expires_at BIGINT NOT NULL, source VARCHAR(8) NOT NULL, "
+            + "hosting BOOLEAN NOT NULL, proxy BOOLEAN NOT NULL, cloud_provider VARCHAR(64), data_center VARCHAR(128), "
+            + "country_code VARCHAR(8), country VARCHAR(64), city VARCHAR(128), timezone VARCHAR(64), latitude DOUBLE, "
+            + "longitude DOUBLE, asn BIGINT, asn_org VARCHAR(255)",
+        new String[][] {{"idx_ip_profiles_expires", "expires_at"}});
+
+    private static final Table[] TABLES = {REPORTS, NOTES, PLAYER_STATS, MODERATOR_STATS, INSPECTIONS, IP_PROFILES};
+
+    private static final class Row {
+        final Table table;
+        final Object[] values;
+
+        Row(Table table, Object... values) {
+            this.table = table;
+            this.values = values;
+        }
+    }
+
+    private final ConnectionPool pool;
+    private final Logger logger;
+    private final long commitIntervalMillis;
+    private final int batchSize;
+
+    // All guarded by lock
+    private final Object lock = new Object();
+    private LinkedHashMap<String, Row> upserts = new LinkedHashMap<>();
+    // The upserts of the transaction being committed, still visible to lookups until it succeeds
+    private Map<String, Row> committing = new HashMap<>();
+    private List<Row> appends = new ArrayList<>();
+    private long queued;
+    private long committed;
+    private boolean closed;
+    private Thread writer;
+
+    private final LongAdder rowsWritten = new LongAdder();
+    private final LongAdder transactions = new LongAdder();
+    private final LongAdder commitNanos = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder queries = new LongAdder();
+
+    /**
+     * @param commitIntervalMillis How long the writer gathers writes before one transaction
+     * @param batchSize Rows per executed batch
+     */
+    public JdbcStorage(ConnectionPool pool, Logger logger, long commitIntervalMillis, int batchSize) {
+        this.pool = pool;
+        this.logger = logger;
+        this.commitIntervalMillis = Math.max(0, commitIntervalMillis);
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * A pool for the URL, registering the MySQL driver shipped with the server if the URL needs it.
+     */
+    public static ConnectionPool createPool(String url, String user, String password, int poolSize) {
+        if (url.startsWith("jdbc:mysql:")) {
+            try {
+                Class.forName("com.mysql.cj.jdbc.Driver");
+            } catch (ClassNotFoundException e) {
+                // DriverManager reports the missing driver on the first connection
+            }
+        }
+        Properties properties = new Properties();
+        if (user != null) {
+            properties.setProperty("user", user);
+        }
+        if (password != null) {
+            properties.setProperty("password", password);
+        }
+        // Let MySQL turn each batch into multi-row statements
+        properties.setProperty("rewriteBatchedStatements", "true");
+        return new ConnectionPool(url, properties, poolSize, 10_000);
+    }
+
+    @Override
+    public void open() throws IOException {
+        try {
+            pool.execute(connection -> {
+                try (Statement statement = connection.createStatement()) {
+                    for (Table table : TABLES) {
+                        statement.executeUpdate("CREATE TABLE IF NOT EXISTS " + table.name + " (" + table.definition + ")");
+                    }
+                }
+                for (Table table : TABLES) {
+                    createMissingIndexes(connection, table);
+                }
+                return null;
+            });
+        } catch (SQLException e) {
+            throw new IOException("Could not prepare the database tables", e);
+        }
+        synchronized (lock) {
+            if (writer == null) {
+                writer = new Thread(this::writeLoop, "Sentinel-StorageWriter");
+                writer.setDaemon(true);
+                writer.start();
+            }
+        }
+    }
+
+    // CREATE INDEX IF NOT EXISTS is not MySQL syntax, so look at what is there first
+    private static void createMissingIndexes(Connection connection, Table table) throws SQLException {
+        if (table.indexes.length == 0) {
+            return;
+        }
+        List<String> existing = new ArrayList<>();
+        DatabaseMetaData metaData = connection.getMetaData();
+        for (String name : new String[] {table.name, table.name.toUpperCase(Locale.ROOT)}) {
+            try (ResultSet indexes = metaData.getIndexInfo(connection.getCatalog(), null, name, false, false)) {
+                while (indexes.next()) {
+                    String index = indexes.getString("INDEX_NAME");
+                    if (index != null) {
+                        existing.add(index.toLowerCase(Locale.ROOT));
+                    }
+                }
+            }
+        }
+        try (Statement statement = connection.createStatement()) {
+            for (String[] index : table.indexes) {
+                if (!existing.contains(index[0])) {
+                    String[] columns = new String[index.length - 1];
+                    System.arraycopy(index, 1, columns, 0, columns.length);
+                    statement.executeUpdate("CREATE INDEX " + index[0] + " ON " + table.name + " (" + String.join(", ", columns) + ")");
+                }
+            }
+        }
+    }
+
+    @Override
+    public void flush() {
+        synchronized (lock) {
+            long target = queued;
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            boolean interrupted = false;
+            while (committed < target && writer != null && writer.isAlive()) {
+                long left = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (left <= 0) {
+                    logger.warning(String.format("Baza danych nie przyjęła %d zmian przed upływem czasu", target - committed));
+                    break;
+                }
+                try {
+                    lock.wait(Math.min(left, 100));
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        flush();
+        Thread running;
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+            running = writer;
+        }
+        if (running != null) {
+            try {
+                running.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        pool.close();
+    }
+
+    @Override
+    public String getName() {
+        return "jdbc";
+    }
+
+    @Override
+    public String getStatusLine() {
+        long commits = transactions.sum();
+        int pending;
+        synchronized (lock) {
+            pending = upserts.size() + appends.size();
+        }
+        return String.format("rows: %d in %d transactions (avg %.1f ms), queries: %d, pending: %d, connections: %d open / %d idle, failed commits: %d",
+            rowsWritten.sum(), commits, commits == 0 ? 0.0 : commitNanos.sum() / 1e6 / commits, queries.sum(), pending,
+            pool.getOpenCount(), pool.getIdleCount(), failures.sum());
+    }
+
+    private void upsert(Row row) {
+        synchronized (lock) {
+            if (closed) {
+                logger.warning("Magazyn danych jest zamknięty, zmiana nie zostanie zapisana");
+                return;
+            }
+            upserts.put(rowKey(row.table, row.values[0]), row);
+            queued++;
+            lock.notifyAll();
+        }
+    }
+
+    private void append(Row row) {
+        synchronized (lock) {
+            if (closed) {
+                logger.warning("Magazyn danych jest zamknięty, zmiana nie zostanie zapisana");
+                return;
+            }
+            appends.add(row);
+            queued++;
+            lock.notifyAll();
+        }
+    }
+
+    private void writeLoop() {
+        while (true) {
+            LinkedHashMap<String, Row> upsertBatch;
+            List<Row> appendBatch;
+            long upTo;
+            synchronized (lock) {
+                while (upserts.isEmpty() && appends.isEmpty() && !closed) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        closed = true;
+                    }
+                }
+                if (upserts.isEmpty() && appends.isEmpty()) {
+                    return;
+                }
+            }
+            if (commitIntervalMillis > 0) {
+                // Let the rest of a burst join this transaction
+                sleep(commitIntervalMillis);
+            }
+            synchronized (lock) {
+                upsertBatch = upserts;
+                appendBatch = appends;
+                committing = upsertBatch;
+                upserts = new LinkedHashMap<>();
+                appends = new ArrayList<>();
+                upTo = queued;
+            }
+            try {
+                commit(upsertBatch, appendBatch);
+                synchronized (lock) {
+                    committed = upTo;
+                    committing = new HashMap<>();
+                    lock.notifyAll();
+                }
+            } catch (SQLException e) {
+                failures.increment();
+                logger.log(Level.WARNING, String.format("Nie udało się zapisać %d zmian w bazie danych, ponowienie za %d s",
+                    upsertBatch.size() + appendBatch.size(), RETRY_DELAY_MILLIS / 1000), e);
+                synchronized (lock) {
+                    // Newer versions of the same rows queued meanwhile win
+                    upsertBatch.putAll(upserts);
+                    upserts = upsertBatch;
+                    committing = new HashMap<>();
+                    appendBatch.addAll(appends);
+                    appends = appendBatch;
+                    if (closed) {
+                        // Shutting down; whatever is left is lost, so stop the flush from waiting on it
+                        committed = queued;
+                        lock.notifyAll();
+                        return;
+                    }
+                }
+                sleep(RETRY_DELAY_MILLIS);
+            }
+        }
+    }
+
+    private void commit(Map<String, Row> upsertBatch, List<Row> appendBatch) throws SQLException {
+        long started = System.nanoTime();
+        Map<Table, List<Row>> byTable = new LinkedHashMap<>();
+        for (Row row : upsertBatch.values()) {
+            byTable.computeIfAbsent(row.table, table -> new ArrayList<>()).add(row);
+        }
+        for (Row row : appendBatch) {
+            byTable.computeIfAbsent(row.table, table -> new ArrayList<>()).add(row);
+        }
+        pool.execute(connection -> {
+            connection.setAutoCommit(false);
+            for (Map.Entry<Table, List<Row>> entry : byTable.entrySet()) {
+                Table table = entry.getKey();
+                List<Row> rows = entry.getValue();
+                if (table.key != null) {
+                    try (PreparedStatement delete = connection.prepareStatement(table.deleteSql())) {
+                        for (int i = 0; i < rows.size(); i++) {
+                            delete.setObject(1, rows.get(i).values[0]);
+                            delete.addBatch();
+                            if ((i + 1) % batchSize == 0) {
+                                delete.executeBatch();
+                            }
+                        }
+                        delete.executeBatch();
+                    }
+                }
+                try (PreparedStatement insert = connection.prepareStatement(table.insertSql())) {
+                    for (int i = 0; i < rows.size(); i++) {
+                        bind(insert, table, rows.get(i).values);
+                        insert.addBatch();
+                        if ((i + 1) % batchSize == 0) {
+                            insert.executeBatch();
+                        }
+                    }
+                    insert.executeBatch();
+                }
+            }
+            connection.commit();
+            connection.setAutoCommit(true);
+            return null;
+        });
+        rowsWritten.add(upsertBatch.size() + appendBatch.size());
+        transactions.increment();
+        commitNanos.add(System.nanoTime() - started);
+    }
+
+    private static void bind(PreparedStatement statement, Table table, Object[] values) throws SQLException {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == null) {
+                statement.setNull(i + 1, table.types[i]);
+            } else if (values[i] instanceof byte[]) {
+                statement.setBytes(i + 1, (byte[]) values[i]);
+            } else {
+                statement.setObject(i + 1, values[i]);
+            }
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String rowKey(Table table, Object key) {
+        return table.name + '\0' + key;
+    }
+
+    /**
+     * @return The newest version of the row that is queued or being committed, or null if the database has it
+     */
+    private Row pending(Table table, Object key) {
+        String rowKey = rowKey(table, key);
+        synchronized (lock) {
+            Row row = upserts.get(rowKey);
+            return row != null ? row : committing.get(rowKey);
+        }
+    }
+
+    // Never waits for the writer; see the class comment for what reads see
+    private <T> T query(ConnectionPool.Work<T> work) throws IOException {
+        queries.increment();
+        try {
+            return pool.execute(work);
+        } catch (SQLException e) {
+            throw new IOException("Database query failed", e);
+        }
+    }
+
+    // Reports
+
+    private static Row reportRow(Report report) {
+        return new Row(REPORTS, report.getId().toString(), string(report.getReporterId()), string(report.getReportedPlayerId()),
+            report.getStatus().name(), report.getAssignedModeratorId(), millis(report.getCreatedAt()),
+            report.getResolvedAt() != null ? millis(report.getResolvedAt()) : null, ReportQuery.searchText(report),
+            ReportCodec.encode(report));
+    }
+
+    private static long millis(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    // Everything but the body; the words come from the search text, reason first, then a note per line
+    @Override
+    public Map<UUID, ReportHeader> loadReportHeaders() throws IOException {
+        return query(connection -> {
+            Map<UUID, ReportHeader> headers = new HashMap<>();
+            try (Statement statement = connection.createStatement();
+                 ResultSet rows = statement.executeQuery(
+                     "SELECT id, reporter, reported, status, created_at, resolved_at, search_text FROM " + REPORTS.name)) {
+                while (rows.next()) {
+                    UUID id = uuid(rows.getString(1));
+                    Report.ReportStatus status;
+                    try {
+                        status = Report.ReportStatus.valueOf(rows.getString(4));
+                    } catch (IllegalArgumentException | NullPointerException e) {
+                        status = null;
+                    }
+                    if (id == null || status == null) {
+                        logger.warning("Pominięto nieczytelne zgłoszenie z bazy danych: " + rows.getString(1));
+                        continue;
+                    }
+                    List<String> lines = new ArrayList<>(Arrays.asList(String.valueOf(rows.getString(7)).split("\n", -1)));
+                    String reason = lines.remove(0);
+                    headers.put(id, new ReportHeader(id, uuid(rows.getString(2)), uuid(rows.getString(3)), status,
+                        rows.getLong(5), rows.getLong(6), ReportHeader.wordsOf(reason, lines)));
+                }
+            }
+            return headers;
+        });
+    }
+
+    @Override
+    public Report loadReport(UUID id) throws IOException {
+        Row row = pending(REPORTS, id.toString());
+        if (row != null) {
+            return decode((byte[]) row.values[8]);
+        }
+        return query(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("SELECT body FROM " + REPORTS.name + " WHERE id = ?")) {
+                statement.setString(1, id.toString());
+                try (ResultSet rows = statement.executeQuery()) {
+                    return rows.next() ? decode(rows.getBytes(1)) : null;
+                }
+            }
+        });
+    }
+
+    // Queued rows first, then the rest in IN queries of at most batchSize IDs
+    @Override
+    public Map<UUID, Report> loadReports(Collection<UUID> ids) throws IOException {
+        Map<UUID, Report> reports = new HashMap<>();
+        List<String> missing = new ArrayList<>(ids.size());
+        for (UUID id : ids) {
+            Row row = pending(REPORTS, id.toString());
+            Report report = row != null ? decode((byte[]) row.values[8]) : null;
+            if (report != null) {
+                reports.put(id, report);
+            } else if (row == null) {
+                missing.add(id.toString());
+            }
+        }
+        for (int start = 0; start < missing.size(); start += batchSize) {
+            List<String> chunk = missing.subList(start, Math.min(missing.size(), start + batchSize));
+            StringBuilder sql = new StringBuilder("SELECT body FROM ").append(REPORTS.name).append(" WHERE id IN (");
+            for (int i = 0; i < chunk.size(); i++) {
+                sql.append(i == 0 ? "?" : ", ?");
+            }
+            sql.append(')');
+            query(connection -> {
+                try (PreparedStatement statement = connection.prepareStatement(sql.toString())) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        statement.setString(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet rows = statement.executeQuery()) {
+                        while (rows.next()) {
+                            Report report = decode(rows.getBytes(1));
+                            if (report != null) {
+                                reports.put(report.getId(), report);
+                            }
+                        }
+                    }
+                }
+                return null;
+            });
+        }
+        return reports;
+    }
+
+    private Report decode(byte[] body) {
+        try {
+            return ReportCodec.decode(body);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Pominięto nieczytelne zgłoszenie z bazy danych", e);
+            return null;
+        }
+    }
+
+    // Every change writes the whole row; queued changes to one report coalesce into one write
+    @Override
+    public void saveReport(Report report) {
+        upsert(reportRow(report));
+    }
+
+    @Override
+    public void saveNote(Report report, String note) {
+        upsert(reportRow(report));
+    }
+
+    @Override
+    public void saveState(Report report) {
+        upsert(reportRow(report));
+    }
+
+    @Override
+    public void saveEvidence(Report report, Evidence evidence) {
+        upsert(reportRow(report));
+    }
+
+    @Override
+    public void removeEvidence(Report report, UUID evidenceId) {
+        upsert(reportRow(report));
+    }
+
+    @Override
+    public List<Report> findReports(ReportQuery query) throws IOException {
+        StringBuilder sql = new StringBuilder("SELECT body FROM ").append(REPORTS.name).append(" WHERE 1 = 1");
+        List<Object> parameters = new ArrayList<>();
+        if (query.getStatus() != null) {
+            sql.append(" AND status = ?");
+            parameters.add(query.getStatus().name());
+        }
+        if (query.getReporterId() != null) {
+            sql.append(" AND reporter = ?");
+            parameters.add(query.getReporterId().toString());
+        }
+        if (query.getReportedPlayerId() != null) {
+            sql.append(" AND reported = ?");
+            parameters.add(query.getReportedPlayerId().toString());
+        }
+        if (query.getCreatedFrom() != null) {
+            sql.append(" AND created_at >= ?");
+            parameters.add(millis(query.getCreatedFrom()));
+        }
+        if (query.getCreatedUntil() != null) {
+            sql.append(" AND created_at < ?");
+            parameters.add(millis(query.getCreatedUntil()));
+        }
+        if (query.getText() != null) {
+            sql.append(" AND search_text LIKE ? ESCAPE '!'");
+            parameters.add("%" + query.getText().replace("!", "!!").replace("%", "!%").replace("_", "!_") + "%");
+        }
+        sql.append(" ORDER BY created_at DESC, id LIMIT ? OFFSET ?");
+        parameters.add(query.getLimit());
+        parameters.add(query.getOffset());
+        return query(connection -> {
+            List<Report> page = new ArrayList<>();
+            try (PreparedStatement statement = connection.prepareStatement(sql.toString())) {
+                for (int i = 0; i < parameters.size(); i++) {
+                    statement.setObject(i + 1, parameters.get(i));
+                }
+                try (ResultSet rows = statement.executeQuery()) {
+                    while (rows.next()) {
+                        Report report = decode(rows.getBytes(1));
+                        if (report != null) {
+                            page.add(report);
+                        }
+                    }
+                }
+            }
+            return page;
+        });
+    }
+
+    // Inspection notes
+
+    @Override
+    public void addNote(UUID playerId, InspectionNotes.Note note) {
+        append(new Row(NOTES, playerId.toString(), note.getType(), note.getContent(), note.getTimestamp(),
+            string(note.getModeratorUuid()), note.getDuration()));
+    }
+
+    @Override
+    public List<InspectionNotes.Note> loadNotes(UUID playerId) throws IOException {
+        return query(connection -> {
+            List<InspectionNotes.Note> notes = new ArrayList<>();
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT type, content, created_at, moderator, duration FROM " + NOTES.name + " WHERE player = ? ORDER BY created_at, id")) {
+                statement.setString(1, playerId.toString());
+                try (ResultSet rows = statement.executeQuery()) {
+                    while (rows.next()) {
+                        notes.add(new InspectionNotes.Note(rows.getString(1), rows.getString(2), rows.getLong(3),
+                            uuid(rows.getString(4)), rows.getLong(5)));
+                    }
+                }
+            }
+            return notes;
+        });
+    }
+
+    // Player and moderator stats
+
+    @Override
+    public void savePlayerStats(PlayerStatsRecord stats) {
+        upsert(new Row(PLAYER_STATS, stats.getPlayerId().toString(), stats.getLastLogin(), stats.getLoginCount(),
+            stats.getInspectionCount(), stats.getBanCount(), stats.getTotalPlayTime(), stats.getLongestSession()));
+    }
+
+    @Override
+    public PlayerStatsRecord loadPlayerStats(UUID playerId) throws IOException {
+        Row row = pending(PLAYER_STATS, playerId.toString());
+        if (row != null) {
+            Object[] values = row.values;
+            return new PlayerStatsRecord(playerId, (Long) values[1], (Integer) values[2], (Integer) values[3],
+                (Integer) values[4], (Long) values[5], (Long) values[6]);
+        }
+        return query(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT last_login, login_count, inspection_count, ban_count, total_play_time, longest_session FROM "
+                        + PLAYER_STATS.name + " WHERE player = ?")) {
+                statement.setString(1, playerId.toString());
+                try (ResultSet rows = statement.executeQuery()) {
+                    return rows.next() ? new PlayerStatsRecord(playerId, rows.getLong(1), rows.getInt(2), rows.getInt(3),
+                        rows.getInt(4), rows.getLong(5), rows.getLong(6)) : null;
+                }
+            }
+        });
+    }
+
+    @Override
+    public void saveModeratorStats(ModeratorStats stats) {
+        upsert(new Row(MODERATOR_STATS, stats.getUuid().toString(), stats.getInspections(), stats.getBans(),
+            stats.getLastInspection()));
+    }
+
+    @Override
+    public ModeratorStats loadModeratorStats(UUID moderatorId) throws IOException {
+        Row row = pending(MODERATOR_STATS, moderatorId.toString());
+        if (row != null) {
+            return new ModeratorStats(moderatorId, (Integer) row.values[1], (Integer) row.values[2], (Long) row.values[3]);
+        }
+        return query(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT inspections, bans, last_inspection FROM " + MODERATOR_STATS.name + " WHERE moderator = ?")) {
+                statement.setString(1, moderatorId.toString());
+                try (ResultSet rows = statement.executeQuery()) {
+                    return rows.next() ? new ModeratorStats(moderatorId, rows.getInt(1), rows.getInt(2), rows.getLong(3)) : null;
+                }
+            }
+        });
+    }
+
+    // Inspections
+
+    @Override
+    public void saveInspection(InspectionRecord inspection) {
+        upsert(new Row(INSPECTIONS, inspection.getId(), inspection.getTargetId().toString(), string(inspection.getModeratorId()),
+            inspection.getStartTime(), inspection.getEndTime(), inspection.getResult(), inspection.getNotes(),
+            inspection.getStatus(), inspection.getDuration()));
+    }
+
+    @Override
+    public List<InspectionRecord> findInspections(UUID targetId, int offset, int limit) throws IOException {
+        return query(connection -> {
+            List<InspectionRecord> page = new ArrayList<>();
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT id, moderator, start_time, end_time, result, notes, status, duration FROM " + INSPECTIONS.name
+                        + " WHERE target = ? ORDER BY start_time DESC, id LIMIT ? OFFSET ?")) {
+                statement.setString(1, targetId.toString());
+                statement.setInt(2, Math.max(1, limit));
+                statement.setInt(3, Math.max(0, offset));
+                try (ResultSet rows = statement.executeQuery()) {
+                    while (rows.next()) {
+                        page.add(new InspectionRecord(rows.getString(1), targetId, uuid(rows.getString(2)), rows.getLong(3),
+                            rows.getLong(4), rows.getString(5), rows.getString(6), rows.getString(7), rows.getLong(8)));
+                    }
+                }
+            }
+            return page;
+        });
+    }
+
+    // IP profiles
+
+    @Override
+    public void saveIpProfile(IpProfile profile, long expiresAt) {
+        GeoRecord geo = profile.getGeo();
+        upsert(new Row(IP_PROFILES, profile.getAddress(), profile.getResolvedAt(), expiresAt, profile.getSource().name(),
+            profile.isHosting(), profile.isProxy(), profile.getCloudProvider(), profile.getDataCenter(),
+            geo != null ? geo.getCountryCode() : null, geo != null ? geo.getCountry() : null,
+            geo != null ? geo.getCity() : null, geo != null ? geo.getTimezone() : null,
+            geo != null ? geo.getLatitude() : null, geo != null ? geo.getLongitude() : null,
+            geo != null ? geo.getAsn() : null, geo != null ? geo.getAsnOrganization() : null));
+    }
+
+    @Override
+    public IpProfile loadIpProfile(String address, long now) throws IOException {
+        return query(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT resolved_at, source, hosting, proxy, cloud_provider, data_center, country_code, country, city, "
+                        + "timezone, latitude, longitude, asn, asn_org FROM " + IP_PROFILES.name + " WHERE address = ? AND expires_at > ?")) {
+                statement.setString(1, address);
+                statement.setLong(2, now);
+                try (ResultSet rows = statement.executeQuery()) {
+                    if (!rows.next()) {
+                        return null;
+                    }
+                    IpProfile.Source source;
+                    try {
+                        source = IpProfile.Source.valueOf(rows.getString(2));
+                    } catch (IllegalArgumentException | NullPointerException e) {
+                        source = IpProfile.Source.NONE;
+                    }
+                    GeoRecord geo = rows.getString(7) == null ? null : new GeoRecord(rows.getString(7), rows.getString(8),
+                        rows.getString(9), rows.getString(10), rows.getDouble(11), rows.getDouble(12), rows.getLong(13),
+                        rows.getString(14));
+                    return new IpProfile(address, geo, rows.getString(5), rows.getString(6), rows.getBoolean(3),
+                        rows.getBoolean(4), source, rows.getLong(1));
+                }
+            }
+        });
+    }
+
+    private static String string(UUID uuid) {
+        return uuid != null ? uuid.toString() : null;
+    }
+
+    private static UUID uuid(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return UUID.fromString(value);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.wificraft.sentinel.modules.storage;
+
+import java.util.UUID;
+
+/**
+ * The stored part of a player's activity stats.
+ */
+public final class PlayerStatsRecord {
+    private final UUID playerId;
+    private final long lastLogin;
+    private final int loginCount;
+    private final int inspectionCount;
+    private final int banCount;
+    private final long totalPlayTime;
+    private final long longestSession;
+
+    public PlayerStatsRecord(UUID playerId, long lastLogin, int loginCount, int inspectionCount, int banCount,
+                             long totalPlayTime, long longestSession) {
+        this.playerId = playerId;
+        this.lastLogin = lastLogin;
+        this.loginCount = loginCount;
+        this.inspectionCount = inspectionCount;
+        this.banCount = banCount;
+        this.totalPlayTime = totalPlayTime;
+        this.longestSession = longestSession;
+    }
+
+    public UUID getPlayerId() {
+        return playerId;
+    }
+
+    public long getLastLogin() {
+        return lastLogin;
+    }
+
+    public int getLoginCount() {
+        return loginCount;
+    }
+
+    public int getInspectionCount() {
+        return inspectionCount;
+    }
+
+    public int getBanCount() {
+        return banCount;
+    }
+
+    public long getTotalPlayTime() {
+        return totalPlayTime;
+    }
+
+    public long getLongestSession() {
+        return longestSession;
+    }
+}
@@ -0,0 +1,144 @@
+package com.wificraft.sentinel.modules.storage;
+
+import com.wificraft.sentinel.modules.reports.Report;
+import com.wificraft.sentinel.modules.reports.ReportHeader;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Filters and page of a report search. Unset filters match everything; the text matches the
+ * reason or any note, ignoring case.
+ */
+public final class ReportQuery {
+    private Report.ReportStatus status;
+    private UUID reporterId;
+    private UUID reportedPlayerId;
+    private String text;
+    private LocalDateTime createdFrom;
+    private LocalDateTime createdUntil;
+    private int offset;
+    private int limit = 50;
+
+    public ReportQuery status(Report.ReportStatus status) {
+        this.status = status;
+        return this;
+    }
+
+    public ReportQuery reporter(UUID reporterId) {
+        this.reporterId = reporterId;
+        return this;
+    }
+
+    public ReportQuery reportedPlayer(UUID reportedPlayerId) {
+        this.reportedPlayerId = reportedPlayerId;
+        return this;
+    }
+
+    public ReportQuery text(String text) {
+        this.text = text == null || text.trim().isEmpty() ? null : text.trim().toLowerCase(Locale.ROOT);
+        return this;
+    }
+
+    /**
+     * @param from First creation time included, or null
+     * @param until First creation time no longer included, or null
+     */
+    public ReportQuery createdBetween(LocalDateTime from, LocalDateTime until) {
+        this.createdFrom = from;
+        this.createdUntil = until;
+        return this;
+    }
+
+    public ReportQuery page(int offset, int limit) {
+        this.offset = Math.max(0, offset);
+        this.limit = Math.max(1, limit);
+        return this;
+    }
+
+    public Report.ReportStatus getStatus() {
+        return status;
+    }
+
+    public UUID getReporterId() {
+        return reporterId;
+    }
+
+    public UUID getReportedPlayerId() {
+        return reportedPlayerId;
+    }
+
+    /**
+     * @return The lower-case search text, or null
+     */
+    public String getText() {
+        return text;
+    }
+
+    public LocalDateTime getCreatedFrom() {
+        return createdFrom;
+    }
+
+    public LocalDateTime getCreatedUntil() {
+        return createdUntil;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public boolean matches(Report report) {
+        if (status != null && report.getStatus() != status) {
+            return false;
+        }
+        if (reporterId != null && !reporterId.equals(report.getReporterId())) {
+            return false;
+        }
+        if (reportedPlayerId != null && !reportedPlayerId.equals(report.getReportedPlayerId())) {
+            return false;
+        }
+        if (createdFrom != null && report.getCreatedAt().isBefore(createdFrom)) {
+            return false;
+        }
+        if (createdUntil != null && !report.getCreatedAt().isBefore(createdUntil)) {
+            return false;
+        }
+        return text == null || searchText(report).contains(text);
+    }
+
+    /**
+     * @return Whether the header passes every filter but the text, which needs the whole report
+     */
+    public boolean matchesHeader(ReportHeader header) {
+        if (status != null && header.getStatus() != status) {
+            return false;
+        }
+        if (reporterId != null && !reporterId.equals(header.getReporterId())) {
+            return false;
+        }
+        if (reportedPlayerId != null && !reportedPlayerId.equals(header.getReportedPlayerId())) {
+            return false;
+        }
+        if (createdFrom != null && header.getCreatedAt() < createdFrom.toInstant(ZoneOffset.UTC).toEpochMilli()) {
+            return false;
+        }
+        return createdUntil == null || header.getCreatedAt() < createdUntil.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    /**
+     * @return Reason and notes in lower case, one per line
+     */
+    public static String searchText(Report report) {
+        StringBuilder builder = new StringBuilder(String.valueOf(report.getReason()));
+        for (String note : report.getNotes()) {
+            builder.append('\n').append(note);
+        }
+        return builder.toString().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,140 @@
+package com.wificraft.sentinel.modules.storage;
+
+import com.wificraft.sentinel.modules.ModeratorStats;
+import com.wificraft.sentinel.modules.data.InspectionNotes;
+import com.wificraft.sentinel.modules.ip.IpProfile;
+import com.wificraft.sentinel.modules.reports.Evidence;
+import com.wificraft.sentinel.modules.reports.Report;
+import com.wificraft.sentinel.modules.reports.ReportHeader;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Where Sentinel keeps its data: reports with their evidence, inspection notes, player and
+ * moderator stats, inspections and resolved IP profiles.
+ *
+ * Writes return at once; a backend queues them and makes them durable in the background,
+ * and {@link #flush()} waits for everything written before it. Reads and queries may block
+ * on disk or network, so callers on the main thread should only use them for single lookups.
+ * Reads do not flush: a lookup by ID sees every write made before it, but a search or list
+ * may miss the latest writes until they are durable; call {@link #flush()} first if it must not.
+ *
+ * {@link FileStorage} keeps the plugin folder layout; {@link JdbcStorage} keeps everything in
+ * a database that several servers can share. Select one with {@code storage.type}.
+ */
+public interface SentinelStorage {
+
+    /**
+     * Prepares the backend: opens files or connections and creates what is missing.
+     */
+    void open() throws IOException;
+
+    /**
+     * Waits until every write made before this call is durable.
+     */
+    void flush();
+
+    /**
+     * Writes what is still queued and releases files and connections.
+     */
+    void close();
+
+    String getName();
+
+    String getStatusLine();
+
+    // Reports
+
+    /**
+     * @return The header of every stored report by ID; the rest is read by {@link #loadReport(UUID)}
+     */
+    Map<UUID, ReportHeader> loadReportHeaders() throws IOException;
+
+    /**
+     * @return The whole report with its notes and evidence, or null if there is none with that ID
+     */
+    Report loadReport(UUID id) throws IOException;
+
+    /**
+     * Reads several reports at once, in one query where the backend has queries.
+     * @return The reports found, by ID; IDs without a report are left out
+     */
+    Map<UUID, Report> loadReports(Collection<UUID> ids) throws IOException;
+
+    /**
+     * Stores a new report, or the whole of an existing one.
+     */
+    void saveReport(Report report);
+
+    /**
+     * Stores a note just added to the report, the last of its notes.
+     */
+    void saveNote(Report report, String note);
+
+    /**
+     * Stores status, moderator and resolution of the report as they are now.
+     */
+    void saveState(Report report);
+
+    void saveEvidence(Report report, Evidence evidence);
+
+    void removeEvidence(Report report, UUID evidenceId);
+
+    /**
+     * @return One page of the matching reports, newest first
+     */
+    List<Report> findReports(ReportQuery query) throws IOException;
+
+    // Inspection notes
+
+    void addNote(UUID playerId, InspectionNotes.Note note);
+
+    /**
+     * @return The player's notes, oldest first
+     */
+    List<InspectionNotes.Note> loadNotes(UUID playerId) throws IOException;
+
+    // Player and moderator stats
+
+    void savePlayerStats(PlayerStatsRecord stats);
+
+    /**
+     * @return The stored stats, or null
+     */
+    PlayerStatsRecord loadPlayerStats(UUID playerId) throws IOException;
+
+    void saveModeratorStats(ModeratorStats stats);
+
+    /**
+     * @return The stored stats, or null
+     */
+    ModeratorStats loadModeratorStats(UUID moderatorId) throws IOException;
+
+    // Inspections
+
+    /**
+     * Stores a new inspection, or the current state of an existing one with the same ID.
+     */
+    void saveInspection(InspectionRecord inspection);
+
+    /**
+     * @return One page of the player's inspections, newest first
+     */
+    List<InspectionRecord> findInspections(UUID targetId, int offset, int limit) throws IOException;
+
+    // IP profiles
+
+    /**
+     * @param expiresAt Until when the profile may be used
+     */
+    void saveIpProfile(IpProfile profile, long expiresAt);
+
+    /**
+     * @return The unexpired profile of a normalized address, or null
+     */
+    IpProfile loadIpProfile(String address, long now) throws IOException;
+}
@@ -0,0 +1,129 @@
+package com.wificraft.sentinel.events;
+
+import org.bukkit.event.Event;
+import org.bukkit.event.HandlerList;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventManagerTest {
+    private EventManager eventManager;
+    private List<String> calls;
+
+    @BeforeEach
+    void setUp() {
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        eventManager = new EventManager(logger);
+        calls = new ArrayList<>();
+    }
+
+    @Test
+    void dispatchesInPriorityThenRegistrationOrder() {
+        eventManager.registerCustomEvent(TestEvent.class, listener("normal-1"), EventManager.EventPriority.NORMAL);
+        eventManager.registerCustomEvent(TestEvent.class, listener("highest"), EventManager.EventPriority.HIGHEST);
+        eventManager.registerCustomEvent(TestEvent.class, listener("lowest"), EventManager.EventPriority.LOWEST);
+        eventManager.registerCustomEvent(TestEvent.class, listener("normal-2"), EventManager.EventPriority.NORMAL);
+
+        eventManager.fireEvent(new TestEvent());
+
+        assertEquals(List.of("lowest", "normal-1", "normal-2", "highest"), calls);
+    }
+
+    @Test
+    void dispatchesByExactClass() {
+        eventManager.registerCustomEvent(TestEvent.class, listener("base"), EventManager.EventPriority.NORMAL);
+        eventManager.registerCustomEvent(OtherEvent.class, listener("other"), EventManager.EventPriority.NORMAL);
+
+        eventManager.fireEvent(new OtherEvent());
+
+        assertEquals(List.of("other"), calls);
+    }
+
+    @Test
+    void countsFailuresAndKeepsDispatching() {
+        EventManager.RegisteredListener failing = eventManager.registerCustomEvent(TestEvent.class,
+            new EventManager.EventListener() {
+                @Override
+                public EventManager.EventPriority getPriority() {
+                    return EventManager.EventPriority.LOW;
+                }
+
+                @Override
+                public void onEvent(Event event) {
+                    throw new IllegalStateException("boom");
+                }
+            }, null);
+        EventManager.RegisteredListener working = eventManager.registerCustomEvent(TestEvent.class,
+            listener("after"), EventManager.EventPriority.HIGH);
+
+        eventManager.fireEvent(new TestEvent());
+        eventManager.fireEvent(new TestEvent());
+
+        assertEquals(EventManager.EventPriority.LOW, failing.getPriority());
+        assertEquals(2, failing.getFailureCount());
+        assertEquals(2, failing.getInvocationCount());
+        assertEquals(0, working.getFailureCount());
+        assertEquals(2, working.getInvocationCount());
+        assertTrue(working.getMaxNanos() >= 0);
+        assertEquals(List.of("after", "after"), calls);
+    }
+
+    @Test
+    void filterAppliesToItsOwnRegistrationOnly() {
+        EventManager.RegisteredListener filtered = eventManager.registerFilteredEvent(TestEvent.class,
+            listener("filtered"), EventManager.EventPriority.NORMAL, event -> false);
+        eventManager.registerCustomEvent(TestEvent.class, listener("unfiltered"), EventManager.EventPriority.NORMAL);
+
+        eventManager.fireEvent(new TestEvent());
+
+        assertEquals(List.of("unfiltered"), calls);
+        assertEquals(1, filtered.getFilteredCount());
+    }
+
+    @Test
+    void unregisterPublishesNewSnapshot() {
+        EventManager.EventListener first = listener("first");
+        eventManager.registerCustomEvent(TestEvent.class, first, EventManager.EventPriority.NORMAL);
+        eventManager.registerCustomEvent(TestEvent.class, listener("second"), EventManager.EventPriority.NORMAL);
+        List<EventManager.RegisteredListener> before = eventManager.getRegisteredListeners(TestEvent.class);
+
+        assertTrue(eventManager.unregisterListener(first));
+        eventManager.fireEvent(new TestEvent());
+
+        assertEquals(2, before.size());
+        assertEquals(1, eventManager.getRegisteredListeners(TestEvent.class).size());
+        assertEquals(List.of("second"), calls);
+    }
+
+    private EventManager.EventListener listener(String name) {
+        return new EventManager.EventListener() {
+            @Override
+            public EventManager.EventPriority getPriority() {
+                return EventManager.EventPriority.NORMAL;
+            }
+
+            @Override
+            public void onEvent(Event event) {
+                calls.add(name);
+            }
+        };
+    }
+
+    private static class TestEvent extends Event {
+        private static final HandlerList handlers = new HandlerList();
+
+        @Override
+        public HandlerList getHandlers() {
+            return handlers;
+        }
+    }
+
+    private static class OtherEvent extends TestEvent {
+    }
+}
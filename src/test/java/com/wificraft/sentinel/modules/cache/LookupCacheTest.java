@@ -0,0 +1,77 @@
+package com.wificraft.sentinel.modules.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LookupCacheTest {
+
+    private static LookupCache<String, String> cache(int maximumSize, double refreshAhead) {
+        return new LookupCache<>(maximumSize, 1000, 100, refreshAhead, value -> value.isEmpty());
+    }
+
+    @Test
+    void negativeEntriesExpireSooner() {
+        LookupCache<String, String> cache = cache(100, 1.0);
+        cache.put("known", "PL", 0);
+        cache.put("unknown", "", 0);
+
+        assertEquals("", cache.get("unknown", 99));
+        assertNull(cache.get("unknown", 100));
+        assertEquals("PL", cache.get("known", 999));
+        assertNull(cache.get("known", 1000));
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.getNegativeHitCount());
+        assertEquals(2, cache.getExpirationCount());
+    }
+
+    @Test
+    void sizeStaysBoundedUnderManyUniqueKeys() {
+        LookupCache<String, String> cache = cache(5000, 1.0);
+        for (int i = 0; i < 200_000; i++) {
+            cache.put("10." + (i >> 16) + "." + ((i >> 8) & 0xFF) + "." + (i & 0xFF), "x", 0);
+            assertTrue(cache.size() <= 5000);
+        }
+        assertEquals(200_000 - cache.size(), cache.getEvictionCount());
+    }
+
+    @Test
+    void frequentKeysSurviveAScan() {
+        LookupCache<String, String> cache = cache(1000, 1.0);
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 100; i++) {
+                String key = "hot-" + i;
+                if (cache.get(key, 0) == null) {
+                    cache.put(key, "x", 0);
+                }
+            }
+        }
+        // A wave of one-off keys, ten times the capacity
+        for (int i = 0; i < 10_000; i++) {
+            cache.put("scan-" + i, "x", 0);
+        }
+        int survivors = 0;
+        for (int i = 0; i < 100; i++) {
+            if (cache.peek("hot-" + i, 0) != null) {
+                survivors++;
+            }
+        }
+        assertTrue(survivors >= 95, "hot keys kept: " + survivors);
+    }
+
+    @Test
+    void refreshIsRequestedOncePerWrite() {
+        LookupCache<String, String> cache = cache(100, 0.8);
+        cache.put("key", "PL", 0);
+
+        assertFalse(cache.needsRefresh("key", 799));
+        assertTrue(cache.needsRefresh("key", 800));
+        assertFalse(cache.needsRefresh("key", 850));
+        assertFalse(cache.needsRefresh("missing", 850));
+
+        cache.put("key", "PL", 900);
+        assertFalse(cache.needsRefresh("key", 1000));
+        assertTrue(cache.needsRefresh("key", 1700));
+        assertEquals(2, cache.getRefreshCount());
+    }
+}
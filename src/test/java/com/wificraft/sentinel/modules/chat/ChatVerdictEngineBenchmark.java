@@ -0,0 +1,84 @@
+package com.wificraft.sentinel.modules.chat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throughput of {@link ChatVerdictEngine} when 500 senders flood it at once, each from its
+ * own thread, the same load {@code ChatVerdictEngineTest} checks for correctness.
+ *
+ * Not a unit test; nothing is asserted. Run {@link #main(String[])} with the test classpath
+ * and read the printed table. Each measurement runs a few rounds on a fresh engine and prints
+ * the last, so the JIT has settled; the numbers still depend on the machine.
+ */
+public final class ChatVerdictEngineBenchmark {
+    private static final int SENDERS = 500;
+    private static final int ROUNDS = 3;
+
+    private ChatVerdictEngineBenchmark() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        System.out.println(String.format(Locale.ROOT, "%d senders on %d cores",
+            SENDERS, Runtime.getRuntime().availableProcessors()));
+        System.out.println("messages/sender   total ms        msg/s    us/msg");
+        for (int messages : new int[] {200, 1000}) {
+            double millis = 0;
+            for (int round = 0; round < ROUNDS; round++) {
+                millis = flood(messages);
+            }
+            long total = (long) SENDERS * messages;
+            System.out.println(String.format(Locale.ROOT, "%15d   %8.1f   %10.0f   %7.2f",
+                messages, millis, total / (millis / 1000.0), millis * 1000.0 / total));
+        }
+    }
+
+    private static double flood(int messages) throws InterruptedException {
+        ChatVerdictEngine engine = new ChatVerdictEngine(null, new NearDuplicateDetector(),
+            2000, 6, 0.7, 20000, 3, 30_000L, SENDERS * 8);
+        CountDownLatch ready = new CountDownLatch(SENDERS);
+        CountDownLatch go = new CountDownLatch(1);
+        AtomicLong sink = new AtomicLong();
+        List<Thread> threads = new ArrayList<>();
+
+        for (int s = 0; s < SENDERS; s++) {
+            UUID player = new UUID(0, s);
+            Thread thread = new Thread(() -> {
+                ready.countDown();
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long verdicts = 0;
+                for (int i = 0; i < messages; i++) {
+                    verdicts += engine.evaluate(player, 1_000L, "sender message number " + i + " hello");
+                }
+                sink.addAndGet(verdicts);
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        ready.await();
+        long started = System.nanoTime();
+        go.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double millis = (System.nanoTime() - started) / 1_000_000.0;
+        engine.drain(verdict -> sink.incrementAndGet());
+        blackhole(sink.get());
+        return millis;
+    }
+
+    private static void blackhole(double value) {
+        if (value == 42.4242) {
+            System.out.println(value);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.wificraft.sentinel.modules.chat;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChatVerdictEngineTest {
+    private static final long COOLDOWN = 30_000L;
+
+    private static ChatVerdictEngine engine(int queueCapacity) {
+        return new ChatVerdictEngine(null, new NearDuplicateDetector(), 2000, 6, 0.7, 20000, 3, COOLDOWN, queueCapacity);
+    }
+
+    @Test
+    void allowsBurstThenFlagsRate() {
+        ChatVerdictEngine engine = engine(64);
+        UUID player = UUID.randomUUID();
+
+        for (int i = 0; i < 6; i++) {
+            assertEquals(0, engine.evaluate(player, 1_000L, "hello there friend " + (char) ('a' + i)) & ChatVerdictEngine.VERDICT_RATE);
+        }
+        assertEquals(ChatVerdictEngine.VERDICT_RATE, engine.evaluate(player, 1_000L, "and one more") & ChatVerdictEngine.VERDICT_RATE);
+        // One interval later a single message is allowed again
+        assertEquals(0, engine.evaluate(player, 3_000L, "after a pause") & ChatVerdictEngine.VERDICT_RATE);
+    }
+
+    @Test
+    void flagsCapsOnlyAfterBurst() {
+        ChatVerdictEngine engine = engine(64);
+        UUID player = UUID.randomUUID();
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, engine.evaluate(player, 1_000L + i * 2500L, "WHY IS THIS") & ChatVerdictEngine.VERDICT_CAPS);
+        }
+        assertEquals(ChatVerdictEngine.VERDICT_CAPS, engine.evaluate(player, 9_000L, "STOP IT NOW") & ChatVerdictEngine.VERDICT_CAPS);
+        assertEquals(0, engine.evaluate(player, 9_100L, "calm now") & ChatVerdictEngine.VERDICT_CAPS);
+    }
+
+    @Test
+    void confirmsEachVerdictOncePerCooldown() {
+        ChatVerdictEngine engine = engine(64);
+        UUID player = UUID.randomUUID();
+
+        engine.evaluate(player, 1_000L, "gg");
+        engine.evaluate(player, 1_500L, "ok");
+        engine.evaluate(player, 1_000L + COOLDOWN, "no");
+
+        List<ChatVerdictEngine.ConfirmedVerdict> drained = new ArrayList<>();
+        assertEquals(2, engine.drain(drained::add));
+        assertEquals(ChatVerdictEngine.VERDICT_SHORT, drained.get(0).getVerdict());
+        assertEquals("Potential spam (very short message)", drained.get(0).getReason());
+        assertEquals(1_000L + COOLDOWN, drained.get(1).getTimestamp());
+        assertEquals(0, engine.getQueuedCount());
+    }
+
+    @Test
+    void dropsVerdictsBeyondQueueCapacity() {
+        ChatVerdictEngine engine = engine(2);
+        for (int i = 0; i < 5; i++) {
+            engine.evaluate(UUID.randomUUID(), 1_000L, "gg");
+        }
+
+        assertEquals(2, engine.getQueuedCount());
+        assertEquals(3, engine.getDroppedCount());
+        assertEquals(2, engine.drain(verdict -> { }));
+    }
+
+    /**
+     * 500 senders flood the engine at once. Every sender uses the same timestamp, so exactly
+     * the burst is allowed, each sender gets exactly one rate verdict confirmed and nothing
+     * is lost or double counted under contention.
+     */
+    @Test
+    void floodFromConcurrentSenders() throws Exception {
+        int senders = 500;
+        int messages = 200;
+        ChatVerdictEngine engine = engine(senders * 8);
+        CountDownLatch ready = new CountDownLatch(senders);
+        CountDownLatch go = new CountDownLatch(1);
+        AtomicInteger rateFlags = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+
+        for (int s = 0; s < senders; s++) {
+            UUID player = new UUID(0, s);
+            Thread thread = new Thread(() -> {
+                ready.countDown();
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                int flagged = 0;
+                for (int i = 0; i < messages; i++) {
+                    if ((engine.evaluate(player, 1_000L, "sender message number " + i + " hello") & ChatVerdictEngine.VERDICT_RATE) != 0) {
+                        flagged++;
+                    }
+                }
+                rateFlags.addAndGet(flagged);
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        ready.await();
+        go.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        long total = (long) senders * messages;
+        assertEquals(total, engine.getEvaluatedCount());
+        assertEquals(senders * (messages - 6), rateFlags.get());
+
+        AtomicInteger rateConfirmed = new AtomicInteger();
+        engine.drain(verdict -> {
+            if (verdict.getVerdict() == ChatVerdictEngine.VERDICT_RATE) {
+                rateConfirmed.incrementAndGet();
+            }
+        });
+        assertEquals(senders, rateConfirmed.get());
+        assertEquals(0, engine.getDroppedCount());
+
+    }
+
+    @Test
+    void ordinaryChatIsNotFlaggedWhenShortAndNumbersAreOff() {
+        ChatVerdictEngine engine = new ChatVerdictEngine(null, new NearDuplicateDetector(), 2000, 6, 0.7, 20000, 3,
+            COOLDOWN, 64, ~(ChatVerdictEngine.VERDICT_SHORT | ChatVerdictEngine.VERDICT_NUMBERS), 0);
+        UUID player = UUID.randomUUID();
+
+        assertEquals(0, engine.evaluate(player, 1_000L, "gg"));
+        assertEquals(0, engine.evaluate(player, 2_000L, "1v1 me"));
+        assertEquals(0, engine.getFlaggedCount());
+        assertEquals(0, engine.drain(verdict -> { }));
+    }
+}
@@ -0,0 +1,101 @@
+package com.wificraft.sentinel.modules.chat;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NearDuplicateDetectorTest {
+    private static final long WINDOW = 60_000L;
+
+    private static NearDuplicateDetector detector() {
+        return new NearDuplicateDetector(WINDOW, 8, 12, 3, 3, 16, 512);
+    }
+
+    @Test
+    void nearIdenticalMessagesHaveCloseFingerprints() {
+        long base = SimHash.fingerprint("Join my server play.example.net for free ranks!!!");
+        long variant = SimHash.fingerprint("join my server  PLAY.EXAMPLE.NET for free ranks");
+        long suffixed = SimHash.fingerprint("Join my server play.example.net for free ranks x7q");
+        long other = SimHash.fingerprint("anyone want to trade diamonds for some iron later?");
+
+        assertEquals(0, SimHash.distance(base, variant));
+        assertTrue(SimHash.distance(base, suffixed) <= 8, "suffix moved " + SimHash.distance(base, suffixed) + " bits");
+        assertTrue(SimHash.distance(base, other) > 16, "unrelated text only " + SimHash.distance(base, other) + " bits apart");
+    }
+
+    @Test
+    void flagsPlayerRepeatingTheSameMessage() {
+        NearDuplicateDetector detector = detector();
+        UUID player = UUID.randomUUID();
+        String message = "buy cheap ranks at example shop now";
+
+        long now = 1_000L;
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, detector.check(player, now + i * 1000L, message));
+        }
+        int flags = detector.check(player, now + 3000L, message + "!");
+        assertEquals(NearDuplicateDetector.FLAG_PLAYER_REPEAT, flags);
+        assertEquals(1, detector.getPlayerFlagCount());
+    }
+
+    @Test
+    void flagsWaveAcrossDistinctPlayers() {
+        NearDuplicateDetector detector = detector();
+        String message = "free vip on play.example.net come now";
+
+        assertEquals(0, detector.check(UUID.randomUUID(), 1_000L, message));
+        assertEquals(0, detector.check(UUID.randomUUID(), 1_100L, message));
+        int flags = detector.check(UUID.randomUUID(), 1_200L, message);
+        assertEquals(NearDuplicateDetector.FLAG_GROUP_WAVE, flags & NearDuplicateDetector.FLAG_GROUP_WAVE);
+        assertEquals(0, flags & NearDuplicateDetector.FLAG_PLAYER_REPEAT);
+    }
+
+    @Test
+    void samePlayerDoesNotMakeAWave() {
+        NearDuplicateDetector detector = detector();
+        UUID player = UUID.randomUUID();
+        String message = "free vip on play.example.net come now";
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, detector.check(player, 1_000L + i, message) & NearDuplicateDetector.FLAG_GROUP_WAVE);
+        }
+    }
+
+    @Test
+    void ignoresShortMessages() {
+        NearDuplicateDetector detector = detector();
+        UUID player = UUID.randomUUID();
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(0, detector.check(player, 1_000L + i, "gg wp"));
+        }
+        assertEquals(0, detector.getCheckedCount());
+    }
+
+    @Test
+    void forgetsMessagesOutsideTheWindow() {
+        NearDuplicateDetector detector = detector();
+        UUID player = UUID.randomUUID();
+        String message = "buy cheap ranks at example shop now";
+
+        for (int i = 0; i < 3; i++) {
+            detector.check(player, 1_000L + i, message);
+        }
+        assertEquals(0, detector.check(player, 1_000L + WINDOW + 10, message));
+    }
+
+    @Test
+    void removedPlayerStartsOver() {
+        NearDuplicateDetector detector = detector();
+        UUID player = UUID.randomUUID();
+        String message = "buy cheap ranks at example shop now";
+
+        for (int i = 0; i < 3; i++) {
+            detector.check(player, 1_000L + i, message);
+        }
+        detector.removePlayer(player);
+        assertEquals(0, detector.check(player, 2_000L, message) & NearDuplicateDetector.FLAG_PLAYER_REPEAT);
+    }
+}
@@ -0,0 +1,100 @@
+package com.wificraft.sentinel.modules.chat;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PatternAutomatonTest {
+    private static final int CHEATS = 1;
+    private static final int WORDS = 2;
+
+    @Test
+    void reportsOverlappingAndNestedMatches() {
+        PatternAutomaton automaton = PatternAutomaton.builder()
+            .addAll(Arrays.asList("he", "she", "his", "hers"), WORDS)
+            .build();
+
+        List<String> hits = new ArrayList<>();
+        int count = automaton.scan("ushers", WORDS, (patternId, end) -> hits.add(automaton.getPattern(patternId) + "@" + end));
+
+        assertEquals(3, count);
+        assertEquals(Arrays.asList("she@4", "he@4", "hers@6"), hits);
+    }
+
+    @Test
+    void matchesCaseInsensitivelyAndFiltersByGroup() {
+        PatternAutomaton automaton = PatternAutomaton.builder()
+            .add("killAura", CHEATS)
+            .add("lag", WORDS)
+            .add("KILLAURA", WORDS)
+            .build();
+
+        assertEquals(2, automaton.getPatternCount());
+        assertTrue(automaton.containsAny("who uses KillAura here", CHEATS));
+        assertFalse(automaton.containsAny("so much LAG", CHEATS));
+        assertTrue(automaton.containsAny("so much LAG", WORDS));
+        assertEquals(CHEATS | WORDS, automaton.matchedGroups("killaura lag"));
+    }
+
+    @Test
+    void handlesNonAsciiPatterns() {
+        PatternAutomaton automaton = PatternAutomaton.builder()
+            .add("oszustwo", WORDS)
+            .add("złodziej", WORDS)
+            .build();
+
+        assertTrue(automaton.containsAny("to jest ZŁODZIEJ!", WORDS));
+        assertFalse(automaton.containsAny("zlodziej", WORDS));
+    }
+
+    @Test
+    void agreesWithContainsOnRandomText() {
+        List<String> patterns = Arrays.asList("hack", "ha", "ack", "cheat", "aimbot", "bot", "op", "esp", "speed", "spee");
+        PatternAutomaton automaton = PatternAutomaton.builder().addAll(patterns, WORDS).build();
+        Random random = new Random(3);
+        String alphabet = "hackHACKetbospdimEP ";
+
+        for (int round = 0; round < 2000; round++) {
+            StringBuilder text = new StringBuilder();
+            int length = random.nextInt(40);
+            for (int i = 0; i < length; i++) {
+                text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            String lower = text.toString().toLowerCase(Locale.ROOT);
+
+            int expected = 0;
+            for (String pattern : patterns) {
+                for (int from = lower.indexOf(pattern); from >= 0; from = lower.indexOf(pattern, from + 1)) {
+                    expected++;
+                }
+            }
+            int[] found = new int[1];
+            automaton.scan(text, WORDS, (patternId, end) -> found[0]++);
+
+            assertEquals(expected, found[0], text.toString());
+            assertEquals(expected > 0, automaton.containsAny(text, WORDS), text.toString());
+        }
+    }
+
+    @Test
+    void emptyAutomatonMatchesNothing() {
+        PatternAutomaton automaton = PatternAutomaton.builder().build();
+        assertFalse(automaton.containsAny("anything", -1));
+        assertEquals(0, automaton.scan("anything", -1, (patternId, end) -> fail("unexpected match")));
+    }
+
+    @Test
+    void extractsLiteralsFromSimpleRegexes() {
+        assertEquals("hack", ChatPatternMatcher.toLiteral("^.*hack.*$"));
+        assertEquals("bot", ChatPatternMatcher.toLiteral(".*bot.*"));
+        assertEquals("cheat", ChatPatternMatcher.toLiteral("cheat"));
+        assertNull(ChatPatternMatcher.toLiteral("^hack$"));
+        assertNull(ChatPatternMatcher.toLiteral("^.*h[a4]ck.*$"));
+    }
+}
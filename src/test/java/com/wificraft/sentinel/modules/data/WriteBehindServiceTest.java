@@ -0,0 +1,69 @@
+package com.wificraft.sentinel.modules.data;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteBehindServiceTest {
+    private static final Logger LOGGER = Logger.getLogger("WriteBehindServiceTest");
+
+    @TempDir
+    Path folder;
+
+    private static String read(File file) throws Exception {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void repeatedSavesOfOneFileAreOneWrite() throws Exception {
+        WriteBehindService service = new WriteBehindService(LOGGER);
+        service.startWriter();
+        File notes = folder.resolve("inspection_notes.yml").toFile();
+        AtomicInteger version = new AtomicInteger();
+        AtomicInteger serialized = new AtomicInteger();
+        for (int i = 0; i < 1000; i++) {
+            version.incrementAndGet();
+            service.markDirty(notes, () -> {
+                serialized.incrementAndGet();
+                return "version: " + version.get() + "\n";
+            });
+        }
+        File stats = folder.resolve("player_stats.yml").toFile();
+        service.markDirty(stats, () -> "stats: {}\n");
+
+        service.flush();
+        assertEquals(1, serialized.get());
+        assertEquals("version: 1000\n", read(notes));
+        assertEquals("stats: {}\n", read(stats));
+        assertEquals(1001, service.getRequestCount());
+        assertEquals(2, service.getWriteCount());
+        assertTrue(service.getCoalescingRatio() > 500);
+        assertFalse(new File(notes.getPath() + ".tmp").exists());
+
+        service.shutdown();
+    }
+
+    @Test
+    void savesWriteAtOnceWithoutARunningService() throws Exception {
+        File file = folder.resolve("sub").resolve("notifications.yml").toFile();
+        WriteBehindService.save(file, () -> "a: 1\n");
+        assertEquals("a: 1\n", read(file));
+
+        // After shutdown nothing is left behind in the queue
+        WriteBehindService service = new WriteBehindService(LOGGER);
+        service.startWriter();
+        service.markDirty(file, () -> "a: 2\n");
+        service.shutdown();
+        assertEquals("a: 2\n", read(file));
+        assertFalse(service.markDirty(file, () -> "a: 3\n"));
+        assertTrue(service.getStatusLine().contains("pending: 0"));
+    }
+}
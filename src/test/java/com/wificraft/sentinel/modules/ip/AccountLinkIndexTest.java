@@ -0,0 +1,89 @@
+package com.wificraft.sentinel.modules.ip;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccountLinkIndexTest {
+
+    private static UUID account(int n) {
+        return new UUID(0, n);
+    }
+
+    @Test
+    void sharedAddressesAndFingerprintsFormClusters() {
+        AccountLinkIndex index = new AccountLinkIndex(16);
+        index.recordLogin(account(1), "5.172.230.1", 1);
+        index.recordLogin(account(2), "5.172.230.1", 2);
+        index.recordLogin(account(2), "::ffff:31.0.0.7", 3);
+        index.recordLogin(account(3), "31.0.0.7", 4);
+        index.recordFingerprint(account(4), "abc");
+        index.recordFingerprint(account(3), "abc");
+        // Same /24 only: linked weakly, separate cluster
+        index.recordLogin(account(5), "5.172.230.200", 5);
+
+        assertEquals(4, index.getClusterSize(account(1)));
+        assertTrue(index.isSameCluster(account(1), account(4)));
+        assertFalse(index.isSameCluster(account(1), account(5)));
+        assertEquals(1, index.getClusterSize(account(5)));
+        assertEquals(3, index.getClusterMembers(account(4), 10).size());
+
+        List<AccountLinkIndex.AccountLink> links = index.getLinkedAccounts(account(1));
+        assertEquals(account(2), links.get(0).getAccount());
+        // Address and range: 1 - 0.1 * 0.65
+        assertEquals(0.935, links.get(0).getStrength(), 1e-9);
+        assertEquals(account(5), links.get(1).getAccount());
+        assertEquals(0.35, links.get(1).getStrength(), 1e-9);
+        assertEquals(2, links.size());
+        assertEquals(0, index.getClusterSize(account(99)));
+    }
+
+    @Test
+    void crowdedIdentifiersStopLinking() {
+        AccountLinkIndex index = new AccountLinkIndex(4);
+        for (int i = 0; i < 50; i++) {
+            index.recordLogin(account(i), "100.64.0.1", i);
+        }
+        // The first four were linked before the address looked like shared infrastructure
+        assertEquals(4, index.getClusterSize(account(0)));
+        assertEquals(1, index.getClusterSize(account(30)));
+        assertTrue(index.getLinkedAccounts(account(0)).isEmpty());
+    }
+
+    @Test
+    void roundTripsThroughBinaryForm() throws Exception {
+        AccountLinkIndex index = new AccountLinkIndex(16);
+        for (int i = 0; i < 200_000; i++) {
+            // Pairs of accounts share an address; every tenth pair also shares with the next pair
+            index.recordLogin(account(i), "10." + (i / 2 >> 16 & 0xFF) + "." + (i / 2 >> 8 & 0xFF) + "." + (i / 2 & 0xFF), i);
+            if (i % 20 == 0) {
+                index.recordFingerprint(account(i), "fp" + i / 40);
+            }
+        }
+        assertEquals(2, index.getClusterSize(account(2)));
+        assertEquals(4, index.getClusterSize(account(0)));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        index.write(new DataOutputStream(bytes));
+        assertFalse(index.isDirty());
+        assertTrue(bytes.size() < 200_000 * 64, "size: " + bytes.size());
+
+        AccountLinkIndex loaded = AccountLinkIndex.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), 8);
+        assertEquals(index.getAccountCount(), loaded.getAccountCount());
+        assertEquals(index.getClusterCount(), loaded.getClusterCount());
+        assertEquals(4, loaded.getClusterSize(account(21)));
+        assertTrue(loaded.isSameCluster(account(0), account(21)));
+        assertEquals(index.getLinkedAccounts(account(7)).size(), loaded.getLinkedAccounts(account(7)).size());
+
+        // Keeps linking incrementally after the load
+        loaded.recordLogin(account(500_000), "10.0.0.3", 0);
+        assertEquals(3, loaded.getClusterSize(account(6)));
+    }
+}
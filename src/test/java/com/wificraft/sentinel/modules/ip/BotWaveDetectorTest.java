@@ -0,0 +1,76 @@
+package com.wificraft.sentinel.modules.ip;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BotWaveDetectorTest {
+
+    private static BotWaveDetector detector() {
+        // 10 s windows, 3 per address, 5 per network, 8 per ASN, wave at 20, 30 s cooldown, limits / 2
+        return new BotWaveDetector(10_000, 3, 5, 8, 20, 30_000, 2, true, true);
+    }
+
+    @Test
+    void limitsAddressesNetworksAndAsns() {
+        BotWaveDetector detector = detector();
+        for (int i = 0; i < 3; i++) {
+            assertEquals(BotWaveDetector.Verdict.ALLOWED, detector.check("5.172.230.1", 0, true, 1000));
+        }
+        assertEquals(BotWaveDetector.Verdict.IP_RATE, detector.check("5.172.230.1", 0, true, 1000));
+        // Same /24, different addresses: the network already saw 4 attempts
+        assertEquals(BotWaveDetector.Verdict.ALLOWED, detector.check("5.172.230.2", 0, true, 1000));
+        assertEquals(BotWaveDetector.Verdict.NETWORK_RATE, detector.check("5.172.230.3", 0, true, 1000));
+        // Different networks sharing an ASN
+        for (int i = 0; i < 8; i++) {
+            assertEquals(BotWaveDetector.Verdict.ALLOWED, detector.check("31.0." + i + ".1", 5617, true, 1000));
+        }
+        assertEquals(BotWaveDetector.Verdict.ASN_RATE, detector.check("31.0.9.1", 5617, true, 1000));
+        // Windows slide: the address is welcome again later
+        assertEquals(BotWaveDetector.Verdict.ALLOWED, detector.check("5.172.230.1", 0, true, 20_000));
+        assertEquals(3, detector.getDeniedCount());
+        assertFalse(detector.isWaveActive(20_000));
+    }
+
+    @Test
+    void waveTightensLimitsAndTurnsAwayNewAccounts() {
+        BotWaveDetector detector = detector();
+        for (int i = 0; i < 20; i++) {
+            detector.check("45." + i + ".0.1", 0, true, 1000);
+        }
+        assertTrue(detector.isWaveActive(1000));
+        assertEquals(1, detector.getWaveCount());
+
+        assertEquals(BotWaveDetector.Verdict.WAVE_NEW_ACCOUNT, detector.check("80.1.1.1", 0, false, 2000));
+        // Known accounts still pass, but only half as often per address
+        assertEquals(BotWaveDetector.Verdict.ALLOWED, detector.check("80.2.2.2", 0, true, 2000));
+        assertEquals(BotWaveDetector.Verdict.IP_RATE, detector.check("80.2.2.2", 0, true, 2000));
+        // Proxies on private addresses are never limited per source
+        for (int i = 0; i < 5; i++) {
+            assertEquals(BotWaveDetector.Verdict.ALLOWED, detector.check("10.0.0.5", 0, true, 2000));
+        }
+
+        // Cooldown runs from the last attempt over the threshold
+        assertTrue(detector.isWaveActive(30_000));
+        assertFalse(detector.isWaveActive(40_000));
+        assertEquals(BotWaveDetector.Verdict.ALLOWED, detector.check("80.1.1.1", 0, false, 40_000));
+        assertEquals(1, detector.getWaveCount());
+    }
+
+    @Test
+    void restartBurstDoesNotStartAWave() {
+        // The shipped defaults
+        BotWaveDetector detector = new BotWaveDetector(10_000, 3, 8, 25, 100, 60_000, 3, false, true);
+        // Players reconnecting after a restart: some through a proxy, the rest from one large ISP
+        for (int i = 0; i < 40; i++) {
+            assertEquals(BotWaveDetector.Verdict.ALLOWED, detector.check("10.0.0.5", 0, true, 1000 + i * 100));
+        }
+        for (int i = 0; i < 25; i++) {
+            assertEquals(BotWaveDetector.Verdict.ALLOWED, detector.check("83." + i + ".4.7", 5617, false, 1000 + i * 300));
+        }
+
+        assertFalse(detector.isWaveActive(9000));
+        assertEquals(25, detector.getRecentAttempts(9000));
+        assertEquals(0, detector.getDeniedCount());
+    }
+}
@@ -0,0 +1,94 @@
+package com.wificraft.sentinel.modules.ip;
+
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * IPv4 lookup cost of {@link CidrIndex} against the per-range mask loop the detectors used
+ * before it, for 100, 10000 and 300000 random ranges.
+ *
+ * Not a unit test; nothing is asserted. Run {@link #main(String[])} with the test classpath
+ * and read the printed table. Each measurement runs a few rounds and prints the last, so the
+ * JIT has settled; the numbers still depend on the machine.
+ */
+public final class CidrIndexBenchmark {
+    private static final int ROUNDS = 3;
+
+    private CidrIndexBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        System.out.println("ranges   index ns/lookup   loop ns/lookup   speedup");
+        for (int ranges : new int[] {100, 10_000, 300_000}) {
+            Random random = new Random(42);
+            long[] networks = new long[ranges];
+            long[] masks = new long[ranges];
+            CidrIndex.Builder<Integer> builder = CidrIndex.builder();
+            for (int i = 0; i < ranges; i++) {
+                int prefix = 8 + random.nextInt(25);
+                masks[i] = (0xFFFFFFFFL << (32 - prefix)) & 0xFFFFFFFFL;
+                networks[i] = random.nextInt() & masks[i];
+                builder.addIpv4(networks[i], prefix, i);
+            }
+            CidrIndex<Integer> index = builder.build();
+
+            long[] probes = new long[1 << 16];
+            for (int i = 0; i < probes.length; i++) {
+                probes[i] = random.nextInt() & 0xFFFFFFFFL;
+            }
+            double indexed = indexNanosPerLookup(index, probes);
+            double loop = loopNanosPerLookup(networks, masks, probes, Math.max(64, 20_000_000 / ranges));
+            System.out.println(String.format(Locale.ROOT, "%6d   %15.1f   %14.1f   %6.0fx",
+                ranges, indexed, loop, loop / indexed));
+        }
+    }
+
+    private static double indexNanosPerLookup(CidrIndex<Integer> index, long[] probes) {
+        double result = 0;
+        long hits = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long started = System.nanoTime();
+            for (int repeat = 0; repeat < 10; repeat++) {
+                for (long address : probes) {
+                    if (index.lookupIpv4(address) != null) {
+                        hits++;
+                    }
+                }
+            }
+            result = (System.nanoTime() - started) / (10.0 * probes.length);
+        }
+        blackhole(hits);
+        return result;
+    }
+
+    // The old way: test every range's mask and keep the longest match
+    private static double loopNanosPerLookup(long[] networks, long[] masks, long[] probes, int lookups) {
+        int count = Math.min(lookups, probes.length);
+        double result = 0;
+        long hits = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long started = System.nanoTime();
+            for (int p = 0; p < count; p++) {
+                long address = probes[p];
+                long bestMask = -1;
+                int best = -1;
+                for (int i = 0; i < networks.length; i++) {
+                    if ((address & masks[i]) == networks[i] && (best < 0 || masks[i] >= bestMask)) {
+                        bestMask = masks[i];
+                        best = i;
+                    }
+                }
+                hits += best;
+            }
+            result = (System.nanoTime() - started) / (double) count;
+        }
+        blackhole(hits);
+        return result;
+    }
+
+    private static void blackhole(double value) {
+        if (value == 42.4242) {
+            System.out.println(value);
+        }
+    }
+}
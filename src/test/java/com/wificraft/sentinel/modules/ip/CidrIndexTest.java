@@ -0,0 +1,121 @@
+package com.wificraft.sentinel.modules.ip;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CidrIndexTest {
+
+    @Test
+    void picksTheLongestMatchingPrefix() {
+        CidrIndex<String> index = CidrIndex.<String>builder()
+            .add("10.0.0.0/8", "wide")
+            .add("10.1.0.0/16", "middle")
+            .add("10.1.2.0/24", "narrow")
+            .add("10.1.2.3", "host")
+            .build();
+
+        assertEquals("wide", index.lookup("10.200.0.1"));
+        assertEquals("middle", index.lookup("10.1.255.255"));
+        assertEquals("narrow", index.lookup("10.1.2.4"));
+        assertEquals("host", index.lookup("10.1.2.3"));
+        assertEquals("middle", index.lookup("10.1.3.0"));
+        assertNull(index.lookup("11.0.0.0"));
+        assertNull(index.lookup("9.255.255.255"));
+        assertEquals(4, index.size());
+    }
+
+    @Test
+    void matchesSixteenBitRangesAndTopOfAddressSpace() {
+        // The old string-prefix comparison never matched a /16
+        assertEquals("OVH", ProviderRanges.dataCenters().lookup("149.202.17.5"));
+        assertEquals("Equinix", ProviderRanges.dataCenters().lookup("184.107.0.1"));
+        assertNull(ProviderRanges.dataCenters().lookup("149.203.0.1"));
+
+        CidrIndex<String> index = CidrIndex.<String>builder()
+            .add("255.255.255.0/24", "top")
+            .add("128.0.0.0/1", "upper")
+            .build();
+        assertEquals("top", index.lookup("255.255.255.255"));
+        assertEquals("upper", index.lookup("128.0.0.0"));
+        assertNull(index.lookup("127.255.255.255"));
+    }
+
+    @Test
+    void handlesIpv6AndMappedAddresses() {
+        CidrIndex<String> index = CidrIndex.<String>builder()
+            .add("2606:4700::/32", "cloudflare")
+            .add("2606:4700:10::/48", "cloudflare-edge")
+            .add("52.0.0.0/8", "aws")
+            .add("::ffff:34.0.0.0/104", "aws-mapped")
+            .build();
+
+        assertEquals("cloudflare", index.lookup("2606:4700:ffff::1"));
+        assertEquals("cloudflare-edge", index.lookup("[2606:4700:10:0:0:0:0:1]"));
+        assertNull(index.lookup("2606:4701::1"));
+        assertEquals("aws", index.lookup("::ffff:52.1.2.3"));
+        assertEquals("aws-mapped", index.lookup("34.9.9.9"));
+        assertEquals("aws", index.lookup(new byte[] {52, 0, 0, 1}));
+        assertNull(index.lookup("not-an-ip"));
+        assertNull(index.lookup("1.2.3"));
+        assertNull(index.lookup((String) null));
+    }
+
+    @Test
+    void rejectsInvalidRanges() {
+        CidrIndex.Builder<String> builder = CidrIndex.builder();
+        assertThrows(IllegalArgumentException.class, () -> builder.add("10.0.0.0/33", "x"));
+        assertThrows(IllegalArgumentException.class, () -> builder.add("10.0.0/8", "x"));
+        assertThrows(IllegalArgumentException.class, () -> builder.add("::1::/64", "x"));
+        assertThrows(IllegalArgumentException.class, () -> builder.add("10.0.0.0/abc", "x"));
+        assertTrue(builder.build().isEmpty());
+
+        assertTrue(IpAddresses.inRange("192.168.5.5", "192.168.0.0/16"));
+        assertTrue(IpAddresses.inRange("fe80::1%eth0", "fe80::/10"));
+        assertFalse(IpAddresses.inRange("192.168.5.5", "fe80::/10"));
+    }
+
+    @Test
+    void agreesWithBruteForceOnManyRandomRanges() {
+        Random random = new Random(42);
+        int ranges = 300_000;
+        long[] networks = new long[ranges];
+        int[] prefixes = new int[ranges];
+        CidrIndex.Builder<Integer> builder = CidrIndex.builder();
+        for (int i = 0; i < ranges; i++) {
+            int prefix = 8 + random.nextInt(25);
+            long mask = (0xFFFFFFFFL << (32 - prefix)) & 0xFFFFFFFFL;
+            networks[i] = random.nextInt() & mask;
+            prefixes[i] = prefix;
+            builder.addIpv4(networks[i], prefix, i);
+        }
+        CidrIndex<Integer> index = builder.build();
+
+        for (int probe = 0; probe < 200; probe++) {
+            // Half of the probes land inside a known range
+            long address = probe % 2 == 0
+                ? networks[random.nextInt(ranges)] | (random.nextInt() & 0xFFL)
+                : random.nextInt() & 0xFFFFFFFFL;
+            Integer expected = null;
+            int bestPrefix = -1;
+            for (int i = 0; i < ranges; i++) {
+                long mask = (0xFFFFFFFFL << (32 - prefixes[i])) & 0xFFFFFFFFL;
+                if ((address & mask) == networks[i] && prefixes[i] >= bestPrefix) {
+                    bestPrefix = prefixes[i];
+                    expected = i;
+                }
+            }
+            Integer actual = index.lookupIpv4(address);
+            if (expected == null) {
+                assertNull(actual);
+            } else {
+                // Duplicate prefixes keep the last value, so compare by range rather than index
+                assertNotNull(actual);
+                assertEquals(bestPrefix, prefixes[actual]);
+                assertEquals(networks[expected], networks[actual]);
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.wificraft.sentinel.modules.ip;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Lookup cost of a compiled {@link GeoDatabase} holding 50000 and 500000 IPv4 ranges, for
+ * numeric lookups and for the text form the plugin passes in from a player's address.
+ *
+ * Not a unit test; nothing is asserted. Run {@link #main(String[])} with the test classpath
+ * and read the printed table. Each measurement runs a few rounds and prints the last, so the
+ * JIT has settled and every record has been decoded once; the numbers still depend on the
+ * machine.
+ */
+public final class GeoDatabaseBenchmark {
+    private static final int ROUNDS = 3;
+    private static final int LOOKUPS = 1 << 20;
+
+    private GeoDatabaseBenchmark() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        System.out.println(" ranges   file KB   numeric ns/lookup   text ns/lookup");
+        for (int ranges : new int[] {50_000, 500_000}) {
+            Path file = Files.createTempFile("sentinel-geo", ".db");
+            try {
+                GeoDatabaseCompiler.compile(new BufferedReader(new StringReader(csv(ranges))), file);
+                GeoDatabase database = GeoDatabase.open(file);
+
+                Random random = new Random(11);
+                long[] addresses = new long[LOOKUPS];
+                String[] texts = new String[LOOKUPS / 4];
+                // Three probes in four land inside a range, the rest anywhere
+                for (int i = 0; i < addresses.length; i++) {
+                    addresses[i] = i % 4 == 3
+                        ? random.nextInt() & 0xFFFFFFFFL
+                        : (1L << 24) + (random.nextLong() & Long.MAX_VALUE) % ((long) ranges << 8);
+                }
+                for (int i = 0; i < texts.length; i++) {
+                    long address = addresses[i];
+                    texts[i] = (address >>> 24) + "." + (address >>> 16 & 0xFF) + "."
+                        + (address >>> 8 & 0xFF) + "." + (address & 0xFF);
+                }
+                System.out.println(String.format(Locale.ROOT, "%7d   %7d   %17.1f   %14.1f",
+                    ranges, database.getSizeBytes() / 1024, numericNanosPerLookup(database, addresses),
+                    textNanosPerLookup(database, texts)));
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    // Adjacent /24 ranges from 1.0.0.0 upward, with 100 distinct records shared between them
+    private static String csv(int ranges) {
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < ranges; i++) {
+            long network = (1L << 24) + ((long) i << 8);
+            csv.append(network >>> 24).append('.').append(network >>> 16 & 0xFF).append('.')
+                .append(network >>> 8 & 0xFF).append(".0/24,PL,Poland,City").append(i % 100)
+                .append(",Europe/Warsaw,52,21,").append(i % 5).append(",Org\n");
+        }
+        return csv.toString();
+    }
+
+    private static double numericNanosPerLookup(GeoDatabase database, long[] addresses) {
+        double result = 0;
+        long hits = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long started = System.nanoTime();
+            for (long address : addresses) {
+                if (database.lookupIpv4(address) != null) {
+                    hits++;
+                }
+            }
+            result = (System.nanoTime() - started) / (double) addresses.length;
+        }
+        blackhole(hits);
+        return result;
+    }
+
+    private static double textNanosPerLookup(GeoDatabase database, String[] texts) {
+        double result = 0;
+        long hits = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long started = System.nanoTime();
+            for (String text : texts) {
+                if (database.lookup(text) != null) {
+                    hits++;
+                }
+            }
+            result = (System.nanoTime() - started) / (double) texts.length;
+        }
+        blackhole(hits);
+        return result;
+    }
+
+    private static void blackhole(double value) {
+        if (value == 42.4242) {
+            System.out.println(value);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.wificraft.sentinel.modules.ip;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeoDatabaseTest {
+
+    private static final String CSV = String.join("\n",
+        "network,country_code,country,city,timezone,latitude,longitude,asn,asn_organization",
+        "# comment",
+        "5.172.224.0/19,PL,Poland,Warsaw,Europe/Warsaw,52.2297,21.0122,5617,\"Orange Polska, S.A.\"",
+        "1.0.0.0-1.0.0.255,AU,Australia,,,,,AS13335,Cloudflare",
+        "1.0.0.128/25,US,United States,,,,,1,Overlapping",
+        "2a01:110::/31,US,United States,,America/Chicago,37.751,-97.822,8075,Microsoft Corporation",
+        "8000::/1,ZZ,Upper half,,,,,0,",
+        "not-a-range,XX,Broken",
+        "5.172.0.0/16,PL,Poland,Warsaw,Europe/Warsaw,52.2297,21.0122,5617,\"Orange Polska, S.A.\"",
+        "255.255.255.255,ZZ,Broadcast");
+
+    @TempDir
+    Path folder;
+
+    private GeoDatabase compile(String csv) throws IOException {
+        Path file = folder.resolve("geo.db");
+        GeoDatabaseCompiler.compile(new BufferedReader(new StringReader(csv)), file);
+        return GeoDatabase.open(file);
+    }
+
+    @Test
+    void looksUpIpv4Ipv6AndMappedAddresses() throws IOException {
+        GeoDatabase database = compile(CSV);
+
+        GeoRecord warsaw = database.lookup("5.172.230.1");
+        assertNotNull(warsaw);
+        assertEquals("PL", warsaw.getCountryCode());
+        assertEquals("Europe/Warsaw", warsaw.getTimezone());
+        assertEquals(5617, warsaw.getAsn());
+        assertEquals("Orange Polska, S.A.", warsaw.getAsnOrganization());
+        assertEquals(52.2297, warsaw.getLatitude(), 1e-9);
+
+        assertEquals("AU", database.lookup("1.0.0.200").getCountryCode());
+        assertEquals(13335, database.lookup("1.0.0.0").getAsn());
+        assertEquals("AU", database.lookup("::ffff:1.0.0.7").getCountryCode());
+        assertEquals("ZZ", database.lookup("255.255.255.255").getCountryCode());
+        assertNull(database.lookup("1.0.1.0"));
+        assertNull(database.lookup("5.171.255.255"));
+
+        assertEquals("Microsoft Corporation", database.lookup("2a01:111:ffff::1").getAsnOrganization());
+        assertEquals("Upper half", database.lookup("fe80::1").getCountry());
+        assertNull(database.lookup("2a01:112::1"));
+        assertNull(database.lookup("not an ip"));
+    }
+
+    @Test
+    void skipsInvalidAndOverlappingRangesAndSharesRecords() throws IOException {
+        Path file = folder.resolve("geo.db");
+        GeoDatabaseCompiler.Summary summary =
+            GeoDatabaseCompiler.compile(new BufferedReader(new StringReader(CSV)), file);
+
+        assertEquals(1, summary.getInvalid());
+        // 1.0.0.128/25 lies inside 1.0.0.0-1.0.0.255, 5.172.224.0/19 inside 5.172.0.0/16
+        assertEquals(2, summary.getOverlapping());
+        assertEquals(5, summary.getRanges());
+
+        GeoDatabase database = GeoDatabase.open(file);
+        assertEquals(5, database.getRangeCount());
+        assertSame(database.lookup("5.172.0.1"), database.lookup("5.172.255.1"));
+        assertFalse(Files.exists(folder.resolve("geo.db.tmp")));
+    }
+
+    @Test
+    void rejectsFilesThatAreNotDatabases() throws IOException {
+        Path file = folder.resolve("broken.db");
+        Files.write(file, new byte[] {'S', 'G', 'E', 'O', 0, 0, 0, 1});
+        assertThrows(IOException.class, () -> GeoDatabase.open(file));
+
+        Files.write(file, "1.2.3.0/24,PL".getBytes());
+        assertThrows(IOException.class, () -> GeoDatabase.open(file));
+    }
+
+    @Test
+    void answersEveryAddressOfALargeDatabase() throws IOException {
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < 50_000; i++) {
+            csv.append(i >>> 8 & 0xFF).append('.').append(i & 0xFF).append(".0.0/16,PL,Poland,City")
+                .append(i % 100).append(",Europe/Warsaw,52,21,").append(i % 500).append(",Org\n");
+        }
+        GeoDatabase database = compile(csv.toString());
+        assertEquals(50_000, database.getRangeCount());
+
+        for (int i = 0; i < 50_000; i++) {
+            long network = (long) i << 16;
+            GeoRecord first = database.lookupIpv4(network);
+            assertNotNull(first);
+            assertEquals("City" + (i % 100), first.getCity());
+            assertEquals(i % 500, first.getAsn());
+            assertSame(first, database.lookupIpv4(network | 0xFFFF));
+        }
+        assertNull(database.lookupIpv4(50_000L << 16));
+    }
+}
@@ -0,0 +1,105 @@
+package com.wificraft.sentinel.modules.ip;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IpIntelligenceServiceTest {
+
+    /**
+     * Resolver that holds every lookup until released and counts how often it ran.
+     */
+    private static final class BlockingResolver extends IpProfileResolver {
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger lookups = new AtomicInteger();
+
+        BlockingResolver() {
+            super(null, false, 45, null);
+        }
+
+        @Override
+        public IpProfile resolve(String address) {
+            lookups.incrementAndGet();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            GeoRecord geo = address.startsWith("10.")
+                ? null
+                : new GeoRecord("PL", "Poland", "Warsaw", "Europe/Warsaw", 52.2, 21.0, 5617, "Orange");
+            return new IpProfile(address, geo, null, null, false, false,
+                geo == null ? IpProfile.Source.NONE : IpProfile.Source.OFFLINE, System.currentTimeMillis());
+        }
+    }
+
+    @Test
+    void concurrentRequestsShareOneLookup() throws Exception {
+        BlockingResolver resolver = new BlockingResolver();
+        IpIntelligenceService service =
+            new IpIntelligenceService(resolver, Executors.newFixedThreadPool(4), 60_000, 5_000, 100, 1.0, 0);
+
+        List<CompletableFuture<IpProfile>> futures = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            // The same address written three ways
+            String text = i % 3 == 0 ? "5.172.230.1" : i % 3 == 1 ? "::ffff:5.172.230.1" : "[::ffff:5.172.230.1]";
+            futures.add(service.resolve(text));
+        }
+        resolver.release.countDown();
+        for (CompletableFuture<IpProfile> future : futures) {
+            assertEquals("PL", future.get(5, TimeUnit.SECONDS).getGeo().getCountryCode());
+        }
+
+        assertEquals(1, resolver.lookups.get());
+        assertEquals(39, service.getCoalescedCount());
+
+        // Served from the cache without another lookup
+        assertTrue(service.resolve("5.172.230.1").isDone());
+        assertNotNull(service.getCached("::ffff:5.172.230.1"));
+        assertEquals(1, resolver.lookups.get());
+        service.shutdown();
+    }
+
+    @Test
+    void profilesWithoutDataAreCachedBriefly() throws Exception {
+        BlockingResolver resolver = new BlockingResolver();
+        resolver.release.countDown();
+        IpIntelligenceService service =
+            new IpIntelligenceService(resolver, Executors.newFixedThreadPool(1), 60_000, 200, 100, 1.0, 0);
+
+        assertNull(service.resolve("10.0.0.1").get(5, TimeUnit.SECONDS).getGeo());
+        assertNotNull(service.getCached("10.0.0.1"));
+        service.resolve("10.0.0.1").get(5, TimeUnit.SECONDS);
+        assertEquals(1, resolver.lookups.get());
+
+        // The negative entry lapses long before a located profile would
+        service.resolve("5.172.230.1").get(5, TimeUnit.SECONDS);
+        Thread.sleep(300);
+        assertNull(service.getCached("10.0.0.1"));
+        assertNotNull(service.getCached("5.172.230.1"));
+        service.resolve("10.0.0.1").get(5, TimeUnit.SECONDS);
+        assertEquals(3, resolver.lookups.get());
+
+        IpProfile invalid = service.resolve("not an address").get();
+        assertEquals(IpProfile.Source.NONE, invalid.getSource());
+        assertEquals(3, resolver.lookups.get());
+        service.shutdown();
+    }
+
+    @Test
+    void normalizesEquivalentAddresses() {
+        assertEquals("1.2.3.4", IpAddresses.normalize("::ffff:1.2.3.4"));
+        assertEquals("1.2.3.4", IpAddresses.normalize("01.002.3.4"));
+        assertEquals("2001:db8:0:0:0:0:0:1", IpAddresses.normalize("2001:DB8::1"));
+        assertEquals("2001:db8:0:0:0:0:0:1", IpAddresses.normalize("[2001:db8:0:0:0:0:0:1]"));
+        assertNull(IpAddresses.normalize("example.com"));
+    }
+}
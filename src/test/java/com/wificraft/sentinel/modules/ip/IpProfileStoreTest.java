@@ -0,0 +1,100 @@
+package com.wificraft.sentinel.modules.ip;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IpProfileStoreTest {
+
+    @TempDir
+    Path folder;
+
+    private static IpProfile profile(String address, String city) {
+        GeoRecord geo = new GeoRecord("PL", "Poland", city, "Europe/Warsaw", 52.2, 21.0, 5617, "Orange");
+        return new IpProfile(address, geo, null, null, true, false, IpProfile.Source.HTTP, 1000);
+    }
+
+    @Test
+    void profilesSurviveReopening() {
+        Path file = folder.resolve("profiles.dat");
+        IpProfileStore store = new IpProfileStore(file, 10_000, null);
+        store.put(profile("5.172.230.1", "Warsaw"), 0);
+        store.put(profile("5.172.230.2", "Krakow"), -8_000);
+        store.put(profile("5.172.230.1", "Gdansk"), 0);
+        store.close();
+
+        IpProfileStore reopened = new IpProfileStore(file, 10_000, null);
+        assertEquals(0, reopened.size());
+        IpProfile loaded = reopened.get("5.172.230.1", 5_000);
+        assertNotNull(loaded);
+        assertEquals("Gdansk", loaded.getGeo().getCity());
+        assertEquals(5617, loaded.getGeo().getAsn());
+        assertTrue(loaded.isHosting());
+        assertFalse(loaded.isProxy());
+        assertEquals(IpProfile.Source.HTTP, loaded.getSource());
+        assertEquals(1000, loaded.getResolvedAt());
+        // Expired records are not indexed
+        assertNull(reopened.get("5.172.230.2", 5_000));
+        assertEquals(1, reopened.size());
+        reopened.close();
+    }
+
+    @Test
+    void incompleteRecordIsDropped() throws IOException {
+        Path file = folder.resolve("profiles.dat");
+        IpProfileStore store = new IpProfileStore(file, 10_000, null);
+        store.put(profile("5.172.230.1", "Warsaw"), 0);
+        store.put(profile("5.172.230.2", "Krakow"), 0);
+        store.close();
+        long size = Files.size(file);
+        try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+            raw.setLength(size - 5);
+        }
+
+        IpProfileStore reopened = new IpProfileStore(file, 10_000, null);
+        assertNotNull(reopened.get("5.172.230.1", 0));
+        assertNull(reopened.get("5.172.230.2", 0));
+        reopened.put(profile("5.172.230.3", "Poznan"), 0);
+        reopened.close();
+
+        IpProfileStore again = new IpProfileStore(file, 10_000, null);
+        assertEquals("Poznan", again.get("5.172.230.3", 0).getGeo().getCity());
+        assertEquals(2, again.size());
+        again.close();
+    }
+
+    @Test
+    void compactionKeepsOnlyLiveRecords() throws IOException {
+        Path file = folder.resolve("profiles.dat");
+        IpProfileStore store = new IpProfileStore(file, 10_000, null);
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 200; i++) {
+                store.put(profile("10.0." + round + "." + i, "Warsaw"), i % 2 == 0 ? 0 : 90_000);
+            }
+            for (int i = 0; i < 600; i++) {
+                store.put(profile("10.1.0." + (i % 200), "City " + round), 90_000);
+            }
+        }
+        assertTrue(store.needsCompaction());
+        long before = Files.size(file);
+        store.compact(50_000);
+        assertTrue(Files.size(file) < before / 3);
+        assertFalse(store.needsCompaction());
+
+        assertEquals("City 19", store.get("10.1.0.7", 50_000).getGeo().getCity());
+        assertNull(store.get("10.0.3.2", 50_000));
+        assertNotNull(store.get("10.0.3.3", 50_000));
+        store.close();
+
+        IpProfileStore reopened = new IpProfileStore(file, 10_000, null);
+        assertEquals("City 19", reopened.get("10.1.0.199", 50_000).getGeo().getCity());
+        assertEquals(200 + 20 * 100, reopened.size());
+        reopened.close();
+    }
+}
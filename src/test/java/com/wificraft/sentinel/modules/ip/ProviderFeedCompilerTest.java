@@ -0,0 +1,66 @@
+package com.wificraft.sentinel.modules.ip;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProviderFeedCompilerTest {
+
+    @TempDir
+    Path folder;
+
+    private void write(String name, String content) throws Exception {
+        Path file = folder.resolve(name);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void readsJsonAndTextFeeds() throws Exception {
+        write("cloud/AWS.json", "{\"syncToken\":\"1700000000\",\"createDate\":\"2024-01-01-00-00-00\","
+            + "\"prefixes\":[{\"ip_prefix\":\"3.5.140.0/22\",\"region\":\"ap-northeast-2\",\"service\":\"AMAZON\"},"
+            + "{\"ip_prefix\":\"3.5.144.0/22\",\"region\":\"us-east-1\",\"network_border_group\":\"us-east-1\"}],"
+            + "\"ipv6_prefixes\":[{\"ipv6_prefix\":\"2600:1f00::/24\",\"service\":\"AMAZON\"}]}");
+        write("cloud/Google Cloud.json", "{\"prefixes\":[{\"ipv4Prefix\":\"34.1.208.0/20\",\"scope\":\"africa-south1\"},"
+            + "{\"ipv6Prefix\":\"2600:1900:8000::/44\"}],\"note\":\"see https://example.com/a/b\",\"count\":2}");
+        write("datacenter/Hetzner.txt", "# AS24940\n5.9.0.0/16\n88.198.0.0/16   # FSN\n\n"
+            + "176.9.0.0/16, Hetzner Falkenstein\nnot-a-range\n2a01:4f8::/32\n");
+
+        ProviderFeedCompiler.Result result = ProviderFeedCompiler.compile(folder);
+        assertEquals(3, result.getFeeds());
+        assertEquals(9, result.getRanges());
+        assertEquals(1, result.getInvalid());
+
+        assertEquals("AWS", result.getCloud().lookup("3.5.141.9"));
+        assertEquals("AWS", result.getCloud().lookup("2600:1f00::1"));
+        assertEquals("Google Cloud", result.getCloud().lookup("34.1.210.1"));
+        assertEquals("Google Cloud", result.getCloud().lookup("2600:1900:8000::5"));
+        assertEquals("Hetzner", result.getDataCenters().lookup("88.198.1.1"));
+        assertEquals("Hetzner Falkenstein", result.getDataCenters().lookup("176.9.4.4"));
+        assertEquals("Hetzner", result.getDataCenters().lookup("2a01:4f8:1::1"));
+        // Built-in ranges stay
+        assertEquals("AWS", result.getCloud().lookup("52.1.1.1"));
+        assertEquals("OVH", result.getDataCenters().lookup("149.202.3.3"));
+    }
+
+    @Test
+    void mergesAdjacentRangesOfOneProvider() throws Exception {
+        StringBuilder feed = new StringBuilder();
+        for (int i = 0; i < 4096; i++) {
+            feed.append("20.").append(i / 16).append('.').append((i % 16) * 16).append(".0/20\n");
+        }
+        write("datacenter/Wide.txt", feed.toString());
+
+        ProviderFeedCompiler.Result result = ProviderFeedCompiler.compile(folder);
+        assertEquals(4096, result.getRanges());
+        // 20.0.0.0 - 20.255.255.255 collapses into one interval next to the built-in ones
+        assertEquals(ProviderFeedCompiler.compile(folder.resolve("missing")).getDataCenters().getIntervalCount() + 1,
+            result.getDataCenters().getIntervalCount());
+        assertEquals("Wide", result.getDataCenters().lookup("20.200.7.7"));
+    }
+}
@@ -0,0 +1,97 @@
+package com.wificraft.sentinel.modules.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlidingWindowCounterTest {
+
+    @Test
+    void countsEventsInsideTheWindowOnly() {
+        SlidingWindowCounter<String> counter = new SlidingWindowCounter<>(10_000, 10, 100);
+
+        assertEquals(1, counter.increment("a", 1_000));
+        assertEquals(2, counter.increment("a", 5_500));
+        assertEquals(3, counter.increment("a", 10_900));
+        // The slot of the first event (1000-1999) has left the window
+        assertEquals(2, counter.count("a", 11_000));
+        assertEquals(1, counter.count("a", 15_500));
+        assertEquals(0, counter.count("a", 21_000));
+        assertEquals(0, counter.count("missing", 1_000));
+    }
+
+    @Test
+    void reusesSlotsAcrossManyWindows() {
+        SlidingWindowCounter<String> counter = new SlidingWindowCounter<>(1_000, 4, 100);
+        for (long t = 0; t < 100_000; t += 100) {
+            counter.increment("a", t);
+        }
+        // Ten events per second, window of four 250 ms slots
+        assertEquals(10, counter.count("a", 99_999));
+    }
+
+    @Test
+    void boundsKeysAndEvictsIdleOnes() {
+        SlidingWindowCounter<Integer> counter = new SlidingWindowCounter<>(1_000, 10, 50);
+        for (int key = 0; key < 200; key++) {
+            counter.increment(key, key);
+        }
+        assertTrue(counter.size() <= 50, "size " + counter.size());
+
+        counter.increment(-1, 5_000);
+        assertEquals(1, counter.size());
+        assertEquals(1, counter.count(-1, 5_000));
+    }
+
+    @Test
+    void countsExactlyUnderContention() throws Exception {
+        SlidingWindowCounter<String> counter = new SlidingWindowCounter<>(60_000, 6, 100);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 16; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    counter.increment("shared", 1_000);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(160_000, counter.count("shared", 1_000));
+    }
+
+    @Test
+    void tokenBucketAllowsBurstThenRefills() {
+        TokenBucketLimiter<String> bucket = new TokenBucketLimiter<>(1_000, 3, 100);
+
+        assertEquals(3, bucket.available("a", 0));
+        assertTrue(bucket.tryAcquire("a", 0));
+        assertTrue(bucket.tryAcquire("a", 0));
+        assertTrue(bucket.tryAcquire("a", 0));
+        assertFalse(bucket.tryAcquire("a", 0));
+        assertEquals(0, bucket.available("a", 500));
+        assertTrue(bucket.tryAcquire("a", 1_000));
+        assertEquals(3, bucket.available("a", 10_000));
+    }
+
+    @Test
+    void hierarchicalCountsSlideIndependently() {
+        HierarchicalCounter<String> counter = new HierarchicalCounter<>(100);
+        long hour = HierarchicalCounter.Period.HOUR.getLengthMillis();
+
+        counter.increment("logins", 0);
+        counter.increment("logins", 30_000);
+        counter.increment("logins", 2 * hour);
+
+        long now = 2 * hour + 1_000;
+        assertEquals(1, counter.count("logins", HierarchicalCounter.Period.MINUTE, now));
+        assertEquals(1, counter.count("logins", HierarchicalCounter.Period.HOUR, now));
+        assertEquals(3, counter.count("logins", HierarchicalCounter.Period.DAY, now));
+        assertEquals(0, counter.count("logins", HierarchicalCounter.Period.DAY, now + 2 * 86_400_000L));
+    }
+}
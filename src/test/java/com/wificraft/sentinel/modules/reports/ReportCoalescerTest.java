@@ -0,0 +1,123 @@
+package com.wificraft.sentinel.modules.reports;
+
+import com.wificraft.sentinel.modules.reports.evidence.ChatEvidence;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportCoalescerTest {
+    private static final long WINDOW = 60_000L;
+
+    // Records what the coalescer writes instead of storing reports
+    private static final class RecordingSink implements ReportCoalescer.Sink {
+        final Map<UUID, List<Evidence>> evidence = new HashMap<>();
+        final Map<UUID, List<String>> notes = new HashMap<>();
+        final List<UUID> opened = new ArrayList<>();
+
+        @Override
+        public UUID openReport(UUID reportedPlayerId, String reason, List<Evidence> samples) {
+            UUID id = UUID.randomUUID();
+            opened.add(id);
+            evidence.put(id, new ArrayList<>(samples));
+            notes.put(id, new ArrayList<>());
+            return id;
+        }
+
+        @Override
+        public void addEvidence(UUID reportId, Evidence sample) {
+            evidence.get(reportId).add(sample);
+        }
+
+        @Override
+        public void addNote(UUID reportId, String note) {
+            notes.get(reportId).add(note);
+        }
+    }
+
+    private static Evidence sample(int i) {
+        return new ChatEvidence(null, "spam " + i, "global", null);
+    }
+
+    @Test
+    void floodBecomesOneReportWithSamplesAndTotal() {
+        RecordingSink sink = new RecordingSink();
+        ReportCoalescer coalescer = new ReportCoalescer(sink, WINDOW, 3, 4, 100);
+        UUID spammer = UUID.randomUUID();
+
+        assertNull(coalescer.signal(spammer, "spam", sample(0), 0));
+        assertNull(coalescer.signal(spammer, "spam", sample(1), 100));
+        UUID reportId = coalescer.signal(spammer, "spam", sample(2), 200);
+        assertNotNull(reportId);
+        for (int i = 3; i < 500; i++) {
+            assertEquals(reportId, coalescer.signal(spammer, "spam", sample(i), 200 + i));
+        }
+
+        assertEquals(1, sink.opened.size());
+        assertEquals(4, sink.evidence.get(reportId).size());
+        assertEquals(500, coalescer.getHits(spammer, "spam"));
+        assertTrue(sink.notes.get(reportId).isEmpty());
+
+        coalescer.expire(WINDOW);
+        assertEquals(List.of("Sygnałów łącznie: 500 w ciągu 0 s"), sink.notes.get(reportId));
+        assertEquals(0, coalescer.getGroupCount());
+    }
+
+    @Test
+    void reasonsAndWindowsAreSeparateAndQuietGroupsLeaveNothing() {
+        RecordingSink sink = new RecordingSink();
+        ReportCoalescer coalescer = new ReportCoalescer(sink, WINDOW, 2, 1, 100);
+        UUID player = UUID.randomUUID();
+
+        coalescer.signal(player, "caps", null, 0);
+        coalescer.signal(player, "short", null, 0);
+        coalescer.signal(player, "caps", null, WINDOW);
+        assertTrue(sink.opened.isEmpty());
+
+        UUID first = coalescer.signal(player, "short", null, 1000);
+        assertNotNull(first);
+        coalescer.signal(player, "short", null, WINDOW + 1000);
+        UUID second = coalescer.signal(player, "short", null, WINDOW + 2000);
+        assertNotNull(second);
+        assertNotEquals(first, second);
+        // Both short-message groups stopped at the threshold, so there is no total to add
+        coalescer.shutdown();
+        assertTrue(sink.notes.get(first).isEmpty());
+        assertTrue(sink.notes.get(second).isEmpty());
+    }
+
+    @Test
+    void aSignalCanBringItsOwnThreshold() {
+        RecordingSink sink = new RecordingSink();
+        ReportCoalescer coalescer = new ReportCoalescer(sink, WINDOW, 3, 4, 100);
+        UUID player = UUID.randomUUID();
+
+        // One signal every 30 s never reaches a threshold of 3 in a 60 s window
+        UUID reportId = coalescer.signal(player, "flood", sample(0), 1, 0);
+        assertNotNull(reportId);
+        assertEquals(reportId, coalescer.signal(player, "flood", sample(1), 1, 30_000));
+        assertNull(coalescer.signal(player, "caps", null, 0));
+        assertEquals(1, sink.opened.size());
+        assertEquals(2, sink.evidence.get(reportId).size());
+    }
+
+        @Test
+    void oldestGroupIsClosedWhenFull() {
+        RecordingSink sink = new RecordingSink();
+        ReportCoalescer coalescer = new ReportCoalescer(sink, WINDOW, 1, 0, 2);
+        UUID oldest = UUID.randomUUID();
+        UUID reportId = coalescer.signal(oldest, "fly", null, 0);
+        coalescer.signal(oldest, "fly", null, 10);
+        coalescer.signal(UUID.randomUUID(), "fly", null, 20);
+        coalescer.signal(UUID.randomUUID(), "fly", null, 30);
+
+        assertEquals(2, coalescer.getGroupCount());
+        assertEquals(0, coalescer.getHits(oldest, "fly"));
+        assertEquals(List.of("Sygnałów łącznie: 2 w ciągu 0 s"), sink.notes.get(reportId));
+    }
+}
@@ -0,0 +1,135 @@
+package com.wificraft.sentinel.modules.reports;
+
+import com.wificraft.sentinel.modules.storage.ReportQuery;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportIndexTest {
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    private final Map<UUID, Report> stored = new HashMap<>();
+    private final ReportIndex index = new ReportIndex(ids -> {
+        Map<UUID, Report> found = new HashMap<>();
+        for (UUID id : ids) {
+            if (stored.containsKey(id)) {
+                found.put(id, stored.get(id));
+            }
+        }
+        return found;
+    });
+
+    private void add(Report report) {
+        stored.put(report.getId(), report);
+        index.update(ReportHeader.of(report));
+    }
+
+    private static Report report(UUID reporter, UUID target, String reason, int minute) {
+        return new Report(UUID.randomUUID(), reporter, target, reason, START.plusMinutes(minute));
+    }
+
+    @Test
+    void cursorPagesCoverEveryMatchOnceNewestFirst() {
+        UUID target = UUID.randomUUID();
+        for (int i = 0; i < 1000; i++) {
+            // Several reports share a minute, so the ID has to break ties
+            add(report(UUID.randomUUID(), i % 3 == 0 ? target : UUID.randomUUID(), "fly " + i, i / 4));
+        }
+
+        List<Report> seen = new ArrayList<>();
+        ReportPage.Cursor cursor = null;
+        do {
+            ReportPage page = index.search(new ReportQuery().reportedPlayer(target).page(0, 25), cursor);
+            seen.addAll(page.getReports());
+            cursor = page.getNext();
+        } while (cursor != null);
+
+        assertEquals(334, seen.size());
+        assertEquals(334, index.count(new ReportQuery().reportedPlayer(target)));
+        assertEquals(1000, index.count(new ReportQuery()));
+        assertEquals(84, index.count(new ReportQuery().reportedPlayer(target).createdBetween(START.plusMinutes(187), null)));
+        assertEquals(17, index.count(new ReportQuery().reportedPlayer(target)
+            .createdBetween(START.plusMinutes(187), START.plusMinutes(200))));
+        Set<UUID> ids = new HashSet<>();
+        for (int i = 0; i < seen.size(); i++) {
+            assertTrue(ids.add(seen.get(i).getId()));
+            assertEquals(target, seen.get(i).getReportedPlayerId());
+            if (i > 0) {
+                assertTrue(ReportIndex.keyOf(ReportHeader.of(seen.get(i - 1))).compareTo(ReportIndex.keyOf(ReportHeader.of(seen.get(i)))) < 0);
+            }
+        }
+    }
+
+    @Test
+    void wordsMatchByPrefixAndFollowNotesAndStatus() {
+        UUID reporter = UUID.randomUUID();
+        Report hacking = report(reporter, UUID.randomUUID(), "Używa hacków na fly", 0);
+        Report spam = report(reporter, UUID.randomUUID(), "spam na czacie", 1);
+        Report other = report(UUID.randomUUID(), UUID.randomUUID(), "kill aura", 2);
+        add(hacking);
+        add(spam);
+        add(other);
+
+        assertEquals(List.of(hacking), index.search(new ReportQuery().text("HACK"), null).getReports());
+        assertEquals(List.of(spam, hacking), index.search(new ReportQuery().text("na"), null).getReports());
+        assertTrue(index.search(new ReportQuery().text("fly czat"), null).getReports().isEmpty());
+
+        spam.addNote("Admin: też xray");
+        spam.assignToModerator("mod");
+        add(spam);
+        assertEquals(List.of(spam), index.search(new ReportQuery().text("xray"), null).getReports());
+        assertEquals(List.of(spam), index.search(new ReportQuery().text("admin"), null).getReports());
+        assertEquals(List.of(spam), index.search(new ReportQuery().status(Report.ReportStatus.IN_PROGRESS), null).getReports());
+        assertEquals(List.of(other, hacking),
+            index.search(new ReportQuery().status(Report.ReportStatus.OPEN), null).getReports());
+        assertEquals(List.of(spam, hacking), index.search(new ReportQuery().reporter(reporter), null).getReports());
+    }
+
+    @Test
+    void timeRangeAndOffsetNarrowTheWalk() {
+        List<Report> byMinute = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            Report report = report(UUID.randomUUID(), UUID.randomUUID(), "reason " + (i % 2 == 0 ? "even" : "odd"), i);
+            byMinute.add(report);
+            add(report);
+        }
+
+        ReportQuery window = new ReportQuery().createdBetween(START.plusMinutes(10), START.plusMinutes(20));
+        List<Report> found = index.search(window, null).getReports();
+        assertEquals(10, found.size());
+        assertSame(byMinute.get(19), found.get(0));
+        assertSame(byMinute.get(10), found.get(9));
+
+        ReportPage page = index.search(new ReportQuery().text("even").createdBetween(START.plusMinutes(10), START.plusMinutes(20))
+            .page(1, 2), null);
+        assertEquals(List.of(byMinute.get(16), byMinute.get(14)), page.getReports());
+        assertNotNull(page.getNext());
+        ReportPage rest = index.search(new ReportQuery().text("even").createdBetween(START.plusMinutes(10), START.plusMinutes(20))
+            .page(0, 10), page.getNext());
+        assertEquals(List.of(byMinute.get(12), byMinute.get(10)), rest.getReports());
+        assertNull(rest.getNext());
+    }
+
+    @Test
+    void reportsAreFoundByTheStartOfTheirId() {
+        Report first = new Report(UUID.fromString("3fa2b1c4-0000-4000-8000-000000000001"), null, UUID.randomUUID(), "a", START);
+        Report second = new Report(UUID.fromString("f0000000-0000-4000-8000-000000000002"), null, UUID.randomUUID(), "b", START);
+        add(first);
+        add(second);
+
+        assertEquals(first.getId(), index.findByIdPrefix("3fa2b1c4"));
+        assertEquals(second.getId(), index.findByIdPrefix("F000"));
+        assertEquals(second.getId(), index.findByIdPrefix(second.getId().toString()));
+        assertNull(index.findByIdPrefix("3fa3"));
+        assertNull(index.findByIdPrefix("xyz"));
+    }
+}
@@ -0,0 +1,163 @@
+package com.wificraft.sentinel.modules.reports;
+
+import com.wificraft.sentinel.modules.reports.evidence.ChatEvidence;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportJournalTest {
+    private static final Logger LOGGER = Logger.getLogger("ReportJournalTest");
+
+    @TempDir
+    Path folder;
+
+    private ReportJournal open(long segmentBytes) throws IOException {
+        ReportJournal journal = new ReportJournal(folder, LOGGER, segmentBytes, 1);
+        journal.load();
+        journal.start();
+        return journal;
+    }
+
+    private Map<UUID, Report> reload() throws IOException {
+        ReportJournal journal = new ReportJournal(folder, LOGGER, 1 << 20, 1);
+        Map<UUID, Report> reports = new HashMap<>();
+        for (UUID id : journal.load().keySet()) {
+            reports.put(id, journal.read(id));
+        }
+        journal.close();
+        return reports;
+    }
+
+    @Test
+    void changesSurviveARestart() throws IOException {
+        ReportJournal journal = open(1 << 20);
+        Report report = new Report(UUID.randomUUID(), UUID.randomUUID(), "fly");
+        journal.appendReport(report);
+        report.addNote("seen twice");
+        journal.appendNote(report, report.getNotes().get(0));
+        report.assignToModerator("mod");
+        journal.appendState(report);
+        ChatEvidence evidence = new ChatEvidence(report.getReporterId(), "hello", "global", null);
+        report.addEvidence(evidence);
+        journal.appendEvidenceAdded(report, evidence);
+        journal.flush();
+        journal.close();
+
+        Report loaded = reload().get(report.getId());
+        assertNotNull(loaded);
+        assertEquals("fly", loaded.getReason());
+        assertEquals(report.getCreatedAt(), loaded.getCreatedAt());
+        assertEquals(report.getNotes(), loaded.getNotes());
+        assertEquals(Report.ReportStatus.IN_PROGRESS, loaded.getStatus());
+        assertEquals("mod", loaded.getAssignedModeratorId());
+        assertEquals(1, loaded.getEvidence().size());
+        assertEquals(evidence.getId(), loaded.getEvidence().get(0).getId());
+        assertEquals("hello", ((ChatEvidence) loaded.getEvidence().get(0)).getMessage());
+    }
+
+    @Test
+    void tornTailIsCutOff() throws IOException {
+        ReportJournal journal = open(1 << 20);
+        Report kept = new Report(UUID.randomUUID(), UUID.randomUUID(), "kept");
+        journal.appendReport(kept);
+        journal.flush();
+        journal.close();
+
+        // A crash in the middle of the next frame
+        Path segment;
+        try (Stream<Path> files = Files.list(folder)) {
+            segment = files.filter(file -> file.getFileName().toString().startsWith("journal-")
+                && sizeOf(file) > 0).findFirst().orElseThrow(IllegalStateException::new);
+        }
+        long intact = Files.size(segment);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.APPEND)) {
+            channel.write(java.nio.ByteBuffer.wrap(new byte[] {0, 0, 0, 40, 1, 2, 3}));
+        }
+
+        Map<UUID, Report> reports = reload();
+        assertEquals(1, reports.size());
+        assertTrue(reports.containsKey(kept.getId()));
+        assertEquals(intact, Files.size(segment));
+    }
+
+    @Test
+    void compactionFoldsSegmentsIntoTheSnapshot() throws Exception {
+        // 4 KB is the smallest segment the journal accepts
+        ReportJournal journal = open(4096);
+        Report[] reports = new Report[300];
+        for (int i = 0; i < reports.length; i++) {
+            reports[i] = new Report(UUID.randomUUID(), UUID.randomUUID(), "reason " + i);
+            journal.appendReport(reports[i]);
+            if (i % 3 == 0) {
+                reports[i].resolve("done " + i);
+                journal.appendState(reports[i]);
+            }
+            journal.flush();
+        }
+        for (int i = 0; i < 100 && journal.getCompactionCount() == 0; i++) {
+            Thread.sleep(20);
+        }
+        journal.close();
+        assertTrue(journal.getCompactionCount() > 0);
+        assertTrue(journal.getResidentCount() < reports.length);
+        try (Stream<Path> files = Files.list(folder)) {
+            assertTrue(files.anyMatch(file -> file.getFileName().toString().matches("snapshot-\\d+\\.idx")));
+        }
+
+        Map<UUID, Report> loaded = reload();
+        assertEquals(reports.length, loaded.size());
+        for (int i = 0; i < reports.length; i++) {
+            Report report = loaded.get(reports[i].getId());
+            assertEquals(reports[i].getStatus(), report.getStatus());
+            assertEquals(reports[i].getResolutionNotes(), report.getResolutionNotes());
+        }
+    }
+
+    @Test
+    void versionOneSnapshotIsConverted() throws IOException {
+        Report report = new Report(UUID.randomUUID(), UUID.randomUUID(), "xray");
+        report.addNote("checked");
+        byte[] record = ReportCodec.report(report);
+        CRC32 crc = new CRC32();
+        crc.update(record, 0, record.length);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(ReportJournal.SNAPSHOT_MAGIC);
+            out.writeInt(1);
+            out.writeLong(0);
+            out.writeInt(1);
+            out.writeInt(record.length);
+            out.writeInt((int) crc.getValue());
+            out.write(record);
+        }
+        Files.write(folder.resolve("snapshot.dat"), bytes.toByteArray());
+
+        Report loaded = reload().get(report.getId());
+        assertEquals("xray", loaded.getReason());
+        assertEquals(report.getNotes(), loaded.getNotes());
+        assertFalse(Files.exists(folder.resolve("snapshot.dat")));
+    }
+
+    private static long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
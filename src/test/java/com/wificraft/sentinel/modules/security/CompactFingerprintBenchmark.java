@@ -0,0 +1,137 @@
+package com.wificraft.sentinel.modules.security;
+
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.UUID;
+
+import static org.mockito.Mockito.*;
+
+/**
+ * Retained heap per fingerprint and cost per score of {@link CompactFingerprint} against the
+ * {@link ClientFingerprint} it replaced, for 20000 fingerprints of 200 mocked players.
+ *
+ * The full fingerprints share their item stacks with the mocked inventories, so their heap
+ * figure is a lower bound; on a server every copy holds its own item stack mirrors. The items
+ * are plain subclasses rather than mocks, since a mocked getType() would dominate the full
+ * score. Heap is measured as the used heap after a few {@code System.gc()} calls, which the
+ * JVM may not honour, so a single run can be off.
+ *
+ * Not a unit test; nothing is asserted. Run {@link #main(String[])} with the test classpath
+ * and read the printed table. Each measurement runs a few rounds and prints the last, so the
+ * JIT has settled; the numbers still depend on the machine.
+ */
+public final class CompactFingerprintBenchmark {
+    private static final int PLAYERS = 200;
+    private static final int FINGERPRINTS = 20_000;
+    private static final int ROUNDS = 3;
+
+    private CompactFingerprintBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        Player[] players = new Player[PLAYERS];
+        for (int p = 0; p < PLAYERS; p++) {
+            players[p] = player(p);
+        }
+
+        long fullBytes = 0;
+        long compactBytes = 0;
+        double fullNanos = 0;
+        double compactNanos = 0;
+        double sink = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long before = usedHeap();
+            ClientFingerprint[] full = new ClientFingerprint[FINGERPRINTS];
+            for (int i = 0; i < FINGERPRINTS; i++) {
+                full[i] = new ClientFingerprint(players[i % PLAYERS]);
+            }
+            fullBytes = (usedHeap() - before) / FINGERPRINTS;
+
+            long started = System.nanoTime();
+            for (int i = 1; i < FINGERPRINTS; i++) {
+                sink += full[0].calculateSimilarityScore(full[i]);
+            }
+            fullNanos = (System.nanoTime() - started) / (double) (FINGERPRINTS - 1);
+            full = null;
+
+            before = usedHeap();
+            CompactFingerprint[] compact = new CompactFingerprint[FINGERPRINTS];
+            for (int i = 0; i < FINGERPRINTS; i++) {
+                compact[i] = CompactFingerprint.capture(players[i % PLAYERS]);
+            }
+            compactBytes = (usedHeap() - before) / FINGERPRINTS;
+
+            started = System.nanoTime();
+            for (int i = 1; i < FINGERPRINTS; i++) {
+                sink += compact[0].similarity(compact[i]);
+            }
+            compactNanos = (System.nanoTime() - started) / (double) (FINGERPRINTS - 1);
+        }
+        blackhole(sink);
+
+        System.out.println("form      retained B/fingerprint   ns/score");
+        System.out.println(String.format(Locale.ROOT, "full      %20d   %8.1f", fullBytes, fullNanos));
+        System.out.println(String.format(Locale.ROOT, "compact   %20d   %8.1f", compactBytes, compactNanos));
+    }
+
+    private static Player player(int p) {
+        ItemStack[] contents = new ItemStack[41];
+        Material[] materials = Material.values();
+        for (int slot = 0; slot < 20; slot++) {
+            contents[slot] = new Item(materials[(p * 7 + slot * 13) % 400 + 1], 1 + slot % 64);
+        }
+        // Stub-only mocks keep no record of their calls, which would otherwise count as retained heap
+        PlayerInventory inventory = mock(PlayerInventory.class, withSettings().stubOnly());
+        when(inventory.getContents()).thenReturn(contents);
+        Player player = mock(Player.class, withSettings().stubOnly());
+        when(player.getUniqueId()).thenReturn(new UUID(0, p));
+        when(player.getName()).thenReturn("player" + p);
+        when(player.getAddress()).thenReturn(new InetSocketAddress("5.172." + p / 100 + "." + p % 100, 25565));
+        when(player.getClientViewDistance()).thenReturn(12);
+        when(player.getProtocolVersion()).thenReturn(765);
+        when(player.getClientBrandName()).thenReturn("vanilla");
+        when(player.getInventory()).thenReturn(inventory);
+        when(player.getActivePotionEffects()).thenReturn(Collections.emptyList());
+        return player;
+    }
+
+    private static final class Item extends ItemStack {
+        private final Material type;
+        private final int amount;
+
+        Item(Material type, int amount) {
+            this.type = type;
+            this.amount = amount;
+        }
+
+        @Override
+        public Material getType() {
+            return type;
+        }
+
+        @Override
+        public int getAmount() {
+            return amount;
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void blackhole(double value) {
+        if (value == 42.4242) {
+            System.out.println(value);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.wificraft.sentinel.modules.security;
+
+import com.wificraft.sentinel.modules.ip.AccountLinkIndex;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactFingerprintTest {
+    private static CompactFingerprint compact(long address, long network, long hardware, long inventory, long capturedAt) {
+        return new CompactFingerprint(address, network, 7, 8, hardware, inventory, 9, 0, capturedAt);
+    }
+
+    @Test
+    void scoresFromHashesWithTheFullFingerprintWeights() {
+        CompactFingerprint player = compact(1, 10, 100, 0xFF, 0);
+        // Same address, hardware and client, half the item types, a minute later
+        CompactFingerprint alt = compact(1, 10, 100, 0x0F, 60_000);
+        // Different network and hardware, a week later
+        CompactFingerprint stranger = compact(2, 20, 200, 0xF000, 7 * 86_400_000L);
+
+        assertEquals(0.2 + 0.3 + (0.5 + 0.2) * 0.2 + 0.1 + 0.8 * 0.05 + 0.7 * 0.1, player.similarity(alt), 1e-9);
+        assertTrue(player.isSuspicious(alt));
+        assertFalse(player.isSuspicious(stranger));
+        assertTrue(player.similarity(stranger) < 0.4);
+        assertEquals(player.similarity(alt), alt.similarity(player), 1e-9);
+    }
+
+    @Test
+    void featureSetSplitsTheSketches() {
+        CompactFingerprint fingerprint = compact(1, 10, 0, 0b1011, 0);
+        // Address, version, brand, hotbar, network and three inventory bits; no hardware
+        assertEquals(8, fingerprint.getFeatureHashes().length);
+
+        FingerprintLshIndex index = new FingerprintLshIndex();
+        index.put(new UUID(0, 1), fingerprint.getFeatureHashes(), 0);
+        assertEquals(1.0, index.findSimilar(compact(1, 10, 0, 0b1011, 5).getFeatureHashes(), 1, 0.0, null)
+            .get(0).getSimilarity(), 1e-9);
+    }
+
+    @Test
+    void sameClientLinksAccountsFromDifferentAddresses() {
+        UUID first = new UUID(0, 1);
+        UUID second = new UUID(0, 2);
+        UUID stranger = new UUID(0, 3);
+        AccountLinkIndex index = new AccountLinkIndex(16);
+        index.recordLogin(first, "5.172.230.1", 1);
+        index.recordLogin(second, "31.0.0.7", 2);
+        index.recordLogin(stranger, "31.0.1.7", 3);
+        assertFalse(index.isSameCluster(first, second));
+
+        // Same client on another connection a day later, with other items and effects
+        String hash = compact(1, 10, 100, 0xFF, 0).getClientHash();
+        String sameClient = new CompactFingerprint(2, 20, 7, 8, 100, 0x0F, 9, 0b11, 86_400_000L).getClientHash();
+        String otherHardware = compact(3, 30, 200, 0xFF, 0).getClientHash();
+        assertNotNull(hash);
+        assertEquals(hash, sameClient);
+        assertNotEquals(hash, otherHardware);
+
+        index.recordFingerprint(first, hash);
+        index.recordFingerprint(second, sameClient);
+        index.recordFingerprint(stranger, otherHardware);
+
+        assertTrue(index.isSameCluster(first, second));
+        assertFalse(index.isSameCluster(first, stranger));
+        List<AccountLinkIndex.AccountLink> links = index.getLinkedAccounts(first);
+        assertEquals(1, links.size());
+        assertEquals(second, links.get(0).getAccount());
+        assertEquals(AccountLinkIndex.IdentifierType.FINGERPRINT.getWeight(), links.get(0).getStrength(), 1e-9);
+    }
+
+    /**
+     * The compact form holds nothing but its nine hashes, so its size does not depend on the
+     * inventory or effects it was captured from.
+     */
+    @Test
+    void holdsOnlyNinePrimitiveLongs() {
+        int longs = 0;
+        for (Field field : CompactFingerprint.class.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers())) {
+                continue;
+            }
+            assertEquals(long.class, field.getType(), field.getName());
+            longs++;
+        }
+        assertEquals(9, longs);
+    }
+}
@@ -0,0 +1,113 @@
+package com.wificraft.sentinel.modules.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FingerprintLshIndexTest {
+
+    private static UUID account(int n) {
+        return new UUID(0, n);
+    }
+
+    /**
+     * 40 features of a player: the first {@code shared} are common to all variants of that player.
+     */
+    private static long[] features(int player, int variant, int shared) {
+        long[] features = new long[40];
+        for (int i = 0; i < features.length; i++) {
+            String feature = i < shared ? "p" + player + "f" + i : "p" + player + "v" + variant + "f" + i;
+            features[i] = FingerprintLshIndex.featureHash(feature);
+        }
+        return features;
+    }
+
+    private static FingerprintLshIndex populated(int players) {
+        FingerprintLshIndex index = new FingerprintLshIndex();
+        for (int i = 0; i < players; i++) {
+            index.put(account(i), features(i, 0, 36), i);
+        }
+        return index;
+    }
+
+    @Test
+    void findsNearDuplicatesAmongManyFingerprints() {
+        FingerprintLshIndex index = populated(100_000);
+        assertEquals(100_000, index.size());
+
+        // Same player on a new account: 36 of 40 features shared, Jaccard 36/44
+        List<FingerprintLshIndex.Match> matches = index.findSimilar(features(4242, 1, 36), 3, 0.0, null);
+        assertFalse(matches.isEmpty());
+        assertEquals(account(4242), matches.get(0).getAccount());
+        assertTrue(matches.get(0).getSimilarity() > 0.6, "similarity: " + matches.get(0).getSimilarity());
+
+        // A stranger shares nothing, so it lands in no bucket
+        long[] stranger = new long[40];
+        Random random = new Random(7);
+        for (int i = 0; i < stranger.length; i++) {
+            stranger[i] = random.nextLong();
+        }
+        assertTrue(index.findSimilar(stranger, 3, 0.0, null).isEmpty());
+
+        // The asking account itself is left out
+        assertTrue(index.findSimilar(features(17, 0, 36), 3, 0.5, account(17)).isEmpty());
+    }
+
+    @Test
+    void replacingAFingerprintMovesItBetweenBuckets() {
+        FingerprintLshIndex index = populated(1000);
+        index.put(account(5), features(900, 0, 36), 2000);
+        assertEquals(1000, index.size());
+
+        List<FingerprintLshIndex.Match> matches = index.findSimilar(features(900, 0, 36), 5, 0.9, null);
+        assertEquals(2, matches.size());
+        assertEquals(1.0, index.similarity(account(5), account(900)), 1e-9);
+        assertTrue(index.findSimilar(features(5, 0, 36), 5, 0.5, null).isEmpty());
+    }
+
+    @Test
+    void roundTripsThroughBinaryForm() throws Exception {
+        FingerprintLshIndex index = populated(10_000);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        index.write(new DataOutputStream(bytes));
+        assertFalse(index.isDirty());
+        assertEquals(20 + 10_000 * (24 + 4 * 32), bytes.size());
+
+        FingerprintLshIndex loaded = FingerprintLshIndex.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(10_000, loaded.size());
+        assertTrue(loaded.contains(account(9999)));
+        List<FingerprintLshIndex.Match> matches = loaded.findSimilar(features(123, 2, 36), 1, 0.0, null);
+        assertEquals(account(123), matches.get(0).getAccount());
+        assertEquals(123, matches.get(0).getLastSeen());
+    }
+
+    @Test
+    void keepsTheMostRecentlySeenWithinItsLimits() {
+        FingerprintLshIndex index = populated(1000);
+        index.setMaxEntries(600);
+        assertEquals(600, index.size());
+        assertFalse(index.contains(account(399)));
+        assertTrue(index.contains(account(400)));
+
+        index.put(account(5000), features(5000, 0, 36), 5000);
+        assertEquals(600, index.size());
+        assertFalse(index.contains(account(400)));
+
+        assertEquals(99, index.prune(500));
+        assertEquals(501, index.size());
+        // Fingerprints moved into freed slots are still found through their buckets
+        for (int i = 500; i < 1000; i += 50) {
+            assertEquals(account(i), index.findSimilar(features(i, 1, 36), 1, 0.0, null).get(0).getAccount());
+        }
+        assertEquals(account(5000), index.findSimilar(features(5000, 0, 36), 1, 0.0, null).get(0).getAccount());
+        assertTrue(index.findSimilar(features(450, 0, 36), 1, 0.9, null).isEmpty());
+    }
+}
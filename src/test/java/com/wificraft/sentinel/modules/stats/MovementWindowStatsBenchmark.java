@@ -0,0 +1,133 @@
+package com.wificraft.sentinel.modules.stats;
+
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Cost per move of {@link MovementWindowStats} against the full rescan of the window it
+ * replaced, for windows holding about 100, 1000 and 10000 moves.
+ *
+ * Not a unit test; nothing is asserted. Run {@link #main(String[])} with the test classpath
+ * and read the printed table. Each measurement runs a few rounds and prints the last, so the
+ * JIT has settled; the numbers still depend on the machine.
+ */
+public final class MovementWindowStatsBenchmark {
+    private static final double SPEED_THRESHOLD = 10.0;
+    private static final double DISTANCE_THRESHOLD = 1.0;
+    private static final int ROUNDS = 3;
+
+    private MovementWindowStatsBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        System.out.println("window   incremental ns/move   rescan ns/move   speedup");
+        for (int window : new int[] {100, 1000, 10000}) {
+            double incremental = incrementalNanosPerMove(window);
+            double rescan = rescanNanosPerMove(window);
+            System.out.println(String.format(Locale.ROOT, "%6d   %19.1f   %14.1f   %6.0fx",
+                window, incremental, rescan, rescan / incremental));
+        }
+    }
+
+    private static double[] walk(int moves) {
+        Random random = new Random(7);
+        double[] coordinates = new double[moves * 3];
+        for (int i = 0; i < coordinates.length; i++) {
+            coordinates[i] = random.nextDouble() * 4;
+        }
+        return coordinates;
+    }
+
+    // One move per millisecond, so a window of n milliseconds holds n moves
+    private static double incrementalNanosPerMove(int window) {
+        int moves = 400_000;
+        double[] walk = walk(moves);
+        MovementWindowStats stats = new MovementWindowStats(window, window * 2, SPEED_THRESHOLD, DISTANCE_THRESHOLD);
+        long time = 0;
+        double result = 0;
+        double sink = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long started = System.nanoTime();
+            for (int i = 0; i < moves; i++) {
+                stats.add(time++, walk[i * 3], walk[i * 3 + 1], walk[i * 3 + 2]);
+                sink += stats.getMaxSpeed();
+            }
+            result = (System.nanoTime() - started) / (double) moves;
+        }
+        blackhole(sink);
+        return result;
+    }
+
+    // The old way: keep the window's moves and walk all of them after every move
+    private static double rescanNanosPerMove(int window) {
+        int moves = Math.max(2_000, 4_000_000 / window);
+        double[] walk = walk(window + moves);
+        long[] times = new long[window];
+        double[] xs = new double[window];
+        double[] ys = new double[window];
+        double[] zs = new double[window];
+        int head = 0;
+        // Fill the window first, so every timed move scans a full one
+        for (int i = 0; i < window; i++) {
+            times[i] = i;
+            xs[i] = walk[i * 3];
+            ys[i] = walk[i * 3 + 1];
+            zs[i] = walk[i * 3 + 2];
+        }
+        long time = window;
+        double result = 0;
+        double sink = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long started = System.nanoTime();
+            for (int i = 0; i < moves; i++) {
+                int move = window + i;
+                times[head] = time++;
+                xs[head] = walk[move * 3];
+                ys[head] = walk[move * 3 + 1];
+                zs[head] = walk[move * 3 + 2];
+                head = (head + 1) % window;
+                sink += scan(times, xs, ys, zs, head, window);
+            }
+            result = (System.nanoTime() - started) / (double) moves;
+        }
+        blackhole(sink);
+        return result;
+    }
+
+    private static double scan(long[] times, double[] xs, double[] ys, double[] zs, int head, int size) {
+        int n = times.length;
+        double maxSpeed = 0;
+        int hits = 0;
+        int turns = 0;
+        for (int k = 0; k + 1 < size; k++) {
+            int a = (head + k) % n;
+            int b = (head + k + 1) % n;
+            double dx = xs[b] - xs[a];
+            double dy = ys[b] - ys[a];
+            double dz = zs[b] - zs[a];
+            double distance = Math.sqrt(dx * dx + dy * dy + dz * dz);
+            if (distance > DISTANCE_THRESHOLD) {
+                hits++;
+            }
+            if (times[b] > times[a]) {
+                maxSpeed = Math.max(maxSpeed, distance / ((times[b] - times[a]) / 1000.0));
+            }
+            if (k > 0) {
+                int p = (head + k - 1) % n;
+                double px = xs[a] - xs[p];
+                double py = ys[a] - ys[p];
+                double pz = zs[a] - zs[p];
+                if (px * dx + py * dy + pz * dz < 0) {
+                    turns++;
+                }
+            }
+        }
+        return maxSpeed + hits + turns;
+    }
+
+    private static void blackhole(double value) {
+        if (value == 42.4242) {
+            System.out.println(value);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.wificraft.sentinel.modules.stats;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MovementWindowStatsTest {
+    private static final long WINDOW = 10000;
+    private static final double SPEED_THRESHOLD = 10.0;
+    private static final double DISTANCE_THRESHOLD = 1.0;
+    private static final double TOLERANCE = 1e-9;
+
+    @Test
+    void matchesFullRecomputationOverRandomWalk() {
+        Random random = new Random(42);
+        MovementWindowStats stats = new MovementWindowStats(WINDOW, 1024, SPEED_THRESHOLD, DISTANCE_THRESHOLD);
+        List<long[]> times = new ArrayList<>();
+        List<double[]> points = new ArrayList<>();
+
+        long now = 1_000_000;
+        for (int i = 0; i < 5000; i++) {
+            // Mostly tick-spaced moves with occasional pauses longer than the window
+            now += random.nextInt(20) == 0 ? 2000 + random.nextInt(12000) : 1 + random.nextInt(100);
+            double[] point = { random.nextGaussian() * 2, random.nextGaussian(), random.nextGaussian() * 2 };
+            stats.add(now, point[0], point[1], point[2]);
+            times.add(new long[] { now });
+            points.add(point);
+
+            Reference expected = Reference.scan(times, points, now - WINDOW);
+            assertEquals(expected.points, stats.getPointCount(), "points at " + i);
+            assertEquals(expected.segments, stats.getSegmentCount(), "segments at " + i);
+            assertEquals(expected.sharpTurns, stats.getSharpTurnCount(), "turns at " + i);
+            assertEquals(expected.speedHits, stats.getSpeedThresholdHits(), "speed hits at " + i);
+            assertEquals(expected.distanceHits, stats.getDistanceThresholdHits(), "distance hits at " + i);
+            assertEquals(expected.maxSpeed, stats.getMaxSpeed(), TOLERANCE * Math.max(1, expected.maxSpeed));
+            assertEquals(expected.maxDistance, stats.getMaxDistance(), TOLERANCE * Math.max(1, expected.maxDistance));
+            assertEquals(expected.distanceSum, stats.getTotalDistance(), TOLERANCE * Math.max(1, expected.distanceSum));
+            double expectedAverage = expected.segments > 0 ? expected.speedSum / expected.segments : 0;
+            assertEquals(expectedAverage, stats.getAverageSpeed(), TOLERANCE * Math.max(1, expectedAverage));
+        }
+    }
+
+    @Test
+    void zeroElapsedSegmentsDoNotPoisonSpeed() {
+        MovementWindowStats stats = new MovementWindowStats(WINDOW, 64, SPEED_THRESHOLD, DISTANCE_THRESHOLD);
+        stats.add(1000, 0, 0, 0);
+        stats.add(1000, 1, 0, 0);
+        stats.add(1050, 2, 0, 0);
+
+        assertEquals(2, stats.getSegmentCount());
+        assertEquals(20.0, stats.getMaxSpeed(), TOLERANCE);
+        assertTrue(Double.isFinite(stats.getAverageSpeed()));
+    }
+
+    @Test
+    void slidingWindowStatsTracksMeanVarianceAndMax() {
+        SlidingWindowStats stats = new SlidingWindowStats(1000, 16, 5.0);
+        stats.add(0, 2);
+        stats.add(100, 8);
+        stats.add(200, 4);
+        assertEquals(3, stats.count());
+        assertEquals(14.0, stats.sum(), TOLERANCE);
+        assertEquals(14.0 / 3, stats.mean(), TOLERANCE);
+        assertEquals(8.0, stats.max(), TOLERANCE);
+        assertEquals(1, stats.countAbove());
+
+        // The 8 leaves the window, the max falls back to the remaining 4
+        stats.advance(1150);
+        assertEquals(1, stats.count());
+        assertEquals(4.0, stats.max(), TOLERANCE);
+        assertEquals(0.0, stats.variance(), TOLERANCE);
+        assertEquals(0, stats.countAbove());
+    }
+
+    /**
+     * Straight port of the old pairwise scan over every point in the window.
+     */
+    private static final class Reference {
+        int points;
+        int segments;
+        int sharpTurns;
+        int speedHits;
+        int distanceHits;
+        double maxSpeed;
+        double maxDistance;
+        double speedSum;
+        double distanceSum;
+
+        static Reference scan(List<long[]> times, List<double[]> points, long cutoff) {
+            Reference result = new Reference();
+            List<Integer> window = new ArrayList<>();
+            for (int i = 0; i < times.size(); i++) {
+                if (times.get(i)[0] >= cutoff) {
+                    window.add(i);
+                }
+            }
+            result.points = window.size();
+            for (int k = 0; k + 1 < window.size(); k++) {
+                long t1 = times.get(window.get(k))[0];
+                long t2 = times.get(window.get(k + 1))[0];
+                double[] p1 = points.get(window.get(k));
+                double[] p2 = points.get(window.get(k + 1));
+                double dx = p2[0] - p1[0];
+                double dy = p2[1] - p1[1];
+                double dz = p2[2] - p1[2];
+                double distance = Math.sqrt(dx * dx + dy * dy + dz * dz);
+                result.segments++;
+                result.distanceSum += distance;
+                result.maxDistance = Math.max(result.maxDistance, distance);
+                if (distance > DISTANCE_THRESHOLD) {
+                    result.distanceHits++;
+                }
+                if (t2 > t1) {
+                    double speed = distance / ((t2 - t1) / 1000.0);
+                    result.speedSum += speed;
+                    result.maxSpeed = Math.max(result.maxSpeed, speed);
+                    if (speed > SPEED_THRESHOLD) {
+                        result.speedHits++;
+                    }
+                }
+                if (k > 0) {
+                    double[] p0 = points.get(window.get(k - 1));
+                    if (angle(p1[0] - p0[0], p1[1] - p0[1], p1[2] - p0[2], dx, dy, dz) > 90) {
+                        result.sharpTurns++;
+                    }
+                }
+            }
+            return result;
+        }
+
+        static double angle(double ax, double ay, double az, double bx, double by, double bz) {
+            double m1 = Math.sqrt(ax * ax + ay * ay + az * az);
+            double m2 = Math.sqrt(bx * bx + by * by + bz * bz);
+            if (m1 == 0 || m2 == 0) return 0;
+            double cos = (ax * bx + ay * by + az * bz) / (m1 * m2);
+            return Math.toDegrees(Math.acos(Math.min(1, Math.max(-1, cos))));
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.wificraft.sentinel.modules.storage;
+
+import com.wificraft.sentinel.modules.ModeratorStats;
+import com.wificraft.sentinel.modules.data.InspectionNotes;
+import com.wificraft.sentinel.modules.ip.GeoRecord;
+import com.wificraft.sentinel.modules.ip.IpProfile;
+import com.wificraft.sentinel.modules.reports.Report;
+import com.wificraft.sentinel.modules.reports.ReportHeader;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Runs against an in-memory H2 database in MySQL mode; skipped when H2 is not on the test classpath.
+ */
+class JdbcStorageTest {
+    private static final Logger LOGGER = Logger.getLogger("JdbcStorageTest");
+
+    private static boolean h2Available() {
+        try {
+            Class.forName("org.h2.Driver");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    private JdbcStorage open(String name) throws IOException {
+        assumeTrue(h2Available(), "H2 is not on the test classpath");
+        ConnectionPool pool = new ConnectionPool("jdbc:h2:mem:" + name + ";MODE=MySQL;DB_CLOSE_DELAY=-1",
+            new Properties(), 2, 5_000);
+        JdbcStorage storage = new JdbcStorage(pool, LOGGER, 1, 2);
+        storage.open();
+        return storage;
+    }
+
+    @Test
+    void reportsArePagedAndFiltered() throws IOException {
+        JdbcStorage storage = open("reports");
+        UUID reporter = UUID.randomUUID();
+        UUID cheater = UUID.randomUUID();
+        for (int i = 0; i < 5; i++) {
+            storage.saveReport(new Report(reporter, cheater, "fly hack " + i));
+        }
+        Report other = new Report(UUID.randomUUID(), UUID.randomUUID(), "spam");
+        storage.saveReport(other);
+        other.assignToModerator("mod");
+        storage.saveState(other);
+        // Searches read what is committed
+        storage.flush();
+
+        assertEquals(6, storage.loadReportHeaders().size());
+        List<Report> first = storage.findReports(new ReportQuery().reportedPlayer(cheater).page(0, 3));
+        List<Report> second = storage.findReports(new ReportQuery().reportedPlayer(cheater).page(3, 3));
+        assertEquals(3, first.size());
+        assertEquals(2, second.size());
+        assertTrue(first.stream().noneMatch(report -> second.stream().anyMatch(r -> r.getId().equals(report.getId()))));
+
+        List<Report> inProgress = storage.findReports(new ReportQuery().status(Report.ReportStatus.IN_PROGRESS));
+        assertEquals(1, inProgress.size());
+        assertEquals("mod", inProgress.get(0).getAssignedModeratorId());
+        assertEquals(1, storage.findReports(new ReportQuery().text("HACK 3")).size());
+        assertEquals(0, storage.findReports(new ReportQuery().text("100%")).size());
+
+        Map<UUID, Report> loaded = storage.loadReports(List.of(other.getId(), first.get(0).getId(), UUID.randomUUID()));
+        assertEquals(2, loaded.size());
+        assertEquals("mod", loaded.get(other.getId()).getAssignedModeratorId());
+        storage.close();
+    }
+
+    @Test
+    void notesStatsAndInspectionsRoundTrip() throws IOException {
+        JdbcStorage storage = open("players");
+        UUID player = UUID.randomUUID();
+        UUID moderator = UUID.randomUUID();
+        storage.addNote(player, new InspectionNotes.Note("WARNING", "first", 1000, moderator, 0));
+        storage.addNote(player, new InspectionNotes.Note("BAN", "second", 2000, moderator, 3600));
+        storage.savePlayerStats(new PlayerStatsRecord(player, 10, 1, 0, 0, 100, 100));
+        storage.savePlayerStats(new PlayerStatsRecord(player, 20, 2, 1, 1, 300, 200));
+        storage.saveModeratorStats(new ModeratorStats(moderator, 3, 1, 2000));
+        for (int i = 0; i < 3; i++) {
+            storage.saveInspection(new InspectionRecord("insp-" + i, player, moderator, 1000L * i, 0, null, null, "ACTIVE", 0));
+        }
+        storage.flush();
+
+        List<InspectionNotes.Note> notes = storage.loadNotes(player);
+        assertEquals(2, notes.size());
+        assertEquals("second", notes.get(1).getContent());
+        assertEquals(3600, notes.get(1).getDuration());
+        PlayerStatsRecord stats = storage.loadPlayerStats(player);
+        assertEquals(2, stats.getLoginCount());
+        assertEquals(300, stats.getTotalPlayTime());
+        assertEquals(3, storage.loadModeratorStats(moderator).getInspections());
+        assertNull(storage.loadPlayerStats(UUID.randomUUID()));
+        List<InspectionRecord> latest = storage.findInspections(player, 0, 2);
+        assertEquals(2, latest.size());
+        assertEquals("insp-2", latest.get(0).getId());
+        storage.close();
+    }
+
+    @Test
+    void ipProfilesExpire() throws IOException {
+        JdbcStorage storage = open("profiles");
+        GeoRecord geo = new GeoRecord("PL", "Poland", "Warsaw", "Europe/Warsaw", 52.2, 21.0, 5617, "Orange");
+        storage.saveIpProfile(new IpProfile("198.51.100.7", geo, null, null, true, false, IpProfile.Source.HTTP, 1000), 5000);
+        storage.flush();
+
+        IpProfile loaded = storage.loadIpProfile("198.51.100.7", 2000);
+        assertNotNull(loaded);
+        assertTrue(loaded.isHosting());
+        assertEquals("Warsaw", loaded.getGeo().getCity());
+        assertEquals(5617, loaded.getGeo().getAsn());
+        assertNull(storage.loadIpProfile("198.51.100.7", 6000));
+        storage.close();
+    }
+
+    @Test
+    void writesAreKeptUntilReopened() throws IOException {
+        JdbcStorage storage = open("reopen");
+        Report report = new Report(UUID.randomUUID(), UUID.randomUUID(), "xray");
+        storage.saveReport(report);
+        storage.close();
+
+        JdbcStorage reopened = open("reopen");
+        Map<UUID, ReportHeader> headers = reopened.loadReportHeaders();
+        assertEquals(report.getReportedPlayerId(), headers.get(report.getId()).getReportedPlayerId());
+        assertEquals("xray", reopened.loadReport(report.getId()).getReason());
+        reopened.close();
+    }
+}